@@ -1,27 +1,99 @@
 import "dotenv/config";
-import express from "express";
+import express, { type Response } from "express";
 import {
   clearAllSessions,
   clearSession,
   getSessionCleanupStats,
   sendAndWaitForReply,
 } from "./botpress-service.js";
-import { processPixelArt } from "./pixel-art.js";
+import { renderPixelArt, renderPixelArtVoxels } from "./pixel-art.js";
 import { getRateLimitCleanupStats, isRateLimited } from "./rate-limiter.js";
 import { ChatRequestSchema } from "./types.js";
 import { parseAndValidate } from "./validator.js";
+import { encodeVoxels, VOXELS } from "./voxel-payload.js";
 
 const app = express();
 app.use(express.json());
 
 const PORT = parseInt(process.env.PORT || "3000", 10);
 const WEBHOOK_ID = process.env.BOTPRESS_WEBHOOK_ID as string;
+const NDJSON = "application/x-ndjson";
+const STREAM_BATCH_SIZE = 50;
 
 if (!WEBHOOK_ID) {
   console.error("BOTPRESS_WEBHOOK_ID is required in .env");
   process.exit(1);
 }
 
+// Returns false once the response buffer is full; wait for drained() before writing more
+function writeLine(res: Response, payload: unknown): boolean {
+  return res.write(`${JSON.stringify(payload)}\n`);
+}
+
+// Resolves when the client has taken the buffered output, or the connection is gone
+function drained(res: Response): Promise<void> {
+  return new Promise((resolve) => {
+    const done = () => {
+      res.off("drain", done);
+      res.off("close", done);
+      resolve();
+    };
+    res.on("drain", done);
+    res.on("close", done);
+  });
+}
+
+// Streams a worldedit sequence as NDJSON: the first line carries the description and first batch,
+// then "commands" lines follow as rows are generated, closed by an "end" line. Rows are only
+// generated as the client keeps up, and other requests get a turn between batches.
+async function streamCommands(
+  res: Response,
+  description: string,
+  rows: Iterable<string[]>,
+): Promise<number> {
+  res.setHeader("Content-Type", NDJSON);
+  let total = 0;
+  let started = false;
+  let batch: string[] = [];
+
+  const flush = async () => {
+    let flowing: boolean;
+    if (!started) {
+      flowing = writeLine(res, { type: "worldedit", description, commands: batch, stream: true });
+      started = true;
+    } else {
+      flowing = writeLine(res, { type: "commands", commands: batch });
+    }
+    total += batch.length;
+    batch = [];
+    if (flowing) {
+      await new Promise<void>((resolve) => setImmediate(resolve));
+    } else {
+      await drained(res);
+    }
+  };
+
+  for (const row of rows) {
+    batch.push(...row);
+    if (batch.length >= STREAM_BATCH_SIZE) {
+      await flush();
+      if (res.destroyed) {
+        // Client went away; stop generating
+        return total;
+      }
+    }
+  }
+  if (batch.length > 0 || !started) {
+    await flush();
+  }
+  if (res.destroyed) {
+    return total;
+  }
+  writeLine(res, { type: "end" });
+  res.end();
+  return total;
+}
+
 app.get("/health", (_req, res) => {
   res.json({
     status: "ok",
@@ -44,6 +116,9 @@ app.post("/chat", async (req, res) => {
   }
 
   const { playerName, playerUUID, message } = parsed.data;
+  const accept = req.get("accept") ?? "";
+  const streaming = accept.includes(NDJSON);
+  const voxels = accept.includes(VOXELS);
   console.log(
     `[${new Date().toISOString()}] POST /chat from ${playerName} (${playerUUID}): "${message}"`,
   );
@@ -64,31 +139,74 @@ app.post("/chat", async (req, res) => {
     if (response.type === "pixelart") {
       const { playerX, playerY, playerZ } = parsed.data;
       console.log(`[${new Date().toISOString()}] Processing pixel art: ${response.url}`);
-      const result = await processPixelArt(
+      if (voxels) {
+        const grid = await renderPixelArtVoxels(
+          response.url,
+          playerX ?? 0,
+          playerY ?? 64,
+          playerZ ?? 0,
+          response.size ?? 128,
+        );
+        res.setHeader("Content-Type", VOXELS);
+        let bytes = 0;
+        for (const chunk of encodeVoxels(grid)) {
+          bytes += chunk.length;
+          if (!res.write(chunk)) {
+            await drained(res);
+            if (res.destroyed) break;
+          }
+        }
+        res.end();
+        const duration = Date.now() - startTime;
+        const [width, height] = grid.size;
+        console.log(
+          `[${new Date().toISOString()}] Pixel art done (${duration}ms): ${width}x${height}, ${bytes} bytes`,
+        );
+        return;
+      }
+      const render = await renderPixelArt(
         response.url,
         playerX ?? 0,
         playerY ?? 64,
         playerZ ?? 0,
         500,
       );
+      let commandCount = render.commandCount;
+      if (streaming) {
+        commandCount = await streamCommands(res, render.description, render.rows);
+      } else {
+        res.json({
+          type: "worldedit",
+          description: render.description,
+          commands: [...render.rows].flat(),
+        });
+      }
       const duration = Date.now() - startTime;
       console.log(
-        `[${new Date().toISOString()}] Pixel art done (${duration}ms): ${result.commands.length} commands`,
+        `[${new Date().toISOString()}] Pixel art done (${duration}ms): ${commandCount} commands`,
       );
-      res.json({ type: "worldedit", description: result.description, commands: result.commands });
       return;
     }
 
     const duration = Date.now() - startTime;
     console.log(`[${new Date().toISOString()}] Response (${duration}ms): type=${response.type}`);
+    if (streaming) {
+      res.setHeader("Content-Type", NDJSON);
+      writeLine(res, response);
+      res.end();
+      return;
+    }
     res.json(response);
   } catch (err) {
     const duration = Date.now() - startTime;
     console.error(`[${new Date().toISOString()}] Chat error (${duration}ms):`, err);
-    res.json({
-      type: "error",
-      text: "Failed to get AI response. Please try again.",
-    });
+    const errorResponse = { type: "error", text: "Failed to get AI response. Please try again." };
+    if (res.headersSent) {
+      writeLine(res, errorResponse);
+      res.end();
+      return;
+    }
+    res.json(errorResponse);
   }
 });
 
@@ -1,4 +1,5 @@
 import sharp from "sharp";
+import type { VoxelGrid } from "./voxel-payload.js";
 
 // 16 Minecraft concrete colors with their RGB values
 const MINECRAFT_PALETTE: Record<string, [number, number, number]> = {
@@ -21,6 +22,16 @@ const MINECRAFT_PALETTE: Record<string, [number, number, number]> = {
 };
 
 const paletteEntries = Object.entries(MINECRAFT_PALETTE);
+const paletteNames = paletteEntries.map(([name]) => name);
+
+// Block indices per pixel, row 0 at the top; TRANSPARENT marks pixels that place nothing
+interface BlockGrid {
+  width: number;
+  height: number;
+  cells: Uint8Array;
+}
+
+const TRANSPARENT = 255;
 
 async function fetchImage(url: string): Promise<Buffer> {
   const controller = new AbortController();
@@ -38,136 +49,193 @@ async function resizeImage(
   buffer: Buffer,
   maxSize: number,
 ): Promise<{ data: Buffer; width: number; height: number }> {
-  const img = sharp(buffer).resize(maxSize, maxSize, {
-    fit: "inside",
-    withoutEnlargement: true,
-  });
-  const { info } = await img.removeAlpha().raw().toBuffer({ resolveWithObject: true });
-
-  // Re-process with alpha to detect transparency
-  const withAlpha = await sharp(buffer)
-    .resize(info.width, info.height, {
+  // One pass with alpha kept, so transparent pixels can be skipped
+  const { data, info } = await sharp(buffer)
+    .resize(maxSize, maxSize, {
       fit: "inside",
       withoutEnlargement: true,
     })
     .ensureAlpha()
     .raw()
     .toBuffer({ resolveWithObject: true });
-
-  return { data: withAlpha.data, width: withAlpha.info.width, height: withAlpha.info.height };
+  return { data, width: info.width, height: info.height };
 }
 
-function closestBlock(r: number, g: number, b: number): string {
-  let bestName = "white_concrete";
+function closestBlock(r: number, g: number, b: number): number {
+  let best = 0;
   let bestDist = Infinity;
-  for (const [name, [pr, pg, pb]] of paletteEntries) {
+  for (let i = 0; i < paletteEntries.length; i++) {
+    const [pr, pg, pb] = paletteEntries[i][1];
     const dr = r - pr;
     const dg = g - pg;
     const db = b - pb;
     const dist = dr * dr + dg * dg + db * db;
     if (dist < bestDist) {
       bestDist = dist;
-      bestName = name;
+      best = i;
     }
   }
-  return bestName;
+  return best;
 }
 
-function quantizeImage(pixels: Buffer, width: number, height: number): (string | null)[][] {
-  const grid: (string | null)[][] = [];
-  for (let y = 0; y < height; y++) {
-    const row: (string | null)[] = [];
-    for (let x = 0; x < width; x++) {
-      const idx = (y * width + x) * 4; // RGBA
-      const a = pixels[idx + 3];
-      if (a < 128) {
-        row.push(null); // transparent → skip
-      } else {
-        row.push(closestBlock(pixels[idx], pixels[idx + 1], pixels[idx + 2]));
-      }
+function quantizeImage(pixels: Buffer, width: number, height: number): BlockGrid {
+  const cells = new Uint8Array(width * height);
+  // Images repeat colors a lot, so each distinct color is matched against the palette once
+  const matches = new Map<number, number>();
+  for (let i = 0; i < cells.length; i++) {
+    const idx = i * 4; // RGBA
+    if (pixels[idx + 3] < 128) {
+      cells[i] = TRANSPARENT;
+      continue;
     }
-    grid.push(row);
+    const rgb = (pixels[idx] << 16) | (pixels[idx + 1] << 8) | pixels[idx + 2];
+    let block = matches.get(rgb);
+    if (block === undefined) {
+      block = closestBlock(pixels[idx], pixels[idx + 1], pixels[idx + 2]);
+      matches.set(rgb, block);
+    }
+    cells[i] = block;
   }
-  return grid;
+  return { width, height, cells };
 }
 
-function generateCommands(
-  grid: (string | null)[][],
+// Yields the run-length encoded commands for one image row at a time, top row first.
+// Command strings are only built as each row is asked for.
+function* generateCommandRows(
+  grid: BlockGrid,
   originX: number,
   originY: number,
   originZ: number,
-): string[] {
-  const commands: string[] = [];
-  const height = grid.length;
+): Generator<string[]> {
+  const { width, height, cells } = grid;
 
   for (let row = 0; row < height; row++) {
-    const cols = grid[row];
+    const offset = row * width;
     const blockY = originY + (height - 1 - row); // row 0 = top = highest Y
+    const commands: string[] = [];
     let col = 0;
 
-    while (col < cols.length) {
-      const block = cols[col];
-      if (block === null) {
+    while (col < width) {
+      const block = cells[offset + col];
+      if (block === TRANSPARENT) {
         col++;
         continue;
       }
 
       // Run-length encode: find consecutive same-material pixels
       let runEnd = col + 1;
-      while (runEnd < cols.length && cols[runEnd] === block) {
+      while (runEnd < width && cells[offset + runEnd] === block) {
         runEnd++;
       }
 
-      const runLen = runEnd - col;
+      const name = paletteNames[block];
       const x1 = originX + col;
       const x2 = originX + runEnd - 1;
 
-      if (runLen === 1) {
-        commands.push(`setblock ${x1} ${blockY} ${originZ} minecraft:${block}`);
+      if (runEnd - col === 1) {
+        commands.push(`setblock ${x1} ${blockY} ${originZ} minecraft:${name}`);
       } else {
         commands.push(
-          `fill ${x1} ${blockY} ${originZ} ${x2} ${blockY} ${originZ} minecraft:${block}`,
+          `fill ${x1} ${blockY} ${originZ} ${x2} ${blockY} ${originZ} minecraft:${name}`,
         );
       }
 
       col = runEnd;
     }
+
+    yield commands;
   }
+}
+
+function countCommands(grid: BlockGrid): number {
+  const { width, cells } = grid;
+  let count = 0;
+  for (let i = 0; i < cells.length; i++) {
+    if (cells[i] !== TRANSPARENT && (i % width === 0 || cells[i] !== cells[i - 1])) {
+      count++;
+    }
+  }
+  return count;
+}
 
-  return commands;
+export interface PixelArtRender {
+  description: string;
+  commandCount: number;
+  rows: Generator<string[]>;
 }
 
-export async function processPixelArt(
+// Picks the largest size that fits maxCommands, counting runs on the block indices without building
+// command strings, and returns the commands as a lazy row generator so callers can stream them out.
+export async function renderPixelArt(
   url: string,
   playerX: number,
   playerY: number,
   playerZ: number,
   maxCommands = 500,
-): Promise<{ description: string; commands: string[] }> {
+): Promise<PixelArtRender> {
   const imageBuffer = await fetchImage(url);
 
   let targetSize = 64;
-  let commands: string[] = [];
-  let finalWidth = 0;
-  let finalHeight = 0;
+  let grid: BlockGrid = { width: 0, height: 0, cells: new Uint8Array(0) };
+  let commandCount = 0;
 
   while (targetSize >= 8) {
     const { data, width, height } = await resizeImage(imageBuffer, targetSize);
-    const grid = quantizeImage(data, width, height);
+    grid = quantizeImage(data, width, height);
+    commandCount = countCommands(grid);
 
-    // Place 2 blocks in front of the player on the Z axis
-    commands = generateCommands(grid, playerX, playerY, playerZ + 2);
-    finalWidth = width;
-    finalHeight = height;
-
-    if (commands.length <= maxCommands) break;
+    if (commandCount <= maxCommands) break;
 
     // Too many commands — scale down
     targetSize = Math.max(8, Math.floor(targetSize * 0.7));
   }
 
   return {
-    description: `Rendering ${finalWidth}x${finalHeight} pixel art (${commands.length} commands)`,
-    commands,
+    description: `Rendering ${grid.width}x${grid.height} pixel art (${commandCount} commands)`,
+    commandCount,
+    // Place 2 blocks in front of the player on the Z axis
+    rows: generateCommandRows(grid, playerX, playerY, playerZ + 2),
+  };
+}
+
+// Renders the image as a block grid for the binary voxel reply. That reply has no per-command
+// overhead, so there is no command budget and the image keeps up to maxSize pixels per side.
+export async function renderPixelArtVoxels(
+  url: string,
+  playerX: number,
+  playerY: number,
+  playerZ: number,
+  maxSize = 128,
+): Promise<VoxelGrid> {
+  const imageBuffer = await fetchImage(url);
+  const { data, width, height } = await resizeImage(imageBuffer, maxSize);
+  const grid = quantizeImage(data, width, height);
+
+  const palette: string[] = [];
+  // Voxel palette index per block index, 0 until the block is first used
+  const indices = new Uint16Array(paletteNames.length);
+  const cells = new Uint16Array(width * height);
+  for (let y = 0; y < height; y++) {
+    const offset = (height - 1 - y) * width; // row 0 = top = highest Y
+    for (let x = 0; x < width; x++) {
+      const block = grid.cells[offset + x];
+      if (block === TRANSPARENT) {
+        continue;
+      }
+      if (indices[block] === 0) {
+        palette.push(`minecraft:${paletteNames[block]}`);
+        indices[block] = palette.length;
+      }
+      cells[y * width + x] = indices[block];
+    }
+  }
+
+  return {
+    description: `Rendering ${width}x${height} pixel art`,
+    // Place 2 blocks in front of the player on the Z axis
+    origin: [playerX, playerY, playerZ + 2],
+    size: [width, height, 1],
+    palette,
+    cells,
   };
 }
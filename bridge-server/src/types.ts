@@ -22,7 +22,21 @@ export const ChatResponseSchema = z.discriminatedUnion("type", [
   }),
   z.object({
     type: z.literal("build"),
-    structure: z.enum(["cube", "house", "tower", "platform"]),
+    structure: z.enum([
+      "cube",
+      "house",
+      "tower",
+      "platform",
+      "sphere",
+      "hollow_sphere",
+      "dome",
+      "hollow_dome",
+      "cylinder",
+      "hollow_cylinder",
+      "pyramid",
+      "hollow_pyramid",
+      "arch",
+    ]),
     width: z.number().int().min(1).max(64),
     height: z.number().int().min(1).max(64),
     depth: z.number().int().min(1).max(64),
@@ -0,0 +1,41 @@
+import assert from "node:assert/strict";
+import test from "node:test";
+import { encodeVoxels } from "./voxel-payload.js";
+
+test("encodes header, palette and y-z-x runs", () => {
+  const payload = Buffer.concat([
+    ...encodeVoxels({
+      description: "Art",
+      origin: [10, -64, 5],
+      size: [3, 2, 1],
+      palette: ["minecraft:stone", "minecraft:dirt"],
+      cells: Uint16Array.from([1, 1, 0, 2, 2, 2]),
+    }),
+  ]);
+
+  assert.equal(payload.toString("latin1", 0, 4), "MBV1");
+  assert.equal(payload.readUInt16BE(4), 3);
+  assert.equal(payload.toString("utf8", 6, 9), "Art");
+  assert.equal(payload.readInt32BE(9), 10);
+  assert.equal(payload.readInt32BE(13), -64);
+  assert.equal(payload.readInt32BE(17), 5);
+  const size = [payload.readUInt16BE(21), payload.readUInt16BE(23), payload.readUInt16BE(25)];
+  assert.deepEqual(size, [3, 2, 1]);
+  assert.equal(payload.readUInt16BE(27), 2);
+  const runs = payload.subarray(payload.length - 6);
+  assert.deepEqual([...runs], [2, 1, 1, 0, 3, 2]);
+});
+
+test("long runs use multi-byte varints", () => {
+  const payload = Buffer.concat([
+    ...encodeVoxels({
+      description: "",
+      origin: [0, 0, 0],
+      size: [100, 2, 1],
+      palette: ["minecraft:stone"],
+      cells: new Uint16Array(200).fill(1),
+    }),
+  ]);
+
+  assert.deepEqual([...payload.subarray(payload.length - 3)], [0xc8, 0x01, 1]);
+});
@@ -0,0 +1,130 @@
+// Binary "MBV1" reply for large block grids, sent instead of command strings when the mod lists
+// VOXELS in its Accept header. Layout (big-endian):
+//   u32 magic "MBV1", string description, i32 originX/Y/Z, u16 sizeX/Y/Z,
+//   u16 palette count, then that many strings (namespaced block ids),
+//   then runs covering every cell in y, z, x order: varint length, varint palette index.
+// Strings are a u16 byte length followed by UTF-8. Index 0 leaves the cell untouched and index n
+// places palette[n - 1]. Varints are unsigned LEB128.
+export const VOXELS = "application/x-minebot-voxels";
+
+const MAGIC = 0x4d425631;
+
+export interface VoxelGrid {
+  description: string;
+  origin: [number, number, number];
+  size: [number, number, number];
+  palette: string[];
+  // Palette index + 1 for every cell in y, z, x order, 0 for cells to leave alone
+  cells: Uint16Array;
+}
+
+class ByteWriter {
+  private buffer = Buffer.alloc(1024);
+  private length = 0;
+
+  get size(): number {
+    return this.length;
+  }
+
+  u8(value: number): void {
+    this.reserve(1);
+    this.buffer.writeUInt8(value, this.length);
+    this.length += 1;
+  }
+
+  u16(value: number): void {
+    this.reserve(2);
+    this.buffer.writeUInt16BE(value, this.length);
+    this.length += 2;
+  }
+
+  u32(value: number): void {
+    this.reserve(4);
+    this.buffer.writeUInt32BE(value, this.length);
+    this.length += 4;
+  }
+
+  i32(value: number): void {
+    this.reserve(4);
+    this.buffer.writeInt32BE(value, this.length);
+    this.length += 4;
+  }
+
+  // Lengths can pass 2^32, so this avoids 32-bit bitwise operators
+  varint(value: number): void {
+    let rest = value;
+    while (rest >= 0x80) {
+      this.u8((rest % 0x80) | 0x80);
+      rest = Math.floor(rest / 0x80);
+    }
+    this.u8(rest);
+  }
+
+  string(value: string): void {
+    const bytes = Buffer.from(value, "utf8");
+    this.u16(bytes.length);
+    this.reserve(bytes.length);
+    bytes.copy(this.buffer, this.length);
+    this.length += bytes.length;
+  }
+
+  take(): Buffer {
+    const bytes = Buffer.from(this.buffer.subarray(0, this.length));
+    this.length = 0;
+    return bytes;
+  }
+
+  private reserve(bytes: number): void {
+    if (this.length + bytes > this.buffer.length) {
+      const grown = Buffer.alloc(Math.max(this.buffer.length * 2, this.length + bytes));
+      this.buffer.copy(grown, 0, 0, this.length);
+      this.buffer = grown;
+    }
+  }
+}
+
+// Yields the payload in pieces: the header, then the runs finished in each y layer, so the response
+// can be written out while later layers are still being encoded.
+export function* encodeVoxels(grid: VoxelGrid): Generator<Buffer> {
+  const [sizeX, sizeY, sizeZ] = grid.size;
+  const header = new ByteWriter();
+  header.u32(MAGIC);
+  header.string(grid.description);
+  for (const coordinate of grid.origin) {
+    header.i32(coordinate);
+  }
+  header.u16(sizeX);
+  header.u16(sizeY);
+  header.u16(sizeZ);
+  header.u16(grid.palette.length);
+  for (const block of grid.palette) {
+    header.string(block);
+  }
+  yield header.take();
+
+  const body = new ByteWriter();
+  const layerCells = sizeX * sizeZ;
+  let runIndex = grid.cells[0] ?? 0;
+  let runLength = 0;
+  for (let y = 0; y < sizeY; y++) {
+    for (let i = y * layerCells; i < (y + 1) * layerCells; i++) {
+      const index = grid.cells[i];
+      if (index === runIndex) {
+        runLength++;
+      } else {
+        body.varint(runLength);
+        body.varint(runIndex);
+        runIndex = index;
+        runLength = 1;
+      }
+    }
+    if (body.size > 0) {
+      yield body.take();
+    }
+  }
+  if (runLength > 0) {
+    body.varint(runLength);
+    body.varint(runIndex);
+    yield body.take();
+  }
+}
@@ -19,7 +19,21 @@ const ResponseSchema = z.object({
       "Required for command type: the Minecraft command without leading slash. Examples: 'time set night', 'give @s diamond 64', 'weather rain', 'gamemode creative'",
     ),
   structure: z
-    .enum(["cube", "house", "tower", "platform"])
+    .enum([
+      "cube",
+      "house",
+      "tower",
+      "platform",
+      "sphere",
+      "hollow_sphere",
+      "dome",
+      "hollow_dome",
+      "cylinder",
+      "hollow_cylinder",
+      "pyramid",
+      "hollow_pyramid",
+      "arch",
+    ])
     .optional()
     .describe("Required for build type: the type of structure to build"),
   width: z
@@ -106,7 +120,7 @@ You have access to Minecraft knowledge about crafting, mobs, and building.
 
    Do NOT include a leading slash. Player reference is @s (self).
 
-3. **build** - Player wants a simple predefined structure (cube, house, tower, platform) with a material. Use reasonable defaults if dimensions not specified.
+3. **build** - Player wants a simple parametric structure with a material: cube, house, tower, platform, sphere, dome, cylinder, pyramid or arch, plus hollow_sphere, hollow_dome, hollow_cylinder and hollow_pyramid. The shape fills the width x height x depth box (a dome's height is its full rise). Prefer build over worldedit for these shapes. Use reasonable defaults if dimensions not specified.
 
 4. **worldedit** - Player wants complex builds, terrain editing, or multi-command sequences. Use this for:
    - Any request involving WorldEdit operations (//set, //replace, //walls, //copy, //paste, etc.)
@@ -1,16 +1,67 @@
 package com.botpress;
 
+import com.botpress.build.BlockPalette;
+import com.botpress.build.ClientBlockLookup;
+import com.botpress.build.UndoHistory;
 import com.botpress.chat.ChatInterceptor;
+import com.botpress.chat.IntentParser;
+import com.botpress.chat.PixelArtCommand;
+import com.botpress.command.CommandDispatcher;
+import com.botpress.command.RemoteDispatch;
+import com.botpress.config.MineBotConfig;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.network.HttpBridge;
+import com.google.gson.JsonParseException;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.loader.api.FabricLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class BotpressClient implements ClientModInitializer {
 	public static final Logger LOGGER = LoggerFactory.getLogger("MineBot");
 
 	@Override
 	public void onInitializeClient() {
-		ChatInterceptor.register();
+		Path configDir = FabricLoader.getInstance().getConfigDir();
+		MineBotConfig config;
+		try {
+			config = MineBotConfig.load(configDir.resolve(MineBotConfig.FILE_NAME));
+		} catch (IOException | JsonParseException e) {
+			LOGGER.warn("Could not read {}, using defaults", MineBotConfig.FILE_NAME, e);
+			config = new MineBotConfig();
+		}
+
+		IntentParser intents = null;
+		if (config.intentsEnabled()) {
+			try {
+				intents = IntentParser.load(configDir.resolve(IntentParser.FILE_NAME));
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Could not read {}, using the bundled intents", IntentParser.FILE_NAME, e);
+				intents = IntentParser.defaults();
+			}
+		}
+
+		BlockPalette palette;
+		try {
+			palette = BlockPalette.load(configDir.resolve(BlockPalette.FILE_NAME));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not read {}, using the bundled palette", BlockPalette.FILE_NAME, e);
+			palette = BlockPalette.defaults();
+		}
+
+		ClientMetrics.configure(config, configDir);
+		HttpBridge.configure(config, configDir);
+		ClientBlockLookup.configure(config);
+		UndoHistory.configure(config, configDir);
+		PixelArtCommand.configure(palette);
+		ChatInterceptor.register(intents);
+		CommandDispatcher.configure(config);
+		CommandDispatcher.register();
+		RemoteDispatch.configure(config);
+		RemoteDispatch.register();
 		LOGGER.info("MineBot AI initialized! Use !ai <message> in chat.");
 	}
 }
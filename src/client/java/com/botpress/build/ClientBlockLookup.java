@@ -0,0 +1,57 @@
+package com.botpress.build;
+
+import com.botpress.config.MineBotConfig;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.math.BlockPos;
+
+// Reads block ids from the chunks the client has loaded. Builds plan off the client thread, so a
+// block changed between the read and the dispatch isn't noticed; the next build of the same shape
+// writes it again. One instance per build, since the position is reused between lookups.
+public final class ClientBlockLookup implements BlockStateLookup {
+	private static final String AIR = "minecraft:air";
+	private static volatile boolean enabled = true;
+
+	private final ClientWorld world;
+	private final boolean withStates;
+	private final BlockPos.Mutable pos = new BlockPos.Mutable();
+
+	private ClientBlockLookup(ClientWorld world, boolean withStates) {
+		this.world = world;
+		this.withStates = withStates;
+	}
+
+	public static void configure(MineBotConfig config) {
+		enabled = config.deltaBuilds();
+	}
+
+	// Returns null when delta builds are off or no world is loaded.
+	public static BlockStateLookup current() {
+		ClientWorld world = MinecraftClient.getInstance().world;
+		return enabled && world != null ? new ClientBlockLookup(world, false) : null;
+	}
+
+	// Reports full block states ("minecraft:oak_stairs[facing=east,...]"), so restoring them with
+	// setblock keeps their orientation.
+	public static BlockStateLookup withStates(ClientWorld world) {
+		return new ClientBlockLookup(world, true);
+	}
+
+	@Override
+	public String blockAt(int x, int y, int z) {
+		if (world.isOutOfHeightLimit(y) || !world.getChunkManager().isChunkLoaded(x >> 4, z >> 4)) {
+			return null;
+		}
+		BlockState state = world.getBlockState(pos.set(x, y, z));
+		// Cave and void air are what a build clearing to air would leave anyway
+		if (state.isAir()) {
+			return AIR;
+		}
+		return withStates
+				? BlockArgumentParser.stringifyBlockState(state)
+				: Registries.BLOCK.getId(state.getBlock()).toString();
+	}
+}
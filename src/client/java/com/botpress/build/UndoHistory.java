@@ -0,0 +1,156 @@
+package com.botpress.build;
+
+import com.botpress.BotpressClient;
+import com.botpress.command.CommandDispatcher;
+import com.botpress.command.CommandJob;
+import com.botpress.command.CommandSource;
+import com.botpress.command.CommandStream;
+import com.botpress.config.MineBotConfig;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Snapshots the blocks every build replaces and puts them back on "!ai undo". Capture runs on one
+// background thread and compression and disk access on another, so builds start without waiting for
+// them and a large snapshot being saved or restored doesn't hold up the next build's read-ahead.
+public final class UndoHistory {
+	private static final ExecutorService capture = executor("MineBot-Capture");
+	private static final ExecutorService io = executor("MineBot-Snapshots");
+
+	private static volatile SnapshotStore store;
+
+	private UndoHistory() {
+	}
+
+	public static void configure(MineBotConfig config, Path configDir) {
+		store = config.undoEnabled()
+				? new SnapshotStore(configDir.resolve(SnapshotStore.DIRECTORY_NAME), config.undoMaxSnapshots(),
+						config.undoMaxMegabytes() * 1024L * 1024L)
+				: null;
+	}
+
+	// Wraps a build's commands so the blocks they replace are saved as they go out. Returns the source
+	// unchanged when undo is off or no world is loaded.
+	public static CommandSource capture(String description, CommandSource source) {
+		MinecraftClient client = MinecraftClient.getInstance();
+		SnapshotStore target = store;
+		ClientWorld world = client.world;
+		if (target == null || world == null) {
+			return source;
+		}
+
+		String worldId = worldId(client);
+		String dimension = world.getRegistryKey().getValue().toString();
+		return new SnapshotCapture(source, ClientBlockLookup.withStates(world), capture, before -> io.execute(() -> {
+			Snapshot snapshot = new Snapshot(worldId, dimension, description, System.currentTimeMillis(), before);
+			if (snapshot.isEmpty()) {
+				return;
+			}
+			try {
+				target.push(snapshot);
+			} catch (IOException e) {
+				BotpressClient.LOGGER.warn("Could not save the undo snapshot for {}", description, e);
+			}
+		}));
+	}
+
+	// Restores the newest snapshot taken in this world, then drops it from the history.
+	public static void undo(MinecraftClient client) {
+		SnapshotStore target = store;
+		ClientWorld world = client.world;
+		if (target == null) {
+			reply(client, "Undo is turned off (undoEnabled in minebot.json).", Formatting.RED);
+			return;
+		}
+		if (world == null) {
+			return;
+		}
+
+		String worldId = worldId(client);
+		String dimension = world.getRegistryKey().getValue().toString();
+		io.execute(() -> {
+			SnapshotStore.Stored stored;
+			try {
+				stored = target.latest(worldId);
+			} catch (IOException e) {
+				BotpressClient.LOGGER.warn("Could not read the undo history", e);
+				reply(client, "Could not read the undo history.", Formatting.RED);
+				return;
+			}
+			if (stored == null) {
+				reply(client, "Nothing to undo.", Formatting.YELLOW);
+				return;
+			}
+
+			Snapshot snapshot = stored.snapshot();
+			if (!snapshot.dimension().equals(dimension)) {
+				reply(client, "\"" + snapshot.description() + "\" was built in " + snapshot.dimension()
+						+ "; go there to undo it.", Formatting.RED);
+				return;
+			}
+
+			List<String> commands = snapshot.restoreCommands(ClientBlockLookup.withStates(world));
+			if (commands.isEmpty()) {
+				remove(target, stored.id());
+				reply(client, "\"" + snapshot.description() + "\" was already undone.", Formatting.YELLOW);
+				return;
+			}
+
+			CommandJob job = CommandDispatcher.submit("Undo " + snapshot.description(), CommandJob.Priority.NORMAL,
+					CommandStream.of(CommandDispatcher.plan(commands)), new CommandJob.JobListener() {
+						@Override
+						public void onFinished(CommandJob job) {
+							if (job.state() == CommandJob.State.DONE) {
+								io.execute(() -> remove(target, stored.id()));
+								reply(client, "Undid \"" + snapshot.description() + "\".", Formatting.GREEN);
+							}
+						}
+					});
+			reply(client, "Undoing \"" + snapshot.description() + "\" (" + commands.size() + " commands) [job #"
+					+ job.id() + "]", Formatting.YELLOW);
+		});
+	}
+
+	private static ExecutorService executor(String name) {
+		return Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	private static void remove(SnapshotStore target, long id) {
+		try {
+			target.remove(id);
+		} catch (IOException e) {
+			BotpressClient.LOGGER.warn("Could not remove undo snapshot {}", id, e);
+		}
+	}
+
+	// Snapshots only apply to the world they were taken in
+	private static String worldId(MinecraftClient client) {
+		if (client.getServer() != null) {
+			return "local:" + client.getServer().getSaveProperties().getLevelName();
+		}
+		if (client.getCurrentServerEntry() != null) {
+			return "server:" + client.getCurrentServerEntry().address;
+		}
+		return "unknown";
+	}
+
+	private static void reply(MinecraftClient client, String text, Formatting color) {
+		client.execute(() -> {
+			if (client.player != null) {
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal(text).formatted(color)), false);
+			}
+		});
+	}
+}
@@ -1,10 +1,13 @@
 package com.botpress.chat;
 
+import com.botpress.network.BridgeResponse;
 import com.botpress.network.HttpBridge;
 import net.fabricmc.fabric.api.client.message.v1.ClientSendMessageEvents;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
 
 public class ChatInterceptor {
 	private static final String PREFIX = "!ai ";
@@ -12,8 +15,11 @@ public class ChatInterceptor {
 	private static final long COOLDOWN_MS = 2000;
 
 	private static long lastMessageTime = 0;
+	private static IntentParser intents;
 
-	public static void register() {
+	// With a null parser every request goes to the bridge.
+	public static void register(IntentParser intentParser) {
+		intents = intentParser;
 		ClientSendMessageEvents.ALLOW_CHAT.register(ChatInterceptor::onChatMessage);
 	}
 
@@ -30,8 +36,10 @@ public class ChatInterceptor {
 		String query = message.length() > PREFIX.length() ? message.substring(PREFIX.length()).trim() : "";
 
 		if (query.isEmpty()) {
-			client.execute(() -> sendChat(client, Text.literal("[MineBot] ").formatted(Formatting.GOLD).append(
-					Text.literal("Usage: !ai <message>  |  !ai help  |  !ai reset").formatted(Formatting.YELLOW))));
+			client.execute(() -> sendChat(client,
+					Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+							.append(Text.literal("Usage: !ai <message>  |  !ai help  |  !ai reset  |  !ai jobs")
+									.formatted(Formatting.YELLOW))));
 			return false;
 		}
 
@@ -49,8 +57,26 @@ public class ChatInterceptor {
 						Text.literal("!ai build a stone house / build a 5x5x5 cube").formatted(Formatting.WHITE)));
 				sendChat(client, Text.literal("  WorldEdit: ").formatted(Formatting.GOLD).append(Text
 						.literal("!ai build a botpress logo / fill this area with stone").formatted(Formatting.WHITE)));
+				sendChat(client,
+						Text.literal("  Pixel art: ").formatted(Formatting.GOLD)
+								.append(Text.literal("!ai pixelart <screenshot|latest> [size] [dither]")
+										.formatted(Formatting.WHITE)));
+				sendChat(client, Text.literal("  Paste: ").formatted(Formatting.GOLD).append(
+						Text.literal("!ai paste <file> - Build a .schem or .nbt file").formatted(Formatting.WHITE)));
 				sendChat(client, Text.literal("  Reset: ").formatted(Formatting.GOLD)
 						.append(Text.literal("!ai reset - Clear conversation history").formatted(Formatting.WHITE)));
+				sendChat(client,
+						Text.literal("  Cancel: ").formatted(Formatting.GOLD)
+								.append(Text.literal("!ai cancel - Stop the pending reply and queued commands")
+										.formatted(Formatting.WHITE)));
+				sendChat(client, Text.literal("  Undo: ").formatted(Formatting.GOLD).append(
+						Text.literal("!ai undo - Put back what the last build replaced").formatted(Formatting.WHITE)));
+				sendChat(client, Text.literal("  Metrics: ").formatted(Formatting.GOLD).append(
+						Text.literal("!ai hud - Show request timings and throughput").formatted(Formatting.WHITE)));
+				sendChat(client,
+						Text.literal("  Jobs: ").formatted(Formatting.GOLD)
+								.append(Text.literal("!ai jobs / pause <id|all> / resume <id|all> / cancel <id|all>"
+										+ " / priority <id> <high|normal|low>").formatted(Formatting.WHITE)));
 			});
 			return false;
 		}
@@ -61,12 +87,24 @@ public class ChatInterceptor {
 			return false;
 		}
 
+		if (JobCommands.handle(client, query) || PixelArtCommand.handle(client, query)
+				|| SchematicCommand.handle(client, query)) {
+			return false;
+		}
+
 		if (query.length() > MAX_LENGTH) {
 			client.execute(() -> sendChat(client, Text.literal("[MineBot] ").formatted(Formatting.RED).append(
 					Text.literal("Message too long (max " + MAX_LENGTH + " chars).").formatted(Formatting.RED))));
 			return false;
 		}
 
+		// Everyday requests the local grammar understands run right away without the bridge
+		BridgeResponse local = intents != null ? intents.match(query) : null;
+		if (local != null && isRunnableLocally(local)) {
+			HttpBridge.handleAsync(client.player.getUuidAsString(), local);
+			return false;
+		}
+
 		long now = System.currentTimeMillis();
 		if (now - lastMessageTime < COOLDOWN_MS) {
 			client.execute(() -> sendChat(client, Text.literal("[MineBot] ").formatted(Formatting.RED)
@@ -86,6 +124,15 @@ public class ChatInterceptor {
 		return false;
 	}
 
+	// The grammar captures any word as a material, so "build a big house" is left to the AI
+	private static boolean isRunnableLocally(BridgeResponse response) {
+		if (response instanceof BridgeResponse.Build build) {
+			Identifier id = Identifier.tryParse(build.material());
+			return id != null && Registries.BLOCK.containsId(id);
+		}
+		return true;
+	}
+
 	private static void sendChat(MinecraftClient client, Text message) {
 		if (client.player != null) {
 			client.player.sendMessage(message, false);
@@ -0,0 +1,147 @@
+package com.botpress.chat;
+
+import com.botpress.build.UndoHistory;
+import com.botpress.command.CommandDispatcher;
+import com.botpress.command.CommandJob;
+import com.botpress.command.JobQueue;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.network.HttpBridge;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+
+// Handles "!ai jobs", "!ai pause <id|all>", "!ai resume <id|all>", "!ai cancel [id]",
+// "!ai priority <id> <high|normal|low>", "!ai undo" and "!ai hud" locally, without going through the
+// bridge.
+public class JobCommands {
+	public static boolean handle(MinecraftClient client, String query) {
+		String[] parts = query.trim().toLowerCase(Locale.ROOT).split("\\s+");
+		JobQueue jobs = CommandDispatcher.jobs();
+
+		switch (parts[0]) {
+			case "jobs" -> {
+				if (parts.length != 1) {
+					return false;
+				}
+				listJobs(client, jobs.jobs());
+				return true;
+			}
+			case "cancel" -> {
+				if (parts.length == 1) {
+					int requests = HttpBridge.cancel(client.player.getUuidAsString());
+					int cancelled = jobs.cancelAll();
+					reply(client, requests == 0 && cancelled == 0
+							? "Nothing to cancel."
+							: "Cancelled " + requests + " request(s) and " + cancelled + " job(s).");
+					return true;
+				}
+				return applyToJob(client, parts, "Cancelled", jobs::cancel, jobs::cancelAll);
+			}
+			case "pause" -> {
+				return applyToJob(client, parts, "Paused", jobs::pause, jobs::pauseAll);
+			}
+			case "resume" -> {
+				return applyToJob(client, parts, "Resumed", jobs::resume, jobs::resumeAll);
+			}
+			case "undo" -> {
+				if (parts.length != 1) {
+					return false;
+				}
+				UndoHistory.undo(client);
+				return true;
+			}
+			case "hud" -> {
+				if (parts.length != 1) {
+					return false;
+				}
+				if (!ClientMetrics.metrics().enabled()) {
+					reply(client, "Metrics are turned off (metricsEnabled in minebot.json).");
+				} else {
+					reply(client, ClientMetrics.toggleHud() ? "Metrics overlay on." : "Metrics overlay off.");
+				}
+				return true;
+			}
+			case "priority" -> {
+				if (parts.length != 3 || parseId(parts[1]) < 0) {
+					return false;
+				}
+				CommandJob.Priority priority;
+				try {
+					priority = CommandJob.Priority.valueOf(parts[2].toUpperCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					reply(client, "Priority must be high, normal or low.");
+					return true;
+				}
+				int id = parseId(parts[1]);
+				reply(client, jobs.setPriority(id, priority)
+						? "Job #" + id + " is now " + parts[2] + " priority."
+						: "No job #" + id + ".");
+				return true;
+			}
+			default -> {
+				return false;
+			}
+		}
+	}
+
+	private static boolean applyToJob(MinecraftClient client, String[] parts, String verb, IntPredicate action,
+			IntSupplier all) {
+		if (parts.length != 2) {
+			return false;
+		}
+		if (parts[1].equals("all")) {
+			int count = all.getAsInt();
+			reply(client, count > 0 ? verb + " " + count + " job(s)." : "No jobs to update.");
+			return true;
+		}
+
+		int id = parseId(parts[1]);
+		if (id < 0) {
+			return false;
+		}
+		reply(client, action.test(id) ? verb + " job #" + id + "." : "No matching job #" + id + ".");
+		return true;
+	}
+
+	private static void listJobs(MinecraftClient client, List<CommandJob> jobs) {
+		if (jobs.isEmpty()) {
+			reply(client, "No queued jobs.");
+			return;
+		}
+		client.execute(() -> {
+			if (client.player == null) {
+				return;
+			}
+			for (CommandJob job : jobs) {
+				String total = job.total() < 0 ? "?" : String.valueOf(job.total());
+				String status = " " + job.sent() + "/" + total + " " + job.state().name().toLowerCase(Locale.ROOT)
+						+ ", " + job.priority().name().toLowerCase(Locale.ROOT);
+				client.player.sendMessage(Text.literal("  #" + job.id() + " ").formatted(Formatting.GOLD)
+						.append(Text.literal(job.description()).formatted(Formatting.WHITE))
+						.append(Text.literal(status).formatted(Formatting.GRAY)), false);
+			}
+		});
+	}
+
+	private static int parseId(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static void reply(MinecraftClient client, String text) {
+		client.execute(() -> {
+			if (client.player != null) {
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal(text).formatted(Formatting.YELLOW)), false);
+			}
+		});
+	}
+}
@@ -0,0 +1,174 @@
+package com.botpress.chat;
+
+import com.botpress.BotpressClient;
+import com.botpress.build.BlockPalette;
+import com.botpress.build.PixelArt;
+import com.botpress.build.VoxelModel;
+import com.botpress.command.CommandExecutor;
+import com.botpress.command.CommandSequence;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.math.BlockPos;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+// Handles "!ai pixelart <file|latest> [size] [dither]" for images in the screenshots folder. The image
+// is scaled, matched against the block palette and compiled into fills inside the mod, so nothing
+// goes through the bridge and the art isn't limited by the bridge's command budget. Anything else,
+// such as "!ai pixelart <url or description>", is left for the bridge.
+public class PixelArtCommand {
+	private static final int DEFAULT_SIZE = 128;
+
+	private static volatile BlockPalette palette;
+
+	public static void configure(BlockPalette blockPalette) {
+		palette = blockPalette;
+	}
+
+	public static boolean handle(MinecraftClient client, String query) {
+		String[] parts = query.trim().split("\\s+");
+		if (parts.length < 2 || !parts[0].equalsIgnoreCase("pixelart")) {
+			return false;
+		}
+		Path screenshots = client.runDirectory.toPath().resolve("screenshots").toAbsolutePath().normalize();
+		String name = parts[1];
+		if (!name.equalsIgnoreCase("latest") && resolveFile(screenshots, name).isEmpty()) {
+			return false;
+		}
+		if (parts.length > 4) {
+			reply(client, "Usage: !ai pixelart <file|latest> [size] [dither]", Formatting.YELLOW);
+			return true;
+		}
+
+		int size = DEFAULT_SIZE;
+		boolean dither = false;
+		for (int i = 2; i < parts.length; i++) {
+			if (parts[i].equalsIgnoreCase("dither")) {
+				dither = true;
+				continue;
+			}
+			try {
+				size = Integer.parseInt(parts[i]);
+			} catch (NumberFormatException e) {
+				size = -1;
+			}
+			if (size < 1 || size > PixelArt.MAX_SIZE) {
+				reply(client, "Size must be between 1 and " + PixelArt.MAX_SIZE + ".", Formatting.RED);
+				return true;
+			}
+		}
+
+		BlockPalette blocks = palette;
+		if (blocks == null || client.player == null) {
+			return true;
+		}
+		BlockPos origin = client.player.getBlockPos();
+		int maxSize = size;
+		boolean useDither = dither;
+
+		// Reading and quantizing a large image takes a while, so none of it runs on the client thread
+		CompletableFuture.runAsync(() -> {
+			try {
+				Optional<Path> file = resolve(screenshots, name);
+				if (file.isEmpty()) {
+					reply(client, "No image named " + name + " in the screenshots folder.", Formatting.RED);
+					return;
+				}
+				render(client, file.get(), blocks, maxSize, useDither, origin);
+			} catch (IOException | RuntimeException e) {
+				BotpressClient.LOGGER.warn("Pixel art from {} failed", name, e);
+				reply(client, "Could not render " + name + ": " + e.getMessage(), Formatting.RED);
+			}
+		}, ForkJoinPool.commonPool());
+		return true;
+	}
+
+	private static void render(MinecraftClient client, Path file, BlockPalette blocks, int maxSize, boolean dither,
+			BlockPos origin) throws IOException {
+		BufferedImage loaded = ImageIO.read(file.toFile());
+		if (loaded == null) {
+			reply(client, file.getFileName() + " is not an image.", Formatting.RED);
+			return;
+		}
+		int width = loaded.getWidth();
+		int height = loaded.getHeight();
+		PixelArt.Image image = PixelArt.fit(
+				new PixelArt.Image(width, height, loaded.getRGB(0, 0, width, height, null, 0, width)), maxSize);
+		int[] indices = PixelArt.quantize(image, blocks, dither);
+		// Two blocks in front of the player on the Z axis, as bridge pixel art is placed
+		List<VoxelModel> slabs = PixelArt.slabs(indices, image.width(), image.height(), blocks, origin.getX(),
+				origin.getY(), origin.getZ() + 2);
+
+		CommandSequence sequence = CommandExecutor.beginSequence(
+				"Rendering " + image.width() + "x" + image.height() + " pixel art", false);
+		try {
+			for (VoxelModel slab : slabs) {
+				sequence.append(slab);
+			}
+		} finally {
+			sequence.finish();
+		}
+	}
+
+	// Only files directly inside the screenshots folder are accepted; "latest" picks the newest image.
+	private static Optional<Path> resolve(Path screenshots, String name) throws IOException {
+		if (Files.notExists(screenshots)) {
+			return Optional.empty();
+		}
+		if (name.equalsIgnoreCase("latest")) {
+			try (Stream<Path> files = Files.list(screenshots)) {
+				return files.filter(PixelArtCommand::isImage).max(Comparator.comparingLong(PixelArtCommand::modified));
+			}
+		}
+		return resolveFile(screenshots, name);
+	}
+
+	private static Optional<Path> resolveFile(Path screenshots, String name) {
+		Path file;
+		try {
+			file = screenshots.resolve(name).normalize();
+		} catch (InvalidPathException e) {
+			// A URL or description on a platform that rejects its characters in paths
+			return Optional.empty();
+		}
+		if (!screenshots.equals(file.getParent()) || !Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		return Optional.of(file);
+	}
+
+	private static boolean isImage(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return Files.isRegularFile(file) && (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg"));
+	}
+
+	private static long modified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static void reply(MinecraftClient client, String text, Formatting color) {
+		client.execute(() -> {
+			if (client.player != null) {
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal(text).formatted(color)), false);
+			}
+		});
+	}
+}
@@ -0,0 +1,149 @@
+package com.botpress.chat;
+
+import com.botpress.BotpressClient;
+import com.botpress.build.SchematicReader;
+import com.botpress.build.VoxelModel;
+import com.botpress.command.CommandExecutor;
+import com.botpress.command.CommandSequence;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Handles "!ai paste <file>" for .schem and .nbt files in the schematics folder. The file is decoded
+// slab by slab on a background thread and each slab is queued as soon as it is compiled, so a large
+// paste starts building right away. Decoding pauses while too many commands wait for dispatch,
+// which keeps memory bounded however large the schematic is.
+public class SchematicCommand {
+	private static final String FOLDER = "schematics";
+	private static final String[] EXTENSIONS = {".schem", ".nbt"};
+	// Commands queued ahead of dispatch before decoding waits
+	private static final int MAX_BACKLOG = 20000;
+	private static final long BACKLOG_POLL_MILLIS = 50;
+
+	private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "MineBot-Schematics");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public static boolean handle(MinecraftClient client, String query) {
+		String[] parts = query.trim().split("\\s+");
+		if (!parts[0].equalsIgnoreCase("paste")) {
+			return false;
+		}
+		if (parts.length != 2) {
+			reply(client, "Usage: !ai paste <file>", Formatting.YELLOW);
+			return true;
+		}
+		if (client.player == null) {
+			return true;
+		}
+
+		Path folder = client.runDirectory.toPath().resolve(FOLDER).toAbsolutePath().normalize();
+		// Two blocks in front of the player on the Z axis, as pixel art is placed
+		BlockPos origin = client.player.getBlockPos().add(0, 0, 2);
+		String name = parts[1];
+		worker.execute(() -> {
+			try {
+				Optional<Path> file = resolve(folder, name);
+				if (file.isEmpty()) {
+					reply(client, "No .schem or .nbt file named " + name + " in the " + FOLDER + " folder.",
+							Formatting.RED);
+					return;
+				}
+				paste(file.get(), origin);
+			} catch (CancellationException e) {
+				// The job was cancelled; nothing more to decode
+			} catch (IOException | RuntimeException e) {
+				BotpressClient.LOGGER.warn("Pasting {} failed", name, e);
+				reply(client, "Could not paste " + name + ": " + e.getMessage(), Formatting.RED);
+			}
+		});
+		return true;
+	}
+
+	private static void paste(Path file, BlockPos origin) throws IOException {
+		String name = file.getFileName().toString();
+		CommandSequence[] sequence = new CommandSequence[1];
+		try {
+			SchematicReader.read(() -> Files.newInputStream(file), origin.getX(), origin.getY(), origin.getZ(),
+					new SchematicReader.Listener() {
+						@Override
+						public void begin(int sizeX, int sizeY, int sizeZ) {
+							sequence[0] = CommandExecutor.beginSequence(
+									"Pasting " + name + " (" + sizeX + "x" + sizeY + "x" + sizeZ + ")", false);
+						}
+
+						@Override
+						public void slab(VoxelModel slab) {
+							waitForDispatch(sequence[0]);
+							sequence[0].appendDisjoint(slab);
+						}
+					});
+		} finally {
+			if (sequence[0] != null) {
+				sequence[0].finish();
+			}
+		}
+	}
+
+	private static void waitForDispatch(CommandSequence sequence) {
+		while (true) {
+			if (!sequence.isOpen()) {
+				throw new CancellationException();
+			}
+			if (sequence.backlog() < MAX_BACKLOG) {
+				return;
+			}
+			try {
+				Thread.sleep(BACKLOG_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+		}
+	}
+
+	// Only files directly inside the schematics folder are accepted; the extension may be left out.
+	private static Optional<Path> resolve(Path folder, String name) {
+		if (Files.notExists(folder)) {
+			return Optional.empty();
+		}
+		String lower = name.toLowerCase(Locale.ROOT);
+		for (String extension : EXTENSIONS) {
+			if (lower.endsWith(extension)) {
+				return accept(folder, folder.resolve(name).normalize());
+			}
+		}
+		for (String extension : EXTENSIONS) {
+			Optional<Path> file = accept(folder, folder.resolve(name + extension).normalize());
+			if (file.isPresent()) {
+				return file;
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static Optional<Path> accept(Path folder, Path file) {
+		return folder.equals(file.getParent()) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+	}
+
+	private static void reply(MinecraftClient client, String text, Formatting color) {
+		client.execute(() -> {
+			if (client.player != null) {
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal(text).formatted(color)), false);
+			}
+		});
+	}
+}
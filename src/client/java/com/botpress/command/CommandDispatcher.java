@@ -0,0 +1,257 @@
+package com.botpress.command;
+
+import com.botpress.config.MineBotConfig;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.metrics.Metrics;
+import com.botpress.network.JobPayload;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.PlayerListEntry;
+import net.minecraft.text.Text;
+import net.minecraft.text.TranslatableTextContent;
+import net.minecraft.util.Formatting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+// Sends queued job commands from the client tick. Each tick drains as many commands as the pacer's
+// rate and the tick budget allow straight from the job queue, so there is no handoff between threads
+// and no runnable per command, and the running job's progress is shown as one action bar line. When
+// the server runs the mod too, commands go to it in payload batches instead (RemoteDispatch).
+//
+// Block writes are planned chunk by chunk (ChunkOrderPlanner), and writes to chunks the client
+// hasn't loaded wait until they load (ChunkDeferral).
+public class CommandDispatcher {
+	private static final long TICK_RATE_WINDOW_MS = 5000;
+	private static final long TICK_MS = 50;
+
+	private static final AdaptivePacer pacer = new AdaptivePacer();
+	private static final JobQueue jobs = new JobQueue();
+	// Deferrals of unfinished jobs, told about every chunk that loads
+	private static final List<ChunkDeferral> deferrals = new CopyOnWriteArrayList<>();
+
+	private static TickBudget budget = new TickBudget(16, 2_000_000);
+	private static boolean chunkOrder = true;
+	private static boolean deferUnloaded = true;
+	private static long deferMaxMillis = 30000;
+	private static long sampleWorldTime = -1;
+	private static long sampleWallTime;
+	private static String lastStatus;
+
+	public static void configure(MineBotConfig config) {
+		budget = new TickBudget(config.dispatchMaxPerTick(), config.dispatchTickBudgetMicros() * 1000L);
+		chunkOrder = config.dispatchChunkOrder();
+		deferUnloaded = config.dispatchDeferUnloaded();
+		deferMaxMillis = config.dispatchDeferMaxMillis();
+	}
+
+	public static void register() {
+		ClientReceiveMessageEvents.GAME.register((message, overlay) -> {
+			if (!overlay) {
+				pacer.onFeedback(AdaptivePacer.classify(findTranslationKey(message)));
+			}
+		});
+		ClientTickEvents.END_CLIENT_TICK.register(client -> {
+			sampleServerHealth(client);
+			dispatchTick(client);
+		});
+		ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+			for (ChunkDeferral deferral : deferrals) {
+				deferral.chunkLoaded(chunk.getPos().x, chunk.getPos().z);
+			}
+		});
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> jobs.cancelAll());
+		// Only dispatchTick polls the queue, so RemoteDispatch is asked on the client thread
+		jobs.setUnsettled(RemoteDispatch::unsettled);
+	}
+
+	// Order in which a batch of commands should go out
+	public static List<String> plan(List<String> commands) {
+		return chunkOrder ? ChunkOrderPlanner.order(commands) : commands;
+	}
+
+	public static JobQueue jobs() {
+		return jobs;
+	}
+
+	// Queues a job; its commands go out in order at the pacer's global rate, or to the server in
+	// batches when it runs the mod. Listener callbacks run on the client thread, including onFinished
+	// when the job is cancelled or finished from another thread.
+	public static CommandJob submit(String description, CommandJob.Priority priority, CommandSource source,
+			CommandJob.JobListener listener) {
+		return submit(description, priority, source, UnaryOperator.identity(), listener);
+	}
+
+	// As above, with the commands that leave the chunk deferral passed through wrap, such as an undo
+	// capture, so it only sees commands whose chunks are loaded.
+	public static CommandJob submit(String description, CommandJob.Priority priority, CommandSource source,
+			UnaryOperator<CommandSource> wrap, CommandJob.JobListener listener) {
+		ChunkDeferral deferral = deferUnloaded
+				? new ChunkDeferral(source, CommandDispatcher::chunkReady, deferMaxMillis)
+				: null;
+		if (deferral != null) {
+			deferrals.add(deferral);
+		}
+		CommandSource gated = wrap.apply(deferral != null ? deferral : source);
+		return jobs.submit(description, priority, gated, new CommandJob.JobListener() {
+			@Override
+			public void onSent(CommandJob job) {
+				listener.onSent(job);
+			}
+
+			@Override
+			public void onFinished(CommandJob job) {
+				if (job.state() == CommandJob.State.CANCELLED) {
+					RemoteDispatch.cancel(job.id());
+				}
+				if (deferral != null) {
+					deferrals.remove(deferral);
+					ClientMetrics.metrics().add(Metrics.Counter.COMMANDS_DEFERRED, deferral.deferred());
+				}
+				// JobQueue calls this on whichever thread settled the job, holding its lock
+				MinecraftClient.getInstance().execute(() -> listener.onFinished(job));
+			}
+		});
+	}
+
+	// Must be called on the client thread.
+	public static void send(MinecraftClient client, String command) {
+		if (client.getNetworkHandler() == null) {
+			return;
+		}
+		if (command.startsWith("//")) {
+			// sendChatCommand adds one /, so pass "/set stone" to get "//set stone"
+			client.getNetworkHandler().sendChatCommand(command.substring(1));
+		} else {
+			client.getNetworkHandler().sendChatCommand(command);
+		}
+		pacer.onSent();
+		ClientMetrics.metrics().increment(Metrics.Counter.COMMANDS_SENT);
+	}
+
+	// The server runs its own chunk checks for jobs handed to it
+	private static boolean chunkReady(int chunkX, int chunkZ) {
+		MinecraftClient client = MinecraftClient.getInstance();
+		return RemoteDispatch.available() || client.world == null
+				|| client.world.getChunkManager().isChunkLoaded(chunkX, chunkZ);
+	}
+
+	private static void dispatchTick(MinecraftClient client) {
+		if (client.player == null || client.getNetworkHandler() == null) {
+			return;
+		}
+
+		CommandJob current = RemoteDispatch.available() ? dispatchToServer() : dispatchAsChat(client);
+		if (current != null) {
+			showStatus(client, current);
+		}
+	}
+
+	private static CommandJob dispatchAsChat(MinecraftClient client) {
+		budget.beginTick(pacer.nextDelayMs(), TICK_MS);
+		CommandJob current = null;
+		while (budget.canTake()) {
+			JobQueue.Dispatch dispatch = jobs.poll();
+			if (dispatch == null) {
+				budget.idle();
+				break;
+			}
+			budget.take();
+			send(client, dispatch.command());
+			current = dispatch.job();
+			dispatched(current);
+		}
+		return current;
+	}
+
+	// The server paces itself, so each tick hands over as much as the window allows, one payload per
+	// job and MAX_BYTES. Nothing goes through chat, so the pacer and chat rate limits don't apply.
+	private static CommandJob dispatchToServer() {
+		int capacity = RemoteDispatch.capacity();
+		CommandJob current = null;
+		List<String> batch = new ArrayList<>();
+		int bytes = 0;
+		while (capacity > 0) {
+			JobQueue.Dispatch dispatch = jobs.poll();
+			if (dispatch == null) {
+				break;
+			}
+			int size = JobPayload.encodedSize(dispatch.command());
+			if (!batch.isEmpty() && (dispatch.job() != current || bytes + size > JobPayload.MAX_BYTES)) {
+				RemoteDispatch.send(current.id(), batch);
+				batch = new ArrayList<>();
+				bytes = 0;
+			}
+			batch.add(dispatch.command());
+			bytes += size;
+			capacity--;
+			current = dispatch.job();
+			ClientMetrics.metrics().increment(Metrics.Counter.COMMANDS_SENT);
+			dispatched(current);
+		}
+		if (!batch.isEmpty()) {
+			RemoteDispatch.send(current.id(), batch);
+		}
+		return current;
+	}
+
+	private static void dispatched(CommandJob job) {
+		if (job.sent() == 1) {
+			ClientMetrics.metrics().record(Metrics.Stage.JOB_WAIT, System.nanoTime() - job.submittedNanos());
+		}
+		job.listener().onSent(job);
+	}
+
+	// Rewrites the action bar only when the text changes, at most once a tick
+	private static void showStatus(MinecraftClient client, CommandJob job) {
+		String total = job.total() < 0 ? "?" : String.valueOf(job.total());
+		String status = job.description() + " " + job.sent() + "/" + total + " [job #" + job.id() + "]";
+		if (!status.equals(lastStatus)) {
+			lastStatus = status;
+			client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+					.append(Text.literal(status).formatted(Formatting.GRAY)), true);
+		}
+	}
+
+	private static void sampleServerHealth(MinecraftClient client) {
+		if (client.world == null || client.player == null || client.getNetworkHandler() == null) {
+			sampleWorldTime = -1;
+			return;
+		}
+
+		PlayerListEntry entry = client.getNetworkHandler().getPlayerListEntry(client.player.getUuid());
+		if (entry != null) {
+			pacer.updatePing(entry.getLatency());
+		}
+
+		// The client clock is corrected by server time updates, so over a few seconds it tracks server TPS
+		long now = System.currentTimeMillis();
+		long worldTime = client.world.getTime();
+		if (sampleWorldTime < 0) {
+			sampleWorldTime = worldTime;
+			sampleWallTime = now;
+		} else if (now - sampleWallTime >= TICK_RATE_WINDOW_MS) {
+			pacer.updateTickRate((worldTime - sampleWorldTime) * 1000.0 / (now - sampleWallTime));
+			sampleWorldTime = worldTime;
+			sampleWallTime = now;
+		}
+	}
+
+	private static String findTranslationKey(Text text) {
+		if (text.getContent() instanceof TranslatableTextContent translatable) {
+			return translatable.getKey();
+		}
+		for (Text sibling : text.getSiblings()) {
+			String key = findTranslationKey(sibling);
+			if (key != null) {
+				return key;
+			}
+		}
+		return null;
+	}
+}
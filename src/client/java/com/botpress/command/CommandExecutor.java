@@ -1,26 +1,25 @@
 package com.botpress.command;
 
+import com.botpress.build.ClientBlockLookup;
+import com.botpress.build.UndoHistory;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.metrics.Metrics;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class CommandExecutor {
-	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-		Thread t = new Thread(r, "MineBot-CmdScheduler");
-		t.setDaemon(true);
-		return t;
-	});
-
 	public static void execute(String command) {
 		MinecraftClient client = MinecraftClient.getInstance();
+		Metrics metrics = ClientMetrics.metrics();
+		long validation = metrics.start();
 		CommandValidation.ValidatedCommand validatedCommand = CommandValidation.validate(command);
+		metrics.stop(Metrics.Stage.VALIDATE, validation);
 
 		if (!validatedCommand.valid()) {
+			metrics.increment(Metrics.Counter.COMMANDS_REJECTED);
 			client.execute(() -> {
 				if (client.player != null) {
 					client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.RED)
@@ -35,12 +34,7 @@ public class CommandExecutor {
 				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
 						.append(Text.literal("Executing: /" + command).formatted(Formatting.YELLOW)), false);
 
-				if (validatedCommand.normalized().startsWith("//")) {
-					// sendChatCommand adds one /, so pass "/set stone" to get "//set stone"
-					client.getNetworkHandler().sendChatCommand(validatedCommand.normalized().substring(1));
-				} else {
-					client.getNetworkHandler().sendChatCommand(validatedCommand.normalized());
-				}
+				CommandDispatcher.send(client, validatedCommand.normalized());
 			}
 		});
 	}
@@ -50,70 +44,100 @@ public class CommandExecutor {
 	}
 
 	public static void executeSequence(String description, List<String> commands, boolean strictMode) {
-		MinecraftClient client = MinecraftClient.getInstance();
-		CommandValidation.SequenceValidationResult validation = CommandValidation.validateSequence(commands,
-				strictMode);
+		CommandSequence sequence = sequence(description, strictMode, false);
+		sequence.append(commands);
+		sequence.finish();
+	}
 
-		if (!validation.invalidCommands().isEmpty()) {
-			CommandValidation.ValidatedCommand offending = validation.invalidCommands().get(0);
+	// Starts a sequence whose commands arrive in batches; dispatch begins with the first valid batch.
+	public static CommandSequence beginSequence(String description, boolean strictMode) {
+		return sequence(description, strictMode, true);
+	}
+
+	private static CommandSequence sequence(String description, boolean strictMode, boolean streaming) {
+		return new CommandSequence(strictMode, ClientBlockLookup.current(), CommandDispatcher::plan,
+				ClientMetrics.metrics(), new SequenceListener(description, strictMode, streaming));
+	}
+
+	// Chat output and job submission for a sequence; called under the sequence's lock
+	private static final class SequenceListener implements CommandSequence.Listener {
+		private final MinecraftClient client = MinecraftClient.getInstance();
+		private final String description;
+		private final boolean strictMode;
+		private final boolean streaming;
+		private CommandJob job;
+
+		SequenceListener(String description, boolean strictMode, boolean streaming) {
+			this.description = description;
+			this.strictMode = strictMode;
+			this.streaming = streaming;
+		}
+
+		@Override
+		public void rejected(CommandValidation.ValidatedCommand offending, int count) {
+			String text = strictMode
+					? "Strict mode rejected sequence at /" + offending.baseCommand()
+					: "Skipping invalid command /" + offending.baseCommand();
 			client.execute(() -> {
 				if (client.player != null) {
-					if (strictMode) {
-						client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.RED)
-								.append(Text.literal("Strict mode rejected sequence at /" + offending.baseCommand())
-										.formatted(Formatting.RED)),
-								false);
-					} else {
-						client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.RED)
-								.append(Text.literal("Skipping invalid command /" + offending.baseCommand())
-										.formatted(Formatting.RED)),
-								false);
-					}
+					client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.RED)
+							.append(Text.literal(text).formatted(Formatting.RED)), false);
 				}
 			});
 		}
 
-		if (validation.shouldAbort()) {
-			return;
+		@Override
+		public void cancelled() {
+			if (job != null) {
+				CommandDispatcher.jobs().cancel(job.id());
+			}
 		}
 
-		List<CommandValidation.ValidatedCommand> commandsToSchedule = validation.validCommands();
-
-		client.execute(() -> {
-			if (client.player != null) {
-				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
-						.append(Text.literal(description).formatted(Formatting.YELLOW)).append(Text
-								.literal(" (" + commandsToSchedule.size() + " commands)").formatted(Formatting.GRAY)),
-						false);
+		@Override
+		public void alreadyInPlace() {
+			if (streaming) {
+				return;
 			}
-		});
+			client.execute(() -> {
+				if (client.player != null) {
+					client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GREEN)
+							.append(Text.literal(description + ": already in place").formatted(Formatting.GREEN)),
+							false);
+				}
+			});
+		}
 
-		for (int i = 0; i < commandsToSchedule.size(); i++) {
-			final CommandValidation.ValidatedCommand cmd = commandsToSchedule.get(i);
-			final int index = i;
-
-			scheduler.schedule(() -> {
-				client.execute(() -> {
-					if (client.player != null && client.getNetworkHandler() != null) {
-						if (cmd.normalized().startsWith("//")) {
-							client.getNetworkHandler().sendChatCommand(cmd.normalized().substring(1));
-						} else {
-							client.getNetworkHandler().sendChatCommand(cmd.normalized());
-						}
-					}
-				});
-
-				if ((index + 1) % 10 == 0 || index == commandsToSchedule.size() - 1) {
-					client.execute(() -> {
-						if (client.player != null) {
-							client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
-									.append(Text.literal("Progress: " + (index + 1) + "/" + commandsToSchedule.size())
-											.formatted(Formatting.GRAY)),
-									false);
+		@Override
+		public void start(CommandStream stream, int firstBatchSize) {
+			String count = streaming ? " (streaming...)" : " (" + firstBatchSize + " commands)";
+			job = CommandDispatcher.submit(description, CommandJob.Priority.NORMAL, stream,
+					gated -> UndoHistory.capture(description, gated), new CommandJob.JobListener() {
+						// Progress while running is the dispatcher's action bar line
+						@Override
+						public void onFinished(CommandJob job) {
+							if (job.state() == CommandJob.State.DONE) {
+								showProgress(stream, job.sent());
+							}
 						}
 					});
+
+			int jobId = job.id();
+			client.execute(() -> {
+				if (client.player != null) {
+					client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+							.append(Text.literal(description).formatted(Formatting.YELLOW))
+							.append(Text.literal(count + " [job #" + jobId + "]").formatted(Formatting.GRAY)),
+							false);
 				}
-			}, (long) i * 150, TimeUnit.MILLISECONDS);
+			});
+		}
+
+		private void showProgress(CommandStream stream, int sent) {
+			if (client.player != null) {
+				String total = stream.isClosed() ? "/" + stream.appendedCount() : "";
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal("Progress: " + sent + total).formatted(Formatting.GRAY)), false);
+			}
 		}
 	}
 }
@@ -0,0 +1,99 @@
+package com.botpress.command;
+
+import com.botpress.config.MineBotConfig;
+import com.botpress.network.JobCancelPayload;
+import com.botpress.network.JobPayload;
+import com.botpress.network.JobStatusPayload;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.MinecraftClient;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hands job commands to the server's copy of the mod in payload batches instead of one chat command
+// each. The server runs them within its own tick budget and reports back how many it has settled;
+// at most serverJobWindow commands are outstanding, which keeps a cancel from leaving a long tail
+// of queued work on the server.
+//
+// A job isn't done when its last batch is sent but once the server has run, failed or dropped all of
+// its commands, so the dispatcher keeps it running until unsettled() says so.
+//
+// Everything but cancel() runs on the client thread: payloads are received there, and unsettled() is
+// only asked by JobQueue.poll(), which only the dispatcher's client tick calls. cancel() may be called
+// from any thread, as when a job is cancelled from a request thread, and posts its work there. None of
+// the state here is guarded otherwise.
+public final class RemoteDispatch {
+	private static boolean enabled = true;
+	private static int window = 2048;
+	private static long sent;
+	private static long settled;
+	// Per job, the sent total after its latest batch
+	private static final Map<Integer, Long> marks = new HashMap<>();
+	// Jobs the server had commands of queued at its latest status
+	private static List<Integer> queued = List.of();
+
+	private RemoteDispatch() {
+	}
+
+	public static void configure(MineBotConfig config) {
+		enabled = config.serverJobs();
+		window = Math.max(1, config.serverJobWindow());
+	}
+
+	public static void register() {
+		ClientPlayNetworking.registerGlobalReceiver(JobStatusPayload.ID, (payload, context) -> {
+			settled = payload.executed() + payload.failed() + payload.cancelled();
+			queued = payload.jobs();
+		});
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+			sent = 0;
+			settled = 0;
+			marks.clear();
+			queued = List.of();
+		});
+	}
+
+	// True when connected to a server that has the mod and accepts job payloads
+	public static boolean available() {
+		return enabled && ClientPlayNetworking.canSend(JobPayload.ID);
+	}
+
+	// Commands that can be sent before the server has to catch up
+	public static int capacity() {
+		return (int) Math.max(0, window - (sent - settled));
+	}
+
+	public static void send(int jobId, List<String> commands) {
+		ClientPlayNetworking.send(new JobPayload(jobId, commands));
+		sent += commands.size();
+		marks.put(jobId, sent);
+	}
+
+	// True while the server may still run commands of the job. Commands arrive in the order they were
+	// sent, so once the settled total reaches the job's mark the server has received all of them, and
+	// any left are in its list of queued jobs.
+	public static boolean unsettled(int jobId) {
+		Long mark = marks.get(jobId);
+		if (mark == null) {
+			return false;
+		}
+		if (settled < mark || queued.contains(jobId)) {
+			return true;
+		}
+		marks.remove(jobId);
+		return false;
+	}
+
+	// Drops whatever of the job the server still has queued. Safe from any thread.
+	public static void cancel(int jobId) {
+		MinecraftClient client = MinecraftClient.getInstance();
+		client.execute(() -> {
+			marks.remove(jobId);
+			if (sent > settled && available()) {
+				ClientPlayNetworking.send(new JobCancelPayload(jobId));
+			}
+		});
+	}
+}
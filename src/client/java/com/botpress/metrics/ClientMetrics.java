@@ -0,0 +1,148 @@
+package com.botpress.metrics;
+
+import com.botpress.BotpressClient;
+import com.botpress.command.CommandDispatcher;
+import com.botpress.config.MineBotConfig;
+import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElementRegistry;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Owns the mod's metrics, the "!ai hud" overlay and the periodic export. Once a second the metrics
+// thread turns a snapshot into overlay lines, so rendering only draws prepared strings.
+public final class ClientMetrics {
+	// Rates on the overlay are averaged over this many one-second samples
+	private static final int RATE_WINDOW = 10;
+	private static final int BACKGROUND = 0x90000000;
+	private static final int TITLE_COLOR = 0xFFFFAA00;
+	private static final int TEXT_COLOR = 0xFFE0E0E0;
+
+	private static final Metrics metrics = new Metrics();
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "MineBot-Metrics");
+		t.setDaemon(true);
+		return t;
+	});
+	// Only touched on the metrics thread
+	private static final ArrayDeque<Metrics.Snapshot> recent = new ArrayDeque<>();
+
+	private static volatile boolean hudVisible;
+	private static volatile List<String> hudLines = List.of();
+	private static MetricsExporter exporter;
+	private static Metrics.Snapshot lastExported;
+
+	private ClientMetrics() {
+	}
+
+	public static Metrics metrics() {
+		return metrics;
+	}
+
+	public static void configure(MineBotConfig config, Path configDir) {
+		metrics.setEnabled(config.metricsEnabled());
+		if (!config.metricsEnabled()) {
+			return;
+		}
+		metrics.setQueueDepth(() -> CommandDispatcher.jobs().remaining());
+		hudVisible = config.metricsHud();
+
+		MetricsExporter.Format format = switch (config.metricsExport().toLowerCase(Locale.ROOT)) {
+			case "csv" -> MetricsExporter.Format.CSV;
+			case "json" -> MetricsExporter.Format.JSON;
+			default -> null;
+		};
+		if (format != null) {
+			exporter = new MetricsExporter(configDir.resolve(MetricsExporter.DIRECTORY_NAME), format,
+					config.metricsMaxFileKb() * 1024L, config.metricsMaxFiles());
+			long period = Math.max(1, config.metricsExportSeconds());
+			scheduler.scheduleAtFixedRate(ClientMetrics::export, period, period, TimeUnit.SECONDS);
+		}
+
+		scheduler.scheduleAtFixedRate(ClientMetrics::refreshHud, 0, 1, TimeUnit.SECONDS);
+		HudElementRegistry.addLast(Identifier.of("botpress", "metrics"), ClientMetrics::render);
+	}
+
+	// Returns whether the overlay is now visible.
+	public static boolean toggleHud() {
+		hudVisible = !hudVisible;
+		return hudVisible;
+	}
+
+	private static void export() {
+		Metrics.Snapshot current = metrics.snapshot(System.currentTimeMillis());
+		if (lastExported != null) {
+			try {
+				exporter.write(current, lastExported);
+			} catch (IOException e) {
+				BotpressClient.LOGGER.warn("Could not write metrics", e);
+			}
+		}
+		lastExported = current;
+	}
+
+	private static void refreshHud() {
+		Metrics.Snapshot current = metrics.snapshot(System.currentTimeMillis());
+		recent.addLast(current);
+		if (recent.size() > RATE_WINDOW + 1) {
+			recent.removeFirst();
+		}
+		if (!hudVisible) {
+			return;
+		}
+
+		// Rates cover the last few seconds; counts and timings are totals since the game started
+		Metrics.Snapshot oldest = recent.peekFirst();
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format(Locale.ROOT, "MineBot  %.1f cmd/s  queue %d  rejected %d  errors %d",
+				current.ratePerSecond(Metrics.Counter.COMMANDS_SENT, oldest), current.queueDepth(),
+				current.count(Metrics.Counter.COMMANDS_REJECTED), current.count(Metrics.Counter.BRIDGE_ERRORS)));
+		lines.add(String.format(Locale.ROOT, "requests %d  cached %d  sent %d",
+				current.count(Metrics.Counter.REQUESTS), current.count(Metrics.Counter.CACHE_HITS),
+				current.count(Metrics.Counter.COMMANDS_SENT)));
+		for (Metrics.Stage stage : Metrics.Stage.values()) {
+			LatencyHistogram.Snapshot timings = current.stage(stage);
+			if (timings.count() > 0) {
+				lines.add(String.format(Locale.ROOT, "%-9s n=%d  p50 %s  p99 %s  max %s", stage.label(),
+						timings.count(), millis(timings.percentileMillis(0.5)),
+						millis(timings.percentileMillis(0.99)), millis(timings.maxMillis())));
+			}
+		}
+		hudLines = lines;
+	}
+
+	private static String millis(double value) {
+		return value >= 100 ? String.format(Locale.ROOT, "%.0fms", value) : String.format(Locale.ROOT, "%.1fms", value);
+	}
+
+	private static void render(DrawContext context, RenderTickCounter tickCounter) {
+		MinecraftClient client = MinecraftClient.getInstance();
+		List<String> lines = hudLines;
+		if (!hudVisible || lines.isEmpty() || client.options.hudHidden) {
+			return;
+		}
+
+		TextRenderer text = client.textRenderer;
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, text.getWidth(line));
+		}
+		int x = 4;
+		int y = 4;
+		context.fill(x - 2, y - 2, x + width + 2, y + lines.size() * 10, BACKGROUND);
+		for (int i = 0; i < lines.size(); i++) {
+			context.drawTextWithShadow(text, lines.get(i), x, y + i * 10, i == 0 ? TITLE_COLOR : TEXT_COLOR);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.botpress.network;
+
+import com.botpress.BotpressClient;
+import com.botpress.config.MineBotConfig;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Connection health of the bridge endpoints. Each endpoint's circuit opens after a run of failed
+// requests; while every circuit is open, requests fail at once with a message instead of waiting
+// out a connect timeout. A background thread probes /health of each unreachable endpoint until it
+// answers, and the player is told once the bridge is back.
+public final class BridgeHealth {
+	private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(2);
+	private static final int MAX_AFFINITY = 1024;
+
+	private static final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "MineBot-Health");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static EndpointPool pool = new EndpointPool(List.of(URI.create("http://localhost:3000")),
+			() -> new CircuitBreaker(2, 1000, 30000), MAX_AFFINITY);
+	private static RetryPolicy retries = new RetryPolicy(3, 250, 2000);
+	private static HttpClient httpClient;
+
+	private BridgeHealth() {
+	}
+
+	public static void configure(MineBotConfig config, HttpClient client) {
+		List<URI> endpoints = config.bridgeEndpoints().stream().map(URI::create).toList();
+		pool = new EndpointPool(endpoints, () -> new CircuitBreaker(config.bridgeFailureThreshold(),
+				config.bridgeProbeMillis(), config.bridgeMaxProbeMillis()), MAX_AFFINITY);
+		retries = new RetryPolicy(config.bridgeRetries(), config.bridgeRetryMillis(), config.bridgeMaxProbeMillis());
+		httpClient = client;
+		pool.setListener(new EndpointPool.Listener() {
+			@Override
+			public void opened(EndpointPool.Endpoint endpoint) {
+				BotpressClient.LOGGER.warn("Bridge {} unreachable, probing until it answers", endpoint);
+				scheduleProbe(endpoint);
+			}
+
+			@Override
+			public void closed(EndpointPool.Endpoint endpoint) {
+				BridgeHealth.closed(endpoint);
+			}
+		});
+	}
+
+	public static EndpointPool pool() {
+		return pool;
+	}
+
+	public static RetryPolicy retries() {
+		return retries;
+	}
+
+	// False while no endpoint is reachable; the caller should fail with unavailableMessage().
+	public static boolean allow() {
+		if (pool.available()) {
+			return true;
+		}
+		ClientMetrics.metrics().increment(Metrics.Counter.BRIDGE_FAST_FAILS);
+		return false;
+	}
+
+	public static String unavailableMessage() {
+		long seconds = Math.max(1, (pool.probeDelayMillis() + 999) / 1000);
+		return "AI server is unreachable; checking again in " + seconds + "s.";
+	}
+
+	private static void scheduleProbe(EndpointPool.Endpoint endpoint) {
+		long delay = endpoint.breaker().probeDelayMillis();
+		if (delay >= 0) {
+			prober.schedule(() -> probe(endpoint), delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static void probe(EndpointPool.Endpoint endpoint) {
+		if (!endpoint.breaker().isOpen()) {
+			return;
+		}
+		boolean healthy;
+		try {
+			HttpRequest request = HttpRequest.newBuilder().uri(EndpointPool.resolve(endpoint.uri(), "health"))
+					.timeout(PROBE_TIMEOUT).GET().build();
+			healthy = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+		} catch (IOException e) {
+			healthy = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		if (endpoint.breaker().onProbe(healthy)) {
+			closed(endpoint);
+		} else {
+			scheduleProbe(endpoint);
+		}
+	}
+
+	private static void closed(EndpointPool.Endpoint endpoint) {
+		BotpressClient.LOGGER.info("Bridge {} reachable again", endpoint);
+		// While other endpoints were serving there was no outage to announce
+		if (pool.endpoints().stream().filter(e -> e.breaker().allowRequest()).count() == 1) {
+			HttpBridge.showNotice("AI server is reachable again.");
+		}
+	}
+}
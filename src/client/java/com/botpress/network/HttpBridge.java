@@ -1,112 +1,239 @@
 package com.botpress.network;
 
+import com.botpress.BotpressClient;
 import com.botpress.build.BuilderEngine;
 import com.botpress.command.CommandExecutor;
-import com.google.gson.JsonArray;
+import com.botpress.command.CommandSequence;
+import com.botpress.config.MineBotConfig;
+import com.botpress.metrics.ClientMetrics;
+import com.botpress.metrics.Metrics;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import net.minecraft.util.math.BlockPos;
 
-import java.net.URI;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class HttpBridge {
-	private static final String BRIDGE_BASE_URL = "http://localhost:3000";
-	private static final String BRIDGE_CHAT_URL = BRIDGE_BASE_URL + "/chat";
-	private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
-		Thread t = new Thread(r, "MineBot-HTTP");
-		t.setDaemon(true);
-		return t;
-	});
+	private static final String CACHE_FILE_NAME = "minebot-cache.json";
+	// Streamed sequences longer than this are not worth keeping in memory for the cache
+	private static final int MAX_CACHED_COMMANDS = 10000;
+	private static final RequestPipeline pipeline = new RequestPipeline();
 
-	private static final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	private static ResponseCache cache;
+	private static boolean binaryPayloads = true;
+	private static double hedgePercentile;
 
+	private static HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+	public static void configure(MineBotConfig config, Path configDir) {
+		binaryPayloads = config.binaryPayloads();
+		httpClient = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofMillis(Math.max(1, config.bridgeConnectTimeoutMillis()))).build();
+		hedgePercentile = config.bridgeHedging() ? config.bridgeHedgePercentile() : 0;
+		BridgeHealth.configure(config, httpClient);
+		if (!config.cacheEnabled()) {
+			return;
+		}
+
+		cache = new ResponseCache(config.cacheMaxEntries(), TimeUnit.MINUTES.toMillis(config.cacheTtlMinutes()),
+				config.cacheBucketSize());
+		if (config.cachePersist()) {
+			Path cacheFile = configDir.resolve(CACHE_FILE_NAME);
+			try {
+				cache.load(cacheFile);
+			} catch (IOException | RuntimeException e) {
+				BotpressClient.LOGGER.warn("Ignoring unreadable response cache {}", cacheFile, e);
+			}
+			ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+				try {
+					cache.save(cacheFile);
+				} catch (IOException e) {
+					BotpressClient.LOGGER.warn("Could not save response cache {}", cacheFile, e);
+				}
+			});
+		}
+	}
+
+	// Must be called on the client thread, which owns the player position.
 	public static void sendAsync(String playerName, String playerUUID, String message) {
-		executor.submit(() -> {
+		MinecraftClient client = MinecraftClient.getInstance();
+		ResponseCache.Context context = null;
+		if (client.player != null && client.world != null) {
+			BlockPos pos = client.player.getBlockPos();
+			context = new ResponseCache.Context(playerUUID, client.world.getRegistryKey().getValue().toString(),
+					pos.getX(), pos.getY(), pos.getZ());
+		}
+		ResponseCache.Context origin = context;
+		Metrics metrics = ClientMetrics.metrics();
+		long submitted = metrics.start();
+
+		pipeline.submitOrdered(playerUUID, () -> {
+			metrics.stop(Metrics.Stage.QUEUE, submitted);
+			metrics.increment(Metrics.Counter.REQUESTS);
 			try {
+				BridgeResponse cached = cache != null && origin != null ? cache.get(message, origin) : null;
+				if (cached != null) {
+					metrics.increment(Metrics.Counter.CACHE_HITS);
+					handle(cached);
+					return;
+				}
+				if (!BridgeHealth.allow()) {
+					showError(BridgeHealth.unavailableMessage());
+					return;
+				}
+
 				JsonObject body = new JsonObject();
 				body.addProperty("playerName", playerName);
 				body.addProperty("playerUUID", playerUUID);
 				body.addProperty("message", message);
-
-				MinecraftClient client = MinecraftClient.getInstance();
-				if (client.player != null) {
-					BlockPos pos = client.player.getBlockPos();
-					body.addProperty("playerX", pos.getX());
-					body.addProperty("playerY", pos.getY());
-					body.addProperty("playerZ", pos.getZ());
+				if (origin != null) {
+					body.addProperty("playerX", origin.x());
+					body.addProperty("playerY", origin.y());
+					body.addProperty("playerZ", origin.z());
 				}
 
-				HttpRequest request = HttpRequest.newBuilder().uri(URI.create(BRIDGE_CHAT_URL))
-						.header("Content-Type", "application/json").timeout(Duration.ofSeconds(45))
-						.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+				String accept = ReplyReader.accept(binaryPayloads);
+				long exchange = metrics.start();
+				HttpResponse<InputStream> response = BridgeHealth.pool().send(httpClient, playerUUID,
+						base -> HttpRequest.newBuilder().uri(EndpointPool.resolve(base, "chat"))
+								.header("Content-Type", "application/json").header("Accept", accept)
+								.timeout(Duration.ofSeconds(45))
+								.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+						HttpResponse.BodyHandlers.ofInputStream(), hedgePercentile);
+				metrics.stop(Metrics.Stage.BRIDGE, exchange);
 
-				HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+				try (InputStream input = response.body()) {
+					if (response.statusCode() != 200) {
+						metrics.increment(Metrics.Counter.BRIDGE_ERRORS);
+						showError("Server returned status " + response.statusCode());
+						return;
+					}
 
-				if (response.statusCode() != 200) {
-					showError("Server returned status " + response.statusCode());
-					return;
-				}
+					String contentType = response.headers().firstValue("Content-Type").orElse("");
+					new ReplyReader(new ReplyReader.Handler() {
+						@Override
+						public void handle(BridgeResponse reply) {
+							HttpBridge.handle(reply);
+						}
 
-				JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
-				String type = json.get("type").getAsString();
-
-				switch (type) {
-					case "chat" -> showChat(json.get("text").getAsString());
-					case "command" -> CommandExecutor.execute(json.get("command").getAsString());
-					case "build" -> BuilderEngine.build(json.get("structure").getAsString(),
-							json.get("width").getAsInt(), json.get("height").getAsInt(), json.get("depth").getAsInt(),
-							json.get("material").getAsString());
-					case "worldedit" -> {
-						String description = json.get("description").getAsString();
-						JsonArray cmdsArray = json.getAsJsonArray("commands");
-						List<String> commands = new ArrayList<>();
-						for (int i = 0; i < cmdsArray.size(); i++) {
-							commands.add(cmdsArray.get(i).getAsString());
+						@Override
+						public CommandSequence begin(String description, boolean strictMode) {
+							return CommandExecutor.beginSequence(description, strictMode);
 						}
 
-						boolean strictMode = json.has("strictMode") && json.get("strictMode").getAsBoolean();
-						CommandExecutor.executeSequence(description, commands, strictMode);
-					}
-					case "error" -> showError(json.get("text").getAsString());
-					default -> showError("Unknown response type: " + type);
+						@Override
+						public void completed(BridgeResponse reply) {
+							remember(message, origin, reply);
+						}
+					}, metrics, cache != null ? MAX_CACHED_COMMANDS : 0).read(contentType, input);
 				}
 			} catch (java.net.ConnectException e) {
+				metrics.increment(Metrics.Counter.BRIDGE_ERRORS);
 				showError("Could not reach AI server. Is bridge-server running?");
+			} catch (HttpTimeoutException e) {
+				metrics.increment(Metrics.Counter.BRIDGE_ERRORS);
+				showError("AI server did not answer in time.");
 			} catch (Exception e) {
-				showError("Error: " + e.getMessage());
+				// Cancelled requests are interrupted mid-exchange; the player already got a confirmation
+				if (!Thread.currentThread().isInterrupted() && !(e instanceof InterruptedException)) {
+					metrics.increment(Metrics.Counter.BRIDGE_ERRORS);
+					showError("Error: " + e.getMessage());
+				}
+			} finally {
+				metrics.stop(Metrics.Stage.REPLY, submitted);
 			}
 		});
 	}
 
-	public static void sendResetAsync(String playerUUID) {
-		executor.submit(() -> {
-			try {
-				HttpRequest request = HttpRequest.newBuilder().uri(URI.create(BRIDGE_BASE_URL + "/reset/" + playerUUID))
-						.header("Content-Type", "application/json").timeout(Duration.ofSeconds(10))
-						.POST(HttpRequest.BodyPublishers.noBody()).build();
+	// Aborts the player's in-flight request and drops any queued behind it.
+	public static int cancel(String playerUUID) {
+		return pipeline.cancel(playerUUID);
+	}
 
-				httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+	private static void remember(String message, ResponseCache.Context origin, BridgeResponse response) {
+		if (cache != null && origin != null) {
+			cache.put(message, origin, response);
+		}
+	}
 
-				MinecraftClient client = MinecraftClient.getInstance();
-				client.execute(() -> {
-					if (client.player != null) {
-						client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
-								.append(Text.literal("Conversation reset!").formatted(Formatting.GREEN)), false);
+	// Acts on a locally produced reply in the player's request lane, after anything already queued
+	// there and off the client thread.
+	public static void handleAsync(String playerUUID, BridgeResponse response) {
+		pipeline.submitOrdered(playerUUID, () -> handle(response));
+	}
+
+	private static void handle(BridgeResponse response) {
+		switch (response) {
+			case BridgeResponse.Chat chat -> showChat(chat.text());
+			case BridgeResponse.Command command -> CommandExecutor.execute(command.command());
+			case BridgeResponse.Build build -> BuilderEngine.build(build.structure(), build.width(), build.height(),
+					build.depth(), build.material());
+			case BridgeResponse.WorldEdit worldEdit -> CommandExecutor.executeSequence(worldEdit.description(),
+					worldEdit.commands(), worldEdit.strictMode());
+			case BridgeResponse.Error error -> showError(error.text());
+			case BridgeResponse.Commands commands -> showError("Unexpected command batch outside a stream");
+			case BridgeResponse.End end -> {
+			}
+		}
+	}
+
+	// Resets are idempotent, so failed attempts are retried a few times with jittered backoff. They go
+	// to the endpoint holding the player's session. Cached replies belong to the old conversation, so
+	// they are dropped straight away.
+	public static void sendResetAsync(String playerUUID) {
+		if (cache != null) {
+			cache.clearSession(playerUUID);
+		}
+		pipeline.submit(() -> {
+			RetryPolicy retries = BridgeHealth.retries();
+			for (int attempt = 1;; attempt++) {
+				if (!BridgeHealth.allow()) {
+					showError(BridgeHealth.unavailableMessage());
+					return;
+				}
+				String failure;
+				try {
+					int status = BridgeHealth.pool().send(httpClient, playerUUID,
+							base -> HttpRequest.newBuilder().uri(EndpointPool.resolve(base, "reset/" + playerUUID))
+									.header("Content-Type", "application/json").timeout(Duration.ofSeconds(10))
+									.POST(HttpRequest.BodyPublishers.noBody()).build(),
+							HttpResponse.BodyHandlers.discarding(), 0).statusCode();
+					if (status < 500) {
+						if (status == 200) {
+							showNotice("Conversation reset!");
+						} else {
+							showError("Failed to reset: server returned status " + status);
+						}
+						return;
 					}
-				});
-			} catch (Exception e) {
-				showError("Failed to reset: " + e.getMessage());
+					failure = "server returned status " + status;
+				} catch (IOException e) {
+					failure = e.getMessage();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				ClientMetrics.metrics().increment(Metrics.Counter.BRIDGE_ERRORS);
+				if (!retries.shouldRetry(attempt)) {
+					showError("Failed to reset: " + failure);
+					return;
+				}
+				try {
+					Thread.sleep(retries.delayMillis(attempt));
+				} catch (InterruptedException e) {
+					return;
+				}
 			}
 		});
 	}
@@ -121,6 +248,16 @@ public class HttpBridge {
 		});
 	}
 
+	static void showNotice(String text) {
+		MinecraftClient client = MinecraftClient.getInstance();
+		client.execute(() -> {
+			if (client.player != null) {
+				client.player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+						.append(Text.literal(text).formatted(Formatting.GREEN)), false);
+			}
+		});
+	}
+
 	private static void showError(String text) {
 		MinecraftClient client = MinecraftClient.getInstance();
 		client.execute(() -> {
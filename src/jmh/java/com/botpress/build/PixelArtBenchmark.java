@@ -0,0 +1,63 @@
+package com.botpress.build;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Quantizing a noisy size^2 image against the bundled palette, with and without dithering, and
+// compiling the result into fills. Quantizing runs across the common fork/join pool.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PixelArtBenchmark {
+	@Param({"128", "512"})
+	private int size;
+
+	private final BlockPalette palette = BlockPalette.defaults();
+	private PixelArt.Image image;
+	private int[] indices;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(7);
+		int[] pixels = new int[size * size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				// A gradient with some noise, so both long runs and busy areas show up
+				int shade = (x + y) * 255 / (2 * size) + random.nextInt(16);
+				pixels[y * size + x] = 0xFF000000 | Math.min(255, shade) << 16 | x * 255 / size << 8 | y * 255 / size;
+			}
+		}
+		image = new PixelArt.Image(size, size, pixels);
+		indices = PixelArt.quantize(image, palette, false);
+	}
+
+	@Benchmark
+	public int[] quantize() {
+		return PixelArt.quantize(image, palette, false);
+	}
+
+	@Benchmark
+	public int[] quantizeDithered() {
+		return PixelArt.quantize(image, palette, true);
+	}
+
+	@Benchmark
+	public int compile() {
+		int commands = 0;
+		List<VoxelModel> slabs = PixelArt.slabs(indices, size, size, palette, 0, 64, 0);
+		for (VoxelModel slab : slabs) {
+			commands += FillCompiler.compile(slab).size();
+		}
+		return commands;
+	}
+}
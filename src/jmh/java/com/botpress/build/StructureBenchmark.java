@@ -0,0 +1,46 @@
+package com.botpress.build;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rasterizes registered structures at large dimensions, and compiles the result into fill commands.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StructureBenchmark {
+	@Param({"cube", "house", "hollow_sphere", "dome", "cylinder", "pyramid", "arch"})
+	private String structure;
+
+	@Param({"16", "64"})
+	private int size;
+
+	private StructureGenerator.Bounds bounds;
+	private VoxelModel model;
+
+	@Setup
+	public void setUp() {
+		bounds = new StructureGenerator.Bounds(0, 64, 0, size, size, size);
+		model = generate();
+	}
+
+	@Benchmark
+	public VoxelModel generate() {
+		VoxelModel generated = new VoxelModel();
+		StructureRegistry.get(structure).generate(generated, bounds, "minecraft:stone");
+		return generated;
+	}
+
+	@Benchmark
+	public List<String> compile() {
+		return FillCompiler.compile(model);
+	}
+}
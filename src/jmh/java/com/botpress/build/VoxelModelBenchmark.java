@@ -0,0 +1,66 @@
+package com.botpress.build;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Region fill, per-block writes, ordered iteration and diff over a size^3 region. The gc profiler's
+// alloc.rate.norm shows what one model of that size costs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VoxelModelBenchmark {
+	private static final String[] BLOCKS = {"minecraft:stone", "minecraft:andesite", "minecraft:diorite",
+			"minecraft:granite", "minecraft:dirt"};
+
+	@Param({"64", "256"})
+	private int size;
+
+	private VoxelModel detailed;
+	private VoxelModel patched;
+
+	@Setup
+	public void setUp() {
+		detailed = detailed();
+		patched = detailed();
+		patched.fill(0, 0, 0, size / 4, size / 4, size / 4, "minecraft:air");
+	}
+
+	@Benchmark
+	public VoxelModel fill() {
+		VoxelModel model = new VoxelModel();
+		model.fill(0, 0, 0, size - 1, size - 1, size - 1, "minecraft:stone");
+		return model;
+	}
+
+	@Benchmark
+	public VoxelModel detailed() {
+		VoxelModel model = new VoxelModel();
+		for (int y = 0; y < size; y++) {
+			for (int z = 0; z < size; z++) {
+				for (int x = 0; x < size; x++) {
+					model.set(x, y, z, BLOCKS[(x * 31 + y * 17 + z * 7) % BLOCKS.length]);
+				}
+			}
+		}
+		return model;
+	}
+
+	@Benchmark
+	public void iterateInOrder(Blackhole blackhole) {
+		detailed.forEachInOrder((x, y, z, block) -> blackhole.consume(block));
+	}
+
+	@Benchmark
+	public VoxelModel diff() {
+		return patched.diff(detailed);
+	}
+}
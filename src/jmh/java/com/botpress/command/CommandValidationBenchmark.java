@@ -0,0 +1,70 @@
+package com.botpress.command;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Validates batches from a single command up to a large pixel-art job, compared against the previous
+// trim/split/Set lookup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandValidationBenchmark {
+	@Param({"10", "1000", "100000"})
+	private int commandCount;
+
+	private List<String> commands;
+
+	@Setup
+	public void setUp() {
+		commands = new ArrayList<>(commandCount);
+		for (int i = 0; i < commandCount; i++) {
+			commands.add(switch (i % 4) {
+				case 0 -> "setblock " + i + " 64 " + (i / 128) + " minecraft:white_wool";
+				case 1 -> "fill " + i + " 64 0 " + (i + 8) + " 64 4 minecraft:stone";
+				case 2 -> "//set stone";
+				default -> "/time set day";
+			});
+		}
+	}
+
+	@Benchmark
+	public void validate(Blackhole blackhole) {
+		for (String command : commands) {
+			blackhole.consume(CommandValidation.validate(command).valid());
+		}
+	}
+
+	@Benchmark
+	public CommandValidation.SequenceValidationResult validateSequence() {
+		return CommandValidation.validateSequence(commands, false);
+	}
+
+	@Benchmark
+	public void legacyValidate(Blackhole blackhole) {
+		for (String command : commands) {
+			blackhole.consume(GeneratedCommandWhitelist.WHITELISTED_COMMANDS.contains(legacyBaseCommand(command)));
+		}
+	}
+
+	private static String legacyBaseCommand(String command) {
+		String normalized = command.trim();
+		if (normalized.startsWith("//")) {
+			return "//" + normalized.substring(2).split("\\s+")[0];
+		}
+		if (normalized.startsWith("/")) {
+			normalized = normalized.substring(1);
+		}
+		return normalized.split("\\s+")[0];
+	}
+}
@@ -0,0 +1,121 @@
+package com.botpress.network;
+
+import com.botpress.build.VoxelModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Decodes worldedit payloads the way HttpBridge does, as one JSON body, as NDJSON batches and as the
+// same blocks in a binary voxel payload.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BridgeResponseBenchmark {
+	private static final int BATCH_SIZE = 50;
+
+	@Param({"10", "1000", "50000"})
+	private int commandCount;
+
+	private String json;
+	private String ndjson;
+	private byte[] voxels;
+
+	@Setup
+	public void setUp() throws IOException {
+		StringBuilder commands = new StringBuilder();
+		StringBuilder lines = new StringBuilder("{\"type\":\"worldedit\",\"description\":\"Bench\",\"commands\":[],"
+				+ "\"strictMode\":false,\"stream\":true}\n");
+		StringBuilder batch = new StringBuilder();
+		for (int i = 0; i < commandCount; i++) {
+			String command = "\"setblock " + (i % 128) + " 64 " + (i / 128) + " minecraft:white_wool\"";
+			commands.append(i == 0 ? "" : ",").append(command);
+			batch.append(batch.isEmpty() ? "" : ",").append(command);
+			if ((i + 1) % BATCH_SIZE == 0 || i == commandCount - 1) {
+				lines.append("{\"type\":\"commands\",\"commands\":[").append(batch).append("]}\n");
+				batch.setLength(0);
+			}
+		}
+		lines.append("{\"type\":\"end\"}\n");
+
+		json = "{\"type\":\"worldedit\",\"description\":\"Bench\",\"commands\":[" + commands
+				+ "],\"strictMode\":false}";
+		ndjson = lines.toString();
+		voxels = voxelPayload();
+	}
+
+	// One 128-wide layer of white wool rows, the same blocks the command payloads place
+	private byte[] voxelPayload() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x4D425631);
+		writeString(out, "Bench");
+		out.writeInt(0);
+		out.writeInt(64);
+		out.writeInt(0);
+		int depth = (commandCount + 127) / 128;
+		out.writeShort(128);
+		out.writeShort(1);
+		out.writeShort(depth);
+		out.writeShort(1);
+		writeString(out, "minecraft:white_wool");
+		writeVarInt(out, commandCount);
+		writeVarInt(out, 1);
+		if (depth * 128 > commandCount) {
+			writeVarInt(out, depth * 128 - commandCount);
+			writeVarInt(out, 0);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	@Benchmark
+	public BridgeResponse readJson() {
+		return BridgeResponse.read(new StringReader(json));
+	}
+
+	@Benchmark
+	public void readNdjson(Blackhole blackhole) throws IOException {
+		BridgeResponse.readStream(new StringReader(ndjson), blackhole::consume);
+	}
+
+	@Benchmark
+	public void readVoxels(Blackhole blackhole) throws IOException {
+		VoxelPayload.read(new ByteArrayInputStream(voxels), new VoxelPayload.Listener() {
+			@Override
+			public void begin(String description, int sizeX, int sizeY, int sizeZ) {
+			}
+
+			@Override
+			public void slab(VoxelModel slab) {
+				blackhole.consume(slab);
+			}
+		});
+	}
+}
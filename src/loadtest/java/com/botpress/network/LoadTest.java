@@ -0,0 +1,434 @@
+package com.botpress.network;
+
+import com.botpress.build.StructureGenerator;
+import com.botpress.build.StructureRegistry;
+import com.botpress.command.ChunkDeferral;
+import com.botpress.command.ChunkOrderPlanner;
+import com.botpress.command.CommandJob;
+import com.botpress.command.CommandSequence;
+import com.botpress.command.CommandSource;
+import com.botpress.command.CommandStream;
+import com.botpress.command.CommandValidation;
+import com.botpress.command.JobQueue;
+import com.botpress.metrics.LatencyHistogram;
+import com.botpress.metrics.Metrics;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Offline load test: simulated players send chat requests to local stub bridges, and each reply goes
+// through the classes the game uses for it (endpoint routing, ReplyReader for JSON, NDJSON and voxel
+// replies, CommandSequence for validation, compaction and chunk ordering, StructureRegistry.plan for
+// builds, and the job queue) before a fake dispatcher drains the queue in place of the game. Only
+// chat output, the client world and the cache are left out.
+//
+// Options are key=value arguments, see Options. Prints p50/p99 request latency, commands per second
+// and bytes allocated per request, and writes them as JSON when out= is given. Exits with status 1
+// when maxP99 or minRate is set and missed, so a CI job can fail on a throughput regression.
+public final class LoadTest {
+	private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private final Options options;
+	private final EndpointPool pool;
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	private final ExecutorService workers;
+	private final RequestPipeline pipeline;
+	private final JobQueue jobs = new JobQueue();
+	private final Metrics metrics = new Metrics();
+	private final Sink sink;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final LongAdder allocated = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final Map<String, LongAdder> replies = new LinkedHashMap<>();
+	private LatencyHistogram.Snapshot baseline;
+
+	private LoadTest(Options options, List<URI> bridges) {
+		this.options = options;
+		this.pool = new EndpointPool(bridges, () -> new CircuitBreaker(2, 1000, 30000), 1024);
+		// Platform threads, since per-thread allocation counters don't cover virtual threads
+		this.workers = Executors.newFixedThreadPool(options.players, r -> {
+			Thread t = new Thread(r, "LoadTest-Request");
+			t.setDaemon(true);
+			return t;
+		});
+		this.pipeline = new RequestPipeline(workers);
+		this.sink = new Sink(jobs, options.dispatchRate);
+		for (String type : List.of("chat", "command", "build", "worldedit", "voxels", "error")) {
+			replies.put(type, new LongAdder());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = Options.parse(args);
+		List<JsonObject> recordings;
+		if (options.recordings == null) {
+			recordings = StubBridge.defaults();
+		} else {
+			try (Reader reader = Files.newBufferedReader(Path.of(options.recordings))) {
+				recordings = StubBridge.load(reader);
+			}
+		}
+
+		List<StubBridge> stubs = new ArrayList<>();
+		boolean passed;
+		try {
+			List<URI> uris = new ArrayList<>();
+			for (int i = 0; i < options.bridges; i++) {
+				StubBridge stub = new StubBridge(recordings, options.latency, options.jitter);
+				stubs.add(stub);
+				uris.add(stub.uri());
+			}
+			passed = new LoadTest(options, uris).run();
+		} finally {
+			stubs.forEach(StubBridge::close);
+		}
+		System.exit(passed ? 0 : 1);
+	}
+
+	private boolean run() throws InterruptedException, IOException {
+		sink.start();
+		System.out.printf("Warming up: %d players x %d requests%n", options.players, options.warmup);
+		round(options.warmup);
+		reset();
+
+		System.out.printf("Measuring: %d players x %d requests, bridge latency %d+%d ms%n", options.players,
+				options.requests, options.latency, options.jitter);
+		long dispatchedBefore = sink.dispatched.sum();
+		long start = System.nanoTime();
+		round(options.requests);
+		long answered = System.nanoTime();
+		sink.awaitIdle();
+		long drained = System.nanoTime();
+		workers.shutdown();
+
+		long requests = (long) options.players * options.requests;
+		long commands = sink.dispatched.sum() - dispatchedBefore;
+		LatencyHistogram.Snapshot snapshot = latencies.snapshot().since(baseline);
+		double requestsPerSecond = requests / seconds(answered - start);
+		double commandsPerSecond = commands / seconds(drained - start);
+		long bytesPerRequest = allocated.sum() / Math.max(1, snapshot.count());
+
+		System.out.printf("Requests:       %d (%.1f/s), %d errors%n", requests, requestsPerSecond, errors.sum());
+		System.out.printf("Replies:        %s%n", counts());
+		System.out.printf("Latency:        p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", snapshot.percentileMillis(0.5),
+				snapshot.percentileMillis(0.99), snapshot.maxMillis());
+		System.out.printf("Commands:       %d dispatched (%.0f/s), %d rejected%n", commands, commandsPerSecond,
+				rejected.sum());
+		System.out.printf("Allocation:     %d bytes per request on the request thread%n", bytesPerRequest);
+
+		JsonObject result = new JsonObject();
+		result.addProperty("players", options.players);
+		result.addProperty("requests", requests);
+		result.addProperty("errors", errors.sum());
+		result.addProperty("bridges", options.bridges);
+		result.addProperty("latencyMillis", options.latency);
+		result.addProperty("jitterMillis", options.jitter);
+		result.addProperty("p50Millis", snapshot.percentileMillis(0.5));
+		result.addProperty("p99Millis", snapshot.percentileMillis(0.99));
+		result.addProperty("maxMillis", snapshot.maxMillis());
+		result.addProperty("requestsPerSecond", requestsPerSecond);
+		result.addProperty("commands", commands);
+		result.addProperty("commandsPerSecond", commandsPerSecond);
+		result.addProperty("commandsRejected", rejected.sum());
+		result.addProperty("bytesPerRequest", bytesPerRequest);
+		if (options.out != null) {
+			Path out = Path.of(options.out);
+			if (out.getParent() != null) {
+				Files.createDirectories(out.getParent());
+			}
+			try (Writer writer = Files.newBufferedWriter(out)) {
+				new GsonBuilder().setPrettyPrinting().create().toJson(result, writer);
+			}
+			System.out.println("Results written to " + out);
+		}
+
+		boolean passed = errors.sum() == 0;
+		if (options.maxP99 > 0 && snapshot.percentileMillis(0.99) > options.maxP99) {
+			System.out.printf("FAILED: p99 %.2f ms is above %.2f ms%n", snapshot.percentileMillis(0.99),
+					options.maxP99);
+			passed = false;
+		}
+		if (options.minRate > 0 && commandsPerSecond < options.minRate) {
+			System.out.printf("FAILED: %.0f commands/s is below %.0f%n", commandsPerSecond, options.minRate);
+			passed = false;
+		}
+		return passed;
+	}
+
+	// Every player sends its requests one after another, as a player waits for each reply in game
+	private void round(int requestsPerPlayer) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(options.players * requestsPerPlayer);
+		for (int p = 0; p < options.players; p++) {
+			String player = "player-" + p;
+			int originX = p * 256;
+			for (int i = 0; i < requestsPerPlayer; i++) {
+				String message = "request " + i;
+				pipeline.submitOrdered(player, () -> {
+					try {
+						request(player, message, originX);
+					} finally {
+						done.countDown();
+					}
+				});
+			}
+		}
+		done.await();
+	}
+
+	private void reset() {
+		baseline = latencies.snapshot();
+		allocated.reset();
+		errors.reset();
+		rejected.reset();
+		replies.values().forEach(LongAdder::reset);
+		sink.awaitIdle();
+	}
+
+	// HttpBridge.sendAsync without the response cache and chat output
+	private void request(String player, String message, int originX) {
+		long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		try {
+			JsonObject body = new JsonObject();
+			body.addProperty("playerName", player);
+			body.addProperty("playerUUID", player);
+			body.addProperty("message", message);
+			body.addProperty("playerX", originX);
+			body.addProperty("playerY", 64);
+			body.addProperty("playerZ", 0);
+			HttpResponse<InputStream> response = pool.send(client, player,
+					base -> HttpRequest.newBuilder().uri(EndpointPool.resolve(base, "chat"))
+							.header("Content-Type", "application/json")
+							.header("Accept", ReplyReader.accept(options.binaryPayloads))
+							.timeout(Duration.ofSeconds(45))
+							.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+					HttpResponse.BodyHandlers.ofInputStream(), options.hedge);
+
+			try (InputStream input = response.body()) {
+				if (response.statusCode() != 200) {
+					errors.increment();
+					return;
+				}
+				String contentType = response.headers().firstValue("Content-Type").orElse("");
+				boolean voxels = contentType.startsWith(VoxelPayload.CONTENT_TYPE);
+				new ReplyReader(new ReplyReader.Handler() {
+					@Override
+					public void handle(BridgeResponse reply) {
+						LoadTest.this.handle(reply, originX);
+					}
+
+					@Override
+					public CommandSequence begin(String description, boolean strictMode) {
+						count(voxels ? "voxels" : "worldedit");
+						return sequence(description, strictMode);
+					}
+				}, metrics, 0).read(contentType, input);
+			}
+			latencies.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			allocated.add(THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			errors.increment();
+			if (errors.sum() == 1) {
+				System.err.println("First failed request: " + e);
+			}
+		}
+	}
+
+	// HttpBridge.handle
+	private void handle(BridgeResponse reply, int originX) {
+		switch (reply) {
+			case BridgeResponse.Chat chat -> count("chat");
+			case BridgeResponse.Command command -> {
+				count("command");
+				// CommandExecutor.execute sends straight away, outside the job queue
+				if (CommandValidation.validate(command.command()).valid()) {
+					sink.dispatched.increment();
+				} else {
+					rejected.increment();
+				}
+			}
+			case BridgeResponse.Build build -> {
+				count("build");
+				build(build, originX);
+			}
+			case BridgeResponse.WorldEdit worldEdit -> {
+				count("worldedit");
+				CommandSequence sequence = sequence(worldEdit.description(), worldEdit.strictMode());
+				sequence.append(worldEdit.commands());
+				sequence.finish();
+			}
+			case BridgeResponse.Error error -> count("error");
+			case BridgeResponse.Commands commands -> count("error");
+			case BridgeResponse.End end -> {
+			}
+		}
+	}
+
+	// BuilderEngine.build with no client world to diff against
+	private void build(BridgeResponse.Build build, int originX) {
+		StructureRegistry.Plan plan = StructureRegistry.plan(build.structure(),
+				new StructureGenerator.Bounds(originX, 64, 2, build.width(), build.height(), build.depth()),
+				build.material(), null);
+		if (plan == null) {
+			errors.increment();
+			return;
+		}
+		submit("Build " + build.structure(), CommandStream.of(ChunkOrderPlanner.order(plan.commands())));
+	}
+
+	// CommandExecutor.beginSequence with no client world to diff against
+	private CommandSequence sequence(String description, boolean strictMode) {
+		return new CommandSequence(strictMode, null, ChunkOrderPlanner::order, metrics, new CommandSequence.Listener() {
+			@Override
+			public void start(CommandStream stream, int firstBatchSize) {
+				submit(description, stream);
+			}
+
+			@Override
+			public void rejected(CommandValidation.ValidatedCommand offending, int count) {
+				rejected.add(count);
+			}
+		});
+	}
+
+	// CommandDispatcher.submit, with every chunk loaded
+	private void submit(String description, CommandSource source) {
+		jobs.submit(description, CommandJob.Priority.NORMAL, new ChunkDeferral(source, (x, z) -> true, 30000),
+				CommandJob.JobListener.NONE);
+	}
+
+	private void count(String type) {
+		replies.get(type).increment();
+	}
+
+	private String counts() {
+		StringBuilder line = new StringBuilder();
+		replies.forEach((type, count) -> line.append(line.isEmpty() ? "" : ", ").append(type).append(' ')
+				.append(count.sum()));
+		return line.toString();
+	}
+
+	private static double seconds(long nanos) {
+		return Math.max(1, nanos) / 1e9;
+	}
+
+	// Stands in for CommandDispatcher's tick loop: drains the job queue on its own thread, at most
+	// rate commands per second when rate is above zero
+	private static final class Sink extends Thread {
+		private final JobQueue jobs;
+		private final double rate;
+		private final LongAdder dispatched = new LongAdder();
+		private volatile boolean idle;
+
+		Sink(JobQueue jobs, double rate) {
+			super("LoadTest-Dispatch");
+			setDaemon(true);
+			this.jobs = jobs;
+			this.rate = rate;
+		}
+
+		@Override
+		public void run() {
+			long next = System.nanoTime();
+			while (true) {
+				JobQueue.Dispatch dispatch = jobs.poll();
+				if (dispatch == null) {
+					idle = jobs.isEmpty();
+					LockSupport.parkNanos(50_000);
+					next = System.nanoTime();
+					continue;
+				}
+				idle = false;
+				dispatched.increment();
+				if (rate > 0) {
+					next += (long) (1e9 / rate);
+					long wait = next - System.nanoTime();
+					if (wait > 0) {
+						LockSupport.parkNanos(wait);
+					}
+				}
+			}
+		}
+
+		// Waits until every queued job has been sent
+		void awaitIdle() {
+			while (!jobs.isEmpty() || !idle) {
+				LockSupport.parkNanos(1_000_000);
+			}
+		}
+	}
+
+	// Parsed from key=value arguments; ./gradlew loadTest passes -PloadTest.<key>=<value> through
+	private static final class Options {
+		int players = 8;
+		int requests = 200;
+		int warmup = 20;
+		long latency = 20;
+		long jitter = 10;
+		int bridges = 1;
+		double hedge;
+		boolean binaryPayloads = true;
+		double dispatchRate;
+		String recordings;
+		String out;
+		double maxP99;
+		double minRate;
+
+		static Options parse(String[] args) {
+			Options options = new Options();
+			for (String arg : args) {
+				int split = arg.indexOf('=');
+				if (split < 0) {
+					throw new IllegalArgumentException("Expected key=value, got " + arg);
+				}
+				String key = arg.substring(0, split);
+				String value = arg.substring(split + 1);
+				switch (key) {
+					case "players" -> options.players = Integer.parseInt(value);
+					case "requests" -> options.requests = Integer.parseInt(value);
+					case "warmup" -> options.warmup = Integer.parseInt(value);
+					case "latency" -> options.latency = Long.parseLong(value);
+					case "jitter" -> options.jitter = Long.parseLong(value);
+					case "bridges" -> options.bridges = Integer.parseInt(value);
+					case "hedge" -> options.hedge = Double.parseDouble(value);
+					case "binaryPayloads" -> options.binaryPayloads = Boolean.parseBoolean(value);
+					case "dispatchRate" -> options.dispatchRate = Double.parseDouble(value);
+					case "recordings" -> options.recordings = value;
+					case "out" -> options.out = value;
+					case "maxP99" -> options.maxP99 = Double.parseDouble(value);
+					case "minRate" -> options.minRate = Double.parseDouble(value);
+					default -> throw new IllegalArgumentException("Unknown option " + key);
+				}
+			}
+			if (options.players < 1 || options.requests < 1 || options.warmup < 0 || options.bridges < 1) {
+				throw new IllegalArgumentException("players, requests and bridges must be positive");
+			}
+			return options;
+		}
+	}
+}
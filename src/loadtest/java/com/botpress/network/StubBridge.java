@@ -0,0 +1,315 @@
+package com.botpress.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Local stand-in for bridge-server. POST /chat answers with the recorded responses in turn, after
+// latencyMillis plus up to jitterMillis of random delay. Replies go out the way bridge-server sends
+// them: NDJSON when the client accepts it, and a worldedit recording marked "stream" as a header
+// line, "commands" lines of STREAM_BATCH_SIZE and an "end" line. A streamed recording made only of
+// absolute setblock and fill commands goes out as an MBV1 voxel payload instead when the client
+// accepts one, as bridge-server does for pixel art.
+final class StubBridge implements AutoCloseable {
+	private static final String NDJSON = "application/x-ndjson";
+	private static final int STREAM_BATCH_SIZE = 50;
+	// Absolute setblock or fill with a plain block, as bridge pixel art writes them
+	private static final Pattern WRITE = Pattern.compile(
+			"/?(setblock|fill) (-?\\d+) (-?\\d+) (-?\\d+) (?:(-?\\d+) (-?\\d+) (-?\\d+) )?([a-z0-9_:]+)");
+
+	private final List<JsonObject> recordings;
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "StubBridge");
+		t.setDaemon(true);
+		return t;
+	});
+	private final AtomicLong served = new AtomicLong();
+
+	StubBridge(List<JsonObject> recordings, long latencyMillis, long jitterMillis) throws IOException {
+		if (recordings.isEmpty()) {
+			throw new IllegalArgumentException("No recorded responses to serve");
+		}
+		this.recordings = recordings;
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/chat", this::chat);
+		server.createContext("/health", exchange -> reply(exchange, "application/json", "{\"status\":\"ok\"}"));
+		server.start();
+	}
+
+	URI uri() {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+	}
+
+	// A JSON array of responses as bridge-server sends them, e.g. saved from its logs
+	static List<JsonObject> load(Reader reader) {
+		JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+		List<JsonObject> recordings = new ArrayList<>(array.size());
+		array.forEach(element -> recordings.add(element.getAsJsonObject()));
+		return recordings;
+	}
+
+	// One of each response type, sized like typical replies
+	static List<JsonObject> defaults() {
+		List<JsonObject> recordings = new ArrayList<>();
+		JsonObject chat = new JsonObject();
+		chat.addProperty("type", "chat");
+		chat.addProperty("text", "Sure! Tell me what to build and where.");
+		recordings.add(chat);
+
+		JsonObject command = new JsonObject();
+		command.addProperty("type", "command");
+		command.addProperty("command", "/time set day");
+		recordings.add(command);
+
+		JsonObject build = new JsonObject();
+		build.addProperty("type", "build");
+		build.addProperty("structure", "house");
+		build.addProperty("width", 9);
+		build.addProperty("height", 6);
+		build.addProperty("depth", 9);
+		build.addProperty("material", "oak_planks");
+		recordings.add(build);
+
+		// A small wall from single setblocks, which the compactor folds into fills
+		JsonArray wall = new JsonArray();
+		for (int x = 0; x < 12; x++) {
+			for (int y = 64; y < 68; y++) {
+				wall.add("/setblock " + x + " " + y + " 20 minecraft:stone_bricks");
+			}
+		}
+		wall.add("/setblock 5 68 20 minecraft:lantern");
+		recordings.add(worldEdit("Stone wall", wall, false));
+
+		// Pixel art, which bridge-server streams
+		String[] colors = {"minecraft:white_wool", "minecraft:red_wool", "minecraft:blue_wool",
+				"minecraft:yellow_wool"};
+		JsonArray art = new JsonArray();
+		for (int y = 0; y < 32; y++) {
+			for (int x = 0; x < 32; x++) {
+				art.add("setblock " + (40 + x) + " " + (64 + y) + " 40 " + colors[(x / 4 + y / 8) % colors.length]);
+			}
+		}
+		recordings.add(worldEdit("Pixel art", art, true));
+		return recordings;
+	}
+
+	private static JsonObject worldEdit(String description, JsonArray commands, boolean stream) {
+		JsonObject json = new JsonObject();
+		json.addProperty("type", "worldedit");
+		json.addProperty("description", description);
+		json.add("commands", commands);
+		json.addProperty("strictMode", false);
+		json.addProperty("stream", stream);
+		return json;
+	}
+
+	long served() {
+		return served.get();
+	}
+
+	private void chat(HttpExchange exchange) throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			body.readAllBytes();
+		}
+		JsonObject recording = recordings.get((int) (served.getAndIncrement() % recordings.size()));
+		long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				exchange.close();
+				return;
+			}
+		}
+
+		String accept = exchange.getRequestHeaders().getFirst("Accept");
+		boolean streamed = recording.get("type").getAsString().equals("worldedit") && recording.has("stream")
+				&& recording.get("stream").getAsBoolean();
+		byte[] voxels = streamed && accept != null && accept.contains(VoxelPayload.CONTENT_TYPE)
+				? voxels(recording)
+				: null;
+		if (voxels != null) {
+			reply(exchange, VoxelPayload.CONTENT_TYPE, voxels);
+		} else if (accept == null || !accept.contains(NDJSON)) {
+			reply(exchange, "application/json", recording.toString());
+		} else if (streamed) {
+			reply(exchange, NDJSON, stream(recording));
+		} else {
+			reply(exchange, NDJSON, recording + "\n");
+		}
+	}
+
+	private static String stream(JsonObject recording) {
+		JsonArray commands = recording.getAsJsonArray("commands");
+		StringBuilder lines = new StringBuilder();
+		JsonArray batch = new JsonArray();
+		boolean started = false;
+		for (int i = 0; i <= commands.size(); i++) {
+			if (i < commands.size()) {
+				batch.add(commands.get(i));
+			}
+			if (batch.size() >= STREAM_BATCH_SIZE || i == commands.size() && (!batch.isEmpty() || !started)) {
+				JsonObject line = new JsonObject();
+				if (started) {
+					line.addProperty("type", "commands");
+				} else {
+					line.addProperty("type", "worldedit");
+					line.add("description", recording.get("description"));
+					line.addProperty("stream", true);
+					started = true;
+				}
+				line.add("commands", batch);
+				lines.append(line).append('\n');
+				batch = new JsonArray();
+			}
+		}
+		return lines.append("{\"type\":\"end\"}\n").toString();
+	}
+
+	// The recording's blocks as an MBV1 grid, or null if it has commands a grid can't hold
+	private static byte[] voxels(JsonObject recording) throws IOException {
+		List<int[]> boxes = new ArrayList<>();
+		List<String> blocks = new ArrayList<>();
+		int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+		int[] max = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		for (JsonElement element : recording.getAsJsonArray("commands")) {
+			Matcher write = WRITE.matcher(element.getAsString());
+			if (!write.matches()) {
+				return null;
+			}
+			boolean fill = write.group(1).equals("fill");
+			if (fill != (write.group(5) != null)) {
+				return null;
+			}
+			int[] box = new int[6];
+			for (int i = 0; i < 6; i++) {
+				box[i] = Integer.parseInt(write.group(fill ? i + 2 : i % 3 + 2));
+			}
+			for (int axis = 0; axis < 3; axis++) {
+				int low = Math.min(box[axis], box[axis + 3]);
+				int high = Math.max(box[axis], box[axis + 3]);
+				box[axis] = low;
+				box[axis + 3] = high;
+				min[axis] = Math.min(min[axis], low);
+				max[axis] = Math.max(max[axis], high);
+			}
+			boxes.add(box);
+			String block = write.group(8);
+			blocks.add(block.contains(":") ? block : "minecraft:" + block);
+		}
+		if (boxes.isEmpty()) {
+			return null;
+		}
+
+		int sizeX = max[0] - min[0] + 1;
+		int sizeY = max[1] - min[1] + 1;
+		int sizeZ = max[2] - min[2] + 1;
+		if (Math.max(sizeX, Math.max(sizeY, sizeZ)) > VoxelPayload.MAX_SIZE) {
+			return null;
+		}
+		// Palette index per cell in y, z, x order, later writes over earlier ones
+		int[] cells = new int[sizeX * sizeY * sizeZ];
+		List<String> palette = new ArrayList<>();
+		for (int i = 0; i < boxes.size(); i++) {
+			int index = palette.indexOf(blocks.get(i)) + 1;
+			if (index == 0) {
+				palette.add(blocks.get(i));
+				index = palette.size();
+			}
+			int[] box = boxes.get(i);
+			for (int y = box[1]; y <= box[4]; y++) {
+				for (int z = box[2]; z <= box[5]; z++) {
+					for (int x = box[0]; x <= box[3]; x++) {
+						cells[((y - min[1]) * sizeZ + z - min[2]) * sizeX + x - min[0]] = index;
+					}
+				}
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x4D425631); // "MBV1"
+		writeString(out, recording.get("description").getAsString());
+		out.writeInt(min[0]);
+		out.writeInt(min[1]);
+		out.writeInt(min[2]);
+		out.writeShort(sizeX);
+		out.writeShort(sizeY);
+		out.writeShort(sizeZ);
+		out.writeShort(palette.size());
+		for (String block : palette) {
+			writeString(out, block);
+		}
+		for (int cell = 0; cell < cells.length;) {
+			int end = cell + 1;
+			while (end < cells.length && cells[end] == cells[cell]) {
+				end++;
+			}
+			writeVarLong(out, end - cell);
+			writeVarLong(out, cells[cell]);
+			cell = end;
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static void reply(HttpExchange exchange, String contentType, String body) throws IOException {
+		reply(exchange, contentType, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void reply(HttpExchange exchange, String contentType, byte[] bytes) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
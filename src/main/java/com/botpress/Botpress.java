@@ -1,10 +1,16 @@
 package com.botpress;
 
+import com.botpress.config.MineBotConfig;
+import com.botpress.server.ServerJobs;
+import com.google.gson.JsonParseException;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.loader.api.FabricLoader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
 public class Botpress implements ModInitializer {
 	public static final String MOD_ID = "botpress";
 
@@ -13,12 +19,17 @@ public class Botpress implements ModInitializer {
 	// That way, it's clear which mod wrote info, warnings, and errors.
 	public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
+	// Runs on dedicated servers and, in singleplayer, for the integrated server.
 	@Override
 	public void onInitialize() {
-		// This code runs as soon as Minecraft is in a mod-load-ready state.
-		// However, some things (like resources) may still be uninitialized.
-		// Proceed with mild caution.
+		MineBotConfig config;
+		try {
+			config = MineBotConfig.load(FabricLoader.getInstance().getConfigDir().resolve(MineBotConfig.FILE_NAME));
+		} catch (IOException | JsonParseException e) {
+			LOGGER.warn("Could not read {}, using defaults", MineBotConfig.FILE_NAME, e);
+			config = new MineBotConfig();
+		}
 
-		LOGGER.info("Hello Fabric world!");
+		ServerJobs.register(config);
 	}
 }
@@ -0,0 +1,52 @@
+package com.botpress.build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Compacts a sequence that arrives in batches. The run of block writes at the end of a batch is kept
+// open, so writes in the next batch that continue it merge into the same fill boxes instead of each
+// batch being compacted on its own. An open run is flushed once it reaches MAX_OPEN_RUN commands, so
+// a long stream without barriers doesn't hold back the start of the build.
+public final class BatchCompactor {
+	static final int MAX_OPEN_RUN = 256;
+
+	private final PlannedWorld world;
+	private final List<String> open = new ArrayList<>();
+
+	public BatchCompactor(PlannedWorld world) {
+		this.world = world;
+	}
+
+	// Returns the compacted commands that can go out now; the trailing run waits for the next batch
+	public List<String> append(List<String> commands) {
+		List<String> pending = new ArrayList<>(open.size() + commands.size());
+		pending.addAll(open);
+		pending.addAll(commands);
+		open.clear();
+
+		int runStart = pending.size();
+		while (runStart > 0 && isRunWrite(pending.get(runStart - 1))) {
+			runStart--;
+		}
+		if (pending.size() - runStart < MAX_OPEN_RUN) {
+			open.addAll(pending.subList(runStart, pending.size()));
+			pending = pending.subList(0, runStart);
+		}
+		return pending.isEmpty() ? List.of() : CommandCompactor.compact(pending, world);
+	}
+
+	// Compacts whatever run is still open
+	public List<String> finish() {
+		if (open.isEmpty()) {
+			return List.of();
+		}
+		List<String> run = List.copyOf(open);
+		open.clear();
+		return CommandCompactor.compact(run, world);
+	}
+
+	private static boolean isRunWrite(String command) {
+		CommandCompactor.BlockWrite write = CommandCompactor.parse(command);
+		return write != null && write.volume() <= CommandCompactor.MAX_RUN_VOLUME;
+	}
+}
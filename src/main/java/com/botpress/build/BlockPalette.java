@@ -0,0 +1,164 @@
+package com.botpress.build;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Blocks usable as pixel-art colours, each with the average colour of its texture, read from
+// config/minebot-palette.json. Colours are matched in CIELAB, where distance follows perceived
+// difference far better than in RGB, through a k-d tree over the palette's Lab coordinates.
+public final class BlockPalette {
+	public static final String FILE_NAME = "minebot-palette.json";
+
+	private static final String DEFAULTS_RESOURCE = "/botpress/pixel-palette.json";
+	private static final Pattern BLOCK = Pattern.compile("[a-z0-9_.-]+:[a-z0-9_./-]+");
+	private static final double[] SRGB_TO_LINEAR = new double[256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			double c = i / 255.0;
+			SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+		}
+	}
+
+	private final String[] blocks;
+	private final double[][] lab;
+	private final Node root;
+
+	private BlockPalette(String[] blocks, int[] colors) {
+		this.blocks = blocks;
+		this.lab = new double[blocks.length][];
+		Integer[] order = new Integer[blocks.length];
+		for (int i = 0; i < blocks.length; i++) {
+			lab[i] = toLab(colors[i]);
+			order[i] = i;
+		}
+		this.root = build(order, 0, order.length, 0);
+	}
+
+	// Reads the palette, first copying the bundled defaults there so players can edit them.
+	public static BlockPalette load(Path file) throws IOException {
+		if (Files.notExists(file)) {
+			Files.createDirectories(file.getParent());
+			try (InputStream defaults = BlockPalette.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+				Files.copy(defaults, file);
+			}
+		}
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	public static BlockPalette defaults() {
+		try (Reader reader = new InputStreamReader(BlockPalette.class.getResourceAsStream(DEFAULTS_RESOURCE),
+				StandardCharsets.UTF_8)) {
+			return read(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException("Bundled palette is unreadable", e);
+		}
+	}
+
+	// Expects {"blocks": {"minecraft:white_wool": "#eaeced", ...}}.
+	static BlockPalette read(Reader reader) {
+		JsonObject json = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("blocks");
+		List<String> blocks = new ArrayList<>();
+		List<Integer> colors = new ArrayList<>();
+		for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+			String color = entry.getValue().getAsString();
+			if (!BLOCK.matcher(entry.getKey()).matches() || !color.matches("#[0-9a-fA-F]{6}")) {
+				throw new IllegalArgumentException("Bad palette entry " + entry.getKey() + ": " + color);
+			}
+			blocks.add(entry.getKey());
+			colors.add(Integer.parseInt(color.substring(1), 16));
+		}
+		if (blocks.isEmpty()) {
+			throw new IllegalArgumentException("Palette has no blocks");
+		}
+		return new BlockPalette(blocks.toArray(String[]::new), colors.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	public int size() {
+		return blocks.length;
+	}
+
+	public String block(int index) {
+		return blocks[index];
+	}
+
+	// Index of the block whose colour is closest to the given sRGB colour.
+	public int nearest(int rgb) {
+		double[] target = toLab(rgb);
+		return nearest(target[0], target[1], target[2]);
+	}
+
+	public int nearest(double l, double a, double b) {
+		double[] best = {-1, Double.MAX_VALUE};
+		search(root, l, a, b, best);
+		return (int) best[0];
+	}
+
+	// sRGB (0xRRGGBB) to CIELAB under the D65 white point.
+	static double[] toLab(int rgb) {
+		double r = SRGB_TO_LINEAR[rgb >> 16 & 0xFF];
+		double g = SRGB_TO_LINEAR[rgb >> 8 & 0xFF];
+		double b = SRGB_TO_LINEAR[rgb & 0xFF];
+		double x = labCurve((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / 0.95047);
+		double y = labCurve(0.2126729 * r + 0.7151522 * g + 0.0721750 * b);
+		double z = labCurve((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / 1.08883);
+		return new double[] {116 * y - 16, 500 * (x - y), 200 * (y - z)};
+	}
+
+	private static double labCurve(double t) {
+		return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+	}
+
+	private Node build(Integer[] order, int from, int to, int axis) {
+		if (from >= to) {
+			return null;
+		}
+		Arrays.sort(order, from, to, (i, j) -> Double.compare(lab[i][axis], lab[j][axis]));
+		int mid = (from + to) >>> 1;
+		int next = (axis + 1) % 3;
+		return new Node(order[mid], axis, build(order, from, mid, next), build(order, mid + 1, to, next));
+	}
+
+	private void search(Node node, double l, double a, double b, double[] best) {
+		if (node == null) {
+			return;
+		}
+		double[] point = lab[node.index()];
+		double dl = l - point[0];
+		double da = a - point[1];
+		double db = b - point[2];
+		double distance = dl * dl + da * da + db * db;
+		if (distance < best[1]) {
+			best[0] = node.index();
+			best[1] = distance;
+		}
+
+		double offset = (node.axis() == 0 ? l : node.axis() == 1 ? a : b) - point[node.axis()];
+		Node near = offset < 0 ? node.left() : node.right();
+		Node far = offset < 0 ? node.right() : node.left();
+		search(near, l, a, b, best);
+		// The other side can only hold a closer colour if the splitting plane is nearer than the best
+		if (offset * offset < best[1]) {
+			search(far, l, a, b, best);
+		}
+	}
+
+	private record Node(int index, int axis, Node left, Node right) {
+	}
+}
@@ -0,0 +1,9 @@
+package com.botpress.build;
+
+// Read access to the blocks already in the world, used to skip writes that would change nothing.
+@FunctionalInterface
+public interface BlockStateLookup {
+	// Returns the namespaced block id at the position, or null when it isn't known (unloaded chunk,
+	// outside the build height). Unknown positions are always written.
+	String blockAt(int x, int y, int z);
+}
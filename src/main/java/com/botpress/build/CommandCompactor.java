@@ -0,0 +1,141 @@
+package com.botpress.build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Rewrites runs of absolute setblock/fill commands into the fewest equivalent fill boxes.
+// Anything the voxel model can't express (relative coordinates, fill modes, filters, NBT, other
+// commands) acts as a barrier and is kept in place.
+public final class CommandCompactor {
+	// Runs touching more blocks than this are left as-is rather than modelled block by block
+	static final long MAX_RUN_VOLUME = 128 * 128 * 128;
+
+	private CommandCompactor() {
+	}
+
+	public static List<String> compact(List<String> commands) {
+		return compact(commands, null);
+	}
+
+	// With a world, each run only writes what differs from it and a run already in place disappears.
+	public static List<String> compact(List<String> commands, PlannedWorld world) {
+		List<String> output = new ArrayList<>(commands.size());
+		List<String> run = new ArrayList<>();
+		VoxelModel model = new VoxelModel();
+		long runVolume = 0;
+
+		for (String command : commands) {
+			BlockWrite write = parse(command);
+			if (write == null || write.volume() > MAX_RUN_VOLUME) {
+				flush(run, model, output, world);
+				model = new VoxelModel();
+				runVolume = 0;
+				output.add(command);
+				if (world != null) {
+					world.forget();
+				}
+				continue;
+			}
+			if (runVolume + write.volume() > MAX_RUN_VOLUME) {
+				flush(run, model, output, world);
+				model = new VoxelModel();
+				runVolume = 0;
+			}
+
+			run.add(command);
+			runVolume += write.volume();
+			model.fill(write.x1(), write.y1(), write.z1(), write.x2(), write.y2(), write.z2(), write.block());
+		}
+		flush(run, model, output, world);
+
+		return output;
+	}
+
+	private static void flush(List<String> run, VoxelModel model, List<String> output, PlannedWorld world) {
+		if (run.isEmpty()) {
+			return;
+		}
+		// Even at the same command count a delta touches fewer blocks than the run
+		boolean delta = world != null && world.known();
+		List<String> compiled = compile(model, world);
+		output.addAll(compiled.size() < run.size() || delta && compiled.size() == run.size() ? compiled : run);
+		run.clear();
+	}
+
+	// Commands for a block model that continues a sequence; with a world, only what differs from it.
+	public static List<String> compile(VoxelModel model, PlannedWorld world) {
+		if (world == null || !world.known()) {
+			return FillCompiler.compile(model);
+		}
+		List<String> delta = FillCompiler.compileDelta(model, model.diff(world));
+		world.record(model);
+		return delta;
+	}
+
+	// Parses "setblock x y z block [replace]" and "fill x1 y1 z1 x2 y2 z2 block [replace]".
+	// Returns null for anything that can't be modelled as an unconditional block write.
+	static BlockWrite parse(String command) {
+		String normalized = command.startsWith("/") && !command.startsWith("//") ? command.substring(1) : command;
+		String[] parts = normalized.trim().split(" +");
+
+		int coordinateCount;
+		if (parts[0].equals("setblock")) {
+			coordinateCount = 3;
+		} else if (parts[0].equals("fill")) {
+			coordinateCount = 6;
+		} else {
+			return null;
+		}
+
+		int blockIndex = coordinateCount + 1;
+		if (parts.length < blockIndex + 1 || parts.length > blockIndex + 2) {
+			return null;
+		}
+		if (parts.length == blockIndex + 2 && !parts[blockIndex + 1].equals("replace")) {
+			return null;
+		}
+
+		int[] coords = new int[6];
+		for (int i = 0; i < coordinateCount; i++) {
+			try {
+				coords[i] = Integer.parseInt(parts[i + 1]);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		if (coordinateCount == 3) {
+			coords[3] = coords[0];
+			coords[4] = coords[1];
+			coords[5] = coords[2];
+		}
+
+		String block = normalizeBlock(parts[blockIndex]);
+		if (block == null) {
+			return null;
+		}
+
+		return new BlockWrite(Math.min(coords[0], coords[3]), Math.min(coords[1], coords[4]),
+				Math.min(coords[2], coords[5]), Math.max(coords[0], coords[3]), Math.max(coords[1], coords[4]),
+				Math.max(coords[2], coords[5]), block);
+	}
+
+	static String normalizeBlock(String block) {
+		// Block entity data can't be merged safely, and unbalanced states mean the block was split on spaces
+		if (block.contains("{") || block.indexOf('[') != block.lastIndexOf('[') || block.contains("[")
+				&& !block.endsWith("]")) {
+			return null;
+		}
+		int stateStart = block.indexOf('[');
+		String id = stateStart < 0 ? block : block.substring(0, stateStart);
+		if (id.isEmpty() || id.startsWith("#")) {
+			return null;
+		}
+		return id.contains(":") ? block : "minecraft:" + block;
+	}
+
+	record BlockWrite(int x1, int y1, int z1, int x2, int y2, int z2, String block) {
+		long volume() {
+			return (long) (x2 - x1 + 1) * (y2 - y1 + 1) * (z2 - z1 + 1);
+		}
+	}
+}
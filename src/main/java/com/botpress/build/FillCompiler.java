@@ -0,0 +1,172 @@
+package com.botpress.build;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Greedily merges a voxel model into axis-aligned boxes and emits them as setblock/fill commands.
+// It also tries filling the model's footprint with one block and carving out the rest, and keeps
+// whichever needs fewer commands.
+public final class FillCompiler {
+	// Vanilla default for the commandModificationBlockLimit gamerule
+	public static final int MAX_FILL_VOLUME = 32768;
+
+	// Candidate base blocks tried by the fill-then-carve strategy, most common first
+	private static final int BASE_CANDIDATES = 3;
+	private static final String VISITED = "";
+
+	private FillCompiler() {
+	}
+
+	public static List<String> compile(VoxelModel model) {
+		List<Box> boxes = merge(model);
+		List<Box> carved = mergeOverBase(model);
+		if (carved != null && carved.size() < boxes.size()) {
+			boxes = carved;
+		}
+		return toCommands(boxes);
+	}
+
+	// Commands for only the changed part of a model. Boxes tightly around the changes are preferred,
+	// but boxes may also grow over unchanged voxels holding the same block, since rewriting a block
+	// the world already has is harmless; that wins when it saves commands. When scattered changes
+	// would take more commands than rebuilding the whole model, the whole model is compiled instead.
+	public static List<String> compileDelta(VoxelModel model, VoxelModel changed) {
+		if (changed.isEmpty()) {
+			return List.of();
+		}
+		List<String> full = compile(model);
+		if (changed.size() == model.size()) {
+			return full;
+		}
+		List<Box> boxes = merge(changed);
+		List<Box> grown = merge(model, changed);
+		if (grown.size() < boxes.size()) {
+			boxes = grown;
+		}
+		return full.size() < boxes.size() ? full : toCommands(boxes);
+	}
+
+	private static List<String> toCommands(List<Box> boxes) {
+		List<String> commands = new ArrayList<>(boxes.size());
+		for (Box box : boxes) {
+			commands.add(box.toCommand());
+		}
+		return commands;
+	}
+
+	// Fills the model's whole footprint with a common block, then merges every voxel that differs on
+	// top: a hollow sphere becomes a solid sphere plus an air sphere. The base only covers positions
+	// the model sets, so nothing else in the world is touched. Boxes must be applied in order.
+	static List<Box> mergeOverBase(VoxelModel model) {
+		Map<String, Integer> counts = new HashMap<>();
+		model.forEach((x, y, z, block) -> counts.merge(block, 1, Integer::sum));
+		if (counts.size() < 2) {
+			return null;
+		}
+
+		VoxelModel footprint = new VoxelModel();
+		model.forEach((x, y, z, block) -> footprint.set(x, y, z, VISITED));
+		List<Box> footprintBoxes = merge(footprint);
+
+		List<Box> best = null;
+		List<String> candidates = counts.keySet().stream()
+				.sorted(Comparator.comparing(counts::get, Comparator.reverseOrder())).limit(BASE_CANDIDATES).toList();
+		for (String base : candidates) {
+			List<Box> boxes = new ArrayList<>();
+			for (Box box : footprintBoxes) {
+				boxes.add(new Box(box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ(), base));
+			}
+			VoxelModel rest = new VoxelModel();
+			model.forEach((x, y, z, block) -> {
+				if (!block.equals(base)) {
+					rest.set(x, y, z, block);
+				}
+			});
+			boxes.addAll(merge(rest));
+			if (best == null || boxes.size() < best.size()) {
+				best = boxes;
+			}
+		}
+		return best;
+	}
+
+	// Boxes grow from their minimum corner, so voxels are visited bottom-up, then by Z, then by X.
+	public static List<Box> merge(VoxelModel model) {
+		return merge(model, model);
+	}
+
+	// Starts boxes on the voxels of starts, growing them over any voxel of model with the same block.
+	private static List<Box> merge(VoxelModel model, VoxelModel starts) {
+		VoxelModel visited = new VoxelModel();
+		List<Box> boxes = new ArrayList<>();
+		starts.forEachInOrder((x, y, z, block) -> {
+			if (visited.get(x, y, z) == null) {
+				Box box = grow(model, x, y, z, block);
+				visited.fill(box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ(), VISITED);
+				boxes.add(box);
+			}
+		});
+		return boxes;
+	}
+
+	private static Box grow(VoxelModel model, int x, int y, int z, String block) {
+		int x2 = x;
+		while (x2 - x + 2 <= MAX_FILL_VOLUME && canTake(model, x2 + 1, y, z, block)) {
+			x2++;
+		}
+
+		int width = x2 - x + 1;
+		int z2 = z;
+		while (width * (z2 - z + 2) <= MAX_FILL_VOLUME && canTakeRow(model, x, x2, y, z2 + 1, block)) {
+			z2++;
+		}
+
+		int area = width * (z2 - z + 1);
+		int y2 = y;
+		while (area * (y2 - y + 2) <= MAX_FILL_VOLUME && canTakeLayer(model, x, x2, y2 + 1, z, z2, block)) {
+			y2++;
+		}
+
+		return new Box(x, y, z, x2, y2, z2, block);
+	}
+
+	// Boxes may grow over voxels an earlier box already covers: rewriting a block with itself is a
+	// no-op, and the overlap often saves a command. visited only decides where new boxes start.
+	private static boolean canTake(VoxelModel model, int x, int y, int z, String block) {
+		return block.equals(model.get(x, y, z));
+	}
+
+	private static boolean canTakeRow(VoxelModel model, int x1, int x2, int y, int z, String block) {
+		for (int x = x1; x <= x2; x++) {
+			if (!canTake(model, x, y, z, block)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean canTakeLayer(VoxelModel model, int x1, int x2, int y, int z1, int z2, String block) {
+		for (int z = z1; z <= z2; z++) {
+			if (!canTakeRow(model, x1, x2, y, z, block)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public record Box(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, String block) {
+		public long volume() {
+			return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+		}
+
+		public String toCommand() {
+			if (volume() == 1) {
+				return "setblock " + minX + " " + minY + " " + minZ + " " + block;
+			}
+			return "fill " + minX + " " + minY + " " + minZ + " " + maxX + " " + maxY + " " + maxZ + " " + block;
+		}
+	}
+}
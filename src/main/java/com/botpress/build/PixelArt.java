@@ -0,0 +1,160 @@
+package com.botpress.build;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Turns an image into a wall of blocks: scale it down to fit, match every pixel to the nearest
+// palette block, then lay the rows out as same-block runs. Scaling and matching split the image
+// into row bands on the common fork/join pool, so large images use every core.
+//
+// Dithering is ordered (4x4 Bayer) rather than error diffusion, which keeps every pixel independent
+// and the bands parallel.
+public final class PixelArt {
+	// Same bound the binary voxel payload puts on grids
+	public static final int MAX_SIZE = 512;
+
+	static final int SLAB_ROWS = 16;
+
+	private static final int BAND_ROWS = 16;
+	private static final int OPAQUE_ALPHA = 128;
+	// Spread of the dither offsets in sRGB steps, about the gap between neighbouring palette colours
+	private static final double DITHER_SPREAD = 32;
+	private static final int[] BAYER = {0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5};
+
+	private PixelArt() {
+	}
+
+	// Pixels are 0xAARRGGBB, row by row from the top left.
+	public record Image(int width, int height, int[] argb) {
+	}
+
+	// Box-filters the image down so neither side exceeds maxSize, keeping its aspect ratio. Colour is
+	// averaged weighted by alpha so transparent pixels don't darken the edges.
+	public static Image fit(Image image, int maxSize) {
+		int longest = Math.max(image.width(), image.height());
+		if (longest <= maxSize) {
+			return image;
+		}
+		int width = Math.max(1, (int) Math.round((double) image.width() * maxSize / longest));
+		int height = Math.max(1, (int) Math.round((double) image.height() * maxSize / longest));
+		int[] scaled = new int[width * height];
+
+		forEachRow(height, ty -> {
+			int fromY = ty * image.height() / height;
+			int toY = Math.max(fromY + 1, (ty + 1) * image.height() / height);
+			for (int tx = 0; tx < width; tx++) {
+				int fromX = tx * image.width() / width;
+				int toX = Math.max(fromX + 1, (tx + 1) * image.width() / width);
+				long alpha = 0;
+				long red = 0;
+				long green = 0;
+				long blue = 0;
+				for (int y = fromY; y < toY; y++) {
+					for (int x = fromX; x < toX; x++) {
+						int pixel = image.argb()[y * image.width() + x];
+						int a = pixel >>> 24;
+						alpha += a;
+						red += (long) (pixel >> 16 & 0xFF) * a;
+						green += (long) (pixel >> 8 & 0xFF) * a;
+						blue += (long) (pixel & 0xFF) * a;
+					}
+				}
+				int count = (toY - fromY) * (toX - fromX);
+				scaled[ty * width + tx] = alpha == 0
+						? 0
+						: (int) (alpha / count) << 24 | (int) (red / alpha) << 16 | (int) (green / alpha) << 8
+								| (int) (blue / alpha);
+			}
+		});
+		return new Image(width, height, scaled);
+	}
+
+	// Palette index for every pixel, or -1 where the pixel is mostly transparent.
+	public static int[] quantize(Image image, BlockPalette palette, boolean dither) {
+		int[] indices = new int[image.width() * image.height()];
+		forEachRow(image.height(), y -> {
+			for (int x = 0; x < image.width(); x++) {
+				int pixel = image.argb()[y * image.width() + x];
+				if (pixel >>> 24 < OPAQUE_ALPHA) {
+					indices[y * image.width() + x] = -1;
+					continue;
+				}
+				if (dither) {
+					int offset = (int) ((BAYER[(y & 3) * 4 + (x & 3)] / 16.0 - 0.5) * DITHER_SPREAD);
+					pixel = clamp((pixel >> 16 & 0xFF) + offset) << 16 | clamp((pixel >> 8 & 0xFF) + offset) << 8
+							| clamp((pixel & 0xFF) + offset);
+				}
+				indices[y * image.width() + x] = palette.nearest(pixel & 0xFFFFFF);
+			}
+		});
+		return indices;
+	}
+
+	// Lays the quantized image on the wall facing the player: x grows to the right, the top row is
+	// highest and the bottom row sits at originY. Returned bottom-up in slabs of SLAB_ROWS rows, each
+	// row already merged into runs, so the first slab can be queued while the rest compile.
+	public static List<VoxelModel> slabs(int[] indices, int width, int height, BlockPalette palette, int originX,
+			int originY, int originZ) {
+		List<VoxelModel> slabs = new ArrayList<>();
+		VoxelModel slab = new VoxelModel();
+		for (int layer = 0; layer < height; layer++) {
+			int row = height - 1 - layer;
+			int x = 0;
+			while (x < width) {
+				int index = indices[row * width + x];
+				int end = x + 1;
+				while (end < width && indices[row * width + end] == index) {
+					end++;
+				}
+				if (index >= 0) {
+					slab.fill(originX + x, originY + layer, originZ, originX + end - 1, originY + layer, originZ,
+							palette.block(index));
+				}
+				x = end;
+			}
+			if ((layer + 1) % SLAB_ROWS == 0 && !slab.isEmpty()) {
+				slabs.add(slab);
+				slab = new VoxelModel();
+			}
+		}
+		if (!slab.isEmpty()) {
+			slabs.add(slab);
+		}
+		return slabs;
+	}
+
+	private static int clamp(int channel) {
+		return Math.max(0, Math.min(255, channel));
+	}
+
+	private static void forEachRow(int height, IntConsumer row) {
+		ForkJoinPool.commonPool().invoke(new RowBands(0, height, row));
+	}
+
+	private static final class RowBands extends RecursiveAction {
+		private final int from;
+		private final int to;
+		private final IntConsumer row;
+
+		RowBands(int from, int to, IntConsumer row) {
+			this.from = from;
+			this.to = to;
+			this.row = row;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BAND_ROWS) {
+				for (int y = from; y < to; y++) {
+					row.accept(y);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RowBands(from, mid, row), new RowBands(mid, to, row));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.botpress.build;
+
+// The world as the next command of a sequence will find it: blocks the sequence's earlier writes put
+// there, otherwise what the live world holds now. After a command the model can't follow, nothing
+// is known any more and every later write goes out as-is.
+public final class PlannedWorld implements BlockStateLookup {
+	private final BlockStateLookup world;
+	private final VoxelModel written = new VoxelModel();
+	private boolean known = true;
+
+	public PlannedWorld(BlockStateLookup world) {
+		this.world = world;
+	}
+
+	@Override
+	public String blockAt(int x, int y, int z) {
+		if (!known) {
+			return null;
+		}
+		String block = written.get(x, y, z);
+		return block != null ? block : world.blockAt(x, y, z);
+	}
+
+	public boolean known() {
+		return known;
+	}
+
+	void record(VoxelModel writes) {
+		writes.forEach(written::set);
+	}
+
+	void forget() {
+		known = false;
+	}
+}
@@ -0,0 +1,459 @@
+package com.botpress.build;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+// Streaming reader for Sponge schematics (.schem, versions 1 to 3) and vanilla structure files
+// (.nbt), gzipped or not.
+//
+// The NBT is walked tag by tag and never built into a tree: byte and long arrays, block entities,
+// entities and biomes are skipped over, and the block data is decoded straight into VoxelModel
+// fills. Every SLAB_LAYERS layers the finished slab is handed on, so a paste starts building while
+// the rest of the file is still being read, and memory stays at one slab however large the file is.
+//
+// NBT doesn't fix the order of a compound's entries. When the block data comes before the palette
+// or the size, the first pass skips it and a second pass over the file decodes it.
+public final class SchematicReader {
+	static final int SLAB_LAYERS = 16;
+	// Larger schematics are rejected; a slab of this footprint is still only a few megabytes
+	static final int MAX_SIZE = 1024;
+
+	private static final Pattern BLOCK = Pattern.compile("[a-z0-9_.-]+:[a-z0-9_./-]+(\\[[a-z0-9_=,]*])?");
+	// Air cells leave the world untouched, as WorldEdit pastes by default
+	private static final Set<String> AIR = Set.of("minecraft:air", "minecraft:cave_air", "minecraft:void_air");
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final int TAG_END = 0;
+	private static final int TAG_BYTE = 1;
+	private static final int TAG_SHORT = 2;
+	private static final int TAG_INT = 3;
+	private static final int TAG_LONG = 4;
+	private static final int TAG_FLOAT = 5;
+	private static final int TAG_DOUBLE = 6;
+	private static final int TAG_BYTE_ARRAY = 7;
+	private static final int TAG_STRING = 8;
+	private static final int TAG_LIST = 9;
+	private static final int TAG_COMPOUND = 10;
+	private static final int TAG_INT_ARRAY = 11;
+	private static final int TAG_LONG_ARRAY = 12;
+
+	private SchematicReader() {
+	}
+
+	// Opens the file afresh for each pass
+	@FunctionalInterface
+	public interface Source {
+		InputStream open() throws IOException;
+	}
+
+	public interface Listener {
+		void begin(int sizeX, int sizeY, int sizeZ);
+
+		// Called with each slab of blocks, bottom-up for schematics; air is absent.
+		void slab(VoxelModel slab);
+	}
+
+	// Places the schematic's minimum corner at the origin.
+	public static void read(Source source, int originX, int originY, int originZ, Listener listener)
+			throws IOException {
+		Scan scan = new Scan(originX, originY, originZ, listener);
+		for (int pass = 0; pass < 2 && !scan.decoded; pass++) {
+			try (DataInputStream in = open(source)) {
+				if (in.readUnsignedByte() != TAG_COMPOUND) {
+					throw new IOException("Not an NBT file");
+				}
+				in.readUTF();
+				scan.compound(in);
+			}
+		}
+		if (!scan.decoded) {
+			throw new IOException("No block data in schematic");
+		}
+	}
+
+	private static DataInputStream open(Source source) throws IOException {
+		BufferedInputStream raw = new BufferedInputStream(source.open(), BUFFER_SIZE);
+		raw.mark(2);
+		boolean gzip = raw.read() == 0x1F && raw.read() == 0x8B;
+		raw.reset();
+		return new DataInputStream(gzip
+				? new BufferedInputStream(new GZIPInputStream(raw, BUFFER_SIZE), BUFFER_SIZE)
+				: raw);
+	}
+
+	private static final class Scan {
+		private final int originX;
+		private final int originY;
+		private final int originZ;
+		private final Listener listener;
+
+		private int sizeX = -1;
+		private int sizeY = -1;
+		private int sizeZ = -1;
+		// Sponge palette by index, or structure palette in list order; null entries are air
+		private String[] palette;
+		private boolean decoded;
+		private boolean begun;
+
+		private VoxelModel slab = new VoxelModel();
+		private int slabStart = Integer.MIN_VALUE;
+
+		Scan(int originX, int originY, int originZ, Listener listener) {
+			this.originX = originX;
+			this.originY = originY;
+			this.originZ = originZ;
+			this.listener = listener;
+		}
+
+		private boolean ready() {
+			return palette != null && sizeX >= 0 && sizeY >= 0 && sizeZ >= 0;
+		}
+
+		// Walks the entries of a compound whose type and name were already read
+		void compound(DataInputStream in) throws IOException {
+			for (int type = in.readUnsignedByte(); type != TAG_END; type = in.readUnsignedByte()) {
+				String name = in.readUTF();
+				if (!entry(in, type, name)) {
+					skip(in, type);
+				}
+			}
+		}
+
+		// Handles a tag this reader cares about and returns true, or returns false to have it skipped
+		private boolean entry(DataInputStream in, int type, String name) throws IOException {
+			switch (name) {
+				case "Schematic", "Blocks" -> {
+					// Version 3 nests everything under these; version 1 and 2 keep it at the top
+					if (type != TAG_COMPOUND) {
+						return false;
+					}
+					compound(in);
+					return true;
+				}
+				case "Width" -> sizeX = size(in, type);
+				case "Height" -> sizeY = size(in, type);
+				case "Length" -> sizeZ = size(in, type);
+				case "size" -> {
+					if (type != TAG_LIST) {
+						return false;
+					}
+					int[] size = intList(in);
+					if (size.length != 3) {
+						throw new IOException("Malformed structure size");
+					}
+					sizeX = checkSize(size[0]);
+					sizeY = checkSize(size[1]);
+					sizeZ = checkSize(size[2]);
+				}
+				case "Palette" -> {
+					if (type != TAG_COMPOUND || palette != null) {
+						return false;
+					}
+					palette = spongePalette(in);
+				}
+				case "palette", "palettes" -> {
+					if (type != TAG_LIST || palette != null) {
+						return false;
+					}
+					palette = name.equals("palette") ? structurePalette(in) : firstStructurePalette(in);
+				}
+				case "BlockData", "Data" -> {
+					if (type != TAG_BYTE_ARRAY || decoded || !ready()) {
+						return false;
+					}
+					spongeBlocks(in);
+				}
+				case "blocks" -> {
+					if (type != TAG_LIST || decoded || !ready()) {
+						return false;
+					}
+					structureBlocks(in);
+				}
+				default -> {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String[] spongePalette(DataInputStream in) throws IOException {
+			Map<Integer, String> entries = new TreeMap<>();
+			int max = -1;
+			for (int type = in.readUnsignedByte(); type != TAG_END; type = in.readUnsignedByte()) {
+				String block = in.readUTF();
+				if (type != TAG_INT) {
+					throw new IOException("Malformed schematic palette");
+				}
+				int index = in.readInt();
+				if (index < 0 || index > 0xFFFF) {
+					throw new IOException("Schematic palette index out of range: " + index);
+				}
+				entries.put(index, block(block));
+				max = Math.max(max, index);
+			}
+			String[] blocks = new String[max + 1];
+			entries.forEach((index, block) -> blocks[index] = block);
+			return blocks;
+		}
+
+		private String[] firstStructurePalette(DataInputStream in) throws IOException {
+			int elementType = in.readUnsignedByte();
+			int count = in.readInt();
+			String[] first = null;
+			for (int i = 0; i < count; i++) {
+				if (elementType != TAG_LIST) {
+					throw new IOException("Malformed structure palettes");
+				}
+				if (first == null) {
+					first = structurePalette(in);
+				} else {
+					skip(in, TAG_LIST);
+				}
+			}
+			return first == null ? new String[0] : first;
+		}
+
+		// Entries are {Name, Properties}; properties become the block state suffix
+		private String[] structurePalette(DataInputStream in) throws IOException {
+			int elementType = in.readUnsignedByte();
+			int count = in.readInt();
+			if (count > 0 && elementType != TAG_COMPOUND) {
+				throw new IOException("Malformed structure palette");
+			}
+			String[] blocks = new String[count];
+			for (int i = 0; i < count; i++) {
+				String name = null;
+				Map<String, String> properties = new TreeMap<>();
+				for (int type = in.readUnsignedByte(); type != TAG_END; type = in.readUnsignedByte()) {
+					String key = in.readUTF();
+					if (key.equals("Name") && type == TAG_STRING) {
+						name = in.readUTF();
+					} else if (key.equals("Properties") && type == TAG_COMPOUND) {
+						for (int p = in.readUnsignedByte(); p != TAG_END; p = in.readUnsignedByte()) {
+							String property = in.readUTF();
+							if (p != TAG_STRING) {
+								throw new IOException("Malformed block property " + property);
+							}
+							properties.put(property, in.readUTF());
+						}
+					} else {
+						skip(in, type);
+					}
+				}
+				if (name == null) {
+					throw new IOException("Structure palette entry without a name");
+				}
+				StringBuilder state = new StringBuilder(name);
+				if (!properties.isEmpty()) {
+					state.append('[');
+					properties.forEach((key, value) -> state.append(key).append('=').append(value).append(','));
+					state.setCharAt(state.length() - 1, ']');
+				}
+				blocks[i] = block(state.toString());
+			}
+			return blocks;
+		}
+
+		// Varint palette indices in y, z, x order; cells sharing a block along a row become one fill
+		private void spongeBlocks(DataInputStream in) throws IOException {
+			long remaining = in.readInt() & 0xFFFFFFFFL;
+			begin();
+			long layerCells = (long) sizeX * sizeZ;
+			long total = layerCells * sizeY;
+			long cell = 0;
+			int runStart = 0;
+			int runIndex = -1;
+			while (cell < total) {
+				int index = 0;
+				for (int shift = 0;; shift += 7) {
+					if (remaining-- <= 0 || shift > 28) {
+						throw new IOException("Corrupt schematic block data at cell " + cell);
+					}
+					int b = in.readUnsignedByte();
+					index |= (b & 0x7F) << shift;
+					if ((b & 0x80) == 0) {
+						break;
+					}
+				}
+				if (index >= palette.length) {
+					throw new IOException("Schematic palette index " + index + " out of range at cell " + cell);
+				}
+
+				int x = (int) (cell % sizeX);
+				if (x == 0) {
+					runStart = 0;
+					runIndex = index;
+				} else if (index != runIndex) {
+					fillRun(cell - x, runStart, x - 1, runIndex);
+					runStart = x;
+					runIndex = index;
+				}
+				if (x == sizeX - 1) {
+					fillRun(cell - x, runStart, x, runIndex);
+				}
+				cell++;
+			}
+			skipFully(in, remaining);
+			finish();
+		}
+
+		private void fillRun(long rowCell, int fromX, int toX, int index) {
+			String block = palette[index];
+			if (block == null) {
+				return;
+			}
+			long layerCells = (long) sizeX * sizeZ;
+			int y = (int) (rowCell / layerCells);
+			int z = (int) (rowCell % layerCells / sizeX);
+			moveTo(y);
+			slab.fill(originX + fromX, originY + y, originZ + z, originX + toX, originY + y, originZ + z, block);
+		}
+
+		// Compounds of {pos, state, nbt}; block entity data is skipped
+		private void structureBlocks(DataInputStream in) throws IOException {
+			int elementType = in.readUnsignedByte();
+			int count = in.readInt();
+			if (count > 0 && elementType != TAG_COMPOUND) {
+				throw new IOException("Malformed structure blocks");
+			}
+			begin();
+			for (int i = 0; i < count; i++) {
+				int[] pos = null;
+				int state = -1;
+				for (int type = in.readUnsignedByte(); type != TAG_END; type = in.readUnsignedByte()) {
+					String key = in.readUTF();
+					if (key.equals("pos") && type == TAG_LIST) {
+						pos = intList(in);
+					} else if (key.equals("state") && type == TAG_INT) {
+						state = in.readInt();
+					} else {
+						skip(in, type);
+					}
+				}
+				if (pos == null || pos.length != 3 || state < 0 || state >= palette.length) {
+					throw new IOException("Malformed structure block " + i);
+				}
+				if (pos[0] < 0 || pos[0] >= sizeX || pos[1] < 0 || pos[1] >= sizeY || pos[2] < 0
+						|| pos[2] >= sizeZ) {
+					throw new IOException("Structure block " + i + " lies outside the structure");
+				}
+				if (palette[state] != null) {
+					moveTo(pos[1]);
+					slab.set(originX + pos[0], originY + pos[1], originZ + pos[2], palette[state]);
+				}
+			}
+			finish();
+		}
+
+		private void begin() {
+			if (!begun) {
+				begun = true;
+				listener.begin(sizeX, sizeY, sizeZ);
+			}
+		}
+
+		// Hands on the current slab when a layer outside it comes up. Sponge data only ever moves up;
+		// structure files list blocks sorted by layer in a few groups, so this also works there.
+		private void moveTo(int layer) {
+			if (layer >= slabStart && layer < slabStart + SLAB_LAYERS) {
+				return;
+			}
+			if (!slab.isEmpty()) {
+				listener.slab(slab);
+				slab = new VoxelModel();
+			}
+			slabStart = layer - layer % SLAB_LAYERS;
+		}
+
+		private void finish() {
+			if (!slab.isEmpty()) {
+				listener.slab(slab);
+				slab = new VoxelModel();
+			}
+			decoded = true;
+		}
+	}
+
+	private static String block(String state) throws IOException {
+		if (!BLOCK.matcher(state).matches()) {
+			throw new IOException("Invalid block in schematic: " + state);
+		}
+		int bracket = state.indexOf('[');
+		return AIR.contains(bracket < 0 ? state : state.substring(0, bracket)) ? null : state;
+	}
+
+	private static int size(DataInputStream in, int type) throws IOException {
+		if (type != TAG_SHORT) {
+			throw new IOException("Malformed schematic size");
+		}
+		return checkSize(in.readUnsignedShort());
+	}
+
+	private static int checkSize(int size) throws IOException {
+		if (size < 0 || size > MAX_SIZE) {
+			throw new IOException("Schematic side of " + size + " blocks is larger than " + MAX_SIZE);
+		}
+		return size;
+	}
+
+	private static int[] intList(DataInputStream in) throws IOException {
+		int elementType = in.readUnsignedByte();
+		int count = in.readInt();
+		if (count > 3 || count > 0 && elementType != TAG_INT) {
+			throw new IOException("Malformed block position");
+		}
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private static void skip(DataInputStream in, int type) throws IOException {
+		switch (type) {
+			case TAG_BYTE -> skipFully(in, 1);
+			case TAG_SHORT -> skipFully(in, 2);
+			case TAG_INT, TAG_FLOAT -> skipFully(in, 4);
+			case TAG_LONG, TAG_DOUBLE -> skipFully(in, 8);
+			case TAG_BYTE_ARRAY -> skipFully(in, in.readInt() & 0xFFFFFFFFL);
+			case TAG_INT_ARRAY -> skipFully(in, (in.readInt() & 0xFFFFFFFFL) * 4);
+			case TAG_LONG_ARRAY -> skipFully(in, (in.readInt() & 0xFFFFFFFFL) * 8);
+			case TAG_STRING -> skipFully(in, in.readUnsignedShort());
+			case TAG_LIST -> {
+				int elementType = in.readUnsignedByte();
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					skip(in, elementType);
+				}
+			}
+			case TAG_COMPOUND -> {
+				for (int entry = in.readUnsignedByte(); entry != TAG_END; entry = in.readUnsignedByte()) {
+					skipFully(in, in.readUnsignedShort());
+					skip(in, entry);
+				}
+			}
+			default -> throw new IOException("Unknown NBT tag type " + type);
+		}
+	}
+
+	private static void skipFully(DataInputStream in, long bytes) throws IOException {
+		while (bytes > 0) {
+			int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			bytes -= skipped;
+		}
+	}
+}
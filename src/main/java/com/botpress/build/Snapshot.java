@@ -0,0 +1,208 @@
+package com.botpress.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// The blocks a build replaced, as they were before it ran, so the build can be undone.
+//
+// On disk: an uncompressed header (magic, world, dimension, description, time), then a deflated
+// body holding the block palette, the bounding box and the voxels as runs in y, z, x order over it.
+// Each run is the number of cells skipped since the previous run, its length and its palette index.
+public record Snapshot(String world, String dimension, String description, long createdAt, VoxelModel blocks) {
+	// Voxels whose previous block couldn't be read; they are left out of the snapshot
+	static final String UNKNOWN = "";
+
+	private static final int MAGIC = 0x4D425331; // "MBS1"
+
+	public boolean isEmpty() {
+		boolean[] known = {false};
+		blocks.forEach((x, y, z, block) -> known[0] |= !block.equals(UNKNOWN));
+		return !known[0];
+	}
+
+	// Commands that put the recorded blocks back. Blocks the world already has again are skipped.
+	public List<String> restoreCommands(BlockStateLookup world) {
+		VoxelModel known = new VoxelModel();
+		blocks.forEach((x, y, z, block) -> {
+			if (!block.equals(UNKNOWN)) {
+				known.set(x, y, z, block);
+			}
+		});
+		return world == null ? FillCompiler.compile(known) : FillCompiler.compileDelta(known, known.diff(world));
+	}
+
+	public void write(OutputStream output) throws IOException {
+		DataOutputStream header = new DataOutputStream(output);
+		header.writeInt(MAGIC);
+		header.writeUTF(world);
+		header.writeUTF(dimension);
+		header.writeUTF(description);
+		header.writeLong(createdAt);
+		header.flush();
+
+		int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+		int[] max = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+		Map<String, Integer> palette = new LinkedHashMap<>();
+		blocks.forEach((x, y, z, block) -> {
+			if (!block.equals(UNKNOWN)) {
+				min[0] = Math.min(min[0], x);
+				min[1] = Math.min(min[1], y);
+				min[2] = Math.min(min[2], z);
+				max[0] = Math.max(max[0], x);
+				max[1] = Math.max(max[1], y);
+				max[2] = Math.max(max[2], z);
+				palette.putIfAbsent(block, palette.size());
+			}
+		});
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		DeflaterOutputStream deflated = new DeflaterOutputStream(output, deflater);
+		try {
+			DataOutputStream body = new DataOutputStream(deflated);
+			body.writeInt(palette.size());
+			for (String block : palette.keySet()) {
+				body.writeUTF(block);
+			}
+			if (!palette.isEmpty()) {
+				long sizeX = (long) max[0] - min[0] + 1;
+				long sizeZ = (long) max[2] - min[2] + 1;
+				body.writeInt(min[0]);
+				body.writeInt(min[1]);
+				body.writeInt(min[2]);
+				body.writeLong(sizeX);
+				body.writeLong(sizeZ);
+
+				// forEachInOrder's y, z, x order is exactly increasing cell index within the bounding box
+				Runs runs = new Runs();
+				blocks.forEachInOrder((x, y, z, block) -> {
+					if (!block.equals(UNKNOWN)) {
+						long cell = ((y - (long) min[1]) * sizeZ + (z - min[2])) * sizeX + (x - min[0]);
+						runs.add(cell, palette.get(block));
+					}
+				});
+				runs.finish().writeTo(body);
+			}
+			body.flush();
+			deflated.finish();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	public static Snapshot read(InputStream input) throws IOException {
+		DataInputStream header = new DataInputStream(input);
+		if (header.readInt() != MAGIC) {
+			throw new IOException("Not a MineBot snapshot");
+		}
+		String world = header.readUTF();
+		String dimension = header.readUTF();
+		String description = header.readUTF();
+		long createdAt = header.readLong();
+
+		VoxelModel blocks = new VoxelModel();
+		DataInputStream body = new DataInputStream(new InflaterInputStream(input));
+		String[] palette = new String[body.readInt()];
+		for (int i = 0; i < palette.length; i++) {
+			palette[i] = body.readUTF();
+		}
+		if (palette.length > 0) {
+			int minX = body.readInt();
+			int minY = body.readInt();
+			int minZ = body.readInt();
+			long sizeX = body.readLong();
+			long layer = sizeX * body.readLong();
+
+			long cell = 0;
+			while (true) {
+				cell += readVarLong(body);
+				long length = readVarLong(body);
+				if (length == 0) {
+					break;
+				}
+				String block = palette[(int) readVarLong(body)];
+				for (long end = cell + length; cell < end; cell++) {
+					blocks.set(minX + (int) (cell % sizeX), minY + (int) (cell / layer),
+							minZ + (int) (cell % layer / sizeX), block);
+				}
+			}
+		}
+		return new Snapshot(world, dimension, description, createdAt, blocks);
+	}
+
+	// Reads only the header, to tell which world a stored snapshot belongs to.
+	static String readWorld(InputStream input) throws IOException {
+		DataInputStream header = new DataInputStream(input);
+		if (header.readInt() != MAGIC) {
+			throw new IOException("Not a MineBot snapshot");
+		}
+		return header.readUTF();
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	// Encodes consecutive cells with the same palette index as one run; a zero-length run ends the list.
+	private static final class Runs {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private long written;
+		private long start = -1;
+		private long length;
+		private int index;
+
+		void add(long cell, int paletteIndex) {
+			if (start >= 0 && cell == start + length && paletteIndex == index) {
+				length++;
+				return;
+			}
+			flush();
+			start = cell;
+			length = 1;
+			index = paletteIndex;
+		}
+
+		ByteArrayOutputStream finish() {
+			flush();
+			writeVarLong(bytes, 0);
+			writeVarLong(bytes, 0);
+			return bytes;
+		}
+
+		private void flush() {
+			if (start < 0) {
+				return;
+			}
+			writeVarLong(bytes, start - written);
+			writeVarLong(bytes, length);
+			writeVarLong(bytes, index);
+			written = start + length;
+			start = -1;
+		}
+	}
+}
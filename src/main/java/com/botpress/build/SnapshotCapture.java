@@ -0,0 +1,133 @@
+package com.botpress.build;
+
+import com.botpress.command.CommandSource;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Wraps a job's commands so the blocks each one overwrites are read before the command is released.
+// Reading runs on the capture executor a few commands ahead of the dispatcher, so the first command
+// only waits for its own box rather than the whole region. A position is read once, the first time
+// a command touches it, so later boxes overlapping earlier ones still see the original block.
+//
+// Commands the compactor can't model (relative coordinates, WorldEdit, fill modes) pass through
+// without being captured. Once the job finishes or is cancelled, the blocks read so far are handed
+// to onComplete on the executor, which must run tasks one at a time. The executor is best kept for
+// capture alone: onComplete should hand slow work such as saving elsewhere, since the next job's
+// read-ahead waits behind it.
+public final class SnapshotCapture implements CommandSource {
+	// Commands read ahead of the dispatcher; enough to keep it busy between capture runs
+	private static final int READ_AHEAD = 64;
+
+	private final CommandSource source;
+	private final BlockStateLookup world;
+	private final Executor executor;
+	private final Consumer<VoxelModel> onComplete;
+	// Only touched on the executor
+	private final VoxelModel before = new VoxelModel();
+	private final ConcurrentLinkedQueue<String> ready = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger readyCount = new AtomicInteger();
+	private final AtomicBoolean capturing = new AtomicBoolean();
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private volatile boolean drained;
+	private volatile boolean cancelled;
+
+	public SnapshotCapture(CommandSource source, BlockStateLookup world, Executor executor,
+			Consumer<VoxelModel> onComplete) {
+		this.source = source;
+		this.world = world;
+		this.executor = executor;
+		this.onComplete = onComplete;
+	}
+
+	@Override
+	public String poll() {
+		if (cancelled) {
+			return null;
+		}
+		if (readyCount.get() < READ_AHEAD / 2) {
+			schedule();
+		}
+		String command = ready.poll();
+		if (command != null) {
+			readyCount.decrementAndGet();
+		}
+		return command;
+	}
+
+	@Override
+	public boolean isExhausted() {
+		boolean exhausted = cancelled || drained && ready.isEmpty();
+		if (exhausted) {
+			complete();
+		}
+		return exhausted;
+	}
+
+	@Override
+	public boolean isHeldBack() {
+		return ready.isEmpty() && !capturing.get() && source.isHeldBack();
+	}
+
+	@Override
+	public int size() {
+		return source.size();
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		source.cancel();
+		ready.clear();
+		complete();
+	}
+
+	private void schedule() {
+		if (!drained && capturing.compareAndSet(false, true)) {
+			executor.execute(this::captureAhead);
+		}
+	}
+
+	private void captureAhead() {
+		try {
+			while (!cancelled && readyCount.get() < READ_AHEAD) {
+				String command = source.poll();
+				if (command == null) {
+					drained = source.isExhausted();
+					return;
+				}
+				capture(command);
+				ready.add(command);
+				readyCount.incrementAndGet();
+			}
+		} finally {
+			capturing.set(false);
+		}
+	}
+
+	private void capture(String command) {
+		CommandCompactor.BlockWrite write = CommandCompactor.parse(command);
+		if (write == null || write.volume() > CommandCompactor.MAX_RUN_VOLUME) {
+			return;
+		}
+		for (int y = write.y1(); y <= write.y2(); y++) {
+			for (int z = write.z1(); z <= write.z2(); z++) {
+				for (int x = write.x1(); x <= write.x2(); x++) {
+					if (before.get(x, y, z) == null) {
+						String block = world.blockAt(x, y, z);
+						before.set(x, y, z, block == null ? Snapshot.UNKNOWN : block);
+					}
+				}
+			}
+		}
+	}
+
+	private void complete() {
+		if (completed.compareAndSet(false, true)) {
+			executor.execute(() -> onComplete.accept(before));
+		}
+	}
+}
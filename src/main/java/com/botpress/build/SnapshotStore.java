@@ -0,0 +1,101 @@
+package com.botpress.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Undo history on disk: one file per snapshot, numbered in the order they were taken. The oldest
+// files are deleted once there are more than maxSnapshots or they take more than maxBytes, but the
+// newest snapshot is always kept.
+public final class SnapshotStore {
+	public static final String DIRECTORY_NAME = "minebot-snapshots";
+
+	private static final String EXTENSION = ".mbs";
+
+	private final Path directory;
+	private final int maxSnapshots;
+	private final long maxBytes;
+
+	public SnapshotStore(Path directory, int maxSnapshots, long maxBytes) {
+		this.directory = directory;
+		this.maxSnapshots = Math.max(1, maxSnapshots);
+		this.maxBytes = maxBytes;
+	}
+
+	public record Stored(long id, Snapshot snapshot) {
+	}
+
+	public synchronized long push(Snapshot snapshot) throws IOException {
+		Files.createDirectories(directory);
+		List<Long> ids = ids();
+		long id = ids.isEmpty() ? 1 : ids.get(ids.size() - 1) + 1;
+		Path file = file(id);
+		Path partial = directory.resolve(id + EXTENSION + ".tmp");
+		try (OutputStream output = Files.newOutputStream(partial)) {
+			snapshot.write(output);
+		}
+		Files.move(partial, file);
+
+		ids.add(id);
+		trim(ids);
+		return id;
+	}
+
+	// Newest snapshot taken in the given world, or null when there is none.
+	public synchronized Stored latest(String world) throws IOException {
+		List<Long> ids = ids();
+		for (int i = ids.size() - 1; i >= 0; i--) {
+			long id = ids.get(i);
+			try (InputStream input = Files.newInputStream(file(id))) {
+				if (!Snapshot.readWorld(input).equals(world)) {
+					continue;
+				}
+			}
+			try (InputStream input = Files.newInputStream(file(id))) {
+				return new Stored(id, Snapshot.read(input));
+			}
+		}
+		return null;
+	}
+
+	public synchronized void remove(long id) throws IOException {
+		Files.deleteIfExists(file(id));
+	}
+
+	public synchronized int size() throws IOException {
+		return ids().size();
+	}
+
+	private void trim(List<Long> ids) throws IOException {
+		long bytes = 0;
+		for (long id : ids) {
+			bytes += Files.size(file(id));
+		}
+		for (int i = 0; i < ids.size() - 1 && (ids.size() - i > maxSnapshots || bytes > maxBytes); i++) {
+			bytes -= Files.size(file(ids.get(i)));
+			Files.delete(file(ids.get(i)));
+		}
+	}
+
+	private List<Long> ids() throws IOException {
+		if (Files.notExists(directory)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(path -> path.getFileName().toString()).filter(name -> name.endsWith(EXTENSION))
+					.map(name -> name.substring(0, name.length() - EXTENSION.length()))
+					.filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit)).map(Long::parseLong)
+					.sorted().collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	private Path file(long id) {
+		return directory.resolve(id + EXTENSION);
+	}
+}
@@ -0,0 +1,27 @@
+package com.botpress.build;
+
+// Produces a parametric structure as voxels. Generators write only inside the bounds; positions
+// they leave unset keep whatever the world has there, so interiors meant to be empty are set to air.
+@FunctionalInterface
+public interface StructureGenerator {
+	void generate(VoxelModel model, Bounds bounds, String material);
+
+	// The structure's bounding box: minimum corner plus size along each axis.
+	record Bounds(int x, int y, int z, int width, int height, int depth) {
+		public int maxX() {
+			return x + width - 1;
+		}
+
+		public int maxY() {
+			return y + height - 1;
+		}
+
+		public int maxZ() {
+			return z + depth - 1;
+		}
+
+		public boolean contains(int i, int j, int k) {
+			return i >= 0 && i < width && j >= 0 && j < height && k >= 0 && k < depth;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package com.botpress.build;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Named structure generators. Every structure is rasterized into a VoxelModel and compiled by
+// FillCompiler, so curved shapes come out as a few large legal fills rather than per-block commands.
+public final class StructureRegistry {
+	static final String AIR = "minecraft:air";
+
+	private static final Map<String, StructureGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+	static {
+		register("cube", (model, b, material) -> model.fill(b.x(), b.y(), b.z(), b.maxX(), b.maxY(), b.maxZ(),
+				material));
+		register("platform", (model, b, material) -> model.fill(b.x(), b.y(), b.z(), b.maxX(), b.y(), b.maxZ(),
+				material));
+		register("house", StructureRegistry::shelter);
+		register("tower", StructureRegistry::shelter);
+		register("sphere", (model, b, material) -> shape(model, b, material, false, ellipsoid(b, false)));
+		register("hollow_sphere", (model, b, material) -> shape(model, b, material, true, ellipsoid(b, false)));
+		register("dome", (model, b, material) -> shape(model, b, material, false, ellipsoid(b, true)));
+		register("hollow_dome", (model, b, material) -> shape(model, b, material, true, ellipsoid(b, true)));
+		register("cylinder", (model, b, material) -> shape(model, b, material, false, cylinder(b)));
+		register("hollow_cylinder", (model, b, material) -> shape(model, b, material, true, cylinder(b)));
+		register("pyramid", (model, b, material) -> shape(model, b, material, false, pyramid(b)));
+		register("hollow_pyramid", (model, b, material) -> shape(model, b, material, true, pyramid(b)));
+		register("arch", StructureRegistry::arch);
+	}
+
+	private StructureRegistry() {
+	}
+
+	public static void register(String name, StructureGenerator generator) {
+		GENERATORS.put(name, generator);
+	}
+
+	public static StructureGenerator get(String name) {
+		return GENERATORS.get(name);
+	}
+
+	public static Set<String> names() {
+		return new TreeSet<>(GENERATORS.keySet());
+	}
+
+	// Returns the commands for a registered structure, or an empty list for an unknown name.
+	public static List<String> compile(String name, StructureGenerator.Bounds bounds, String material) {
+		VoxelModel model = generate(name, bounds, material);
+		return model == null ? List.of() : FillCompiler.compile(model);
+	}
+
+	// The commands for a build reply, given the corner it starts at: the material gets its namespace, and
+	// with a world only blocks that differ are written. Null for an unknown name. BuilderEngine and the
+	// load test both build through this.
+	public static Plan plan(String name, StructureGenerator.Bounds bounds, String material, BlockStateLookup world) {
+		String block = material.startsWith("minecraft:") ? material : "minecraft:" + material;
+		VoxelModel model = generate(name, bounds, block);
+		if (model == null) {
+			return null;
+		}
+		if (world == null) {
+			return new Plan(FillCompiler.compile(model), 0);
+		}
+		VoxelModel changed = model.diff(world);
+		return new Plan(FillCompiler.compileDelta(model, changed), model.size() - changed.size());
+	}
+
+	// InPlace counts the blocks left out because the world already has them
+	public record Plan(List<String> commands, int inPlace) {
+	}
+
+	// Returns the rasterized structure, or null for an unknown name.
+	public static VoxelModel generate(String name, StructureGenerator.Bounds bounds, String material) {
+		StructureGenerator generator = GENERATORS.get(name);
+		if (generator == null) {
+			return null;
+		}
+		VoxelModel model = new VoxelModel();
+		generator.generate(model, bounds, material);
+		return model;
+	}
+
+	// A box with a floor, walls and roof, an empty inside and a two-high doorway on the front face.
+	private static void shelter(VoxelModel model, StructureGenerator.Bounds b, String material) {
+		model.fill(b.x(), b.y(), b.z(), b.maxX(), b.maxY(), b.maxZ(), material);
+		if (b.width() > 2 && b.height() > 1 && b.depth() > 2) {
+			model.fill(b.x() + 1, b.y() + 1, b.z() + 1, b.maxX() - 1, b.maxY() - 1, b.maxZ() - 1, AIR);
+		}
+		if (b.height() > 1) {
+			int doorX = b.x() + b.width() / 2;
+			model.fill(doorX, b.y() + 1, b.z(), doorX, Math.min(b.y() + 2, b.maxY()), b.z(), AIR);
+		}
+	}
+
+	// A solid block with a half-elliptical opening through its depth, cleared to air.
+	private static void arch(VoxelModel model, StructureGenerator.Bounds b, String material) {
+		int thickness = Math.max(1, Math.min(b.width(), b.height()) / 4);
+		double rx = b.width() / 2.0 - thickness;
+		double ry = b.height() - thickness;
+		for (int j = 0; j < b.height(); j++) {
+			for (int i = 0; i < b.width(); i++) {
+				double dx = (i + 0.5 - b.width() / 2.0) / rx;
+				double dy = (j + 0.5) / ry;
+				boolean opening = rx > 0 && ry > 0 && dx * dx + dy * dy <= 1;
+				model.fill(b.x() + i, b.y() + j, b.z(), b.x() + i, b.y() + j, b.maxZ(), opening ? AIR : material);
+			}
+		}
+	}
+
+	// Sets every voxel inside the shape. When hollow, only the shell keeps the material and the inside
+	// is cleared to air; a voxel is shell when one of its six neighbours is outside the shape.
+	private static void shape(VoxelModel model, StructureGenerator.Bounds b, String material, boolean hollow,
+			Shape shape) {
+		for (int j = 0; j < b.height(); j++) {
+			for (int k = 0; k < b.depth(); k++) {
+				for (int i = 0; i < b.width(); i++) {
+					if (!shape.contains(i, j, k)) {
+						continue;
+					}
+					boolean shell = !hollow || !inside(b, shape, i - 1, j, k) || !inside(b, shape, i + 1, j, k)
+							|| !inside(b, shape, i, j - 1, k) || !inside(b, shape, i, j + 1, k)
+							|| !inside(b, shape, i, j, k - 1) || !inside(b, shape, i, j, k + 1);
+					model.set(b.x() + i, b.y() + j, b.z() + k, shell ? material : AIR);
+				}
+			}
+		}
+	}
+
+	private static boolean inside(StructureGenerator.Bounds b, Shape shape, int i, int j, int k) {
+		return b.contains(i, j, k) && shape.contains(i, j, k);
+	}
+
+	// Ellipsoid inscribed in the bounds, or its upper half standing on the bottom face for a dome.
+	private static Shape ellipsoid(StructureGenerator.Bounds b, boolean upperHalf) {
+		double rx = b.width() / 2.0;
+		double rz = b.depth() / 2.0;
+		double ry = upperHalf ? b.height() : b.height() / 2.0;
+		double cy = upperHalf ? 0 : ry;
+		return (i, j, k) -> {
+			double dx = (i + 0.5 - rx) / rx;
+			double dy = (j + 0.5 - cy) / ry;
+			double dz = (k + 0.5 - rz) / rz;
+			return dx * dx + dy * dy + dz * dz <= 1;
+		};
+	}
+
+	// Vertical elliptical cylinder filling the bounds.
+	private static Shape cylinder(StructureGenerator.Bounds b) {
+		double rx = b.width() / 2.0;
+		double rz = b.depth() / 2.0;
+		return (i, j, k) -> {
+			double dx = (i + 0.5 - rx) / rx;
+			double dz = (k + 0.5 - rz) / rz;
+			return dx * dx + dz * dz <= 1;
+		};
+	}
+
+	// Stepped pyramid whose layers shrink evenly so the top layer is reached at the full height.
+	private static Shape pyramid(StructureGenerator.Bounds b) {
+		double step = Math.min(b.width(), b.depth()) / (2.0 * b.height());
+		return (i, j, k) -> {
+			int inset = (int) (j * step);
+			return i >= inset && i < b.width() - inset && k >= inset && k < b.depth() - inset;
+		};
+	}
+
+	@FunctionalInterface
+	private interface Shape {
+		boolean contains(int i, int j, int k);
+	}
+}
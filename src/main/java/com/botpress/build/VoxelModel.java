@@ -0,0 +1,341 @@
+package com.botpress.build;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sparse set of block writes. Later writes replace earlier ones.
+//
+// Storage mirrors a chunk section: 16x16x16 sections, each with its own block palette and the
+// palette indices bit-packed into longs. Index 0 means "not set", sections nobody wrote to don't
+// exist, and a section filled with one block keeps no index array at all, so a solid 256^3 region
+// costs a few kilobytes and a detailed one a few megabytes.
+public final class VoxelModel {
+	private final Map<Long, Section> sections = new HashMap<>();
+	private long size;
+
+	// One-entry cache: lookups during compilation mostly hit the section of the previous lookup
+	private long lastKey = Long.MIN_VALUE;
+	private Section lastSection;
+
+	public void set(int x, int y, int z, String block) {
+		Section section = sectionFor(x >> 4, y >> 4, z >> 4, true);
+		size += section.set(index(x, y, z), block);
+	}
+
+	// Whole sections inside the region are replaced in one step instead of block by block.
+	public void fill(int x1, int y1, int z1, int x2, int y2, int z2, String block) {
+		int minX = Math.min(x1, x2);
+		int minY = Math.min(y1, y2);
+		int minZ = Math.min(z1, z2);
+		int maxX = Math.max(x1, x2);
+		int maxY = Math.max(y1, y2);
+		int maxZ = Math.max(z1, z2);
+
+		for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+			for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+				for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+					Section section = sectionFor(sx, sy, sz, true);
+					int fromX = Math.max(minX, sx << 4);
+					int fromY = Math.max(minY, sy << 4);
+					int fromZ = Math.max(minZ, sz << 4);
+					int toX = Math.min(maxX, (sx << 4) + 15);
+					int toY = Math.min(maxY, (sy << 4) + 15);
+					int toZ = Math.min(maxZ, (sz << 4) + 15);
+
+					if (fromX == sx << 4 && fromY == sy << 4 && fromZ == sz << 4 && toX - fromX == 15
+							&& toY - fromY == 15 && toZ - fromZ == 15) {
+						size += section.fillAll(block);
+						continue;
+					}
+					int paletteIndex = section.paletteIndex(block);
+					for (int y = fromY; y <= toY; y++) {
+						for (int z = fromZ; z <= toZ; z++) {
+							for (int x = fromX; x <= toX; x++) {
+								size += section.setIndex(index(x, y, z), paletteIndex);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Returns null for positions that were never set.
+	public String get(int x, int y, int z) {
+		Section section = sectionFor(x >> 4, y >> 4, z >> 4, false);
+		return section == null ? null : section.palette[section.get(index(x, y, z))];
+	}
+
+	public int size() {
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int sectionCount() {
+		return sections.size();
+	}
+
+	// Visits every set voxel, section by section.
+	public void forEach(VoxelConsumer consumer) {
+		for (Map.Entry<Long, Section> entry : sections.entrySet()) {
+			long key = entry.getKey();
+			Section section = entry.getValue();
+			int baseX = sectionX(key) << 4;
+			int baseY = sectionY(key) << 4;
+			int baseZ = sectionZ(key) << 4;
+			for (int i = 0; i < Section.VOLUME; i++) {
+				int paletteIndex = section.get(i);
+				if (paletteIndex != 0) {
+					consumer.accept(baseX + (i & 15), baseY + (i >> 8), baseZ + (i >> 4 & 15),
+							section.palette[paletteIndex]);
+				}
+			}
+		}
+	}
+
+	// Visits every set voxel bottom-up, then by Z, then by X, without sorting the voxels themselves.
+	public void forEachInOrder(VoxelConsumer consumer) {
+		List<Long> keys = new ArrayList<>(sections.keySet());
+		keys.sort(Comparator.comparingInt(VoxelModel::sectionY).thenComparingInt(VoxelModel::sectionZ)
+				.thenComparingInt(VoxelModel::sectionX));
+
+		int rowStart = 0;
+		while (rowStart < keys.size()) {
+			int sy = sectionY(keys.get(rowStart));
+			int rowEnd = rowStart;
+			while (rowEnd < keys.size() && sectionY(keys.get(rowEnd)) == sy) {
+				rowEnd++;
+			}
+
+			for (int ly = 0; ly < 16; ly++) {
+				int runStart = rowStart;
+				while (runStart < rowEnd) {
+					int sz = sectionZ(keys.get(runStart));
+					int runEnd = runStart;
+					while (runEnd < rowEnd && sectionZ(keys.get(runEnd)) == sz) {
+						runEnd++;
+					}
+					for (int lz = 0; lz < 16; lz++) {
+						for (int s = runStart; s < runEnd; s++) {
+							long key = keys.get(s);
+							Section section = sections.get(key);
+							for (int lx = 0; lx < 16; lx++) {
+								int paletteIndex = section.get(ly << 8 | lz << 4 | lx);
+								if (paletteIndex != 0) {
+									consumer.accept(sectionX(key) << 4 | lx, sy << 4 | ly, sz << 4 | lz,
+											section.palette[paletteIndex]);
+								}
+							}
+						}
+					}
+					runStart = runEnd;
+				}
+			}
+			rowStart = rowEnd;
+		}
+	}
+
+	// Voxels of this model whose block differs from the one at the same position in other,
+	// including positions other leaves unset. Sections holding the same single block are skipped.
+	public VoxelModel diff(VoxelModel other) {
+		VoxelModel changed = new VoxelModel();
+		for (Map.Entry<Long, Section> entry : sections.entrySet()) {
+			long key = entry.getKey();
+			Section section = entry.getValue();
+			Section otherSection = other.sections.get(key);
+			if (otherSection != null && section.isUniform() && otherSection.isUniform()
+					&& section.uniformBlock() != null && section.uniformBlock().equals(otherSection.uniformBlock())) {
+				continue;
+			}
+
+			int baseX = sectionX(key) << 4;
+			int baseY = sectionY(key) << 4;
+			int baseZ = sectionZ(key) << 4;
+			for (int i = 0; i < Section.VOLUME; i++) {
+				String block = section.palette[section.get(i)];
+				if (block != null && (otherSection == null
+						|| !block.equals(otherSection.palette[otherSection.get(i)]))) {
+					changed.set(baseX + (i & 15), baseY + (i >> 8), baseZ + (i >> 4 & 15), block);
+				}
+			}
+		}
+		return changed;
+	}
+
+	// Voxels of this model that the world doesn't already hold. A block with states only matches
+	// when the lookup reports the same states, so lookups that return bare ids rewrite such blocks.
+	public VoxelModel diff(BlockStateLookup world) {
+		VoxelModel changed = new VoxelModel();
+		forEach((x, y, z, block) -> {
+			if (!block.equals(world.blockAt(x, y, z))) {
+				changed.set(x, y, z, block);
+			}
+		});
+		return changed;
+	}
+
+	private Section sectionFor(int sx, int sy, int sz, boolean create) {
+		long key = sectionKey(sx, sy, sz);
+		if (key == lastKey && lastSection != null) {
+			return lastSection;
+		}
+		Section section = sections.get(key);
+		if (section == null && create) {
+			section = new Section();
+			sections.put(key, section);
+		}
+		if (section != null) {
+			lastKey = key;
+			lastSection = section;
+		}
+		return section;
+	}
+
+	private static int index(int x, int y, int z) {
+		return (y & 15) << 8 | (z & 15) << 4 | x & 15;
+	}
+
+	// 22 bits X, 22 bits Z, 20 bits Y section coordinates
+	static long sectionKey(int sx, int sy, int sz) {
+		return ((long) sx & 0x3FFFFFL) << 42 | ((long) sz & 0x3FFFFFL) << 20 | (long) sy & 0xFFFFFL;
+	}
+
+	static int sectionX(long key) {
+		return (int) (key >> 42);
+	}
+
+	static int sectionY(long key) {
+		return (int) (key << 44 >> 44);
+	}
+
+	static int sectionZ(long key) {
+		return (int) (key << 22 >> 42);
+	}
+
+	@FunctionalInterface
+	public interface VoxelConsumer {
+		void accept(int x, int y, int z, String block);
+	}
+
+	// 4096 palette indices packed into longs, as many per long as fit without straddling two.
+	// Palette entries are never removed; a section only ever grows more detailed.
+	private static final class Section {
+		static final int VOLUME = 4096;
+
+		private String[] palette = {null};
+		private int paletteSize = 1;
+		private int bits;
+		private long[] data;
+		// Index every voxel holds while data is null
+		private int uniformIndex;
+
+		int get(int i) {
+			if (data == null) {
+				return uniformIndex;
+			}
+			int perLong = 64 / bits;
+			return (int) (data[i / perLong] >>> (i % perLong * bits) & (1L << bits) - 1);
+		}
+
+		boolean isUniform() {
+			return data == null;
+		}
+
+		String uniformBlock() {
+			return palette[uniformIndex];
+		}
+
+		// Each of these returns how many voxels went from unset to set.
+		int set(int i, String block) {
+			return setIndex(i, paletteIndex(block));
+		}
+
+		int setIndex(int i, int paletteIndex) {
+			int previous = get(i);
+			if (previous == paletteIndex) {
+				return 0;
+			}
+			if (data == null) {
+				allocate();
+			}
+			int perLong = 64 / bits;
+			int shift = i % perLong * bits;
+			long mask = (1L << bits) - 1;
+			data[i / perLong] = data[i / perLong] & ~(mask << shift) | (long) paletteIndex << shift;
+			return previous == 0 ? 1 : 0;
+		}
+
+		int fillAll(String block) {
+			int previouslySet = 0;
+			for (int i = 0; i < VOLUME; i++) {
+				if (get(i) != 0) {
+					previouslySet++;
+				}
+			}
+			palette = new String[] {null, block};
+			paletteSize = 2;
+			bits = 0;
+			data = null;
+			uniformIndex = 1;
+			return VOLUME - previouslySet;
+		}
+
+		int paletteIndex(String block) {
+			for (int i = 1; i < paletteSize; i++) {
+				if (palette[i].equals(block)) {
+					return i;
+				}
+			}
+			if (paletteSize == palette.length) {
+				String[] grown = new String[palette.length * 2];
+				System.arraycopy(palette, 0, grown, 0, paletteSize);
+				palette = grown;
+			}
+			palette[paletteSize] = block;
+			int added = paletteSize++;
+			if (data != null && bitsFor(paletteSize) > bits) {
+				repack(bitsFor(paletteSize));
+			}
+			return added;
+		}
+
+		private void allocate() {
+			int fill = uniformIndex;
+			bits = bitsFor(paletteSize);
+			data = new long[(VOLUME + 64 / bits - 1) / (64 / bits)];
+			if (fill != 0) {
+				for (int i = 0; i < VOLUME; i++) {
+					write(i, fill);
+				}
+			}
+		}
+
+		private void repack(int newBits) {
+			int[] indices = new int[VOLUME];
+			for (int i = 0; i < VOLUME; i++) {
+				indices[i] = get(i);
+			}
+			bits = newBits;
+			data = new long[(VOLUME + 64 / bits - 1) / (64 / bits)];
+			for (int i = 0; i < VOLUME; i++) {
+				write(i, indices[i]);
+			}
+		}
+
+		private void write(int i, int paletteIndex) {
+			int perLong = 64 / bits;
+			int shift = i % perLong * bits;
+			data[i / perLong] |= (long) paletteIndex << shift;
+		}
+
+		private static int bitsFor(int paletteSize) {
+			return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+		}
+	}
+}
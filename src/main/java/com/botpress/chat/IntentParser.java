@@ -0,0 +1,177 @@
+package com.botpress.chat;
+
+import com.botpress.network.BridgeResponse;
+import com.botpress.network.ResponseCache;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Deterministic fast path for everyday requests ("make it daytime", "build a 7x5x7 stone house").
+// A grammar of regex intents, read from config/minebot-intents.json, maps a prompt straight onto a
+// command or build reply; anything that doesn't match goes to the bridge as before.
+//
+// Each intent's pattern must match the whole normalized prompt (lowercase, single spaces, no
+// trailing punctuation), optionally wrapped in the grammar's prefix and suffix. "{name}" and "{1}"
+// in templates are filled from named and numbered groups, falling back to the intent's defaults.
+public final class IntentParser {
+	public static final String FILE_NAME = "minebot-intents.json";
+
+	private static final String DEFAULTS_RESOURCE = "/botpress/default-intents.json";
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+	// Same bound the bridge puts on build dimensions
+	private static final int MAX_DIMENSION = 64;
+
+	private final List<Intent> intents;
+
+	private IntentParser(List<Intent> intents) {
+		this.intents = intents;
+	}
+
+	// Reads the grammar, first copying the bundled defaults there so players can edit them.
+	public static IntentParser load(Path file) throws IOException {
+		if (Files.notExists(file)) {
+			Files.createDirectories(file.getParent());
+			try (InputStream defaults = IntentParser.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+				Files.copy(defaults, file);
+			}
+		}
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	public static IntentParser defaults() {
+		try (Reader reader = new InputStreamReader(IntentParser.class.getResourceAsStream(DEFAULTS_RESOURCE),
+				StandardCharsets.UTF_8)) {
+			return read(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException("Bundled intents are unreadable", e);
+		}
+	}
+
+	static IntentParser read(Reader reader) {
+		JsonObject grammar = JsonParser.parseReader(reader).getAsJsonObject();
+		String prefix = grammar.has("prefix") ? grammar.get("prefix").getAsString() : "";
+		String suffix = grammar.has("suffix") ? grammar.get("suffix").getAsString() : "";
+
+		List<Intent> intents = new ArrayList<>();
+		for (JsonElement element : grammar.getAsJsonArray("intents")) {
+			JsonObject intent = element.getAsJsonObject();
+			Pattern pattern = Pattern.compile(prefix + "(?:" + intent.get("pattern").getAsString() + ")" + suffix);
+			String command = intent.has("command") ? intent.get("command").getAsString() : null;
+			Map<String, String> build = intent.has("build") ? readStrings(intent.getAsJsonObject("build")) : null;
+			if ((command == null) == (build == null)) {
+				throw new IllegalArgumentException("Intent " + pattern + " needs exactly one of command or build");
+			}
+			Map<String, String> defaults = intent.has("defaults")
+					? readStrings(intent.getAsJsonObject("defaults"))
+					: Map.of();
+			intents.add(new Intent(pattern, command, build, defaults));
+		}
+		return new IntentParser(intents);
+	}
+
+	// Returns the reply for the first matching intent, or null to fall back to the bridge.
+	public BridgeResponse match(String message) {
+		String text = ResponseCache.normalize(message);
+		for (Intent intent : intents) {
+			Matcher matcher = intent.pattern().matcher(text);
+			if (matcher.matches()) {
+				BridgeResponse response = intent.toResponse(matcher);
+				if (response != null) {
+					return response;
+				}
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return intents.size();
+	}
+
+	private static Map<String, String> readStrings(JsonObject json) {
+		Map<String, String> values = new LinkedHashMap<>();
+		for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().getAsString());
+		}
+		return values;
+	}
+
+	private record Intent(Pattern pattern, String command, Map<String, String> build, Map<String, String> defaults) {
+		BridgeResponse toResponse(Matcher matcher) {
+			if (command != null) {
+				String filled = fill(command, matcher);
+				return filled == null ? null : new BridgeResponse.Command(filled);
+			}
+
+			String structure = fill(build.get("structure"), matcher);
+			String material = fill(build.get("material"), matcher);
+			int width = dimension(fill(build.get("width"), matcher));
+			int height = dimension(fill(build.get("height"), matcher));
+			int depth = dimension(fill(build.get("depth"), matcher));
+			if (structure == null || material == null || width < 0 || height < 0 || depth < 0) {
+				return null;
+			}
+			return new BridgeResponse.Build(structure, width, height, depth, material);
+		}
+
+		// Returns null when a placeholder has neither a matched group nor a default.
+		private String fill(String template, Matcher matcher) {
+			if (template == null) {
+				return null;
+			}
+			Matcher placeholders = PLACEHOLDER.matcher(template);
+			StringBuilder filled = new StringBuilder();
+			while (placeholders.find()) {
+				String name = placeholders.group(1);
+				String value = group(matcher, name);
+				if (value == null) {
+					value = defaults.get(name);
+				}
+				if (value == null) {
+					return null;
+				}
+				placeholders.appendReplacement(filled, Matcher.quoteReplacement(value));
+			}
+			placeholders.appendTail(filled);
+			return filled.toString();
+		}
+
+		private static String group(Matcher matcher, String name) {
+			try {
+				return name.chars().allMatch(Character::isDigit)
+						? matcher.group(Integer.parseInt(name))
+						: matcher.group(name);
+			} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+				return null;
+			}
+		}
+
+		private static int dimension(String value) {
+			if (value == null) {
+				return -1;
+			}
+			try {
+				int size = Integer.parseInt(value);
+				return size >= 1 && size <= MAX_DIMENSION ? size : -1;
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+	}
+}
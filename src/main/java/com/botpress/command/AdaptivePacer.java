@@ -0,0 +1,107 @@
+package com.botpress.command;
+
+import java.util.function.LongSupplier;
+
+// Adjusts the delay between dispatched commands from server feedback, ping and tick rate.
+// Accepted commands shrink the delay, rejections double it, and a lagging server scales it up.
+public final class AdaptivePacer {
+	public static final long MIN_DELAY_MS = 10;
+	public static final long MAX_DELAY_MS = 2000;
+	public static final long INITIAL_DELAY_MS = 50;
+
+	private static final double SPEEDUP_FACTOR = 0.85;
+	private static final double BACKOFF_FACTOR = 2.0;
+	private static final double TARGET_TPS = 20.0;
+	private static final double HEALTHY_TPS = 19.5;
+	private static final int MAX_IN_FLIGHT = 8;
+	private static final long FEEDBACK_TIMEOUT_MS = 1000;
+
+	private final LongSupplier clock;
+
+	private double baseDelayMs = INITIAL_DELAY_MS;
+	private int inFlight;
+	private long lastSentAt;
+	private long lastFeedbackAt;
+	private long pingMs;
+	private double tickRate = TARGET_TPS;
+
+	public AdaptivePacer() {
+		this(System::currentTimeMillis);
+	}
+
+	public AdaptivePacer(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	public enum Feedback {
+		ACCEPTED, REJECTED, IGNORED
+	}
+
+	// Classifies a command feedback message by its translation key.
+	public static Feedback classify(String translationKey) {
+		if (translationKey == null) {
+			return Feedback.IGNORED;
+		}
+		if (translationKey.startsWith("command.unknown") || translationKey.startsWith("command.expected")
+				|| translationKey.startsWith("command.failed") || translationKey.startsWith("argument.")
+				|| translationKey.startsWith("permissions.requires") || translationKey.endsWith(".toobig")) {
+			return Feedback.REJECTED;
+		}
+		if (translationKey.startsWith("commands.")) {
+			return Feedback.ACCEPTED;
+		}
+		return Feedback.IGNORED;
+	}
+
+	public synchronized void onSent() {
+		inFlight++;
+		lastSentAt = clock.getAsLong();
+	}
+
+	public synchronized void onFeedback(Feedback feedback) {
+		switch (feedback) {
+			case ACCEPTED -> {
+				acknowledge();
+				baseDelayMs = Math.max(MIN_DELAY_MS, baseDelayMs * SPEEDUP_FACTOR);
+			}
+			case REJECTED -> {
+				acknowledge();
+				baseDelayMs = Math.min(MAX_DELAY_MS, baseDelayMs * BACKOFF_FACTOR);
+			}
+			case IGNORED -> {
+			}
+		}
+	}
+
+	public synchronized void updatePing(long pingMs) {
+		this.pingMs = Math.max(0, pingMs);
+	}
+
+	public synchronized void updateTickRate(double tickRate) {
+		this.tickRate = Math.max(1.0, Math.min(TARGET_TPS, tickRate));
+	}
+
+	public synchronized long nextDelayMs() {
+		long now = clock.getAsLong();
+
+		// Servers with sendCommandFeedback off never answer, so stop waiting on feedback that won't come
+		if (inFlight > 0 && now - Math.max(lastSentAt, lastFeedbackAt) > Math.max(FEEDBACK_TIMEOUT_MS, pingMs * 2)) {
+			inFlight = 0;
+		}
+
+		double delay = baseDelayMs;
+		if (tickRate < HEALTHY_TPS) {
+			delay *= TARGET_TPS / tickRate;
+		}
+		if (inFlight >= MAX_IN_FLIGHT) {
+			delay = Math.max(delay, (double) pingMs / MAX_IN_FLIGHT);
+		}
+
+		return Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, Math.round(delay)));
+	}
+
+	private void acknowledge() {
+		inFlight = Math.max(0, inFlight - 1);
+		lastFeedbackAt = clock.getAsLong();
+	}
+}
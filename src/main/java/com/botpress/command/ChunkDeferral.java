@@ -0,0 +1,267 @@
+package com.botpress.command;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Holds back a job's block writes whose target chunks the client doesn't have loaded, since many
+// servers reject those commands or drop them without a word. Held commands are queued on every chunk
+// their box touches and go out once they are first in line in all of those chunks and each of them
+// has loaded; everything else carries on in the meantime.
+//
+// Once a chunk has held commands, every later write touching it waits behind them, so writes to the
+// same place keep their order. Commands whose target can't be worked out (relative coordinates,
+// WorldEdit, clone) wait behind everything held so far, and nothing after them is read until they
+// go out. A chunk that holds commands for maxWaitMillis has them sent anyway, together with any
+// earlier commands they wait behind, so a job never waits forever for a player who walked away.
+public final class ChunkDeferral implements CommandSource {
+	// Commands examined per poll before giving the tick back
+	private static final int MAX_SCAN = 64;
+
+	@FunctionalInterface
+	public interface ChunkTest {
+		boolean isLoaded(int chunkX, int chunkZ);
+	}
+
+	private final CommandSource source;
+	private final ChunkTest loaded;
+	private final long maxWaitNanos;
+	private final LongSupplier clock;
+
+	// Chunks holding commands, oldest first
+	private final Map<Long, Held> held = new LinkedHashMap<>();
+	// Commands that may go out as they are: released ones, and ones that waited too long
+	private final ArrayDeque<String> ready = new ArrayDeque<>();
+	// Held command without a known target; the source isn't read until it goes out
+	private Entry barrier;
+	private long deferred;
+	private boolean heldBack;
+
+	public ChunkDeferral(CommandSource source, ChunkTest loaded, long maxWaitMillis) {
+		this(source, loaded, maxWaitMillis, System::nanoTime);
+	}
+
+	public ChunkDeferral(CommandSource source, ChunkTest loaded, long maxWaitMillis, LongSupplier clock) {
+		this.source = source;
+		this.loaded = loaded;
+		this.maxWaitNanos = maxWaitMillis * 1_000_000;
+		this.clock = clock;
+	}
+
+	private static final class Held {
+		final long since;
+		final ArrayDeque<Entry> commands = new ArrayDeque<>();
+		boolean loaded;
+
+		Held(long since, boolean loaded) {
+			this.since = since;
+			this.loaded = loaded;
+		}
+	}
+
+	// A barrier is queued on every chunk held when it arrived, and doesn't need them loaded
+	private record Entry(String command, long[] chunks, boolean barrier) {
+	}
+
+	@Override
+	public synchronized String poll() {
+		expire();
+		heldBack = false;
+		if (!ready.isEmpty()) {
+			return ready.poll();
+		}
+		for (int scanned = 0; scanned < MAX_SCAN; scanned++) {
+			if (barrier != null) {
+				heldBack = true;
+				return null;
+			}
+			String command = source.poll();
+			if (command == null) {
+				// A stream still waiting for its next batch isn't held back
+				heldBack = !held.isEmpty() && source.isExhausted();
+				return null;
+			}
+			if (admit(command)) {
+				return command;
+			}
+		}
+		heldBack = true;
+		return null;
+	}
+
+	// Must be told about every chunk the client loads while the job runs.
+	public synchronized void chunkLoaded(int chunkX, int chunkZ) {
+		long key = chunkKey(chunkX, chunkZ);
+		Held chunk = held.get(key);
+		if (chunk != null) {
+			chunk.loaded = true;
+			ArrayDeque<Long> touched = new ArrayDeque<>();
+			touched.add(key);
+			drain(touched);
+		}
+	}
+
+	@Override
+	public synchronized boolean isExhausted() {
+		return source.isExhausted() && held.isEmpty() && ready.isEmpty();
+	}
+
+	// True when the last poll came back empty only because the commands left are held
+	@Override
+	public synchronized boolean isHeldBack() {
+		return heldBack;
+	}
+
+	@Override
+	public int size() {
+		return source.size();
+	}
+
+	@Override
+	public synchronized void cancel() {
+		source.cancel();
+		held.clear();
+		ready.clear();
+		barrier = null;
+	}
+
+	// Commands held back so far
+	public synchronized long deferred() {
+		return deferred;
+	}
+
+	public synchronized int heldChunks() {
+		return held.size();
+	}
+
+	// True if the command may go out now; otherwise it is queued on the chunks it waits for
+	private boolean admit(String command) {
+		int[] region = ChunkOrderPlanner.region(command);
+		if (region == null) {
+			if (held.isEmpty()) {
+				return true;
+			}
+			long[] chunks = new long[held.size()];
+			int i = 0;
+			for (long key : held.keySet()) {
+				chunks[i++] = key;
+			}
+			barrier = new Entry(command, chunks, true);
+			hold(barrier);
+			return false;
+		}
+
+		int chunksX = (region[3] >> 4) - (region[0] >> 4) + 1;
+		long[] chunks = new long[chunksX * ((region[5] >> 4) - (region[2] >> 4) + 1)];
+		int i = 0;
+		boolean wait = false;
+		for (int cx = region[0] >> 4; cx <= region[3] >> 4; cx++) {
+			for (int cz = region[2] >> 4; cz <= region[5] >> 4; cz++) {
+				long key = chunkKey(cx, cz);
+				chunks[i++] = key;
+				wait = wait || held.containsKey(key) || !loaded.isLoaded(cx, cz);
+			}
+		}
+		if (!wait) {
+			return true;
+		}
+		long now = clock.getAsLong();
+		for (long key : chunks) {
+			if (!held.containsKey(key)) {
+				held.put(key, new Held(now, loaded.isLoaded((int) (key >> 32), (int) key)));
+			}
+		}
+		hold(new Entry(command, chunks, false));
+		return false;
+	}
+
+	private void hold(Entry entry) {
+		for (long key : entry.chunks()) {
+			held.get(key).commands.add(entry);
+		}
+		deferred++;
+	}
+
+	// Releases commands that are first in line in every chunk they wait for, starting from the
+	// given chunks and following on to the chunks each released command frees up
+	private void drain(ArrayDeque<Long> touched) {
+		while (!touched.isEmpty()) {
+			Held chunk = held.get(touched.poll());
+			if (chunk != null && isReady(chunk.commands.peek())) {
+				release(chunk.commands.peek(), touched);
+			}
+		}
+	}
+
+	private boolean isReady(Entry entry) {
+		for (long key : entry.chunks()) {
+			Held chunk = held.get(key);
+			if (chunk.commands.peek() != entry || !entry.barrier() && !chunk.loaded) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void release(Entry entry, ArrayDeque<Long> touched) {
+		for (long key : entry.chunks()) {
+			Held chunk = held.get(key);
+			chunk.commands.poll();
+			if (chunk.commands.isEmpty()) {
+				held.remove(key);
+			} else {
+				touched.add(key);
+			}
+		}
+		ready.add(entry.command());
+		if (entry == barrier) {
+			barrier = null;
+		}
+	}
+
+	private void expire() {
+		long now = clock.getAsLong();
+		ArrayDeque<Long> touched = new ArrayDeque<>();
+		while (!held.isEmpty()) {
+			Held oldest = held.values().iterator().next();
+			if (now - oldest.since < maxWaitNanos) {
+				// Oldest first, so the rest are younger
+				break;
+			}
+			// The chunk leaves the map once its last command is released
+			while (!oldest.commands.isEmpty()) {
+				force(oldest.commands.peek(), touched);
+			}
+		}
+		drain(touched);
+	}
+
+	// Sends a command regardless of loaded chunks, after the earlier commands it waits behind
+	private void force(Entry target, ArrayDeque<Long> touched) {
+		ArrayDeque<Entry> stack = new ArrayDeque<>();
+		stack.push(target);
+		while (!stack.isEmpty()) {
+			Entry entry = stack.peek();
+			Entry earlier = null;
+			for (long key : entry.chunks()) {
+				Entry first = held.get(key).commands.peek();
+				if (first != entry) {
+					earlier = first;
+					break;
+				}
+			}
+			if (earlier != null) {
+				// Always an older command, so this ends
+				stack.push(earlier);
+				continue;
+			}
+			stack.pop();
+			release(entry, touched);
+		}
+	}
+
+	private static long chunkKey(int chunkX, int chunkZ) {
+		return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,186 @@
+package com.botpress.command;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Reorders a job's block writes so consecutive commands land in the same chunk. Chunks are visited
+// along a Hilbert curve, which never jumps far between neighbouring positions, and sections
+// bottom-up within a chunk; the server then keeps touching the same few chunks instead of loading
+// and saving chunks all over the build.
+//
+// Only absolute setblock and fill commands move. Anything else is a barrier that stays in place,
+// and two writes whose boxes overlap keep their relative order, so the result is the same as
+// sending the commands as given.
+public final class ChunkOrderPlanner {
+	private ChunkOrderPlanner() {
+	}
+
+	public static List<String> order(List<String> commands) {
+		List<String> output = new ArrayList<>(commands.size());
+		List<String> segment = new ArrayList<>();
+		List<int[]> regions = new ArrayList<>();
+		for (String command : commands) {
+			int[] region = region(command);
+			if (region == null) {
+				orderSegment(segment, regions, output);
+				segment.clear();
+				regions.clear();
+				output.add(command);
+				continue;
+			}
+			segment.add(command);
+			regions.add(region);
+		}
+		orderSegment(segment, regions, output);
+		return output;
+	}
+
+	// Box written by an absolute setblock or fill as {minX, minY, minZ, maxX, maxY, maxZ}, or null
+	public static int[] region(String command) {
+		String normalized = command.startsWith("/") && !command.startsWith("//") ? command.substring(1) : command;
+		String[] parts = normalized.trim().split(" +");
+		int count;
+		if (parts[0].equals("setblock")) {
+			count = 3;
+		} else if (parts[0].equals("fill")) {
+			count = 6;
+		} else {
+			return null;
+		}
+		if (parts.length < count + 2) {
+			return null;
+		}
+		int[] coords = new int[6];
+		try {
+			for (int i = 0; i < count; i++) {
+				coords[i] = Integer.parseInt(parts[i + 1]);
+			}
+		} catch (NumberFormatException e) {
+			// Relative and local coordinates depend on where the player is when the command runs
+			return null;
+		}
+		if (count == 3) {
+			System.arraycopy(coords, 0, coords, 3, 3);
+		}
+		return new int[] {Math.min(coords[0], coords[3]), Math.min(coords[1], coords[4]),
+				Math.min(coords[2], coords[5]), Math.max(coords[0], coords[3]), Math.max(coords[1], coords[4]),
+				Math.max(coords[2], coords[5])};
+	}
+
+	// Topological order over "overlaps an earlier write", always taking the ready command that comes
+	// first along the curve
+	private static void orderSegment(List<String> segment, List<int[]> regions, List<String> output) {
+		int n = segment.size();
+		if (n < 2) {
+			output.addAll(segment);
+			return;
+		}
+
+		int minChunkX = Integer.MAX_VALUE;
+		int minChunkZ = Integer.MAX_VALUE;
+		int maxChunkX = Integer.MIN_VALUE;
+		int maxChunkZ = Integer.MIN_VALUE;
+		for (int[] region : regions) {
+			minChunkX = Math.min(minChunkX, region[0] >> 4);
+			minChunkZ = Math.min(minChunkZ, region[2] >> 4);
+			maxChunkX = Math.max(maxChunkX, region[0] >> 4);
+			maxChunkZ = Math.max(maxChunkZ, region[2] >> 4);
+		}
+		int extent = Math.max(maxChunkX - minChunkX, maxChunkZ - minChunkZ) + 1;
+		int side = Integer.highestOneBit(Math.max(1, extent - 1)) << 1;
+
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			int[] region = regions.get(i);
+			long curve = hilbert(side, (region[0] >> 4) - minChunkX, (region[2] >> 4) - minChunkZ);
+			// Curve position, then section height; 12 bits of sections cover any world height
+			keys[i] = curve << 12 | (region[1] >> 4) + 2048 & 0xFFF;
+		}
+
+		List<List<Integer>> successors = new ArrayList<>(n);
+		int[] waiting = new int[n];
+		Map<Long, List<Integer>> bySection = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			successors.add(null);
+			int[] region = regions.get(i);
+			for (int sx = region[0] >> 4; sx <= region[3] >> 4; sx++) {
+				for (int sy = region[1] >> 4; sy <= region[4] >> 4; sy++) {
+					for (int sz = region[2] >> 4; sz <= region[5] >> 4; sz++) {
+						List<Integer> earlier = bySection.computeIfAbsent(sectionKey(sx, sy, sz),
+								k -> new ArrayList<>());
+						for (int j : earlier) {
+							if (overlaps(regions.get(j), region) && addEdge(successors, j, i)) {
+								waiting[i]++;
+							}
+						}
+						earlier.add(i);
+					}
+				}
+			}
+		}
+
+		PriorityQueue<Integer> ready = new PriorityQueue<>(
+				(a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(a, b));
+		for (int i = 0; i < n; i++) {
+			if (waiting[i] == 0) {
+				ready.add(i);
+			}
+		}
+		while (!ready.isEmpty()) {
+			int i = ready.poll();
+			output.add(segment.get(i));
+			if (successors.get(i) != null) {
+				for (int next : successors.get(i)) {
+					if (--waiting[next] == 0) {
+						ready.add(next);
+					}
+				}
+			}
+		}
+	}
+
+	// A box spanning several sections would otherwise meet the same earlier write more than once
+	private static boolean addEdge(List<List<Integer>> successors, int from, int to) {
+		List<Integer> next = successors.get(from);
+		if (next == null) {
+			next = new ArrayList<>();
+			successors.set(from, next);
+		} else if (next.get(next.size() - 1) == to) {
+			return false;
+		}
+		next.add(to);
+		return true;
+	}
+
+	private static boolean overlaps(int[] a, int[] b) {
+		return a[0] <= b[3] && b[0] <= a[3] && a[1] <= b[4] && b[1] <= a[4] && a[2] <= b[5] && b[2] <= a[5];
+	}
+
+	private static long sectionKey(int sx, int sy, int sz) {
+		return ((long) sx & 0x3FFFFFL) << 42 | ((long) sz & 0x3FFFFFL) << 20 | (long) sy & 0xFFFFFL;
+	}
+
+	// Position of (x, y) along a Hilbert curve filling a side x side square; side is a power of two
+	static long hilbert(int side, int x, int y) {
+		long d = 0;
+		for (int s = side / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * (3 * rx ^ ry);
+			// Rotate the quadrant so the curve stays continuous
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
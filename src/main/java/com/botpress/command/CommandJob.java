@@ -0,0 +1,93 @@
+package com.botpress.command;
+
+public final class CommandJob {
+	public enum Priority {
+		HIGH, NORMAL, LOW
+	}
+
+	public enum State {
+		QUEUED, RUNNING, PAUSED, DONE, CANCELLED
+	}
+
+	private final int id;
+	private final String description;
+	private final CommandSource source;
+	private final JobListener listener;
+	private final long submittedNanos = System.nanoTime();
+	private volatile Priority priority;
+	private volatile State state = State.QUEUED;
+	private volatile int sent;
+
+	CommandJob(int id, String description, Priority priority, CommandSource source, JobListener listener) {
+		this.id = id;
+		this.description = description;
+		this.priority = priority;
+		this.source = source;
+		this.listener = listener;
+	}
+
+	public int id() {
+		return id;
+	}
+
+	public String description() {
+		return description;
+	}
+
+	public Priority priority() {
+		return priority;
+	}
+
+	public State state() {
+		return state;
+	}
+
+	public int sent() {
+		return sent;
+	}
+
+	// Total commands, or -1 while a streamed job is still receiving batches
+	public int total() {
+		return source.size();
+	}
+
+	public boolean isFinished() {
+		return state == State.DONE || state == State.CANCELLED;
+	}
+
+	// System.nanoTime() when the job was queued
+	public long submittedNanos() {
+		return submittedNanos;
+	}
+
+	CommandSource source() {
+		return source;
+	}
+
+	JobListener listener() {
+		return listener;
+	}
+
+	void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
+	void setState(State state) {
+		this.state = state;
+	}
+
+	void markSent() {
+		sent++;
+	}
+
+	public interface JobListener {
+		JobListener NONE = new JobListener() {
+		};
+
+		default void onSent(CommandJob job) {
+		}
+
+		default void onFinished(CommandJob job) {
+		}
+	}
+}
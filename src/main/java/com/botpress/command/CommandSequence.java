@@ -0,0 +1,146 @@
+package com.botpress.command;
+
+import com.botpress.build.BatchCompactor;
+import com.botpress.build.BlockStateLookup;
+import com.botpress.build.CommandCompactor;
+import com.botpress.build.PlannedWorld;
+import com.botpress.build.VoxelModel;
+import com.botpress.metrics.Metrics;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// A worldedit sequence whose commands arrive in batches. Each batch is validated, compacted against
+// what the world and earlier batches already hold, and planned into the stream one job drains; the
+// listener submits that job once there is something to send. Nothing here needs a running client, so
+// the game (CommandExecutor) and the load test put replies through the same steps.
+public final class CommandSequence {
+	public interface Listener {
+		// The first commands are in the stream; the listener queues the job that drains it
+		void start(CommandStream stream, int firstBatchSize);
+
+		// A batch had invalid commands; offending is the first of them
+		default void rejected(CommandValidation.ValidatedCommand offending, int count) {
+		}
+
+		// Strict mode rejected a batch, so nothing after it goes out
+		default void cancelled() {
+		}
+
+		// The sequence had valid commands, but all of them were already in place
+		default void alreadyInPlace() {
+		}
+	}
+
+	private final boolean strictMode;
+	private final BlockStateLookup live;
+	// Carries what earlier batches wrote into the delta check of later ones
+	private final PlannedWorld world;
+	// Keeps the run a batch ends with open, so it can merge with the start of the next one
+	private final BatchCompactor compactor;
+	private final UnaryOperator<List<String>> planner;
+	private final Metrics metrics;
+	private final Listener listener;
+	private final CommandStream stream = new CommandStream();
+	private boolean started;
+	private boolean hadWork;
+
+	// Live may be null when the target blocks can't be read; every write then goes out
+	public CommandSequence(boolean strictMode, BlockStateLookup live, UnaryOperator<List<String>> planner,
+			Metrics metrics, Listener listener) {
+		this.strictMode = strictMode;
+		this.live = live;
+		this.world = live == null ? null : new PlannedWorld(live);
+		this.compactor = new BatchCompactor(world);
+		this.planner = planner;
+		this.metrics = metrics;
+		this.listener = listener;
+	}
+
+	public synchronized void append(List<String> commands) {
+		if (stream.isClosed()) {
+			return;
+		}
+
+		long validating = metrics.start();
+		CommandValidation.SequenceValidationResult validation = CommandValidation.validateSequence(commands,
+				strictMode);
+		metrics.stop(Metrics.Stage.VALIDATE, validating);
+		List<CommandValidation.ValidatedCommand> invalid = validation.invalidCommands();
+		metrics.add(Metrics.Counter.COMMANDS_REJECTED, invalid.size());
+		if (!invalid.isEmpty()) {
+			listener.rejected(invalid.get(0), invalid.size());
+			if (strictMode) {
+				// Batches already sent can't be recalled, but nothing after the rejection goes out
+				stream.cancel();
+				listener.cancelled();
+				return;
+			}
+		}
+
+		long compacting = metrics.start();
+		List<String> compacted = compactor.append(
+				validation.validCommands().stream().map(CommandValidation.ValidatedCommand::normalized).toList());
+		metrics.stop(Metrics.Stage.COMPILE, compacting);
+		hadWork |= !validation.validCommands().isEmpty();
+		schedule(compacted);
+	}
+
+	// Appends blocks decoded from a voxel payload. They only become setblock/fill commands, so they
+	// skip command validation; the block ids must already be checked, as VoxelPayload does.
+	public synchronized void append(VoxelModel blocks) {
+		compile(blocks, world);
+	}
+
+	// For batches that never overlap each other, such as schematic slabs. They are still checked
+	// against the live world, but not remembered for later batches, so memory doesn't grow with
+	// the size of the build.
+	public synchronized void appendDisjoint(VoxelModel blocks) {
+		compile(blocks, live == null ? null : new PlannedWorld(live));
+	}
+
+	// Queues whatever run is still open and closes the stream once it has been sent
+	public synchronized void finish() {
+		if (!stream.isClosed()) {
+			long compacting = metrics.start();
+			List<String> rest = compactor.finish();
+			metrics.stop(Metrics.Stage.COMPILE, compacting);
+			schedule(rest);
+			if (!started && hadWork) {
+				listener.alreadyInPlace();
+			}
+		}
+		stream.close();
+	}
+
+	// False once the sequence was finished or its job cancelled
+	public boolean isOpen() {
+		return !stream.isClosed();
+	}
+
+	public int backlog() {
+		return stream.backlog();
+	}
+
+	private void compile(VoxelModel blocks, PlannedWorld against) {
+		if (stream.isClosed()) {
+			return;
+		}
+		long compiling = metrics.start();
+		List<String> commands = CommandCompactor.compile(blocks, against);
+		metrics.stop(Metrics.Stage.COMPILE, compiling);
+		hadWork |= !blocks.isEmpty();
+		schedule(commands);
+	}
+
+	private void schedule(List<String> commands) {
+		if (commands.isEmpty()) {
+			return;
+		}
+		stream.append(planner.apply(commands));
+		if (!started) {
+			started = true;
+			listener.start(stream, commands.size());
+		}
+	}
+}
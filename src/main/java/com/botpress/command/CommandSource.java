@@ -0,0 +1,48 @@
+package com.botpress.command;
+
+import java.util.Iterator;
+
+// Lazily yields the commands of a job. poll() returns null when nothing is ready yet; the job is
+// finished once the source reports it is exhausted.
+public interface CommandSource {
+	String poll();
+
+	boolean isExhausted();
+
+	// Total number of commands, or -1 while it isn't known yet
+	int size();
+
+	void cancel();
+
+	// True when the last poll came back empty only because the commands left wait on something other
+	// than the source itself, such as unloaded chunks. The job queue lets other jobs go meanwhile.
+	default boolean isHeldBack() {
+		return false;
+	}
+
+	static CommandSource of(Iterator<String> commands, int size) {
+		return new CommandSource() {
+			private boolean cancelled;
+
+			@Override
+			public String poll() {
+				return !cancelled && commands.hasNext() ? commands.next() : null;
+			}
+
+			@Override
+			public boolean isExhausted() {
+				return cancelled || !commands.hasNext();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+			}
+		};
+	}
+}
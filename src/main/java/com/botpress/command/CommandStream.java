@@ -0,0 +1,73 @@
+package com.botpress.command;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Commands that may still be arriving from the bridge. Producers append batches and close the
+// stream once the last batch is in; the dispatcher drains it concurrently.
+public final class CommandStream implements CommandSource {
+	private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger appended = new AtomicInteger();
+	private final AtomicInteger polled = new AtomicInteger();
+	private volatile boolean closed;
+
+	public static CommandStream of(List<String> commands) {
+		CommandStream stream = new CommandStream();
+		stream.append(commands);
+		stream.close();
+		return stream;
+	}
+
+	// Batches arriving after the stream was closed or cancelled are dropped.
+	public void append(List<String> commands) {
+		if (closed) {
+			return;
+		}
+		pending.addAll(commands);
+		appended.addAndGet(commands.size());
+	}
+
+	public void close() {
+		closed = true;
+	}
+
+	// Closes the stream and drops everything not yet dispatched.
+	@Override
+	public void cancel() {
+		closed = true;
+		pending.clear();
+	}
+
+	@Override
+	public String poll() {
+		String command = pending.poll();
+		if (command != null) {
+			polled.incrementAndGet();
+		}
+		return command;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public boolean isExhausted() {
+		return closed && pending.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return closed ? appended.get() : -1;
+	}
+
+	public int appendedCount() {
+		return appended.get();
+	}
+
+	// Commands appended but not yet dispatched; producers that can outrun dispatch wait on this.
+	public int backlog() {
+		return isExhausted() ? 0 : appended.get() - polled.get();
+	}
+}
@@ -7,24 +7,46 @@ public final class CommandValidation {
 	private CommandValidation() {
 	}
 
+	// Single pass over the raw string: trims and finds the base command by offset, then walks the
+	// generated whitelist trie over that range. Nothing but the result record is allocated.
 	public static ValidatedCommand validate(String command) {
-		String normalized = normalize(command);
-		if (normalized.isEmpty()) {
-			return new ValidatedCommand(command, normalized, "<empty>", false,
-					"Command not allowed: /<empty> (empty command)");
+		if (command == null) {
+			return new ValidatedCommand("", 0, 0, 0, 0, false);
 		}
 
-		String baseCommand = extractBaseCommand(normalized);
-		if (!GeneratedCommandWhitelist.WHITELISTED_COMMANDS.contains(baseCommand)) {
-			return new ValidatedCommand(command, normalized, baseCommand, false,
-					"Command not allowed: /" + baseCommand);
+		int start = 0;
+		int end = command.length();
+		while (start < end && command.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && command.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return new ValidatedCommand(command, start, end, start, end, false);
+		}
+
+		// "//set" keeps both slashes in its base command, "/time" drops its single slash
+		int baseStart = start;
+		int nameStart = start;
+		if (command.startsWith("//", start)) {
+			nameStart = start + 2;
+		} else if (command.charAt(start) == '/') {
+			baseStart = start + 1;
+			nameStart = baseStart;
 		}
 
-		return new ValidatedCommand(command, normalized, baseCommand, true, null);
+		int baseEnd = nameStart;
+		while (baseEnd < end && command.charAt(baseEnd) > ' ') {
+			baseEnd++;
+		}
+
+		boolean valid = GeneratedCommandWhitelist.matches(command, baseStart, baseEnd);
+		return new ValidatedCommand(command, start, end, baseStart, baseEnd, valid);
 	}
 
 	public static SequenceValidationResult validateSequence(List<String> commands, boolean strictMode) {
-		List<ValidatedCommand> validCommands = new ArrayList<>();
+		List<ValidatedCommand> validCommands = new ArrayList<>(commands.size());
 		List<ValidatedCommand> invalidCommands = new ArrayList<>();
 
 		for (String command : commands) {
@@ -43,25 +65,26 @@ public final class CommandValidation {
 		return new SequenceValidationResult(validCommands, invalidCommands, strictMode, shouldAbort);
 	}
 
-	private static String normalize(String command) {
-		return command == null ? "" : command.trim();
-	}
-
-	private static String extractBaseCommand(String normalized) {
-		if (normalized.startsWith("//")) {
-			String[] parts = normalized.substring(2).split("\\s+");
-			return "//" + parts[0];
+	// Offsets into raw: [start, end) is the trimmed command and [baseStart, baseEnd) its base command.
+	// Substrings are only cut when a caller asks for them.
+	public record ValidatedCommand(String raw, int start, int end, int baseStart, int baseEnd, boolean valid) {
+		public String normalized() {
+			return raw.substring(start, end);
 		}
 
-		if (normalized.startsWith("/")) {
-			normalized = normalized.substring(1);
+		public String baseCommand() {
+			return start == end ? "<empty>" : raw.substring(baseStart, baseEnd);
 		}
 
-		return normalized.split("\\s+")[0];
-	}
-
-	public record ValidatedCommand(String raw, String normalized, String baseCommand, boolean valid,
-			String errorMessage) {
+		public String errorMessage() {
+			if (valid) {
+				return null;
+			}
+			if (start == end) {
+				return "Command not allowed: /<empty> (empty command)";
+			}
+			return "Command not allowed: /" + baseCommand();
+		}
 	}
 
 	public record SequenceValidationResult(List<ValidatedCommand> validCommands, List<ValidatedCommand> invalidCommands,
@@ -0,0 +1,184 @@
+package com.botpress.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// Holds every pending command job and hands out one command at a time. Only the first unpaused job
+// in priority order (FIFO within a priority) is drained, so concurrent jobs never interleave; a
+// higher-priority job takes over between two commands of a lower one. The exception is a job whose
+// remaining commands are held back (CommandSource.isHeldBack): later jobs go while it waits.
+//
+// A job whose commands were handed to the server stays RUNNING after its last one is sent, until the
+// unsettled test says the server has none of them left; later jobs go in the meantime.
+public final class JobQueue {
+	private final List<CommandJob> jobs = new ArrayList<>();
+	private int nextId = 1;
+	private IntPredicate unsettled = id -> false;
+
+	// Tells whether the server still has commands of the job with the given id to run. Only poll()
+	// asks it, so it runs on the polling thread.
+	public synchronized void setUnsettled(IntPredicate unsettled) {
+		this.unsettled = unsettled;
+	}
+
+	public synchronized CommandJob submit(String description, CommandJob.Priority priority, CommandSource source,
+			CommandJob.JobListener listener) {
+		CommandJob job = new CommandJob(nextId++, description, priority, source, listener);
+		jobs.add(job);
+		return job;
+	}
+
+	// Returns the next command to send, or null when no job has one ready.
+	// Listener callbacks run on the calling thread.
+	public synchronized Dispatch poll() {
+		List<CommandJob> waiting = null;
+		while (true) {
+			CommandJob job = head(waiting);
+			if (job == null) {
+				return null;
+			}
+
+			String command = job.source().poll();
+			if (command != null) {
+				job.setState(CommandJob.State.RUNNING);
+				job.markSent();
+				return new Dispatch(job, command);
+			}
+			if (!job.source().isExhausted()) {
+				if (job.source().isHeldBack()) {
+					// Waiting on chunks that haven't loaded, which may take a while
+					if (waiting == null) {
+						waiting = new ArrayList<>();
+					}
+					waiting.add(job);
+					continue;
+				}
+				// A streamed job is waiting for its next batch; don't let later jobs jump in
+				return null;
+			}
+			if (unsettled.test(job.id())) {
+				if (waiting == null) {
+					waiting = new ArrayList<>();
+				}
+				waiting.add(job);
+				continue;
+			}
+			finish(job, CommandJob.State.DONE);
+		}
+	}
+
+	public synchronized boolean pause(int id) {
+		CommandJob job = find(id);
+		if (job == null || job.state() == CommandJob.State.PAUSED) {
+			return false;
+		}
+		job.setState(CommandJob.State.PAUSED);
+		return true;
+	}
+
+	public synchronized boolean resume(int id) {
+		CommandJob job = find(id);
+		if (job == null || job.state() != CommandJob.State.PAUSED) {
+			return false;
+		}
+		job.setState(job.sent() > 0 ? CommandJob.State.RUNNING : CommandJob.State.QUEUED);
+		return true;
+	}
+
+	public synchronized int pauseAll() {
+		int paused = 0;
+		for (CommandJob job : jobs) {
+			if (pause(job.id())) {
+				paused++;
+			}
+		}
+		return paused;
+	}
+
+	public synchronized int resumeAll() {
+		int resumed = 0;
+		for (CommandJob job : jobs) {
+			if (resume(job.id())) {
+				resumed++;
+			}
+		}
+		return resumed;
+	}
+
+	public synchronized boolean cancel(int id) {
+		CommandJob job = find(id);
+		if (job == null) {
+			return false;
+		}
+		job.source().cancel();
+		finish(job, CommandJob.State.CANCELLED);
+		return true;
+	}
+
+	public synchronized int cancelAll() {
+		List<CommandJob> cancelled = new ArrayList<>(jobs);
+		for (CommandJob job : cancelled) {
+			job.source().cancel();
+			finish(job, CommandJob.State.CANCELLED);
+		}
+		return cancelled.size();
+	}
+
+	public synchronized boolean setPriority(int id, CommandJob.Priority priority) {
+		CommandJob job = find(id);
+		if (job == null) {
+			return false;
+		}
+		job.setPriority(priority);
+		return true;
+	}
+
+	public synchronized List<CommandJob> jobs() {
+		return List.copyOf(jobs);
+	}
+
+	// Commands left in jobs whose total is known; a streamed job counts once its last batch is in.
+	public synchronized int remaining() {
+		int remaining = 0;
+		for (CommandJob job : jobs) {
+			remaining += Math.max(0, job.total() - job.sent());
+		}
+		return remaining;
+	}
+
+	public synchronized boolean isEmpty() {
+		return jobs.isEmpty();
+	}
+
+	private CommandJob head(List<CommandJob> skipped) {
+		CommandJob best = null;
+		for (CommandJob job : jobs) {
+			if (job.state() == CommandJob.State.PAUSED || skipped != null && skipped.contains(job)) {
+				continue;
+			}
+			if (best == null || job.priority().ordinal() < best.priority().ordinal()) {
+				best = job;
+			}
+		}
+		return best;
+	}
+
+	private CommandJob find(int id) {
+		for (CommandJob job : jobs) {
+			if (job.id() == id) {
+				return job;
+			}
+		}
+		return null;
+	}
+
+	private void finish(CommandJob job, CommandJob.State state) {
+		jobs.remove(job);
+		job.setState(state);
+		job.listener().onFinished(job);
+	}
+
+	public record Dispatch(CommandJob job, String command) {
+	}
+}
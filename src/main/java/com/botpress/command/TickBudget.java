@@ -0,0 +1,60 @@
+package com.botpress.command;
+
+import java.util.function.LongSupplier;
+
+// Decides how many commands go out in one client tick. A token bucket refilled at the pacer's rate
+// spreads commands evenly over ticks, holding at most one tick's worth plus one so an idle queue
+// doesn't release a burst. Each tick is further capped by a packet count and a time budget, so a
+// slow tick never stalls rendering to catch up.
+public final class TickBudget {
+	private final int maxPerTick;
+	private final long maxNanosPerTick;
+	private final LongSupplier nanoClock;
+
+	private double tokens = 1;
+	private long lastRefill = -1;
+	private long tickStart;
+	private int takenThisTick;
+
+	public TickBudget(int maxPerTick, long maxNanosPerTick) {
+		this(maxPerTick, maxNanosPerTick, System::nanoTime);
+	}
+
+	public TickBudget(int maxPerTick, long maxNanosPerTick, LongSupplier nanoClock) {
+		this.maxPerTick = Math.max(1, maxPerTick);
+		this.maxNanosPerTick = Math.max(0, maxNanosPerTick);
+		this.nanoClock = nanoClock;
+	}
+
+	// Starts a tick, adding tokens for the time since the last one at one command per delayMs.
+	public void beginTick(long delayMs, long tickMillis) {
+		long now = nanoClock.getAsLong();
+		double perMs = 1.0 / Math.max(1, delayMs);
+		if (lastRefill >= 0) {
+			double cap = tickMillis * perMs + 1;
+			tokens = Math.min(cap, tokens + (now - lastRefill) / 1_000_000.0 * perMs);
+		}
+		lastRefill = now;
+		tickStart = now;
+		takenThisTick = 0;
+	}
+
+	// Whether another command fits in this tick; take() spends it once a command was actually sent.
+	public boolean canTake() {
+		if (tokens < 1 || takenThisTick >= maxPerTick) {
+			return false;
+		}
+		// The first command always goes, however slow the tick, so dispatch never stalls
+		return takenThisTick == 0 || nanoClock.getAsLong() - tickStart < maxNanosPerTick;
+	}
+
+	public void take() {
+		tokens--;
+		takenThisTick++;
+	}
+
+	// Drops unspent tokens, e.g. when the queue ran dry, so the next job starts at the paced rate.
+	public void idle() {
+		tokens = Math.min(tokens, 1);
+	}
+}
@@ -0,0 +1,276 @@
+package com.botpress.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Settings read from config/minebot.json. Missing keys keep their defaults, and a missing
+// file is created with every default filled in so players can see what is tunable.
+public final class MineBotConfig {
+	public static final String FILE_NAME = "minebot.json";
+
+	private static final String DEFAULT_BRIDGE = "http://localhost:3000";
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	private boolean cacheEnabled = true;
+	private int cacheMaxEntries = 256;
+	private long cacheTtlMinutes = 60;
+	private int cacheBucketSize = 16;
+	private boolean cachePersist = true;
+	private boolean intentsEnabled = true;
+	private boolean binaryPayloads = true;
+	private List<String> bridgeEndpoints = new ArrayList<>(List.of(DEFAULT_BRIDGE));
+	private boolean bridgeHedging = false;
+	private double bridgeHedgePercentile = 0.95;
+	private int bridgeConnectTimeoutMillis = 2000;
+	private int bridgeFailureThreshold = 2;
+	private int bridgeProbeMillis = 1000;
+	private int bridgeMaxProbeMillis = 30000;
+	private int bridgeRetries = 3;
+	private int bridgeRetryMillis = 250;
+	private boolean deltaBuilds = true;
+	private boolean undoEnabled = true;
+	private int undoMaxSnapshots = 16;
+	private int undoMaxMegabytes = 64;
+	private int dispatchMaxPerTick = 16;
+	private int dispatchTickBudgetMicros = 2000;
+	private boolean dispatchChunkOrder = true;
+	private boolean dispatchDeferUnloaded = true;
+	private int dispatchDeferMaxMillis = 30000;
+	private boolean serverJobs = true;
+	private int serverJobWindow = 2048;
+	private int serverCommandsPerTick = 256;
+	private int serverTickBudgetMicros = 10000;
+	private double serverTargetMspt = 40;
+	private int serverMinBlocksPerTick = 4096;
+	private int serverMaxBlocksPerTick = 1048576;
+	private Map<String, Integer> serverPlayerWeights = new HashMap<>();
+	private int serverMaxQueuedCommands = 200000;
+	private boolean serverDirectWrites = true;
+	private boolean metricsEnabled = true;
+	private boolean metricsHud = false;
+	private String metricsExport = "csv";
+	private int metricsExportSeconds = 10;
+	private int metricsMaxFileKb = 1024;
+	private int metricsMaxFiles = 4;
+
+	public static MineBotConfig load(Path file) throws IOException {
+		if (Files.notExists(file)) {
+			MineBotConfig defaults = new MineBotConfig();
+			defaults.save(file);
+			return defaults;
+		}
+
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			MineBotConfig config = GSON.fromJson(reader, MineBotConfig.class);
+			return config == null ? new MineBotConfig() : config;
+		}
+	}
+
+	public void save(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			GSON.toJson(this, writer);
+		}
+	}
+
+	public boolean cacheEnabled() {
+		return cacheEnabled;
+	}
+
+	public int cacheMaxEntries() {
+		return cacheMaxEntries;
+	}
+
+	public long cacheTtlMinutes() {
+		return cacheTtlMinutes;
+	}
+
+	// Edge length in blocks of the position buckets used for replies that can't be moved
+	public int cacheBucketSize() {
+		return cacheBucketSize;
+	}
+
+	public boolean cachePersist() {
+		return cachePersist;
+	}
+
+	public boolean intentsEnabled() {
+		return intentsEnabled;
+	}
+
+	// Ask the bridge for large block grids as binary voxel payloads instead of command lists
+	public boolean binaryPayloads() {
+		return binaryPayloads;
+	}
+
+	// Base URLs of the bridge processes requests are spread over
+	public List<String> bridgeEndpoints() {
+		return bridgeEndpoints == null || bridgeEndpoints.isEmpty() ? List.of(DEFAULT_BRIDGE) : bridgeEndpoints;
+	}
+
+	// Resend a chat request to another endpoint once it takes longer than this share of earlier ones
+	public boolean bridgeHedging() {
+		return bridgeHedging;
+	}
+
+	public double bridgeHedgePercentile() {
+		return bridgeHedgePercentile;
+	}
+
+	public int bridgeConnectTimeoutMillis() {
+		return bridgeConnectTimeoutMillis;
+	}
+
+	// Failed requests in a row before requests fail at once until /health answers
+	public int bridgeFailureThreshold() {
+		return bridgeFailureThreshold;
+	}
+
+	// First /health probe delay after the bridge went away; later probes back off up to the maximum
+	public int bridgeProbeMillis() {
+		return bridgeProbeMillis;
+	}
+
+	public int bridgeMaxProbeMillis() {
+		return bridgeMaxProbeMillis;
+	}
+
+	// Attempts in total for requests that are safe to repeat, such as a reset
+	public int bridgeRetries() {
+		return bridgeRetries;
+	}
+
+	public int bridgeRetryMillis() {
+		return bridgeRetryMillis;
+	}
+
+	// Skip blocks the loaded world already holds when building
+	public boolean deltaBuilds() {
+		return deltaBuilds;
+	}
+
+	public boolean undoEnabled() {
+		return undoEnabled;
+	}
+
+	public int undoMaxSnapshots() {
+		return undoMaxSnapshots;
+	}
+
+	// Disk space the undo history may take before its oldest snapshots are dropped
+	public int undoMaxMegabytes() {
+		return undoMaxMegabytes;
+	}
+
+	// Most commands sent in one client tick, whatever the pacer allows
+	public int dispatchMaxPerTick() {
+		return dispatchMaxPerTick;
+	}
+
+	// Time one tick may spend sending commands before the rest wait for the next tick
+	public int dispatchTickBudgetMicros() {
+		return dispatchTickBudgetMicros;
+	}
+
+	// Send each batch of block writes chunk by chunk instead of in the order they were produced
+	public boolean dispatchChunkOrder() {
+		return dispatchChunkOrder;
+	}
+
+	// Hold back writes to chunks the client hasn't loaded until they load
+	public boolean dispatchDeferUnloaded() {
+		return dispatchDeferUnloaded;
+	}
+
+	// Longest a write waits for its chunk before it is sent anyway
+	public int dispatchDeferMaxMillis() {
+		return dispatchDeferMaxMillis;
+	}
+
+	// Hand jobs to the server as payloads when it runs the mod too, instead of sending chat commands
+	public boolean serverJobs() {
+		return serverJobs;
+	}
+
+	// Commands the client lets the server fall behind by before it stops sending
+	public int serverJobWindow() {
+		return serverJobWindow;
+	}
+
+	// Server side: most job commands run per tick, across all players
+	public int serverCommandsPerTick() {
+		return serverCommandsPerTick;
+	}
+
+	// Server side: time one tick may spend running job commands
+	public int serverTickBudgetMicros() {
+		return serverTickBudgetMicros;
+	}
+
+	// Server side: tick time the job budget steers towards, below vanilla's 50 ms
+	public double serverTargetMspt() {
+		return serverTargetMspt;
+	}
+
+	// Server side: range the blocks-per-tick budget moves within, shared by all players
+	public int serverMinBlocksPerTick() {
+		return serverMinBlocksPerTick;
+	}
+
+	public int serverMaxBlocksPerTick() {
+		return serverMaxBlocksPerTick;
+	}
+
+	// Server side: budget share by player name, relative to the default of 1
+	public Map<String, Integer> serverPlayerWeights() {
+		return serverPlayerWeights == null ? Map.of() : serverPlayerWeights;
+	}
+
+	// Server side: commands one player may have waiting
+	public int serverMaxQueuedCommands() {
+		return serverMaxQueuedCommands;
+	}
+
+	// Server side: write plain fill/setblock commands straight into chunk sections
+	public boolean serverDirectWrites() {
+		return serverDirectWrites;
+	}
+
+	public boolean metricsEnabled() {
+		return metricsEnabled;
+	}
+
+	// Whether the metrics overlay starts visible; "!ai hud" toggles it in game
+	public boolean metricsHud() {
+		return metricsHud;
+	}
+
+	// "csv", "json" or "off"
+	public String metricsExport() {
+		return metricsExport;
+	}
+
+	public int metricsExportSeconds() {
+		return metricsExportSeconds;
+	}
+
+	// Size at which the metrics file is rolled over
+	public int metricsMaxFileKb() {
+		return metricsMaxFileKb;
+	}
+
+	public int metricsMaxFiles() {
+		return metricsMaxFiles;
+	}
+}
@@ -0,0 +1,97 @@
+package com.botpress.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram of durations in microseconds. Buckets are log-linear: every power of two is
+// split into SUB_BUCKETS equal steps, so a percentile is reported within 1/SUB_BUCKETS of the true
+// value while the whole range up to hours takes a few hundred counters. Recording is one atomic
+// increment per bucket plus a LongAdder for the sum, so any thread can record without blocking.
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sumMicros = new LongAdder();
+
+	public void record(long duration, TimeUnit unit) {
+		long micros = Math.max(0, unit.toMicros(duration));
+		counts.incrementAndGet(bucket(micros));
+		sumMicros.add(micros);
+	}
+
+	// Counts read while other threads record may be off by the few values recorded meanwhile.
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new Snapshot(copy, sumMicros.sum());
+	}
+
+	static int bucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	// Largest value that lands in the bucket
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	public record Snapshot(long[] counts, long sumMicros) {
+		public long count() {
+			long total = 0;
+			for (long count : counts) {
+				total += count;
+			}
+			return total;
+		}
+
+		public double meanMillis() {
+			long count = count();
+			return count == 0 ? 0 : sumMicros / 1000.0 / count;
+		}
+
+		// Upper bound of the bucket holding the given quantile (0 to 1), or 0 when nothing was recorded
+		public double percentileMillis(double quantile) {
+			long count = count();
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return upperBound(i) / 1000.0;
+				}
+			}
+			return upperBound(counts.length - 1) / 1000.0;
+		}
+
+		public double maxMillis() {
+			return percentileMillis(1);
+		}
+
+		// What was recorded between an earlier snapshot of the same histogram and this one.
+		public Snapshot since(Snapshot earlier) {
+			long[] delta = new long[counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				delta[i] = counts[i] - earlier.counts[i];
+			}
+			return new Snapshot(delta, sumMicros - earlier.sumMicros);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.botpress.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+// Timings for each stage a request passes through, from the chat message to the commands going out,
+// plus running counters. Everything is recorded lock-free from whichever thread does the work; when
+// metrics are off, start() returns 0 and nothing is recorded.
+public final class Metrics {
+	public enum Stage {
+		// Waiting behind the player's earlier requests
+		QUEUE("queue"),
+		// HTTP exchange with the bridge up to the response headers
+		BRIDGE("bridge"),
+		// Reading and decoding the reply body
+		PARSE("parse"),
+		VALIDATE("validate"),
+		// Compacting or compiling commands and block models
+		COMPILE("compile"),
+		// From a job being queued to its first command going out
+		JOB_WAIT("job wait"),
+		// From the chat message to its reply being handled
+		REPLY("reply");
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+
+		public String label() {
+			return label;
+		}
+	}
+
+	public enum Counter {
+		REQUESTS, CACHE_HITS, BRIDGE_ERRORS, BRIDGE_FAST_FAILS, COMMANDS_SENT, COMMANDS_REJECTED, COMMANDS_DEFERRED
+	}
+
+	private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+	private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+	private volatile boolean enabled = true;
+	private volatile IntSupplier queueDepth = () -> 0;
+
+	public Metrics() {
+		for (Stage stage : Stage.values()) {
+			stages.put(stage, new LatencyHistogram());
+		}
+		for (Counter counter : Counter.values()) {
+			counters.put(counter, new LongAdder());
+		}
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean enabled() {
+		return enabled;
+	}
+
+	// Commands waiting in the job queue, sampled with each snapshot
+	public void setQueueDepth(IntSupplier queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	// Records the time since a start() value; a 0 start means metrics were off when it was taken.
+	public void stop(Stage stage, long startNanos) {
+		if (enabled && startNanos != 0) {
+			record(stage, System.nanoTime() - startNanos);
+		}
+	}
+
+	public void record(Stage stage, long nanos) {
+		if (enabled) {
+			stages.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public void increment(Counter counter) {
+		add(counter, 1);
+	}
+
+	public void add(Counter counter, long amount) {
+		if (enabled) {
+			counters.get(counter).add(amount);
+		}
+	}
+
+	public Snapshot snapshot(long timeMillis) {
+		Map<Stage, LatencyHistogram.Snapshot> stageSnapshots = new EnumMap<>(Stage.class);
+		stages.forEach((stage, histogram) -> stageSnapshots.put(stage, histogram.snapshot()));
+		Map<Counter, Long> counterValues = new EnumMap<>(Counter.class);
+		counters.forEach((counter, adder) -> counterValues.put(counter, adder.sum()));
+		return new Snapshot(timeMillis, stageSnapshots, counterValues, queueDepth.getAsInt());
+	}
+
+	// Totals since startup, or over an interval once since() has been applied.
+	public record Snapshot(long timeMillis, Map<Stage, LatencyHistogram.Snapshot> stages, Map<Counter, Long> counters,
+			int queueDepth) {
+		public LatencyHistogram.Snapshot stage(Stage stage) {
+			return stages.get(stage);
+		}
+
+		public long count(Counter counter) {
+			return counters.get(counter);
+		}
+
+		// What happened between an earlier snapshot and this one; the queue depth stays the latest.
+		public Snapshot since(Snapshot earlier) {
+			Map<Stage, LatencyHistogram.Snapshot> stageDeltas = new EnumMap<>(Stage.class);
+			stages.forEach((stage, histogram) -> stageDeltas.put(stage, histogram.since(earlier.stage(stage))));
+			Map<Counter, Long> counterDeltas = new EnumMap<>(Counter.class);
+			counters.forEach((counter, value) -> counterDeltas.put(counter, value - earlier.count(counter)));
+			return new Snapshot(timeMillis, stageDeltas, counterDeltas, queueDepth);
+		}
+
+		public double ratePerSecond(Counter counter, Snapshot earlier) {
+			long millis = timeMillis - earlier.timeMillis();
+			return millis <= 0 ? 0 : (count(counter) - earlier.count(counter)) * 1000.0 / millis;
+		}
+	}
+}
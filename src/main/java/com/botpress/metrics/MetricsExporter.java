@@ -0,0 +1,148 @@
+package com.botpress.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Appends one row per export interval to config/minebot-metrics/metrics.csv (or metrics.jsonl, one
+// JSON object per line). Once the file passes maxBytes it is rolled to metrics.1.csv, pushing older
+// files up by one, and only maxFiles files are kept in total.
+public final class MetricsExporter {
+	public static final String DIRECTORY_NAME = "minebot-metrics";
+
+	public enum Format {
+		CSV("csv"), JSON("jsonl");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+	}
+
+	private final Path directory;
+	private final Format format;
+	private final long maxBytes;
+	private final int maxFiles;
+
+	public MetricsExporter(Path directory, Format format, long maxBytes, int maxFiles) {
+		this.directory = directory;
+		this.format = format;
+		this.maxBytes = maxBytes;
+		this.maxFiles = Math.max(1, maxFiles);
+	}
+
+	// Writes what happened between the two snapshots.
+	public void write(Metrics.Snapshot current, Metrics.Snapshot previous) throws IOException {
+		Files.createDirectories(directory);
+		Path file = file(0);
+		if (Files.exists(file) && Files.size(file) >= maxBytes) {
+			roll();
+		}
+
+		boolean fresh = Files.notExists(file) || Files.size(file) == 0;
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			if (format == Format.CSV) {
+				if (fresh) {
+					writer.write(String.join(",", header()) + "\n");
+				}
+				writer.write(String.join(",", row(current, previous)) + "\n");
+			} else {
+				writer.write(json(current, previous) + "\n");
+			}
+		}
+	}
+
+	Path file(int generation) {
+		String suffix = generation == 0 ? "" : "." + generation;
+		return directory.resolve("metrics" + suffix + "." + format.extension);
+	}
+
+	private void roll() throws IOException {
+		Files.deleteIfExists(file(maxFiles - 1));
+		for (int generation = maxFiles - 2; generation >= 0; generation--) {
+			if (Files.exists(file(generation))) {
+				Files.move(file(generation), file(generation + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	static List<String> header() {
+		List<String> columns = new ArrayList<>(List.of("time", "seconds"));
+		for (Metrics.Counter counter : Metrics.Counter.values()) {
+			columns.add(name(counter));
+		}
+		columns.add("commands_per_second");
+		columns.add("queue_depth");
+		for (Metrics.Stage stage : Metrics.Stage.values()) {
+			String prefix = name(stage);
+			columns.addAll(List.of(prefix + "_count", prefix + "_mean_ms", prefix + "_p50_ms", prefix + "_p99_ms",
+					prefix + "_max_ms"));
+		}
+		return columns;
+	}
+
+	static List<String> row(Metrics.Snapshot current, Metrics.Snapshot previous) {
+		Metrics.Snapshot interval = current.since(previous);
+		List<String> values = new ArrayList<>();
+		values.add(Instant.ofEpochMilli(current.timeMillis()).toString());
+		values.add(decimal((current.timeMillis() - previous.timeMillis()) / 1000.0));
+		for (Metrics.Counter counter : Metrics.Counter.values()) {
+			values.add(String.valueOf(interval.count(counter)));
+		}
+		values.add(decimal(current.ratePerSecond(Metrics.Counter.COMMANDS_SENT, previous)));
+		values.add(String.valueOf(current.queueDepth()));
+		for (Metrics.Stage stage : Metrics.Stage.values()) {
+			LatencyHistogram.Snapshot timings = interval.stage(stage);
+			values.addAll(List.of(String.valueOf(timings.count()), decimal(timings.meanMillis()),
+					decimal(timings.percentileMillis(0.5)), decimal(timings.percentileMillis(0.99)),
+					decimal(timings.maxMillis())));
+		}
+		return values;
+	}
+
+	static JsonObject json(Metrics.Snapshot current, Metrics.Snapshot previous) {
+		Metrics.Snapshot interval = current.since(previous);
+		JsonObject json = new JsonObject();
+		json.addProperty("time", Instant.ofEpochMilli(current.timeMillis()).toString());
+		json.addProperty("seconds", (current.timeMillis() - previous.timeMillis()) / 1000.0);
+		for (Metrics.Counter counter : Metrics.Counter.values()) {
+			json.addProperty(name(counter), interval.count(counter));
+		}
+		json.addProperty("commands_per_second", current.ratePerSecond(Metrics.Counter.COMMANDS_SENT, previous));
+		json.addProperty("queue_depth", current.queueDepth());
+
+		JsonObject stages = new JsonObject();
+		for (Metrics.Stage stage : Metrics.Stage.values()) {
+			LatencyHistogram.Snapshot timings = interval.stage(stage);
+			JsonObject entry = new JsonObject();
+			entry.addProperty("count", timings.count());
+			entry.addProperty("mean_ms", timings.meanMillis());
+			entry.addProperty("p50_ms", timings.percentileMillis(0.5));
+			entry.addProperty("p99_ms", timings.percentileMillis(0.99));
+			entry.addProperty("max_ms", timings.maxMillis());
+			stages.add(name(stage), entry);
+		}
+		json.add("stages", stages);
+		return json;
+	}
+
+	private static String name(Enum<?> value) {
+		return value.name().toLowerCase(Locale.ROOT);
+	}
+
+	private static String decimal(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
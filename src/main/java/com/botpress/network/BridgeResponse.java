@@ -0,0 +1,133 @@
+package com.botpress.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Responses from bridge-server. In NDJSON mode a "worldedit" line with stream=true is followed by
+// any number of "commands" lines and a closing "end" line.
+public sealed interface BridgeResponse {
+	record Chat(String text) implements BridgeResponse {
+	}
+
+	record Command(String command) implements BridgeResponse {
+	}
+
+	record Build(String structure, int width, int height, int depth, String material) implements BridgeResponse {
+	}
+
+	record WorldEdit(String description, List<String> commands, boolean strictMode,
+			boolean stream) implements BridgeResponse {
+	}
+
+	record Commands(List<String> commands) implements BridgeResponse {
+	}
+
+	record End() implements BridgeResponse {
+	}
+
+	record Error(String text) implements BridgeResponse {
+	}
+
+	static BridgeResponse fromJson(JsonObject json) {
+		String type = json.get("type").getAsString();
+		return switch (type) {
+			case "chat" -> new Chat(json.get("text").getAsString());
+			case "command" -> new Command(json.get("command").getAsString());
+			case "build" -> new Build(json.get("structure").getAsString(), json.get("width").getAsInt(),
+					json.get("height").getAsInt(), json.get("depth").getAsInt(), json.get("material").getAsString());
+			case "worldedit" -> new WorldEdit(json.get("description").getAsString(),
+					readCommands(json.getAsJsonArray("commands")), getBoolean(json, "strictMode"),
+					getBoolean(json, "stream"));
+			case "commands" -> new Commands(readCommands(json.getAsJsonArray("commands")));
+			case "end" -> new End();
+			case "error" -> new Error(json.get("text").getAsString());
+			default -> new Error("Unknown response type: " + type);
+		};
+	}
+
+	// Inverse of fromJson, used to persist cached responses.
+	static JsonObject toJson(BridgeResponse response) {
+		JsonObject json = new JsonObject();
+		switch (response) {
+			case Chat chat -> {
+				json.addProperty("type", "chat");
+				json.addProperty("text", chat.text());
+			}
+			case Command command -> {
+				json.addProperty("type", "command");
+				json.addProperty("command", command.command());
+			}
+			case Build build -> {
+				json.addProperty("type", "build");
+				json.addProperty("structure", build.structure());
+				json.addProperty("width", build.width());
+				json.addProperty("height", build.height());
+				json.addProperty("depth", build.depth());
+				json.addProperty("material", build.material());
+			}
+			case WorldEdit worldEdit -> {
+				json.addProperty("type", "worldedit");
+				json.addProperty("description", worldEdit.description());
+				json.add("commands", writeCommands(worldEdit.commands()));
+				json.addProperty("strictMode", worldEdit.strictMode());
+				json.addProperty("stream", worldEdit.stream());
+			}
+			case Commands commands -> {
+				json.addProperty("type", "commands");
+				json.add("commands", writeCommands(commands.commands()));
+			}
+			case End end -> json.addProperty("type", "end");
+			case Error error -> {
+				json.addProperty("type", "error");
+				json.addProperty("text", error.text());
+			}
+		}
+		return json;
+	}
+
+	// Reads a single JSON response without first buffering the body into a String.
+	static BridgeResponse read(Reader reader) {
+		return fromJson(JsonParser.parseReader(reader).getAsJsonObject());
+	}
+
+	// Reads NDJSON lines, handing each response over as soon as its line is complete.
+	static void readStream(Reader reader, Consumer<BridgeResponse> consumer) throws IOException {
+		BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+		String line;
+		while ((line = lines.readLine()) != null) {
+			if (line.isBlank()) {
+				continue;
+			}
+			consumer.accept(fromJson(JsonParser.parseString(line).getAsJsonObject()));
+		}
+	}
+
+	private static List<String> readCommands(JsonArray array) {
+		List<String> commands = new ArrayList<>(array.size());
+		for (JsonElement element : array) {
+			commands.add(element.getAsString());
+		}
+		return commands;
+	}
+
+	private static JsonArray writeCommands(List<String> commands) {
+		JsonArray array = new JsonArray(commands.size());
+		for (String command : commands) {
+			array.add(command);
+		}
+		return array;
+	}
+
+	private static boolean getBoolean(JsonObject json, String key) {
+		return json.has(key) && json.get(key).getAsBoolean();
+	}
+}
@@ -0,0 +1,93 @@
+package com.botpress.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+// Fails bridge requests instantly while the bridge is unreachable. A run of failed requests opens
+// the circuit; from then on requests are refused without touching the network, and a background
+// probe of /health decides when to close it again. Probes back off exponentially with jitter, so a
+// bridge that stays down costs almost nothing and many clients don't hit a restarting one at once.
+public final class CircuitBreaker {
+	private final int failureThreshold;
+	private final long probeMillis;
+	private final long maxProbeMillis;
+	private final LongSupplier clock;
+	private final DoubleSupplier random;
+
+	private int failures;
+	private boolean open;
+	private long backoffMillis;
+	private long nextProbeAt;
+
+	public CircuitBreaker(int failureThreshold, long probeMillis, long maxProbeMillis) {
+		this(failureThreshold, probeMillis, maxProbeMillis, System::currentTimeMillis,
+				() -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	public CircuitBreaker(int failureThreshold, long probeMillis, long maxProbeMillis, LongSupplier clock,
+			DoubleSupplier random) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.probeMillis = Math.max(1, probeMillis);
+		this.maxProbeMillis = Math.max(this.probeMillis, maxProbeMillis);
+		this.clock = clock;
+		this.random = random;
+	}
+
+	public synchronized boolean allowRequest() {
+		return !open;
+	}
+
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+	// Any answer from the bridge proves it is reachable. Returns true if this closed the circuit.
+	public synchronized boolean onSuccess() {
+		failures = 0;
+		return close();
+	}
+
+	// Returns true if this failure opened the circuit.
+	public synchronized boolean onFailure() {
+		failures++;
+		if (open || failures < failureThreshold) {
+			return false;
+		}
+		open = true;
+		backoffMillis = probeMillis;
+		schedule();
+		return true;
+	}
+
+	// Milliseconds until the next probe is due, 0 when it is, or -1 while the circuit is closed.
+	public synchronized long probeDelayMillis() {
+		return open ? Math.max(0, nextProbeAt - clock.getAsLong()) : -1;
+	}
+
+	// Records a /health probe. Returns true if the bridge answered and the circuit closed.
+	public synchronized boolean onProbe(boolean healthy) {
+		if (healthy) {
+			failures = 0;
+			return close();
+		}
+		if (open) {
+			backoffMillis = Math.min(maxProbeMillis, backoffMillis * 2);
+			schedule();
+		}
+		return false;
+	}
+
+	private boolean close() {
+		if (!open) {
+			return false;
+		}
+		open = false;
+		return true;
+	}
+
+	// Waits between half and all of the current backoff
+	private void schedule() {
+		nextProbeAt = clock.getAsLong() + (long) (backoffMillis * (0.5 + random.getAsDouble() / 2));
+	}
+}
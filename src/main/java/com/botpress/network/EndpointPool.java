@@ -0,0 +1,322 @@
+package com.botpress.network;
+
+import com.botpress.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Several bridge processes behind one client. Each endpoint has its own circuit breaker, latency
+// history and in-flight count, and a request goes to the reachable endpoint with the lowest
+// smoothed latency times load. A player's requests stick to the endpoint that served them before,
+// since the bridge keeps conversation sessions in memory, until that endpoint becomes unreachable.
+//
+// With hedging, a request still unanswered after the endpoint's usual latency percentile is sent
+// again to the next best endpoint; whichever answers first wins, the other is cancelled, and the
+// player's conversation follows the winner.
+public final class EndpointPool {
+	private static final double SMOOTHING = 0.2;
+	// Hedging waits for this many latency samples before trusting the percentile
+	private static final int MIN_HEDGE_SAMPLES = 20;
+	// An endpoint nobody picked for this long is timed again, so one slow answer doesn't shun it forever
+	private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private final List<Endpoint> endpoints = new ArrayList<>();
+	private final Map<String, Endpoint> affinity;
+	private volatile Listener listener = new Listener() {
+	};
+
+	public EndpointPool(List<URI> uris, Supplier<CircuitBreaker> breakers, int maxAffinity) {
+		if (uris.isEmpty()) {
+			throw new IllegalArgumentException("At least one bridge endpoint is required");
+		}
+		for (URI uri : uris) {
+			endpoints.add(new Endpoint(uri, breakers.get()));
+		}
+		// Least recently used players are forgotten first
+		affinity = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Endpoint> eldest) {
+				return size() > maxAffinity;
+			}
+		};
+	}
+
+	// Told when an endpoint's circuit opens or closes. Callbacks run on the thread that saw it.
+	public interface Listener {
+		default void opened(Endpoint endpoint) {
+		}
+
+		default void closed(Endpoint endpoint) {
+		}
+	}
+
+	public static final class Endpoint {
+		private final URI uri;
+		private final CircuitBreaker breaker;
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		// Smoothed latency in milliseconds, 0 until the first answer
+		private volatile double latencyMillis;
+		private volatile long answeredAt;
+
+		private Endpoint(URI uri, CircuitBreaker breaker) {
+			this.uri = uri;
+			this.breaker = breaker;
+		}
+
+		public URI uri() {
+			return uri;
+		}
+
+		public CircuitBreaker breaker() {
+			return breaker;
+		}
+
+		public int inFlight() {
+			return inFlight.get();
+		}
+
+		public double latencyMillis() {
+			return latencyMillis;
+		}
+
+		public LatencyHistogram.Snapshot latencies() {
+			return latencies.snapshot();
+		}
+
+		// Lower is better; an endpoint nobody has timed lately is tried early
+		private double score() {
+			double latency = System.nanoTime() - answeredAt > STALE_NANOS ? 0 : latencyMillis;
+			return (latency + 1) * (inFlight.get() + 1);
+		}
+
+		@Override
+		public String toString() {
+			return uri.toString();
+		}
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	public List<Endpoint> endpoints() {
+		return List.copyOf(endpoints);
+	}
+
+	public boolean available() {
+		for (Endpoint endpoint : endpoints) {
+			if (endpoint.breaker.allowRequest()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Time until the soonest probe of an unreachable endpoint, or -1 if one is reachable
+	public long probeDelayMillis() {
+		long soonest = Long.MAX_VALUE;
+		for (Endpoint endpoint : endpoints) {
+			long delay = endpoint.breaker.probeDelayMillis();
+			if (delay < 0) {
+				return -1;
+			}
+			soonest = Math.min(soonest, delay);
+		}
+		return soonest;
+	}
+
+	// The endpoint for a player's next request, or null if none is reachable. A null key has no
+	// affinity.
+	public synchronized Endpoint route(String key) {
+		Endpoint bound = key == null ? null : affinity.get(key);
+		if (bound != null && bound.breaker.allowRequest()) {
+			return bound;
+		}
+		Endpoint best = best(null);
+		if (best != null && key != null) {
+			affinity.put(key, best);
+		}
+		return best;
+	}
+
+	// The best reachable endpoint other than the given one, or null
+	public synchronized Endpoint alternate(Endpoint primary) {
+		return best(primary);
+	}
+
+	// Latency the endpoint answers within the given fraction of the time, or -1 without enough samples
+	public long hedgeDelayNanos(Endpoint endpoint, double percentile) {
+		LatencyHistogram.Snapshot snapshot = endpoint.latencies.snapshot();
+		if (snapshot.count() < MIN_HEDGE_SAMPLES) {
+			return -1;
+		}
+		return (long) (snapshot.percentileMillis(percentile) * 1_000_000);
+	}
+
+	// A route under an endpoint's base URI, keeping whatever path the base has (http://host/bridge
+	// gives http://host/bridge/chat). The path is relative, without a leading slash.
+	public static URI resolve(URI base, String path) {
+		String text = base.toString();
+		return URI.create(text.endsWith("/") ? text : text + "/").resolve(path);
+	}
+
+	// Sends a request built for the routed endpoint's base URI. With a hedge percentile above zero, a
+	// slow request is raced against a second one on another endpoint.
+	public <T> HttpResponse<T> send(HttpClient client, String key, Function<URI, HttpRequest> request,
+			HttpResponse.BodyHandler<T> handler, double hedgePercentile) throws IOException, InterruptedException {
+		Endpoint primary = route(key);
+		if (primary == null) {
+			throw new ConnectException("No bridge endpoint is reachable");
+		}
+		CompletableFuture<HttpResponse<T>> first = attempt(client, primary, request, handler);
+		long delay = hedgePercentile > 0 ? hedgeDelayNanos(primary, hedgePercentile) : -1;
+		if (delay < 0) {
+			return await(first, null);
+		}
+
+		try {
+			return first.get(delay, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			// Fall through to the hedge
+		} catch (ExecutionException e) {
+			throw unwrap(e.getCause());
+		} catch (InterruptedException e) {
+			first.cancel(true);
+			throw e;
+		}
+		Endpoint backup = alternate(primary);
+		if (backup == null) {
+			return await(first, null);
+		}
+
+		CompletableFuture<HttpResponse<T>> second = attempt(client, backup, request, handler);
+		HttpResponse<T> response = await(firstSuccess(first, second), List.of(first, second));
+		if (second.isDone() && !second.isCompletedExceptionally() && second.join() == response) {
+			first.cancel(true);
+			if (key != null) {
+				synchronized (this) {
+					affinity.put(key, backup);
+				}
+			}
+		} else {
+			second.cancel(true);
+		}
+		return response;
+	}
+
+	private <T> CompletableFuture<HttpResponse<T>> attempt(HttpClient client, Endpoint endpoint,
+			Function<URI, HttpRequest> request, HttpResponse.BodyHandler<T> handler) {
+		endpoint.inFlight.incrementAndGet();
+		long start = System.nanoTime();
+		CompletableFuture<HttpResponse<T>> exchange = client.sendAsync(request.apply(endpoint.uri), handler);
+		// Callers see the outcome only after it was recorded, so the next route already reflects it
+		CompletableFuture<HttpResponse<T>> recorded = exchange
+				.whenComplete((response, error) -> finished(endpoint, System.nanoTime() - start, response, error));
+		recorded.whenComplete((response, error) -> {
+			if (recorded.isCancelled()) {
+				exchange.cancel(true);
+			}
+		});
+		return recorded;
+	}
+
+	// Refused connections, timeouts and 5xx replies count against the endpoint; a cancelled hedge
+	// loser counts for nothing.
+	private void finished(Endpoint endpoint, long nanos, HttpResponse<?> response, Throwable error) {
+		endpoint.inFlight.decrementAndGet();
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause instanceof CancellationException) {
+			return;
+		}
+		if (cause != null || response.statusCode() >= 500) {
+			if (endpoint.breaker.onFailure()) {
+				listener.opened(endpoint);
+			}
+			return;
+		}
+
+		endpoint.latencies.record(nanos, TimeUnit.NANOSECONDS);
+		double millis = nanos / 1_000_000.0;
+		long now = System.nanoTime();
+		endpoint.latencyMillis = endpoint.latencyMillis == 0 || now - endpoint.answeredAt > STALE_NANOS
+				? millis
+				: endpoint.latencyMillis + (millis - endpoint.latencyMillis) * SMOOTHING;
+		endpoint.answeredAt = now;
+		if (endpoint.breaker.onSuccess()) {
+			listener.closed(endpoint);
+		}
+	}
+
+	private Endpoint best(Endpoint excluded) {
+		Endpoint best = null;
+		for (Endpoint endpoint : endpoints) {
+			if (endpoint != excluded && endpoint.breaker.allowRequest()
+					&& (best == null || endpoint.score() < best.score())) {
+				best = endpoint;
+			}
+		}
+		return best;
+	}
+
+	// Completes with whichever future succeeds first, or fails once both have failed
+	private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> a, CompletableFuture<T> b) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicInteger failures = new AtomicInteger();
+		for (CompletableFuture<T> future : List.of(a, b)) {
+			future.whenComplete((value, error) -> {
+				if (error == null) {
+					result.complete(value);
+				} else if (failures.incrementAndGet() == 2) {
+					result.completeExceptionally(error);
+				}
+			});
+		}
+		return result;
+	}
+
+	// Waits for the response; an interrupted wait cancels the exchanges it was waiting on
+	private static <T> T await(CompletableFuture<T> future, List<CompletableFuture<?>> exchanges)
+			throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw unwrap(e.getCause());
+		} catch (InterruptedException e) {
+			if (exchanges == null) {
+				future.cancel(true);
+			} else {
+				exchanges.forEach(exchange -> exchange.cancel(true));
+			}
+			throw e;
+		}
+	}
+
+	private static IOException unwrap(Throwable cause) {
+		Throwable error = cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+		if (error instanceof IOException io) {
+			return io;
+		}
+		if (error instanceof RuntimeException runtime) {
+			throw runtime;
+		}
+		return new IOException(error);
+	}
+}
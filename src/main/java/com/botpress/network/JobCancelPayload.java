@@ -0,0 +1,23 @@
+package com.botpress.network;
+
+import com.botpress.Botpress;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+// Client to server: drop the queued commands of a job, or of every job when jobId is -1.
+public record JobCancelPayload(int jobId) implements CustomPayload {
+	public static final CustomPayload.Id<JobCancelPayload> ID = new CustomPayload.Id<>(
+			Identifier.of(Botpress.MOD_ID, "job_cancel"));
+	public static final PacketCodec<RegistryByteBuf, JobCancelPayload> CODEC = PacketCodec.tuple(
+			PacketCodecs.VAR_INT, JobCancelPayload::jobId, JobCancelPayload::new);
+
+	public static final int ALL = -1;
+
+	@Override
+	public Id<? extends CustomPayload> getId() {
+		return ID;
+	}
+}
@@ -0,0 +1,34 @@
+package com.botpress.network;
+
+import com.botpress.Botpress;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Client to server: a batch of validated commands from one job, run by the server instead of being
+// sent as chat commands. A job's commands arrive over as many batches as it takes.
+public record JobPayload(int jobId, List<String> commands) implements CustomPayload {
+	public static final CustomPayload.Id<JobPayload> ID = new CustomPayload.Id<>(
+			Identifier.of(Botpress.MOD_ID, "job"));
+	public static final PacketCodec<RegistryByteBuf, JobPayload> CODEC = PacketCodec.tuple(PacketCodecs.VAR_INT,
+			JobPayload::jobId, PacketCodecs.STRING.collect(PacketCodecs.toList()), JobPayload::commands,
+			JobPayload::new);
+
+	// Serverbound custom payloads are capped at 32 KiB; keep batches comfortably below that
+	public static final int MAX_BYTES = 30000;
+
+	// Bytes a command adds to the payload, counting its length prefix
+	public static int encodedSize(String command) {
+		return command.getBytes(StandardCharsets.UTF_8).length + 3;
+	}
+
+	@Override
+	public Id<? extends CustomPayload> getId() {
+		return ID;
+	}
+}
@@ -0,0 +1,29 @@
+package com.botpress.network;
+
+import com.botpress.Botpress;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+// Server to client: how many of the player's commands the server has run, failed or dropped on a
+// cancel, and how many are still queued. Totals count from when the player joined, so the client can
+// tell how many of the commands it sent are still in flight. Jobs lists the ids of the player's jobs
+// that still have commands queued.
+public record JobStatusPayload(long executed, long failed, long cancelled, int pending, List<Integer> jobs)
+		implements CustomPayload {
+	public static final CustomPayload.Id<JobStatusPayload> ID = new CustomPayload.Id<>(
+			Identifier.of(Botpress.MOD_ID, "job_status"));
+	public static final PacketCodec<RegistryByteBuf, JobStatusPayload> CODEC = PacketCodec.tuple(
+			PacketCodecs.VAR_LONG, JobStatusPayload::executed, PacketCodecs.VAR_LONG, JobStatusPayload::failed,
+			PacketCodecs.VAR_LONG, JobStatusPayload::cancelled, PacketCodecs.VAR_INT, JobStatusPayload::pending,
+			PacketCodecs.VAR_INT.collect(PacketCodecs.toList()), JobStatusPayload::jobs, JobStatusPayload::new);
+
+	@Override
+	public Id<? extends CustomPayload> getId() {
+		return ID;
+	}
+}
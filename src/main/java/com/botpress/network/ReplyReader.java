@@ -0,0 +1,163 @@
+package com.botpress.network;
+
+import com.botpress.build.VoxelModel;
+import com.botpress.command.CommandSequence;
+import com.botpress.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads a /chat reply in whichever form the bridge sent it and acts on it as it arrives. A single JSON
+// reply goes to the handler whole; an NDJSON stream is assembled line by line, with a streamed
+// worldedit reply fed batch by batch into a sequence; a voxel payload is fed slab by slab. HttpBridge
+// and the load test both read replies through here.
+public final class ReplyReader {
+	public static final String NDJSON = "application/x-ndjson";
+
+	public interface Handler {
+		// Acts on a reply that isn't part of a streamed sequence
+		void handle(BridgeResponse reply);
+
+		// Starts the sequence a streamed worldedit reply or a voxel payload is fed into
+		CommandSequence begin(String description, boolean strictMode);
+
+		// A complete reply that may be cached; a streamed sequence arrives as one worldedit reply once
+		// its end line is in
+		default void completed(BridgeResponse reply) {
+		}
+	}
+
+	private final Handler handler;
+	private final Metrics metrics;
+	// Streamed sequences longer than this are not collected for completed()
+	private final int maxCollected;
+
+	public ReplyReader(Handler handler, Metrics metrics, int maxCollected) {
+		this.handler = handler;
+		this.metrics = metrics;
+		this.maxCollected = maxCollected;
+	}
+
+	// Accept header listing the forms read() understands
+	public static String accept(boolean voxels) {
+		String text = NDJSON + ", application/json";
+		return voxels ? VoxelPayload.CONTENT_TYPE + ", " + text : text;
+	}
+
+	public void read(String contentType, InputStream input) throws IOException {
+		if (contentType.startsWith(VoxelPayload.CONTENT_TYPE)) {
+			readVoxels(input);
+			return;
+		}
+
+		Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+		if (contentType.startsWith(NDJSON)) {
+			Stream stream = new Stream();
+			try {
+				BridgeResponse.readStream(reader, stream::handle);
+			} finally {
+				stream.close();
+			}
+		} else {
+			long parse = metrics.start();
+			BridgeResponse reply = BridgeResponse.read(reader);
+			metrics.stop(Metrics.Stage.PARSE, parse);
+			handler.completed(reply);
+			handler.handle(reply);
+		}
+	}
+
+	// Builds a binary block grid slab by slab as it downloads. Voxel replies aren't cached.
+	private void readVoxels(InputStream input) throws IOException {
+		CommandSequence[] sequence = new CommandSequence[1];
+		// Decoding time is what passes between callbacks, excluding the work each callback does
+		long[] decoding = {metrics.start()};
+		try {
+			VoxelPayload.read(input, new VoxelPayload.Listener() {
+				@Override
+				public void begin(String description, int sizeX, int sizeY, int sizeZ) {
+					metrics.stop(Metrics.Stage.PARSE, decoding[0]);
+					sequence[0] = handler.begin(description, false);
+					decoding[0] = metrics.start();
+				}
+
+				@Override
+				public void slab(VoxelModel slab) {
+					metrics.stop(Metrics.Stage.PARSE, decoding[0]);
+					sequence[0].append(slab);
+					decoding[0] = metrics.start();
+				}
+			});
+		} finally {
+			if (sequence[0] != null) {
+				sequence[0].finish();
+			}
+		}
+	}
+
+	// Feeds NDJSON lines into a streaming sequence so the first batch runs while the rest arrives
+	private final class Stream {
+		private CommandSequence sequence;
+		private BridgeResponse.WorldEdit header;
+		private List<String> collected;
+		// Reading and parsing a line is the time since the previous line was handled
+		private long parsing = metrics.start();
+
+		void handle(BridgeResponse response) {
+			metrics.stop(Metrics.Stage.PARSE, parsing);
+			try {
+				dispatch(response);
+			} finally {
+				parsing = metrics.start();
+			}
+		}
+
+		private void dispatch(BridgeResponse response) {
+			if (response instanceof BridgeResponse.WorldEdit worldEdit && worldEdit.stream()) {
+				close();
+				sequence = handler.begin(worldEdit.description(), worldEdit.strictMode());
+				header = worldEdit;
+				collected = maxCollected > 0 ? new ArrayList<>(worldEdit.commands()) : null;
+				sequence.append(worldEdit.commands());
+			} else if (response instanceof BridgeResponse.Commands commands) {
+				if (sequence != null) {
+					collect(commands.commands());
+					sequence.append(commands.commands());
+				}
+			} else if (response instanceof BridgeResponse.End) {
+				if (header != null && collected != null) {
+					handler.completed(new BridgeResponse.WorldEdit(header.description(), collected,
+							header.strictMode(), false));
+				}
+				close();
+			} else {
+				close();
+				handler.completed(response);
+				handler.handle(response);
+			}
+		}
+
+		private void collect(List<String> commands) {
+			if (collected != null) {
+				collected.addAll(commands);
+				if (collected.size() > maxCollected) {
+					collected = null;
+				}
+			}
+		}
+
+		void close() {
+			if (sequence != null) {
+				sequence.finish();
+				sequence = null;
+			}
+			header = null;
+			collected = null;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.botpress.network;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs bridge requests on virtual threads. Requests sharing a key (a player's conversation) run one
+// at a time in submission order; everything else runs in parallel. Cancelling a key interrupts the
+// running request, which aborts a blocking HttpClient exchange, and drops the queued ones.
+public final class RequestPipeline {
+	private final ExecutorService executor;
+	private final Map<String, Lane> lanes = new HashMap<>();
+
+	public RequestPipeline() {
+		this(Executors.newVirtualThreadPerTaskExecutor());
+	}
+
+	public RequestPipeline(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public Future<?> submit(Runnable task) {
+		return executor.submit(task);
+	}
+
+	public synchronized void submitOrdered(String key, Runnable task) {
+		Lane lane = lanes.computeIfAbsent(key, k -> new Lane());
+		lane.queue.add(task);
+		if (lane.current == null) {
+			startNext(key, lane);
+		}
+	}
+
+	// Returns the number of running and queued requests that were cancelled.
+	public synchronized int cancel(String key) {
+		Lane lane = lanes.remove(key);
+		if (lane == null) {
+			return 0;
+		}
+
+		int cancelled = lane.queue.size();
+		lane.queue.clear();
+		if (lane.current != null && lane.current.cancel(true)) {
+			cancelled++;
+		}
+		return cancelled;
+	}
+
+	private void startNext(String key, Lane lane) {
+		Runnable next = lane.queue.poll();
+		if (next == null) {
+			lane.current = null;
+			lanes.remove(key, lane);
+			return;
+		}
+
+		lane.current = executor.submit(() -> {
+			try {
+				next.run();
+			} finally {
+				finished(key, lane);
+			}
+		});
+	}
+
+	private synchronized void finished(String key, Lane lane) {
+		// A cancelled lane has already been detached and must not start anything else
+		if (lanes.get(key) == lane) {
+			startNext(key, lane);
+		}
+	}
+
+	private static final class Lane {
+		private final Queue<Runnable> queue = new ArrayDeque<>();
+		private Future<?> current;
+	}
+}
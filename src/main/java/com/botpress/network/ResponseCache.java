@@ -0,0 +1,253 @@
+package com.botpress.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Remembers bridge replies to repeated prompts so they skip the bridge and LLM round trip.
+//
+// Keys are the player's conversation, the normalized prompt and the dimension. The bridge answers
+// follow-ups from the conversation history, so a reply is only replayed within the conversation that
+// produced it, and resetting the conversation drops its entries (clearSession).
+//
+// Replies without coordinates are reused anywhere.
+// Replies whose coordinates are all x y z triples near the player are stored relative to the player
+// and re-anchored on a hit. Anything else only matches within the same coarse position bucket.
+// Entries are evicted least-recently-used beyond the size bound and expire after the TTL.
+public final class ResponseCache {
+	static final int RELOCATE_RADIUS = 256;
+
+	private final int maxEntries;
+	private final long ttlMs;
+	private final int bucketSize;
+	private final LongSupplier clock;
+	private final Map<String, Entry> entries;
+
+	public ResponseCache(int maxEntries, long ttlMs, int bucketSize) {
+		this(maxEntries, ttlMs, bucketSize, System::currentTimeMillis);
+	}
+
+	public ResponseCache(int maxEntries, long ttlMs, int bucketSize, LongSupplier clock) {
+		this.maxEntries = maxEntries;
+		this.ttlMs = ttlMs;
+		this.bucketSize = Math.max(1, bucketSize);
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > ResponseCache.this.maxEntries;
+			}
+		};
+	}
+
+	// Whose conversation the prompt belongs to, and where the player was when it was sent.
+	public record Context(String session, String dimension, int x, int y, int z) {
+	}
+
+	// Returns the cached reply re-anchored at the player, or null on a miss.
+	public synchronized BridgeResponse get(String message, Context context) {
+		String text = normalize(message);
+		BridgeResponse response = lookup(key(text, context, false), context);
+		return response != null ? response : lookup(key(text, context, true), context);
+	}
+
+	// Stores a reply if it is worth replaying. Chat depends on conversation history and errors are
+	// transient, so only commands, builds and complete worldedit sequences are kept.
+	public synchronized void put(String message, Context context, BridgeResponse response) {
+		List<String> commands = switch (response) {
+			case BridgeResponse.Build build -> List.of();
+			case BridgeResponse.Command command -> List.of(command.command());
+			case BridgeResponse.WorldEdit worldEdit -> worldEdit.stream() ? null : worldEdit.commands();
+			default -> null;
+		};
+		if (commands == null) {
+			return;
+		}
+
+		String text = normalize(message);
+		long expiresAt = clock.getAsLong() + ttlMs;
+		List<String> relative = shiftAll(commands, -context.x(), -context.y(), -context.z(), context);
+		if (relative == null) {
+			entries.put(key(text, context, true), new Entry(response, false, expiresAt));
+		} else {
+			entries.put(key(text, context, false), new Entry(withCommands(response, relative), true, expiresAt));
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	// Drops the replies remembered for one conversation; returns how many there were.
+	public synchronized int clearSession(String session) {
+		String prefix = session + "|";
+		int before = entries.size();
+		entries.keySet().removeIf(key -> key.startsWith(prefix));
+		return before - entries.size();
+	}
+
+	public synchronized void save(Path file) throws IOException {
+		JsonArray array = new JsonArray();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			JsonObject json = new JsonObject();
+			json.addProperty("key", entry.getKey());
+			json.addProperty("relative", entry.getValue().relative());
+			json.addProperty("expiresAt", entry.getValue().expiresAt());
+			json.add("response", BridgeResponse.toJson(entry.getValue().response()));
+			array.add(json);
+		}
+
+		Files.createDirectories(file.getParent());
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(array.toString());
+		}
+	}
+
+	// Adds the unexpired entries from a previous session, oldest first so LRU order survives.
+	public synchronized void load(Path file) throws IOException {
+		if (Files.notExists(file)) {
+			return;
+		}
+
+		long now = clock.getAsLong();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+				JsonObject json = element.getAsJsonObject();
+				long expiresAt = json.get("expiresAt").getAsLong();
+				if (expiresAt > now) {
+					BridgeResponse response = BridgeResponse.fromJson(json.getAsJsonObject("response"));
+					entries.put(json.get("key").getAsString(),
+							new Entry(response, json.get("relative").getAsBoolean(), expiresAt));
+				}
+			}
+		}
+	}
+
+	private BridgeResponse lookup(String key, Context context) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expiresAt() <= clock.getAsLong()) {
+			entries.remove(key);
+			return null;
+		}
+		if (!entry.relative()) {
+			return entry.response();
+		}
+
+		List<String> commands = switch (entry.response()) {
+			case BridgeResponse.Command command -> List.of(command.command());
+			case BridgeResponse.WorldEdit worldEdit -> worldEdit.commands();
+			default -> List.of();
+		};
+		return withCommands(entry.response(), shiftAll(commands, context.x(), context.y(), context.z(), null));
+	}
+
+	private String key(String text, Context context, boolean bucketed) {
+		String key = context.session() + "|" + context.dimension() + "|" + text;
+		if (!bucketed) {
+			return key;
+		}
+		return key + "|" + Math.floorDiv(context.x(), bucketSize) + "," + Math.floorDiv(context.y(), bucketSize)
+				+ "," + Math.floorDiv(context.z(), bucketSize);
+	}
+
+	// Lowercases, collapses whitespace and drops trailing punctuation so trivially different prompts match.
+	public static String normalize(String message) {
+		String text = message.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+		int end = text.length();
+		while (end > 0 && ".!?".indexOf(text.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		return text.substring(0, end).trim();
+	}
+
+	private static BridgeResponse withCommands(BridgeResponse response, List<String> commands) {
+		return switch (response) {
+			case BridgeResponse.Command command -> new BridgeResponse.Command(commands.get(0));
+			case BridgeResponse.WorldEdit worldEdit -> new BridgeResponse.WorldEdit(worldEdit.description(), commands,
+					worldEdit.strictMode(), false);
+			default -> response;
+		};
+	}
+
+	private static List<String> shiftAll(List<String> commands, int dx, int dy, int dz, Context origin) {
+		List<String> shifted = new ArrayList<>(commands.size());
+		for (String command : commands) {
+			String result = shift(command, dx, dy, dz, origin);
+			if (result == null) {
+				return null;
+			}
+			shifted.add(result);
+		}
+		return shifted;
+	}
+
+	// Offsets every x y z triple of integer arguments; runs of one or two integers are counts or times
+	// and stay as they are. Returns null when a longer run isn't made of whole triples or, given an
+	// origin, when a triple is outside RELOCATE_RADIUS of it: such a command is tied to where it was made.
+	static String shift(String command, int dx, int dy, int dz, Context origin) {
+		String[] tokens = command.split(" ", -1);
+		int i = 0;
+		while (i < tokens.length) {
+			int runEnd = i;
+			while (runEnd < tokens.length && isInteger(tokens[runEnd])) {
+				runEnd++;
+			}
+			int run = runEnd - i;
+			if (run >= 3 && run % 3 != 0) {
+				return null;
+			}
+
+			for (int t = i; run >= 3 && t < runEnd; t += 3) {
+				int x = Integer.parseInt(tokens[t]);
+				int y = Integer.parseInt(tokens[t + 1]);
+				int z = Integer.parseInt(tokens[t + 2]);
+				if (origin != null && (Math.abs(x - origin.x()) > RELOCATE_RADIUS
+						|| Math.abs(y - origin.y()) > RELOCATE_RADIUS || Math.abs(z - origin.z()) > RELOCATE_RADIUS)) {
+					return null;
+				}
+				tokens[t] = Integer.toString(x + dx);
+				tokens[t + 1] = Integer.toString(y + dy);
+				tokens[t + 2] = Integer.toString(z + dz);
+			}
+			i = Math.max(runEnd, i + 1);
+		}
+		return String.join(" ", tokens);
+	}
+
+	private static boolean isInteger(String token) {
+		int start = token.startsWith("-") ? 1 : 0;
+		if (token.length() == start || token.length() - start > 9) {
+			return false;
+		}
+		for (int i = start; i < token.length(); i++) {
+			if (!Character.isDigit(token.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private record Entry(BridgeResponse response, boolean relative, long expiresAt) {
+	}
+}
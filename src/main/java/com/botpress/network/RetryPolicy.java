@@ -0,0 +1,41 @@
+package com.botpress.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+// Bounded retries for bridge calls that are safe to repeat, such as a session reset. Delays follow a
+// capped exponential backoff with full jitter: each wait is random between zero and the backoff, so
+// clients that failed together don't retry together.
+public final class RetryPolicy {
+	private final int maxAttempts;
+	private final long baseMillis;
+	private final long maxMillis;
+	private final DoubleSupplier random;
+
+	public RetryPolicy(int maxAttempts, long baseMillis, long maxMillis) {
+		this(maxAttempts, baseMillis, maxMillis, () -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	public RetryPolicy(int maxAttempts, long baseMillis, long maxMillis, DoubleSupplier random) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.baseMillis = Math.max(0, baseMillis);
+		this.maxMillis = Math.max(this.baseMillis, maxMillis);
+		this.random = random;
+	}
+
+	// Attempts in total, counting the first
+	public int maxAttempts() {
+		return maxAttempts;
+	}
+
+	// Whether another attempt may follow the given one (1 for the first)
+	public boolean shouldRetry(int attempt) {
+		return attempt < maxAttempts;
+	}
+
+	// Wait before the attempt after the given one
+	public long delayMillis(int attempt) {
+		long backoff = baseMillis << Math.min(30, Math.max(0, attempt - 1));
+		return (long) (Math.min(maxMillis, backoff) * random.getAsDouble());
+	}
+}
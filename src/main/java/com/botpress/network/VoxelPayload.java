@@ -0,0 +1,120 @@
+package com.botpress.network;
+
+import com.botpress.build.VoxelModel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+// Streaming reader for the bridge's binary "MBV1" block grid (bridge-server/src/voxel-payload.ts),
+// which replaces a long list of command strings with a palette and run-length encoded cells.
+//
+// Runs are decoded straight into VoxelModel fills, one grid row at a time, and every SLAB_LAYERS
+// layers the finished slab is handed on, so building starts before the rest of the body arrives.
+// Nothing from the payload becomes a command except palette entries, which must be plain block ids.
+public final class VoxelPayload {
+	public static final String CONTENT_TYPE = "application/x-minebot-voxels";
+
+	static final int SLAB_LAYERS = 16;
+	// Larger grids are rejected rather than risk a payload that fills memory
+	static final int MAX_SIZE = 512;
+
+	private static final int MAGIC = 0x4D425631; // "MBV1"
+	private static final Pattern BLOCK = Pattern.compile("[a-z0-9_.-]+:[a-z0-9_./-]+(\\[[a-z0-9_=,]*])?");
+
+	private VoxelPayload() {
+	}
+
+	public interface Listener {
+		void begin(String description, int sizeX, int sizeY, int sizeZ);
+
+		// Called with each slab of blocks in order, bottom-up; cells with palette index 0 are absent.
+		void slab(VoxelModel slab);
+	}
+
+	public static void read(InputStream input, Listener listener) throws IOException {
+		DataInputStream in = new DataInputStream(
+				input instanceof BufferedInputStream ? input : new BufferedInputStream(input));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a voxel payload");
+		}
+		String description = readString(in);
+		int originX = in.readInt();
+		int originY = in.readInt();
+		int originZ = in.readInt();
+		int sizeX = in.readUnsignedShort();
+		int sizeY = in.readUnsignedShort();
+		int sizeZ = in.readUnsignedShort();
+		if (sizeX > MAX_SIZE || sizeY > MAX_SIZE || sizeZ > MAX_SIZE) {
+			throw new IOException("Voxel payload of " + sizeX + "x" + sizeY + "x" + sizeZ + " is too large");
+		}
+
+		String[] palette = new String[in.readUnsignedShort() + 1];
+		for (int i = 1; i < palette.length; i++) {
+			palette[i] = readString(in);
+			if (!BLOCK.matcher(palette[i]).matches()) {
+				throw new IOException("Invalid block in voxel payload: " + palette[i]);
+			}
+		}
+		listener.begin(description, sizeX, sizeY, sizeZ);
+
+		long layerCells = (long) sizeX * sizeZ;
+		long total = layerCells * sizeY;
+		VoxelModel slab = new VoxelModel();
+		int slabStart = 0;
+		long cell = 0;
+		while (cell < total) {
+			long length = readVarLong(in);
+			long index = readVarLong(in);
+			if (length <= 0 || length > total - cell || index >= palette.length) {
+				throw new IOException("Corrupt voxel payload at cell " + cell);
+			}
+
+			long end = cell + length;
+			if (index == 0) {
+				cell = end;
+				continue;
+			}
+			while (cell < end) {
+				int layer = (int) (cell / layerCells);
+				if (layer >= slabStart + SLAB_LAYERS) {
+					if (!slab.isEmpty()) {
+						listener.slab(slab);
+						slab = new VoxelModel();
+					}
+					slabStart = layer - layer % SLAB_LAYERS;
+				}
+				int z = (int) (cell % layerCells / sizeX);
+				int x = (int) (cell % sizeX);
+				int rowEnd = (int) Math.min(sizeX, x + end - cell);
+				slab.fill(originX + x, originY + layer, originZ + z, originX + rowEnd - 1, originY + layer, originZ + z,
+						palette[(int) index]);
+				cell += rowEnd - x;
+			}
+		}
+		if (!slab.isEmpty()) {
+			listener.slab(slab);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readUnsignedShort()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 63; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in voxel payload");
+	}
+}
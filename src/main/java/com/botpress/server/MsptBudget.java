@@ -0,0 +1,54 @@
+package com.botpress.server;
+
+// Sets how much job work the server takes on per tick from how long its ticks take (MSPT). The time
+// allowance is whatever the rest of the tick leaves below the target, and the block allowance grows
+// by an eighth while jobs use it all and ticks stay under the target, and shrinks by a quarter once
+// they don't. Both follow smoothed tick times, so one slow autosave doesn't halve a build's speed.
+public final class MsptBudget {
+	private static final double SMOOTHING = 0.2;
+	private static final double GROWTH = 1.125;
+	private static final double BACKOFF = 0.75;
+
+	private final long targetNanos;
+	private final long maxNanos;
+	private final long minBlocks;
+	private final long maxBlocks;
+
+	private double tickNanos;
+	private double otherNanos;
+	private long blocks;
+
+	public MsptBudget(double targetMspt, long maxNanos, long minBlocks, long maxBlocks) {
+		this.targetNanos = (long) (targetMspt * 1_000_000);
+		this.maxNanos = maxNanos;
+		this.minBlocks = Math.max(1, minBlocks);
+		this.maxBlocks = Math.max(this.minBlocks, maxBlocks);
+		this.blocks = this.minBlocks;
+	}
+
+	// Feeds one finished tick: its total time, the part spent on jobs, and whether the jobs stopped on
+	// the budget rather than running out of work.
+	public void record(long tickNanos, long jobNanos, boolean saturated) {
+		this.tickNanos += (tickNanos - this.tickNanos) * SMOOTHING;
+		this.otherNanos += (Math.max(0, tickNanos - jobNanos) - this.otherNanos) * SMOOTHING;
+
+		if (this.tickNanos > targetNanos) {
+			blocks = Math.max(minBlocks, (long) (blocks * BACKOFF));
+		} else if (saturated) {
+			blocks = Math.min(maxBlocks, Math.max(blocks + 1, (long) (blocks * GROWTH)));
+		}
+	}
+
+	public long blocks() {
+		return blocks;
+	}
+
+	// Time jobs may take this tick
+	public long nanos() {
+		return Math.max(0, Math.min(maxNanos, targetNanos - (long) otherNanos));
+	}
+
+	public double mspt() {
+		return tickNanos / 1_000_000;
+	}
+}
@@ -0,0 +1,90 @@
+package com.botpress.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Box writes grouped by the 16x16x16 chunk section they land in. Each box is clipped to its
+// sections, so a writer can handle one section at a time and touch each chunk once. Within a
+// section boxes keep their order, so later writes still replace earlier ones.
+public final class SectionBatch<T> {
+	private final Map<Long, List<Box<T>>> sections = new HashMap<>();
+	private long volume;
+
+	public record Box<T>(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, T value) {
+		public long volume() {
+			return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+		}
+	}
+
+	@FunctionalInterface
+	public interface SectionConsumer<T> {
+		// Section coordinates, and the boxes inside it in the order they were added
+		void accept(int sectionX, int sectionY, int sectionZ, List<Box<T>> boxes);
+	}
+
+	public void add(int x1, int y1, int z1, int x2, int y2, int z2, T value) {
+		int minX = Math.min(x1, x2);
+		int minY = Math.min(y1, y2);
+		int minZ = Math.min(z1, z2);
+		int maxX = Math.max(x1, x2);
+		int maxY = Math.max(y1, y2);
+		int maxZ = Math.max(z1, z2);
+
+		for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+			for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+				for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+					Box<T> box = new Box<>(Math.max(minX, sx << 4), Math.max(minY, sy << 4), Math.max(minZ, sz << 4),
+							Math.min(maxX, (sx << 4) + 15), Math.min(maxY, (sy << 4) + 15),
+							Math.min(maxZ, (sz << 4) + 15), value);
+					sections.computeIfAbsent(key(sx, sy, sz), k -> new ArrayList<>()).add(box);
+					volume += box.volume();
+				}
+			}
+		}
+	}
+
+	// Blocks covered by all boxes added so far, counting overlaps twice
+	public long volume() {
+		return volume;
+	}
+
+	public boolean isEmpty() {
+		return sections.isEmpty();
+	}
+
+	public int sectionCount() {
+		return sections.size();
+	}
+
+	// Hands every section to the consumer, a chunk's sections one after another from the bottom up,
+	// and empties the batch.
+	public void drain(SectionConsumer<T> consumer) {
+		List<Long> keys = new ArrayList<>(sections.keySet());
+		keys.sort(Long::compareUnsigned);
+		for (long key : keys) {
+			consumer.accept(sectionX(key), sectionY(key), sectionZ(key), sections.get(key));
+		}
+		sections.clear();
+		volume = 0;
+	}
+
+	// 22 bits X, 22 bits Z, 20 bits Y, each offset so that unsigned key order is X, then Z, then Y
+	static long key(int sx, int sy, int sz) {
+		return ((long) sx + (1 << 21) & 0x3FFFFFL) << 42 | ((long) sz + (1 << 21) & 0x3FFFFFL) << 20
+				| (long) sy + (1 << 19) & 0xFFFFFL;
+	}
+
+	static int sectionX(long key) {
+		return (int) (key >>> 42) - (1 << 21);
+	}
+
+	static int sectionY(long key) {
+		return (int) (key & 0xFFFFFL) - (1 << 19);
+	}
+
+	static int sectionZ(long key) {
+		return (int) (key >>> 20 & 0x3FFFFFL) - (1 << 21);
+	}
+}
@@ -0,0 +1,107 @@
+package com.botpress.server;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerChunkManager;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.ChunkLightProvider;
+import net.minecraft.world.chunk.light.LightingProvider;
+import net.minecraft.world.poi.PointOfInterestTypes;
+
+import java.util.List;
+
+// Writes a SectionBatch of block states straight into chunk sections, the way /fill's "strict" mode
+// skips neighbor updates. Each chunk is looked up once per section instead of per block, and no
+// block is told about its neighbors changing. Light checks are queued for the lighting thread to
+// work through in bulk, and changed positions are marked on the chunk holder, which sends each
+// section's changes as one delta packet at the end of the tick.
+//
+// Blocks with block entities, fluids, redstone power or points of interest (beds, workstations,
+// portals) still go through World.setBlockState with neighbor updates, as do blocks they replace.
+final class SectionWriter {
+	private static final Heightmap.Type[] HEIGHTMAPS = {Heightmap.Type.MOTION_BLOCKING,
+			Heightmap.Type.MOTION_BLOCKING_NO_LEAVES, Heightmap.Type.OCEAN_FLOOR, Heightmap.Type.WORLD_SURFACE};
+
+	// Last replaced state and whether it was safe to overwrite; builds replace long runs of air
+	private BlockState lastReplaced;
+	private boolean lastReplacedSimple;
+
+	// Returns how many blocks changed.
+	long write(ServerWorld world, SectionBatch<BlockState> batch) {
+		ServerChunkManager chunks = world.getChunkManager();
+		LightingProvider lighting = chunks.getLightingProvider();
+		BlockPos.Mutable pos = new BlockPos.Mutable();
+		long[] changed = {0};
+
+		batch.drain((sx, sy, sz, boxes) -> {
+			int index = world.sectionCoordToIndex(sy);
+			if (index < 0 || index >= world.countVerticalSections() || !world.isChunkLoaded(sx, sz)) {
+				return;
+			}
+			WorldChunk chunk = world.getChunk(sx, sz);
+			ChunkSection section = chunk.getSection(index);
+			boolean wasEmpty = section.isEmpty();
+			long before = changed[0];
+
+			for (SectionBatch.Box<BlockState> box : boxes) {
+				BlockState state = box.value();
+				boolean simple = isSimple(state);
+				for (int y = box.minY(); y <= box.maxY(); y++) {
+					for (int z = box.minZ(); z <= box.maxZ(); z++) {
+						for (int x = box.minX(); x <= box.maxX(); x++) {
+							BlockState old = section.getBlockState(x & 15, y & 15, z & 15);
+							if (old == state) {
+								continue;
+							}
+							pos.set(x, y, z);
+							if (!simple || !isSimpleReplaced(old)) {
+								if (world.setBlockState(pos, state, Block.NOTIFY_ALL)) {
+									changed[0]++;
+								}
+								continue;
+							}
+
+							section.setBlockState(x & 15, y & 15, z & 15, state);
+							for (Heightmap.Type type : HEIGHTMAPS) {
+								chunk.getHeightmap(type).trackUpdate(x & 15, y, z & 15, state);
+							}
+							if (ChunkLightProvider.needsLightUpdate(old, state)) {
+								chunk.getChunkSkyLight().isSkyLightAccessible(chunk, x & 15, y, z & 15);
+								lighting.checkBlock(pos);
+							}
+							chunks.markForUpdate(pos);
+							changed[0]++;
+						}
+					}
+				}
+			}
+
+			if (wasEmpty != section.isEmpty()) {
+				lighting.setSectionStatus(ChunkSectionPos.from(sx, sy, sz), section.isEmpty());
+			}
+			if (changed[0] != before) {
+				chunk.markNeedsSaving();
+			}
+		});
+		return changed[0];
+	}
+
+	private boolean isSimpleReplaced(BlockState old) {
+		if (old != lastReplaced) {
+			lastReplaced = old;
+			lastReplacedSimple = isSimple(old);
+		}
+		return lastReplacedSimple;
+	}
+
+	// Blocks whose placement or removal only changes the block itself
+	private static boolean isSimple(BlockState state) {
+		return !state.hasBlockEntity() && state.getFluidState().isEmpty() && !state.emitsRedstonePower()
+				&& PointOfInterestTypes.getTypeForState(state).isEmpty();
+	}
+}
@@ -0,0 +1,217 @@
+package com.botpress.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+// Commands players' clients handed to the server, run a few per tick under one global budget.
+// Players share it by weighted deficit round robin: each turn a player is credited a quantum of
+// blocks times its weight and runs commands until the credit is spent, paying for each command
+// with the blocks it touched. A player filling huge regions therefore gets as many blocks per tick
+// as one placing single blocks, not as many commands. Credit left when a tick's budget runs out
+// carries over to the next tick.
+//
+// Only used from the server thread.
+public final class ServerJobQueue {
+	// Turns each player gets per tick when everyone has work, which bounds how far a single fill can
+	// overshoot a player's share
+	private static final int TURNS_PER_TICK = 4;
+
+	private final Map<UUID, PlayerQueue> players = new LinkedHashMap<>();
+	// Players with queued commands, in turn order
+	private final ArrayDeque<UUID> active = new ArrayDeque<>();
+	private final int maxQueuedPerPlayer;
+	private final LongSupplier nanoClock;
+
+	public ServerJobQueue(int maxQueuedPerPlayer) {
+		this(maxQueuedPerPlayer, System::nanoTime);
+	}
+
+	public ServerJobQueue(int maxQueuedPerPlayer, LongSupplier nanoClock) {
+		this.maxQueuedPerPlayer = maxQueuedPerPlayer;
+		this.nanoClock = nanoClock;
+	}
+
+	@FunctionalInterface
+	public interface Runner {
+		// Runs one command for the player and returns how many blocks it covered, at least 1, or -1
+		// if it failed
+		long run(UUID player, String command);
+	}
+
+	// Limits for one tick; whichever is reached first ends it.
+	public record Budget(int commands, long blocks, long nanos) {
+	}
+
+	// What a tick did: blocks and commands run, whether it stopped on the budget rather than running
+	// out of work, and the progress of every player who had a command run
+	public record TickResult(int commands, long blocks, boolean saturated, Map<UUID, Progress> progress) {
+	}
+
+	// Per-player totals since they joined. Every command a client sends ends up in exactly one of them.
+	// Jobs lists the ids of the player's jobs that still have commands queued.
+	public record Progress(long executed, long failed, long cancelled, int pending, List<Integer> jobs) {
+	}
+
+	// Queues a batch; returns false, counting the batch as failed, if the player would go over the limit.
+	public boolean submit(UUID player, int jobId, List<String> commands) {
+		PlayerQueue queue = queue(player);
+		if (queue.commands.size() + commands.size() > maxQueuedPerPlayer) {
+			queue.failed += commands.size();
+			return false;
+		}
+		if (queue.commands.isEmpty() && !commands.isEmpty()) {
+			active.addLast(player);
+		}
+		for (String command : commands) {
+			queue.commands.add(new Queued(jobId, command));
+		}
+		if (!commands.isEmpty()) {
+			queue.jobs.merge(jobId, commands.size(), Integer::sum);
+		}
+		return true;
+	}
+
+	// Counts commands the server refused to queue, so the client's tally still adds up.
+	public void reject(UUID player, int count) {
+		queue(player).failed += count;
+	}
+
+	// Share of the budget relative to other players; 1 unless set.
+	public void setWeight(UUID player, int weight) {
+		queue(player).weight = Math.max(1, weight);
+	}
+
+	// Drops the player's queued commands of one job, or of every job when jobId is -1.
+	public int cancel(UUID player, int jobId) {
+		PlayerQueue queue = players.get(player);
+		if (queue == null) {
+			return 0;
+		}
+		int before = queue.commands.size();
+		if (jobId < 0) {
+			queue.commands.clear();
+			queue.jobs.clear();
+		} else {
+			queue.commands.removeIf(queued -> queued.jobId() == jobId);
+			queue.jobs.remove(jobId);
+		}
+		int cancelled = before - queue.commands.size();
+		queue.cancelled += cancelled;
+		if (queue.commands.isEmpty()) {
+			deactivate(player, queue);
+		}
+		return cancelled;
+	}
+
+	public void remove(UUID player) {
+		players.remove(player);
+		active.remove(player);
+	}
+
+	public int pending() {
+		int pending = 0;
+		for (PlayerQueue queue : players.values()) {
+			pending += queue.commands.size();
+		}
+		return pending;
+	}
+
+	// Runs commands until the budget or the queued work runs out. The quantum splits the block budget
+	// into a few turns per player, so each gets its share spread over the tick.
+	public TickResult runTick(Budget budget, Runner runner) {
+		Map<UUID, Progress> advanced = new HashMap<>();
+		long start = nanoClock.getAsLong();
+		int ran = 0;
+		long blocks = 0;
+		boolean saturated = false;
+
+		int weights = 0;
+		for (UUID player : active) {
+			weights += players.get(player).weight;
+		}
+		long quantum = Math.max(1, budget.blocks() / Math.max(1, (long) weights * TURNS_PER_TICK));
+
+		while (!active.isEmpty() && !saturated) {
+			if (spent(budget, ran, blocks, start)) {
+				saturated = true;
+				break;
+			}
+			UUID player = active.peekFirst();
+			PlayerQueue queue = players.get(player);
+			queue.deficit += quantum * queue.weight;
+			while (queue.deficit > 0 && !queue.commands.isEmpty()) {
+				if (spent(budget, ran, blocks, start)) {
+					saturated = true;
+					break;
+				}
+				Queued next = queue.commands.poll();
+				queue.jobs.computeIfPresent(next.jobId(), (job, left) -> left > 1 ? left - 1 : null);
+				long cost = runner.run(player, next.command());
+				if (cost < 0) {
+					queue.failed++;
+				} else {
+					queue.executed++;
+				}
+				cost = Math.max(1, cost);
+				queue.deficit -= cost;
+				blocks += cost;
+				ran++;
+				advanced.put(player, null);
+			}
+
+			active.pollFirst();
+			if (queue.commands.isEmpty()) {
+				// An idle player doesn't bank credit for later
+				queue.deficit = 0;
+			} else {
+				active.addLast(player);
+			}
+		}
+
+		advanced.replaceAll((player, unused) -> progress(player));
+		return new TickResult(ran, blocks, saturated, advanced);
+	}
+
+	public Progress progress(UUID player) {
+		PlayerQueue queue = players.get(player);
+		return queue == null
+				? new Progress(0, 0, 0, 0, List.of())
+				: new Progress(queue.executed, queue.failed, queue.cancelled, queue.commands.size(),
+						List.copyOf(queue.jobs.keySet()));
+	}
+
+	// The first command of a tick always runs
+	private boolean spent(Budget budget, int ran, long blocks, long start) {
+		return ran > 0 && (ran >= budget.commands() || blocks >= budget.blocks()
+				|| nanoClock.getAsLong() - start >= budget.nanos());
+	}
+
+	private PlayerQueue queue(UUID player) {
+		return players.computeIfAbsent(player, p -> new PlayerQueue());
+	}
+
+	private void deactivate(UUID player, PlayerQueue queue) {
+		active.remove(player);
+		queue.deficit = 0;
+	}
+
+	private record Queued(int jobId, String command) {
+	}
+
+	private static final class PlayerQueue {
+		private final ArrayDeque<Queued> commands = new ArrayDeque<>();
+		// Queued commands per job id
+		private final Map<Integer, Integer> jobs = new LinkedHashMap<>();
+		private int weight = 1;
+		// Blocks the player may still run this turn; negative after a command larger than its credit
+		private long deficit;
+		private long executed;
+		private long failed;
+		private long cancelled;
+	}
+}
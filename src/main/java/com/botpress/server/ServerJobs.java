@@ -0,0 +1,231 @@
+package com.botpress.server;
+
+import com.botpress.Botpress;
+import com.botpress.command.CommandValidation;
+import com.botpress.config.MineBotConfig;
+import com.botpress.network.JobCancelPayload;
+import com.botpress.network.JobPayload;
+import com.botpress.network.JobStatusPayload;
+import com.mojang.brigadier.ParseResults;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.context.ParsedCommandNode;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.block.BlockState;
+import net.minecraft.command.argument.BlockPosArgumentType;
+import net.minecraft.command.argument.BlockStateArgumentType;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Server half of job payloads: commands clients send in JobPayload batches are checked against the
+// same whitelist as on the client and run as the sending player, so vanilla permission checks still
+// apply. Players share one per-tick budget (ServerJobQueue), sized from the server's MSPT
+// (MsptBudget) and capped at serverCommandsPerTick commands and serverTickBudgetMicros of work.
+//
+// Plain fill and setblock commands are parsed as usual but not executed: their boxes are collected
+// and written straight into chunk sections (SectionWriter), which is where most of a build's time
+// would otherwise go.
+public final class ServerJobs {
+	// Vanilla's default commandModificationBlockLimit; larger fills go through the command as usual
+	private static final int MAX_FILL_VOLUME = 32768;
+	// Collected blocks are written out once this many are pending, so the tick budget sees the cost
+	private static final long FLUSH_VOLUME = 65536;
+
+	private static final SectionWriter writer = new SectionWriter();
+	private static ServerJobQueue queue;
+	private static MsptBudget budget;
+	private static int commandsPerTick;
+	private static Map<String, Integer> weights;
+	private static boolean directWrites;
+	private static long tickStart;
+	private static final SectionBatch<BlockState> pending = new SectionBatch<>();
+	private static ServerWorld pendingWorld;
+
+	private ServerJobs() {
+	}
+
+	public static void register(MineBotConfig config) {
+		queue = new ServerJobQueue(config.serverMaxQueuedCommands());
+		budget = new MsptBudget(config.serverTargetMspt(), config.serverTickBudgetMicros() * 1000L,
+				config.serverMinBlocksPerTick(), config.serverMaxBlocksPerTick());
+		commandsPerTick = Math.max(1, config.serverCommandsPerTick());
+		weights = config.serverPlayerWeights();
+		directWrites = config.serverDirectWrites();
+
+		PayloadTypeRegistry.playC2S().register(JobPayload.ID, JobPayload.CODEC);
+		PayloadTypeRegistry.playC2S().register(JobCancelPayload.ID, JobCancelPayload.CODEC);
+		PayloadTypeRegistry.playS2C().register(JobStatusPayload.ID, JobStatusPayload.CODEC);
+
+		// Payload handlers run on the server thread, like the tick, so the queue needs no locking
+		ServerPlayNetworking.registerGlobalReceiver(JobPayload.ID,
+				(payload, context) -> receive(context.player(), payload));
+		ServerPlayNetworking.registerGlobalReceiver(JobCancelPayload.ID, (payload, context) -> {
+			ServerPlayerEntity player = context.player();
+			if (queue.cancel(player.getUuid(), payload.jobId()) > 0) {
+				sendStatus(player, queue.progress(player.getUuid()));
+			}
+		});
+		ServerTickEvents.START_SERVER_TICK.register(server -> tickStart = System.nanoTime());
+		ServerTickEvents.END_SERVER_TICK.register(ServerJobs::tick);
+		ServerPlayConnectionEvents.DISCONNECT
+				.register((handler, server) -> queue.remove(handler.getPlayer().getUuid()));
+	}
+
+	private static void receive(ServerPlayerEntity player, JobPayload payload) {
+		List<String> commands = new ArrayList<>(payload.commands().size());
+		int rejected = 0;
+		for (String command : payload.commands()) {
+			CommandValidation.ValidatedCommand validated = CommandValidation.validate(command);
+			if (validated.valid()) {
+				commands.add(validated.normalized());
+			} else {
+				rejected++;
+			}
+		}
+
+		UUID id = player.getUuid();
+		queue.setWeight(id, weights.getOrDefault(player.getName().getString(), 1));
+		if (rejected > 0) {
+			Botpress.LOGGER.warn("Dropped {} non-whitelisted command(s) from {}", rejected,
+					player.getName().getString());
+			queue.reject(id, rejected);
+		}
+		boolean queued = queue.submit(id, payload.jobId(), commands);
+		if (!queued) {
+			player.sendMessage(Text.literal("[MineBot] ").formatted(Formatting.GOLD)
+					.append(Text.literal("The server's build queue is full; try again once your current jobs finish.")
+							.formatted(Formatting.RED)), false);
+		}
+		// Commands settled without running still have to reach the client's tally
+		if (!queued || rejected > 0) {
+			sendStatus(player, queue.progress(id));
+		}
+	}
+
+	// Jobs run last in the tick, in whatever time the rest of it leaves below the target MSPT
+	private static void tick(MinecraftServer server) {
+		long jobStart = System.nanoTime();
+		if (queue.pending() == 0) {
+			budget.record(jobStart - tickStart, 0, false);
+			return;
+		}
+		ServerJobQueue.TickResult result = queue.runTick(
+				new ServerJobQueue.Budget(commandsPerTick, budget.blocks(), budget.nanos()),
+				(id, command) -> run(server, id, command));
+		flush();
+		long end = System.nanoTime();
+		budget.record(end - tickStart, end - jobStart, result.saturated());
+
+		result.progress().forEach((id, progress) -> {
+			ServerPlayerEntity player = server.getPlayerManager().getPlayer(id);
+			if (player != null) {
+				sendStatus(player, progress);
+			}
+		});
+	}
+
+	// Parses and runs one command as the player and returns the blocks it covers, or -1 if it didn't
+	// parse. Command output is silenced, so a command that fails at run time counts as executed.
+	private static long run(MinecraftServer server, UUID id, String command) {
+		ServerPlayerEntity player = server.getPlayerManager().getPlayer(id);
+		if (player == null) {
+			return -1;
+		}
+		// "//set" is WorldEdit's "/set" command, "/time" is "time"
+		String line = command.startsWith("/") ? command.substring(1) : command;
+		ServerCommandSource source = player.getCommandSource().withSilent();
+		CommandManager manager = server.getCommandManager();
+		ParseResults<ServerCommandSource> parse = manager.getDispatcher().parse(line, source);
+		if (CommandManager.getException(parse) != null) {
+			return -1;
+		}
+		CommandContext<ServerCommandSource> context = parse.getContext().build(line);
+		Placement placement = placement(context);
+		long blocks = placement == null ? 1 : placement.volume();
+		if (directWrites && placement != null && placement.plain() && collect(context, placement)) {
+			return blocks;
+		}
+		// Anything else may read or depend on what was collected before it
+		flush();
+		manager.execute(parse, line);
+		return blocks;
+	}
+
+	// The region a fill or setblock command covers, or null for other commands. Plain means no mode
+	// such as hollow or replace follows the block.
+	private static Placement placement(CommandContext<ServerCommandSource> context) {
+		List<? extends ParsedCommandNode<ServerCommandSource>> nodes = context.getNodes();
+		if (context.getChild() != null || nodes.size() < 3) {
+			return null;
+		}
+		String name = nodes.get(0).getNode().getName();
+		boolean fill = name.equals("fill") && nodes.size() >= 4;
+		if (!fill && !name.equals("setblock")) {
+			return null;
+		}
+		try {
+			BlockPos from = BlockPosArgumentType.getBlockPos(context, fill ? "from" : "pos");
+			BlockPos to = fill ? BlockPosArgumentType.getBlockPos(context, "to") : from;
+			return new Placement(from, to, nodes.size() == (fill ? 4 : 3));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	// Adds a plain fill or setblock to the pending batch. Returns false for block data, and for
+	// unloaded, out of bounds or oversized regions, which all run as commands.
+	private static boolean collect(CommandContext<ServerCommandSource> context, Placement placement) {
+		ServerWorld world = context.getSource().getWorld();
+		BlockPos from = placement.from();
+		BlockPos to = placement.to();
+		// Block entities need the argument's data and their own setup
+		BlockState state = BlockStateArgumentType.getBlockState(context, "block").getBlockState();
+		if (state.hasBlockEntity() || placement.volume() > MAX_FILL_VOLUME || !world.isInBuildLimit(from)
+				|| !world.isInBuildLimit(to) || !world.isRegionLoaded(from, to)) {
+			return false;
+		}
+
+		if (world != pendingWorld) {
+			flush();
+			pendingWorld = world;
+		}
+		pending.add(from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ(), state);
+		if (pending.volume() >= FLUSH_VOLUME) {
+			flush();
+		}
+		return true;
+	}
+
+	private static void flush() {
+		if (!pending.isEmpty()) {
+			writer.write(pendingWorld, pending);
+		}
+	}
+
+	private record Placement(BlockPos from, BlockPos to, boolean plain) {
+		long volume() {
+			return (Math.abs(to.getX() - from.getX()) + 1L) * (Math.abs(to.getY() - from.getY()) + 1L)
+					* (Math.abs(to.getZ() - from.getZ()) + 1L);
+		}
+	}
+
+	private static void sendStatus(ServerPlayerEntity player, ServerJobQueue.Progress progress) {
+		if (ServerPlayNetworking.canSend(player, JobStatusPayload.ID)) {
+			ServerPlayNetworking.send(player, new JobStatusPayload(progress.executed(), progress.failed(),
+					progress.cancelled(), progress.pending(), progress.jobs()));
+		}
+	}
+}
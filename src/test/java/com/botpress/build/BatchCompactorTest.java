@@ -0,0 +1,53 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchCompactorTest {
+
+	@Test
+	void runsCrossingABatchBoundaryMergeIntoOneBox() {
+		BatchCompactor compactor = new BatchCompactor(null);
+
+		assertEquals(List.of(), compactor.append(List.of("setblock 0 64 0 stone", "setblock 1 64 0 stone")));
+		assertEquals(List.of(), compactor.append(List.of("setblock 2 64 0 stone", "setblock 3 64 0 stone")));
+		assertEquals(List.of("fill 0 64 0 3 64 0 minecraft:stone"), compactor.finish());
+	}
+
+	@Test
+	void barriersFlushTheWritesBeforeThem() {
+		BatchCompactor compactor = new BatchCompactor(null);
+
+		assertEquals(List.of(), compactor.append(List.of("setblock 0 64 0 stone")));
+		assertEquals(List.of("fill 0 64 0 1 64 0 minecraft:stone", "//set glass"),
+				compactor.append(List.of("setblock 1 64 0 stone", "//set glass", "setblock 0 65 0 dirt")));
+		assertEquals(List.of("setblock 0 65 0 dirt"), compactor.finish());
+	}
+
+	@Test
+	void longOpenRunsAreFlushed() {
+		BatchCompactor compactor = new BatchCompactor(null);
+		List<String> row = new ArrayList<>();
+		for (int x = 0; x < BatchCompactor.MAX_OPEN_RUN; x++) {
+			row.add("setblock " + x + " 64 0 stone");
+		}
+
+		assertEquals(List.of("fill 0 64 0 " + (BatchCompactor.MAX_OPEN_RUN - 1) + " 64 0 minecraft:stone"),
+				compactor.append(row));
+		assertEquals(List.of(), compactor.finish());
+	}
+
+	@Test
+	void laterBatchesStillSeeEarlierWrites() {
+		BatchCompactor compactor = new BatchCompactor(new PlannedWorld((x, y, z) -> "minecraft:air"));
+
+		compactor.append(List.of("setblock 0 64 0 dirt"));
+		assertEquals(List.of("setblock 0 64 0 minecraft:dirt"), compactor.finish());
+		assertEquals(List.of(), compactor.append(List.of("setblock 0 64 0 dirt")));
+		assertEquals(List.of(), compactor.finish());
+	}
+}
@@ -0,0 +1,84 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockPaletteTest {
+	private final BlockPalette defaults = BlockPalette.defaults();
+
+	@Test
+	void bundledPaletteCoversWoolsTerracottasAndConcretes() {
+		assertTrue(defaults.size() >= 48);
+		assertEquals("minecraft:white_wool", defaults.block(defaults.nearest(0xFFFFFF)));
+		assertEquals("minecraft:black_concrete", defaults.block(defaults.nearest(0x000000)));
+		assertEquals("minecraft:orange_terracotta", defaults.block(defaults.nearest(0xA25426)));
+	}
+
+	@Test
+	void treeSearchMatchesBruteForce() {
+		Random random = new Random(42);
+		int[] colors = new int[200];
+		StringBuilder json = new StringBuilder("{\"blocks\": {");
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = random.nextInt(0x1000000);
+			json.append(i == 0 ? "" : ",").append("\"test:block_").append(i).append("\": \"")
+					.append(String.format("#%06x", colors[i])).append('"');
+		}
+		BlockPalette palette = BlockPalette.read(new StringReader(json.append("}}").toString()));
+
+		for (int i = 0; i < 5000; i++) {
+			int rgb = random.nextInt(0x1000000);
+			double[] target = BlockPalette.toLab(rgb);
+			double best = Double.MAX_VALUE;
+			for (int color : colors) {
+				best = Math.min(best, distance(target, BlockPalette.toLab(color)));
+			}
+			int found = Integer.parseInt(palette.block(palette.nearest(rgb)).substring("test:block_".length()));
+			assertEquals(best, distance(target, BlockPalette.toLab(colors[found])), 1e-9,
+					"colour " + Integer.toHexString(rgb));
+		}
+	}
+
+	@Test
+	void labConversionHitsReferenceValues() {
+		double[] white = BlockPalette.toLab(0xFFFFFF);
+		assertEquals(100, white[0], 0.01);
+		assertEquals(0, white[1], 0.01);
+		assertEquals(0, white[2], 0.01);
+
+		double[] red = BlockPalette.toLab(0xFF0000);
+		assertEquals(53.24, red[0], 0.05);
+		assertEquals(80.09, red[1], 0.05);
+		assertEquals(67.20, red[2], 0.05);
+	}
+
+	@Test
+	void customPaletteIsReadAndValidated() {
+		BlockPalette palette = BlockPalette.read(new StringReader("""
+				{"blocks": {"minecraft:red_wool": "#a02722", "minecraft:blue_wool": "#35399d"}}
+				"""));
+		assertEquals(2, palette.size());
+		assertEquals("minecraft:red_wool", palette.block(palette.nearest(0xFF0000)));
+		assertEquals("minecraft:blue_wool", palette.block(palette.nearest(0x0000FF)));
+
+		assertThrows(IllegalArgumentException.class, () -> BlockPalette.read(new StringReader("""
+				{"blocks": {"minecraft:red_wool; kill @a": "#a02722"}}
+				""")));
+		assertThrows(IllegalArgumentException.class,
+				() -> BlockPalette.read(new StringReader("{\"blocks\": {\"minecraft:red_wool\": \"red\"}}")));
+		assertThrows(IllegalArgumentException.class, () -> BlockPalette.read(new StringReader("{\"blocks\": {}}")));
+	}
+
+	private static double distance(double[] a, double[] b) {
+		double dl = a[0] - b[0];
+		double da = a[1] - b[1];
+		double db = a[2] - b[2];
+		return dl * dl + da * da + db * db;
+	}
+}
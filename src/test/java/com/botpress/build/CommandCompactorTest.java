@@ -0,0 +1,111 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandCompactorTest {
+
+	@Test
+	void rowFillsMergeIntoSingleBox() {
+		List<String> commands = new ArrayList<>();
+		for (int y = 64; y < 74; y++) {
+			commands.add("fill 0 " + y + " 5 9 " + y + " 5 minecraft:white_concrete");
+		}
+
+		List<String> compacted = CommandCompactor.compact(commands);
+
+		assertEquals(List.of("fill 0 64 5 9 73 5 minecraft:white_concrete"), compacted);
+	}
+
+	@Test
+	void overwrittenWritesAreDropped() {
+		List<String> commands = List.of("setblock 0 64 0 stone", "setblock 1 64 0 stone", "setblock 0 64 0 dirt",
+				"setblock 1 64 0 dirt");
+
+		List<String> compacted = CommandCompactor.compact(commands);
+
+		assertEquals(List.of("fill 0 64 0 1 64 0 minecraft:dirt"), compacted);
+	}
+
+	@Test
+	void barriersKeepTheirPosition() {
+		List<String> commands = List.of("setblock 0 64 0 stone", "setblock 1 64 0 stone", "//set glass",
+				"setblock 0 65 0 stone", "setblock 1 65 0 stone");
+
+		List<String> compacted = CommandCompactor.compact(commands);
+
+		assertEquals(List.of("fill 0 64 0 1 64 0 minecraft:stone", "//set glass", "fill 0 65 0 1 65 0 minecraft:stone"),
+				compacted);
+	}
+
+	@Test
+	void unmodelledCommandsPassThroughUnchanged() {
+		List<String> commands = List.of("setblock ~ ~1 ~ stone", "fill 0 0 0 3 3 3 stone hollow",
+				"fill 0 0 0 3 3 3 stone replace dirt", "setblock 0 0 0 chest{Lock:\"x\"}");
+
+		assertEquals(commands, CommandCompactor.compact(commands));
+	}
+
+	@Test
+	void runsThatDontShrinkAreLeftAlone() {
+		List<String> commands = List.of("setblock 0 64 0 stone", "setblock 5 64 0 dirt");
+
+		assertEquals(commands, CommandCompactor.compact(commands));
+	}
+
+	@Test
+	void mergedBoxesRespectFillVolumeLimit() {
+		List<String> commands = new ArrayList<>();
+		for (int y = 0; y < 40; y++) {
+			commands.add("fill 0 " + y + " 0 31 " + y + " 31 stone");
+		}
+
+		List<String> compacted = CommandCompactor.compact(commands);
+
+		assertEquals(2, compacted.size());
+		VoxelModel covered = new VoxelModel();
+		for (String command : compacted) {
+			CommandCompactor.BlockWrite write = CommandCompactor.parse(command);
+			assertTrue(write.volume() <= FillCompiler.MAX_FILL_VOLUME);
+			covered.fill(write.x1(), write.y1(), write.z1(), write.x2(), write.y2(), write.z2(), write.block());
+		}
+		assertEquals(32 * 32 * 40, covered.size());
+	}
+
+	@Test
+	void deltaOnlyWritesBlocksTheWorldLacks() {
+		PlannedWorld world = new PlannedWorld((x, y, z) -> x == 5 ? "minecraft:dirt" : "minecraft:stone");
+
+		List<String> compacted = CommandCompactor.compact(List.of("fill 0 64 0 9 64 0 stone"), world);
+
+		assertEquals(List.of("setblock 5 64 0 minecraft:stone"), compacted);
+		assertEquals(List.of(), CommandCompactor.compact(List.of("fill 0 65 0 3 65 0 stone"), world));
+	}
+
+	@Test
+	void laterBatchesSeeEarlierWritesUntilABarrier() {
+		PlannedWorld world = new PlannedWorld((x, y, z) -> "minecraft:air");
+
+		assertEquals(List.of("setblock 0 64 0 minecraft:dirt"),
+				CommandCompactor.compact(List.of("setblock 0 64 0 dirt"), world));
+		assertEquals(List.of(), CommandCompactor.compact(List.of("setblock 0 64 0 dirt"), world));
+
+		List<String> afterBarrier = List.of("//set glass", "setblock 1 64 0 air");
+		assertEquals(afterBarrier, CommandCompactor.compact(afterBarrier, world));
+	}
+
+	@Test
+	void parseRejectsRelativeCoordinatesAndFillModes() {
+		assertNull(CommandCompactor.parse("fill ~ ~ ~ 1 1 1 stone"));
+		assertNull(CommandCompactor.parse("setblock 0 0 0 stone destroy"));
+		assertNull(CommandCompactor.parse("time set day"));
+		assertEquals("minecraft:oak_stairs[facing=north]",
+				CommandCompactor.parse("/setblock 0 0 0 oak_stairs[facing=north]").block());
+	}
+}
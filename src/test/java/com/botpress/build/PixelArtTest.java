@@ -0,0 +1,104 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PixelArtTest {
+	private static final int RED = 0xFFFF0000;
+	private static final int BLUE = 0xFF0000FF;
+
+	private final BlockPalette palette = BlockPalette.read(new StringReader("""
+			{"blocks": {"minecraft:red_wool": "#ff0000", "minecraft:blue_wool": "#0000ff",
+			 "minecraft:white_wool": "#ffffff", "minecraft:black_wool": "#000000"}}
+			"""));
+
+	@Test
+	void fitAveragesBoxesAndKeepsAspectRatio() {
+		int[] pixels = new int[8 * 4];
+		Arrays.fill(pixels, RED);
+		for (int y = 0; y < 4; y++) {
+			for (int x = 4; x < 8; x++) {
+				pixels[y * 8 + x] = BLUE;
+			}
+		}
+		PixelArt.Image image = new PixelArt.Image(8, 4, pixels);
+
+		PixelArt.Image scaled = PixelArt.fit(image, 4);
+		assertEquals(4, scaled.width());
+		assertEquals(2, scaled.height());
+		assertArrayEquals(new int[] {RED, RED, BLUE, BLUE, RED, RED, BLUE, BLUE}, scaled.argb());
+		assertSame(image, PixelArt.fit(image, 8));
+	}
+
+	@Test
+	void fitIgnoresTransparentPixelsWhenAveraging() {
+		PixelArt.Image image = new PixelArt.Image(2, 1, new int[] {RED, 0x000000FF});
+		assertEquals(0x7FFF0000, PixelArt.fit(image, 1).argb()[0]);
+	}
+
+	@Test
+	void quantizeMatchesColoursAndSkipsTransparentPixels() {
+		PixelArt.Image image = new PixelArt.Image(3, 1, new int[] {0xFFF01010, 0x40FF0000, 0xFF1010E0});
+		int[] indices = PixelArt.quantize(image, palette, false);
+		assertEquals("minecraft:red_wool", palette.block(indices[0]));
+		assertEquals(-1, indices[1]);
+		assertEquals("minecraft:blue_wool", palette.block(indices[2]));
+	}
+
+	@Test
+	void ditheringMixesNeighbouringColoursForMidtones() {
+		int[] pixels = new int[64 * 64];
+		Arrays.fill(pixels, 0xFF808080);
+		PixelArt.Image image = new PixelArt.Image(64, 64, pixels);
+
+		int[] flat = PixelArt.quantize(image, palette, false);
+		assertEquals(1, Arrays.stream(flat).distinct().count());
+		int[] dithered = PixelArt.quantize(image, palette, true);
+		assertEquals(2, Arrays.stream(dithered).distinct().count());
+	}
+
+	@Test
+	void slabsPlaceTheTopRowHighestInBottomUpSlabs() {
+		int width = 4;
+		int height = 20;
+		int[] indices = new int[width * height];
+		Arrays.fill(indices, 0);
+		indices[0] = 1; // top left
+		indices[width * height - 1] = -1; // bottom right left empty
+
+		List<VoxelModel> slabs = PixelArt.slabs(indices, width, height, palette, 100, 64, -5);
+		assertEquals(2, slabs.size());
+		assertEquals(PixelArt.SLAB_ROWS * width - 1, slabs.get(0).size());
+		assertEquals("minecraft:red_wool", slabs.get(0).get(100, 64, -5));
+		assertNull(slabs.get(0).get(103, 64, -5));
+		assertEquals("minecraft:blue_wool", slabs.get(1).get(100, 64 + height - 1, -5));
+		assertEquals("minecraft:red_wool", slabs.get(1).get(101, 64 + height - 1, -5));
+	}
+
+	@Test
+	void largeArtCompilesToFewFills() {
+		int size = 256;
+		int[] indices = new int[size * size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				indices[y * size + x] = (x / 64 + y / 64) % 2;
+			}
+		}
+
+		int commands = 0;
+		for (VoxelModel slab : PixelArt.slabs(indices, size, size, palette, 0, 0, 0)) {
+			commands += FillCompiler.compile(slab).size();
+		}
+		// 16 squares per band of slabs, far below one command per row run
+		assertTrue(commands <= size / PixelArt.SLAB_ROWS * 4, "compiled to " + commands + " commands");
+	}
+}
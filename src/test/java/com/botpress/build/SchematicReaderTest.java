@@ -0,0 +1,277 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchematicReaderTest {
+	private final List<VoxelModel> slabs = new ArrayList<>();
+	private int[] size;
+	private final AtomicInteger opened = new AtomicInteger();
+
+	private void read(byte[] file) throws IOException {
+		SchematicReader.read(() -> {
+			opened.incrementAndGet();
+			return new ByteArrayInputStream(file);
+		}, 100, 64, -20, new SchematicReader.Listener() {
+			@Override
+			public void begin(int sizeX, int sizeY, int sizeZ) {
+				assertTrue(slabs.isEmpty());
+				size = new int[] {sizeX, sizeY, sizeZ};
+			}
+
+			@Override
+			public void slab(VoxelModel slab) {
+				slabs.add(slab);
+			}
+		});
+	}
+
+	private String blockAt(int x, int y, int z) {
+		for (VoxelModel slab : slabs) {
+			String block = slab.get(100 + x, 64 + y, -20 + z);
+			if (block != null) {
+				return block;
+			}
+		}
+		return null;
+	}
+
+	private static void tag(DataOutputStream out, int type, String name) throws IOException {
+		out.writeByte(type);
+		out.writeUTF(name);
+	}
+
+	private static void shortTag(DataOutputStream out, String name, int value) throws IOException {
+		tag(out, 2, name);
+		out.writeShort(value);
+	}
+
+	private static void palette(DataOutputStream out, String... blocks) throws IOException {
+		tag(out, 10, "Palette");
+		for (int i = 0; i < blocks.length; i++) {
+			tag(out, 3, blocks[i]);
+			out.writeInt(i);
+		}
+		out.writeByte(0);
+	}
+
+	private static void blockData(DataOutputStream out, String name, int... indices) throws IOException {
+		ByteArrayOutputStream varints = new ByteArrayOutputStream();
+		for (int index : indices) {
+			while ((index & ~0x7F) != 0) {
+				varints.write(index & 0x7F | 0x80);
+				index >>>= 7;
+			}
+			varints.write(index);
+		}
+		tag(out, 7, name);
+		out.writeInt(varints.size());
+		out.write(varints.toByteArray());
+	}
+
+	private static byte[] gzip(ByteArrayOutputStream plain) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(plain.toByteArray());
+		}
+		return bytes.toByteArray();
+	}
+
+	// Version 2 layout, as WorldEdit writes it: sizes and palette before the block data
+	private static byte[] spongeV2(int width, int height, int length, String[] palette, int... indices)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		tag(out, 10, "Schematic");
+		tag(out, 3, "Version");
+		out.writeInt(2);
+		shortTag(out, "Width", width);
+		shortTag(out, "Height", height);
+		shortTag(out, "Length", length);
+		tag(out, 11, "Offset");
+		out.writeInt(3);
+		out.writeInt(1);
+		out.writeInt(2);
+		out.writeInt(3);
+		palette(out, palette);
+		blockData(out, "BlockData", indices);
+		tag(out, 9, "BlockEntities");
+		out.writeByte(10);
+		out.writeInt(1);
+		tag(out, 8, "Id");
+		out.writeUTF("minecraft:chest");
+		out.writeByte(0);
+		out.writeByte(0);
+		return gzip(bytes);
+	}
+
+	@Test
+	void readsSpongeSchematic() throws IOException {
+		// 3 wide, 2 high, 2 long; cells in y, z, x order
+		read(spongeV2(3, 2, 2, new String[] {"minecraft:air", "minecraft:stone", "minecraft:oak_stairs[facing=east]"},
+				1, 1, 1, 0, 2, 0, 0, 0, 0, 2, 2, 2));
+
+		assertArrayEquals(new int[] {3, 2, 2}, size);
+		assertEquals(1, opened.get());
+		assertEquals("minecraft:stone", blockAt(0, 0, 0));
+		assertEquals("minecraft:stone", blockAt(2, 0, 0));
+		assertNull(blockAt(0, 0, 1));
+		assertEquals("minecraft:oak_stairs[facing=east]", blockAt(1, 0, 1));
+		assertNull(blockAt(1, 1, 0));
+		assertEquals("minecraft:oak_stairs[facing=east]", blockAt(2, 1, 1));
+		int total = 0;
+		for (VoxelModel slab : slabs) {
+			total += slab.size();
+		}
+		assertEquals(7, total);
+	}
+
+	@Test
+	void tallSchematicArrivesInSlabs() throws IOException {
+		int[] cells = new int[40];
+		Arrays.fill(cells, 1);
+		read(spongeV2(1, 40, 1, new String[] {"minecraft:air", "minecraft:stone"}, cells));
+
+		assertEquals(3, slabs.size());
+		assertEquals(16, slabs.get(0).size());
+		assertEquals(16, slabs.get(1).size());
+		assertEquals(8, slabs.get(2).size());
+		assertEquals("minecraft:stone", slabs.get(2).get(100, 64 + 39, -20));
+	}
+
+	@Test
+	void readsNestedVersion3AndIgnoresBiomes() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		tag(out, 10, "");
+		tag(out, 10, "Schematic");
+		shortTag(out, "Width", 2);
+		shortTag(out, "Height", 1);
+		shortTag(out, "Length", 1);
+		// Biomes carry their own Palette and Data, which must not be mistaken for blocks
+		tag(out, 10, "Biomes");
+		palette(out, "minecraft:plains");
+		blockData(out, "Data", 0, 0);
+		out.writeByte(0);
+		tag(out, 10, "Blocks");
+		palette(out, "minecraft:glass", "minecraft:air");
+		blockData(out, "Data", 1, 0);
+		out.writeByte(0);
+		out.writeByte(0);
+		out.writeByte(0);
+		read(bytes.toByteArray());
+
+		assertNull(blockAt(0, 0, 0));
+		assertEquals("minecraft:glass", blockAt(1, 0, 0));
+	}
+
+	@Test
+	void blockDataBeforePaletteTakesASecondPass() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		tag(out, 10, "Schematic");
+		blockData(out, "BlockData", 1, 1);
+		shortTag(out, "Width", 2);
+		shortTag(out, "Height", 1);
+		shortTag(out, "Length", 1);
+		palette(out, "minecraft:air", "minecraft:dirt");
+		out.writeByte(0);
+		read(gzip(bytes));
+
+		assertEquals(2, opened.get());
+		assertEquals("minecraft:dirt", blockAt(0, 0, 0));
+		assertEquals("minecraft:dirt", blockAt(1, 0, 0));
+	}
+
+	@Test
+	void readsStructureFile() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		tag(out, 10, "");
+		// Vanilla writes blocks before the palette
+		tag(out, 9, "blocks");
+		out.writeByte(10);
+		out.writeInt(2);
+		int[][] positions = {{1, 0, 2}, {0, 1, 0}};
+		for (int i = 0; i < 2; i++) {
+			tag(out, 9, "pos");
+			out.writeByte(3);
+			out.writeInt(3);
+			for (int coordinate : positions[i]) {
+				out.writeInt(coordinate);
+			}
+			tag(out, 3, "state");
+			out.writeInt(i);
+			if (i == 1) {
+				tag(out, 10, "nbt");
+				tag(out, 8, "id");
+				out.writeUTF("minecraft:barrel");
+				out.writeByte(0);
+			}
+			out.writeByte(0);
+		}
+		tag(out, 9, "palette");
+		out.writeByte(10);
+		out.writeInt(2);
+		tag(out, 8, "Name");
+		out.writeUTF("minecraft:oak_log");
+		tag(out, 10, "Properties");
+		tag(out, 8, "axis");
+		out.writeUTF("x");
+		out.writeByte(0);
+		out.writeByte(0);
+		tag(out, 10, "Properties");
+		tag(out, 8, "open");
+		out.writeUTF("false");
+		tag(out, 8, "facing");
+		out.writeUTF("up");
+		out.writeByte(0);
+		tag(out, 8, "Name");
+		out.writeUTF("minecraft:barrel");
+		out.writeByte(0);
+		tag(out, 9, "size");
+		out.writeByte(3);
+		out.writeInt(3);
+		out.writeInt(2);
+		out.writeInt(2);
+		out.writeInt(3);
+		tag(out, 3, "DataVersion");
+		out.writeInt(4440);
+		out.writeByte(0);
+		read(gzip(bytes));
+
+		assertArrayEquals(new int[] {2, 2, 3}, size);
+		assertEquals("minecraft:oak_log[axis=x]", blockAt(1, 0, 2));
+		assertEquals("minecraft:barrel[facing=up,open=false]", blockAt(0, 1, 0));
+	}
+
+	@Test
+	void rejectsUnsafeBlockStates() {
+		assertThrows(IOException.class, () -> read(spongeV2(1, 1, 1,
+				new String[] {"minecraft:stone] run say hi"}, 0)));
+	}
+
+	@Test
+	void rejectsOversizedAndCorruptSchematics() {
+		assertThrows(IOException.class,
+				() -> read(spongeV2(SchematicReader.MAX_SIZE + 1, 1, 1, new String[] {"minecraft:stone"})));
+		assertThrows(IOException.class, () -> read(spongeV2(2, 1, 1, new String[] {"minecraft:stone"}, 0, 5)));
+		assertThrows(IOException.class, () -> read(spongeV2(2, 1, 1, new String[] {"minecraft:stone"}, 0)));
+		assertThrows(IOException.class, () -> read(new byte[] {1, 2, 3}));
+	}
+}
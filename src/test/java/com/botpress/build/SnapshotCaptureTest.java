@@ -0,0 +1,75 @@
+package com.botpress.build;
+
+import com.botpress.command.CommandStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotCaptureTest {
+
+	@Test
+	void overlappingBoxesKeepTheBlockFromBeforeTheFirstWrite() {
+		// The fake world applies every released command, like the server would
+		VoxelModel world = new VoxelModel();
+		world.fill(0, 64, 0, 4, 66, 4, "minecraft:dirt");
+		AtomicReference<VoxelModel> captured = new AtomicReference<>();
+		SnapshotCapture capture = new SnapshotCapture(
+				CommandStream.of(List.of("fill 0 64 0 4 66 4 oak_planks", "fill 1 65 1 3 65 3 air", "time set day")),
+				world::get, Runnable::run, captured::set);
+
+		List<String> sent = new ArrayList<>();
+		for (String command = capture.poll(); command != null; command = capture.poll()) {
+			sent.add(command);
+			CommandCompactor.BlockWrite write = CommandCompactor.parse(command);
+			if (write != null) {
+				world.fill(write.x1(), write.y1(), write.z1(), write.x2(), write.y2(), write.z2(), write.block());
+			}
+		}
+
+		assertEquals(3, sent.size());
+		assertTrue(capture.isExhausted());
+		assertEquals(75, captured.get().size());
+		assertEquals("minecraft:dirt", captured.get().get(2, 65, 2));
+	}
+
+	@Test
+	void streamedCommandsAreCapturedAsTheyArrive() {
+		CommandStream stream = new CommandStream();
+		AtomicReference<VoxelModel> captured = new AtomicReference<>();
+		SnapshotCapture capture = new SnapshotCapture(stream, (x, y, z) -> x == 1 ? null : "minecraft:stone",
+				Runnable::run, captured::set);
+
+		assertNull(capture.poll());
+		assertFalse(capture.isExhausted());
+
+		stream.append(List.of("setblock 0 64 0 glass", "setblock 1 64 0 glass"));
+		stream.close();
+		assertEquals("setblock 0 64 0 glass", capture.poll());
+		assertEquals("setblock 1 64 0 glass", capture.poll());
+		assertNull(capture.poll());
+		assertTrue(capture.isExhausted());
+
+		assertEquals("minecraft:stone", captured.get().get(0, 64, 0));
+		assertEquals(Snapshot.UNKNOWN, captured.get().get(1, 64, 0));
+	}
+
+	@Test
+	void cancellingStillHandsOverWhatWasCaptured() {
+		AtomicReference<VoxelModel> captured = new AtomicReference<>();
+		SnapshotCapture capture = new SnapshotCapture(CommandStream.of(List.of("setblock 0 64 0 glass")),
+				(x, y, z) -> "minecraft:stone", Runnable::run, captured::set);
+
+		capture.poll();
+		capture.cancel();
+
+		assertTrue(capture.isExhausted());
+		assertEquals(1, captured.get().size());
+	}
+}
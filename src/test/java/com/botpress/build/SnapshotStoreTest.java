@@ -0,0 +1,68 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotStoreTest {
+
+	private static Snapshot snapshot(String world, String description) {
+		VoxelModel blocks = new VoxelModel();
+		blocks.set(0, 64, 0, "minecraft:stone");
+		return new Snapshot(world, "minecraft:overworld", description, 0, blocks);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Test
+	void latestIsTheNewestSnapshotOfTheWorld() throws IOException {
+		Path directory = Files.createTempDirectory("minebot-snapshots");
+		try {
+			SnapshotStore store = new SnapshotStore(directory, 8, 1 << 20);
+			long house = store.push(snapshot("local:A", "Build house"));
+			store.push(snapshot("local:B", "Build tower"));
+
+			SnapshotStore.Stored latest = store.latest("local:A");
+
+			assertEquals(house, latest.id());
+			assertEquals("Build house", latest.snapshot().description());
+			store.remove(house);
+			assertNull(store.latest("local:A"));
+			assertEquals("Build tower", store.latest("local:B").snapshot().description());
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	void oldestSnapshotsAreDroppedBeyondTheBounds() throws IOException {
+		Path directory = Files.createTempDirectory("minebot-snapshots");
+		try {
+			SnapshotStore store = new SnapshotStore(directory, 3, 1 << 20);
+			for (int i = 0; i < 5; i++) {
+				store.push(snapshot("w", "Build " + i));
+			}
+			assertEquals(3, store.size());
+
+			SnapshotStore tiny = new SnapshotStore(directory, 3, 1);
+			tiny.push(snapshot("w", "Build 5"));
+			assertEquals(1, tiny.size());
+			assertEquals("Build 5", tiny.latest("w").snapshot().description());
+		} finally {
+			delete(directory);
+		}
+	}
+}
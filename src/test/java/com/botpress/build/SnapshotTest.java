@@ -0,0 +1,64 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+	private static Snapshot roundTrip(Snapshot snapshot) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		snapshot.write(bytes);
+		return Snapshot.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	@Test
+	void roundTripKeepsBlocksAndHeader() throws IOException {
+		VoxelModel blocks = new VoxelModel();
+		blocks.fill(-20, 60, -3, 5, 64, 4, "minecraft:grass_block");
+		blocks.set(0, 61, 0, "minecraft:oak_stairs[facing=east,half=bottom,shape=straight,waterlogged=false]");
+		blocks.set(300, 70, -300, "minecraft:stone");
+		blocks.set(1, 61, 0, Snapshot.UNKNOWN);
+
+		Snapshot restored = roundTrip(new Snapshot("local:World", "minecraft:overworld", "Build house", 42, blocks));
+
+		assertEquals("local:World", restored.world());
+		assertEquals("Build house", restored.description());
+		assertEquals(42, restored.createdAt());
+		assertEquals(blocks.size() - 1, restored.blocks().size());
+		assertTrue(restored.blocks().diff(blocks).isEmpty());
+		assertNull(restored.blocks().get(1, 61, 0));
+	}
+
+	@Test
+	void uniformRegionsCompressToAFewBytes() throws IOException {
+		VoxelModel blocks = new VoxelModel();
+		blocks.fill(0, 0, 0, 127, 63, 127, "minecraft:air");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		new Snapshot("w", "minecraft:overworld", "Clear", 0, blocks).write(bytes);
+
+		assertTrue(bytes.size() < 200, bytes.size() + " bytes");
+	}
+
+	@Test
+	void restoreSkipsBlocksAlreadyBackAndUnknownOnes() {
+		VoxelModel blocks = new VoxelModel();
+		blocks.fill(0, 64, 0, 3, 64, 0, "minecraft:grass_block");
+		blocks.set(4, 64, 0, Snapshot.UNKNOWN);
+		Snapshot snapshot = new Snapshot("w", "minecraft:overworld", "Build wall", 0, blocks);
+
+		List<String> commands = snapshot
+				.restoreCommands((x, y, z) -> x < 2 ? "minecraft:grass_block" : "minecraft:stone");
+
+		assertEquals(List.of("fill 2 64 0 3 64 0 minecraft:grass_block"), commands);
+		assertEquals(List.of("fill 0 64 0 3 64 0 minecraft:grass_block"), snapshot.restoreCommands(null));
+	}
+}
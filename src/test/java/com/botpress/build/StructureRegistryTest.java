@@ -0,0 +1,115 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructureRegistryTest {
+
+	@Test
+	void houseIsFilledThenCarved() {
+		List<String> commands = StructureRegistry.compile("house", new StructureGenerator.Bounds(10, 64, 20, 5, 4, 6),
+				"minecraft:oak_planks");
+
+		assertEquals(List.of("fill 10 64 20 14 67 25 minecraft:oak_planks", "fill 12 65 20 12 66 24 minecraft:air",
+				"fill 11 65 21 13 66 24 minecraft:air"), commands);
+	}
+
+	@Test
+	void largeCubeIsSplitIntoLegalFills() {
+		List<String> commands = StructureRegistry.compile("cube", new StructureGenerator.Bounds(0, 0, 0, 64, 64, 64),
+				"minecraft:stone");
+
+		assertEquals(8, commands.size());
+		for (String command : commands) {
+			assertTrue(CommandCompactor.parse(command).volume() <= FillCompiler.MAX_FILL_VOLUME, command);
+		}
+	}
+
+	@Test
+	void hollowSphereHasAirInsideAndLeavesCornersAlone() {
+		VoxelModel model = new VoxelModel();
+		StructureRegistry.get("hollow_sphere").generate(model, new StructureGenerator.Bounds(0, 0, 0, 9, 9, 9),
+				"minecraft:glass");
+
+		assertEquals("minecraft:air", model.get(4, 4, 4));
+		assertEquals("minecraft:glass", model.get(4, 0, 4));
+		assertEquals("minecraft:glass", model.get(0, 4, 4));
+		assertNull(model.get(0, 0, 0));
+	}
+
+	@Test
+	void curvedShapesCompileToFarFewerCommandsThanBlocks() {
+		for (String name : List.of("sphere", "dome", "cylinder", "pyramid", "hollow_dome", "arch")) {
+			VoxelModel model = new VoxelModel();
+			StructureRegistry.get(name).generate(model, new StructureGenerator.Bounds(0, 64, 0, 32, 24, 32),
+					"minecraft:stone");
+			List<String> commands = FillCompiler.compile(model);
+
+			assertTrue(commands.size() * 10 < model.size(), name + ": " + commands.size() + " for " + model.size());
+		}
+	}
+
+	@Test
+	void archOpeningIsClearedThroughItsDepth() {
+		VoxelModel model = new VoxelModel();
+		StructureRegistry.get("arch").generate(model, new StructureGenerator.Bounds(0, 0, 0, 8, 6, 2),
+				"minecraft:stone_bricks");
+
+		assertEquals("minecraft:air", model.get(4, 0, 0));
+		assertEquals("minecraft:air", model.get(4, 0, 1));
+		assertEquals("minecraft:stone_bricks", model.get(0, 0, 0));
+		assertEquals("minecraft:stone_bricks", model.get(4, 5, 1));
+	}
+
+	@Test
+	void rebuildingADamagedHouseOnlyRepairsTheDamage() {
+		StructureGenerator.Bounds bounds = new StructureGenerator.Bounds(10, 64, 20, 5, 4, 6);
+		VoxelModel house = StructureRegistry.generate("house", bounds, "minecraft:oak_planks");
+		VoxelModel world = StructureRegistry.generate("house", bounds, "minecraft:oak_planks");
+		world.set(10, 65, 22, "minecraft:air");
+		world.set(10, 66, 22, "minecraft:air");
+		BlockStateLookup lookup = (x, y, z) -> world.get(x, y, z);
+
+		assertEquals(List.of("fill 10 65 22 10 66 22 minecraft:oak_planks"),
+				FillCompiler.compileDelta(house, house.diff(lookup)));
+		assertTrue(FillCompiler.compileDelta(world, world.diff(lookup)).isEmpty());
+	}
+
+	@Test
+	void planNamespacesTheMaterialAndCountsBlocksInPlace() {
+		StructureGenerator.Bounds bounds = new StructureGenerator.Bounds(0, 64, 0, 3, 1, 1);
+		VoxelModel world = new VoxelModel();
+		world.set(0, 64, 0, "minecraft:stone");
+
+		StructureRegistry.Plan plan = StructureRegistry.plan("cube", bounds, "stone", (x, y, z) -> world.get(x, y, z));
+
+		assertEquals(List.of("fill 1 64 0 2 64 0 minecraft:stone"), plan.commands());
+		assertEquals(1, plan.inPlace());
+		assertEquals(List.of("fill 0 64 0 2 64 0 minecraft:stone"),
+				StructureRegistry.plan("cube", bounds, "stone", null).commands());
+		assertNull(StructureRegistry.plan("castle", bounds, "stone", null));
+	}
+
+	@Test
+	void scatteredChangesFallBackToTheWholeStructure() {
+		StructureGenerator.Bounds bounds = new StructureGenerator.Bounds(0, 64, 0, 12, 12, 12);
+		VoxelModel sphere = StructureRegistry.generate("hollow_sphere", bounds, "minecraft:glass");
+
+		// Open air already matches the inside, leaving a shell that takes more boxes than solid-then-carve
+		List<String> commands = FillCompiler.compileDelta(sphere, sphere.diff((x, y, z) -> "minecraft:air"));
+
+		assertEquals(FillCompiler.compile(sphere), commands);
+	}
+
+	@Test
+	void unknownStructureCompilesToNothing() {
+		assertTrue(StructureRegistry.compile("castle", new StructureGenerator.Bounds(0, 0, 0, 5, 5, 5), "stone")
+				.isEmpty());
+		assertNull(StructureRegistry.generate("castle", new StructureGenerator.Bounds(0, 0, 0, 5, 5, 5), "stone"));
+	}
+}
@@ -0,0 +1,96 @@
+package com.botpress.build;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoxelModelTest {
+
+	@Test
+	void setAndGetAcrossNegativeSectionBoundaries() {
+		VoxelModel model = new VoxelModel();
+		model.set(-1, -64, -17, "minecraft:stone");
+		model.set(15, 319, 16, "minecraft:dirt");
+		model.set(15, 319, 16, "minecraft:glass");
+
+		assertEquals("minecraft:stone", model.get(-1, -64, -17));
+		assertEquals("minecraft:glass", model.get(15, 319, 16));
+		assertNull(model.get(0, -64, -17));
+		assertEquals(2, model.size());
+	}
+
+	@Test
+	void paletteGrowsPastPackedWidth() {
+		VoxelModel model = new VoxelModel();
+		model.fill(0, 0, 0, 15, 15, 15, "minecraft:stone");
+		for (int i = 0; i < 40; i++) {
+			model.set(i % 16, i / 16, 0, "minecraft:block_" + i);
+		}
+
+		for (int i = 0; i < 40; i++) {
+			assertEquals("minecraft:block_" + i, model.get(i % 16, i / 16, 0));
+		}
+		assertEquals("minecraft:stone", model.get(5, 5, 5));
+		assertEquals(4096, model.size());
+	}
+
+	@Test
+	void largeUniformFillStaysSparse() {
+		VoxelModel model = new VoxelModel();
+		model.fill(0, -64, 0, 255, 191, 255, "minecraft:stone");
+		model.fill(10, 0, 10, 20, 5, 20, "minecraft:air");
+
+		assertEquals(256 * 256 * 256, model.size());
+		assertEquals(4096, model.sectionCount());
+		assertEquals("minecraft:air", model.get(20, 5, 20));
+		assertEquals("minecraft:stone", model.get(21, 5, 20));
+	}
+
+	@Test
+	void forEachInOrderVisitsBottomUpThenZThenX() {
+		VoxelModel model = new VoxelModel();
+		model.set(20, 1, 0, "c");
+		model.set(-3, 1, 0, "b");
+		model.set(5, 0, 40, "a");
+		model.set(0, 17, -20, "d");
+		List<String> order = new ArrayList<>();
+
+		model.forEachInOrder((x, y, z, block) -> order.add(block + "@" + x + "," + y + "," + z));
+
+		assertEquals(List.of("a@5,0,40", "b@-3,1,0", "c@20,1,0", "d@0,17,-20"), order);
+	}
+
+	@Test
+	void diffKeepsOnlyChangedVoxels() {
+		VoxelModel desired = new VoxelModel();
+		desired.fill(0, 0, 0, 31, 15, 15, "minecraft:stone");
+		desired.set(40, 0, 0, "minecraft:glass");
+		VoxelModel current = new VoxelModel();
+		current.fill(0, 0, 0, 31, 15, 15, "minecraft:stone");
+		current.set(3, 3, 3, "minecraft:dirt");
+
+		VoxelModel changed = desired.diff(current);
+
+		assertEquals(2, changed.size());
+		assertEquals("minecraft:stone", changed.get(3, 3, 3));
+		assertEquals("minecraft:glass", changed.get(40, 0, 0));
+		assertTrue(desired.diff(desired).isEmpty());
+	}
+
+	@Test
+	void diffAgainstWorldRewritesUnknownPositions() {
+		VoxelModel desired = new VoxelModel();
+		desired.fill(0, 0, 0, 3, 0, 0, "minecraft:stone");
+
+		VoxelModel changed = desired.diff((x, y, z) -> x == 0 ? "minecraft:stone" : x == 1 ? null : "minecraft:dirt");
+
+		assertEquals(3, changed.size());
+		assertNull(changed.get(0, 0, 0));
+		assertEquals("minecraft:stone", changed.get(1, 0, 0));
+	}
+}
@@ -0,0 +1,54 @@
+package com.botpress.chat;
+
+import com.botpress.network.BridgeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IntentParserTest {
+	private final IntentParser defaults = IntentParser.defaults();
+
+	@Test
+	void defaultGrammarMapsTimeWeatherAndGamemode() {
+		assertEquals(new BridgeResponse.Command("time set day"), defaults.match("Make it daytime!"));
+		assertEquals(new BridgeResponse.Command("time set night"), defaults.match("please set the time to night"));
+		assertEquals(new BridgeResponse.Command("weather clear"), defaults.match("clear weather"));
+		assertEquals(new BridgeResponse.Command("weather thunder"), defaults.match("start a storm now"));
+		assertEquals(new BridgeResponse.Command("gamemode creative"), defaults.match("switch me to creative mode"));
+	}
+
+	@Test
+	void defaultGrammarMapsBuildsWithDefaults() {
+		assertEquals(new BridgeResponse.Build("cube", 5, 5, 5, "stone"), defaults.match("build a cube"));
+		assertEquals(new BridgeResponse.Build("house", 7, 4, 9, "oak_planks"),
+				defaults.match("can you build me a 7x4x9 oak_planks house"));
+		assertEquals(new BridgeResponse.Build("tower", 3, 20, 3, "stone"),
+				defaults.match("build a 3 by 20 by 3 tower"));
+	}
+
+	@Test
+	void unmatchedOrOutOfRangeFallsBackToTheBridge() {
+		assertNull(defaults.match("what is the best way to find diamonds"));
+		assertNull(defaults.match("build a 99x5x5 cube"));
+		assertNull(defaults.match("make it daytime and give me a sword"));
+	}
+
+	@Test
+	void customGrammarFillsPlaceholders() {
+		IntentParser parser = IntentParser.read(new StringReader("""
+				{"intents": [
+				  {"pattern": "heal(?: (?<target>\\\\w+))?", "command": "effect give {target} instant_health",
+				   "defaults": {"target": "@s"}},
+				  {"pattern": "tp to (\\\\w+)", "command": "tp @s {1}"}
+				]}
+				"""));
+
+		assertEquals(new BridgeResponse.Command("effect give @s instant_health"), parser.match("heal"));
+		assertEquals(new BridgeResponse.Command("effect give alex instant_health"), parser.match("heal Alex"));
+		assertEquals(new BridgeResponse.Command("tp @s steve"), parser.match("tp to steve"));
+		assertEquals(2, parser.size());
+	}
+}
@@ -0,0 +1,75 @@
+package com.botpress.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptivePacerTest {
+
+	@Test
+	void acceptedFeedbackConvergesToMinimumDelay() {
+		AdaptivePacer pacer = new AdaptivePacer(() -> 0L);
+
+		for (int i = 0; i < 100; i++) {
+			pacer.onSent();
+			pacer.onFeedback(AdaptivePacer.Feedback.ACCEPTED);
+		}
+
+		assertEquals(AdaptivePacer.MIN_DELAY_MS, pacer.nextDelayMs());
+	}
+
+	@Test
+	void rejectionsBackOffUpToMaximumDelay() {
+		AdaptivePacer pacer = new AdaptivePacer(() -> 0L);
+		long initial = pacer.nextDelayMs();
+
+		pacer.onSent();
+		pacer.onFeedback(AdaptivePacer.Feedback.REJECTED);
+		assertTrue(pacer.nextDelayMs() > initial);
+
+		for (int i = 0; i < 100; i++) {
+			pacer.onSent();
+			pacer.onFeedback(AdaptivePacer.Feedback.REJECTED);
+		}
+		assertEquals(AdaptivePacer.MAX_DELAY_MS, pacer.nextDelayMs());
+	}
+
+	@Test
+	void lowTickRateScalesDelay() {
+		AdaptivePacer pacer = new AdaptivePacer(() -> 0L);
+		long healthy = pacer.nextDelayMs();
+
+		pacer.updateTickRate(10.0);
+
+		assertEquals(healthy * 2, pacer.nextDelayMs());
+	}
+
+	@Test
+	void fullPipelineWaitsForRoundTrip() {
+		AtomicLong now = new AtomicLong();
+		AdaptivePacer pacer = new AdaptivePacer(now::get);
+		pacer.updatePing(800);
+
+		for (int i = 0; i < 8; i++) {
+			pacer.onSent();
+		}
+		assertEquals(100, pacer.nextDelayMs());
+
+		// Without any feedback the pacer assumes command feedback is disabled and stops waiting
+		now.set(5000);
+		assertEquals(AdaptivePacer.INITIAL_DELAY_MS, pacer.nextDelayMs());
+	}
+
+	@Test
+	void classifyUsesTranslationKeys() {
+		assertEquals(AdaptivePacer.Feedback.ACCEPTED, AdaptivePacer.classify("commands.fill.success"));
+		assertEquals(AdaptivePacer.Feedback.REJECTED, AdaptivePacer.classify("command.unknown.command"));
+		assertEquals(AdaptivePacer.Feedback.REJECTED, AdaptivePacer.classify("argument.pos.unloaded"));
+		assertEquals(AdaptivePacer.Feedback.REJECTED, AdaptivePacer.classify("commands.fill.toobig"));
+		assertEquals(AdaptivePacer.Feedback.IGNORED, AdaptivePacer.classify("chat.type.admin"));
+		assertEquals(AdaptivePacer.Feedback.IGNORED, AdaptivePacer.classify(null));
+	}
+}
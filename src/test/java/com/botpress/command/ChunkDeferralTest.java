@@ -0,0 +1,141 @@
+package com.botpress.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkDeferralTest {
+	private final Set<String> loaded = new HashSet<>();
+	private long now;
+
+	private ChunkDeferral deferral(String... commands) {
+		return new ChunkDeferral(CommandStream.of(List.of(commands)), (x, z) -> loaded.contains(x + "," + z), 1000,
+				() -> now);
+	}
+
+	private static List<String> drain(ChunkDeferral source) {
+		List<String> sent = new ArrayList<>();
+		for (String command = source.poll(); command != null; command = source.poll()) {
+			sent.add(command);
+		}
+		return sent;
+	}
+
+	@Test
+	void unloadedChunksWaitUntilTheyLoad() {
+		loaded.add("0,0");
+		ChunkDeferral source = deferral("setblock 0 0 0 stone", "setblock 100 0 100 stone", "setblock 1 0 0 stone",
+				"say done");
+
+		assertEquals(List.of("setblock 0 0 0 stone", "setblock 1 0 0 stone"), drain(source));
+		assertFalse(source.isExhausted());
+		assertTrue(source.isHeldBack());
+		assertEquals(1, source.heldChunks());
+
+		loaded.add("6,6");
+		source.chunkLoaded(6, 6);
+		assertEquals(List.of("setblock 100 0 100 stone", "say done"), drain(source));
+		assertTrue(source.isExhausted());
+		assertEquals(2, source.deferred());
+	}
+
+	@Test
+	void commandsWithoutATargetWaitBehindHeldWrites() {
+		loaded.add("0,0");
+		ChunkDeferral source = deferral("setblock 100 0 100 stone", "fill ~ ~ ~ ~1 ~1 ~1 air", "//set glass",
+				"setblock 0 0 0 stone");
+
+		// Nothing after the relative fill is read while it waits
+		assertNull(source.poll());
+		assertTrue(source.isHeldBack());
+
+		loaded.add("6,6");
+		source.chunkLoaded(6, 6);
+		assertEquals(List.of("setblock 100 0 100 stone", "fill ~ ~ ~ ~1 ~1 ~1 air", "//set glass",
+				"setblock 0 0 0 stone"), drain(source));
+		assertTrue(source.isExhausted());
+	}
+
+	@Test
+	void laterWritesWaitBehindAHeldWriteInAnyChunkItSpans() {
+		loaded.add("0,0");
+		ChunkDeferral source = deferral("fill 0 0 0 20 0 0 stone", "setblock 5 0 0 air", "setblock 0 5 0 dirt");
+
+		// The air lands in loaded chunk 0, but the fill waiting on chunk 1 must go first
+		assertNull(source.poll());
+		assertEquals(2, source.heldChunks());
+
+		loaded.add("1,0");
+		source.chunkLoaded(1, 0);
+		assertEquals(List.of("fill 0 0 0 20 0 0 stone", "setblock 5 0 0 air", "setblock 0 5 0 dirt"),
+				drain(source));
+		assertEquals(0, source.heldChunks());
+	}
+
+	@Test
+	void expiredWritesGoOutAfterTheWritesTheyWaitBehind() {
+		loaded.add("1,0");
+		ChunkDeferral source = deferral("setblock 0 0 0 stone", "fill 0 0 0 20 0 0 glass", "setblock 20 0 0 air");
+		assertNull(source.poll());
+
+		now += 1_000_000_000L;
+		assertEquals(List.of("setblock 0 0 0 stone", "fill 0 0 0 20 0 0 glass", "setblock 20 0 0 air"),
+				drain(source));
+		assertTrue(source.isExhausted());
+	}
+
+	@Test
+	void laterWritesToAHeldChunkWaitBehindIt() {
+		ChunkDeferral source = deferral("fill 0 0 0 3 3 3 stone", "setblock 1 1 1 air");
+		assertNull(source.poll());
+
+		// Loaded now, but the second write must not overtake the first
+		loaded.add("0,0");
+		assertNull(source.poll());
+		source.chunkLoaded(0, 0);
+		assertEquals(List.of("fill 0 0 0 3 3 3 stone", "setblock 1 1 1 air"), drain(source));
+	}
+
+	@Test
+	void writesSpanningChunksWaitForAllOfThem() {
+		loaded.add("0,0");
+		ChunkDeferral source = deferral("fill 0 0 0 20 0 0 stone");
+		assertNull(source.poll());
+
+		source.chunkLoaded(0, 0);
+		assertNull(source.poll());
+		loaded.add("1,0");
+		source.chunkLoaded(1, 0);
+		assertEquals("fill 0 0 0 20 0 0 stone", source.poll());
+	}
+
+	@Test
+	void writesGoOutAnywayAfterTheLongestWait() {
+		ChunkDeferral source = deferral("setblock 0 0 0 stone");
+		assertNull(source.poll());
+
+		now += 999_000_000L;
+		assertNull(source.poll());
+		now += 1_000_000L;
+		assertEquals("setblock 0 0 0 stone", source.poll());
+		assertTrue(source.isExhausted());
+	}
+
+	@Test
+	void cancelDropsHeldCommands() {
+		ChunkDeferral source = deferral("setblock 0 0 0 stone", "setblock 16 0 0 stone");
+		assertNull(source.poll());
+
+		source.cancel();
+		assertTrue(source.isExhausted());
+		assertEquals(0, source.heldChunks());
+	}
+}
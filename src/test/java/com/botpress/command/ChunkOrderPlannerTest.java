@@ -0,0 +1,102 @@
+package com.botpress.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkOrderPlannerTest {
+
+	@Test
+	void hilbertCurveVisitsNeighbours() {
+		int side = 16;
+		int[][] cells = new int[side * side][];
+		for (int x = 0; x < side; x++) {
+			for (int y = 0; y < side; y++) {
+				int d = (int) ChunkOrderPlanner.hilbert(side, x, y);
+				assertNull(cells[d]);
+				cells[d] = new int[] {x, y};
+			}
+		}
+		for (int d = 1; d < cells.length; d++) {
+			int distance = Math.abs(cells[d][0] - cells[d - 1][0]) + Math.abs(cells[d][1] - cells[d - 1][1]);
+			assertEquals(1, distance, "step " + d);
+		}
+	}
+
+	@Test
+	void writesToTheSameChunkEndUpTogether() {
+		List<String> commands = new ArrayList<>();
+		// Alternate between two chunks far apart, as a build produced in layers would
+		for (int y = 0; y < 4; y++) {
+			commands.add("setblock 0 " + y + " 0 stone");
+			commands.add("setblock 160 " + y + " 160 stone");
+		}
+
+		List<String> ordered = ChunkOrderPlanner.order(commands);
+
+		assertEquals(8, ordered.size());
+		assertEquals(new HashSet<>(commands), new HashSet<>(ordered));
+		assertEquals(1, chunkSwitches(ordered));
+	}
+
+	@Test
+	void overlappingWritesKeepTheirOrder() {
+		List<String> ordered = ChunkOrderPlanner.order(List.of("fill 100 0 100 101 0 101 stone",
+				"setblock 0 0 0 dirt", "fill 100 0 100 100 0 100 air", "setblock 1 0 0 dirt"));
+
+		assertTrue(ordered.indexOf("fill 100 0 100 101 0 101 stone") < ordered.indexOf("fill 100 0 100 100 0 100 air"));
+		assertEquals(1, chunkSwitches(ordered));
+	}
+
+	@Test
+	void otherCommandsAreBarriers() {
+		List<String> ordered = ChunkOrderPlanner.order(List.of("setblock 100 0 100 stone", "setblock 0 0 0 stone",
+				"setblock ~ ~1 ~ torch", "setblock 100 1 100 stone", "time set day", "setblock 0 1 0 stone"));
+
+		assertEquals("setblock ~ ~1 ~ torch", ordered.get(2));
+		assertEquals("setblock 100 1 100 stone", ordered.get(3));
+		assertEquals("time set day", ordered.get(4));
+		assertEquals("setblock 0 1 0 stone", ordered.get(5));
+	}
+
+	@Test
+	void sectionsGoBottomUpWithinAChunk() {
+		List<String> ordered = ChunkOrderPlanner.order(
+				List.of("setblock 0 100 0 glass", "setblock 0 70 0 glass", "setblock 0 -10 0 glass"));
+
+		assertEquals(List.of("setblock 0 -10 0 glass", "setblock 0 70 0 glass", "setblock 0 100 0 glass"), ordered);
+	}
+
+	@Test
+	void parsesRegions() {
+		assertArrayEquals(new int[] {1, 2, 3, 1, 2, 3}, ChunkOrderPlanner.region("/setblock 1 2 3 stone"));
+		assertArrayEquals(new int[] {-5, 0, 2, 4, 9, 7}, ChunkOrderPlanner.region("fill 4 9 2 -5 0 7 stone hollow"));
+		assertNull(ChunkOrderPlanner.region("fill ~ ~ ~ ~1 ~1 ~1 stone"));
+		assertNull(ChunkOrderPlanner.region("setblock 1 2 3"));
+		assertNull(ChunkOrderPlanner.region("//set stone"));
+	}
+
+	private static int chunkSwitches(List<String> commands) {
+		Set<String> seen = new HashSet<>();
+		int switches = 0;
+		String last = null;
+		for (String command : commands) {
+			int[] region = ChunkOrderPlanner.region(command);
+			String chunk = (region[0] >> 4) + "," + (region[2] >> 4);
+			if (last != null && !chunk.equals(last)) {
+				switches++;
+				assertTrue(seen.add(last), "chunk " + last + " visited twice");
+			}
+			last = chunk;
+		}
+		return switches;
+	}
+}
@@ -0,0 +1,97 @@
+package com.botpress.command;
+
+import com.botpress.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandSequenceTest {
+
+	@Test
+	void batchesAreCompactedIntoOneStreamStartedOnce() {
+		Recorder recorder = new Recorder();
+		CommandSequence sequence = new CommandSequence(false, null, UnaryOperator.identity(), new Metrics(),
+				recorder);
+
+		sequence.append(List.of("setblock 0 64 0 stone", "//set glass", "setblock 1 64 0 stone"));
+		sequence.append(List.of("setblock 2 64 0 stone"));
+		sequence.finish();
+
+		assertEquals(1, recorder.starts);
+		assertEquals(List.of("setblock 0 64 0 stone", "//set glass", "fill 1 64 0 2 64 0 minecraft:stone"),
+				drain(recorder.stream));
+		assertFalse(sequence.isOpen());
+	}
+
+	@Test
+	void strictModeStopsAtTheFirstInvalidBatch() {
+		Recorder recorder = new Recorder();
+		CommandSequence sequence = new CommandSequence(true, null, UnaryOperator.identity(), new Metrics(),
+				recorder);
+
+		sequence.append(List.of("//set glass"));
+		sequence.append(List.of("op someone", "setblock 0 64 0 stone"));
+		sequence.append(List.of("setblock 1 64 0 stone"));
+
+		assertEquals(1, recorder.rejected);
+		assertTrue(recorder.cancelled);
+		assertFalse(sequence.isOpen());
+		assertEquals(List.of(), drain(recorder.stream));
+	}
+
+	@Test
+	void sequencesThatChangeNothingSayItsAlreadyInPlace() {
+		Recorder recorder = new Recorder();
+		CommandSequence sequence = new CommandSequence(false, (x, y, z) -> "minecraft:stone",
+				UnaryOperator.identity(), new Metrics(), recorder);
+
+		sequence.append(List.of("setblock 0 64 0 stone"));
+		sequence.finish();
+
+		assertEquals(0, recorder.starts);
+		assertTrue(recorder.alreadyInPlace);
+	}
+
+	private static List<String> drain(CommandSource source) {
+		List<String> commands = new ArrayList<>();
+		for (String command = source.poll(); command != null; command = source.poll()) {
+			commands.add(command);
+		}
+		return commands;
+	}
+
+	private static final class Recorder implements CommandSequence.Listener {
+		CommandStream stream;
+		int starts;
+		int rejected;
+		boolean cancelled;
+		boolean alreadyInPlace;
+
+		@Override
+		public void start(CommandStream stream, int firstBatchSize) {
+			this.stream = stream;
+			starts++;
+		}
+
+		@Override
+		public void rejected(CommandValidation.ValidatedCommand offending, int count) {
+			rejected += count;
+		}
+
+		@Override
+		public void cancelled() {
+			cancelled = true;
+		}
+
+		@Override
+		public void alreadyInPlace() {
+			alreadyInPlace = true;
+		}
+	}
+}
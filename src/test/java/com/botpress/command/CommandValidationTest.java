@@ -6,6 +6,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CommandValidationTest {
@@ -103,4 +104,33 @@ class CommandValidationTest {
 		assertTrue(result.validCommands().isEmpty());
 		assertEquals(2, result.invalidCommands().size());
 	}
+
+	@Test
+	void generatedMatcherAgreesWithWhitelistSet() {
+		for (String command : GeneratedCommandWhitelist.WHITELISTED_COMMANDS) {
+			assertTrue(GeneratedCommandWhitelist.matches(command, 0, command.length()), command);
+			assertFalse(GeneratedCommandWhitelist.matches(command, 0, command.length() - 1), command);
+			assertFalse(GeneratedCommandWhitelist.matches(command + "x", 0, command.length() + 1), command);
+		}
+		assertFalse(GeneratedCommandWhitelist.matches("", 0, 0));
+	}
+
+	@Test
+	void validateMatchesBaseCommandInPlace() {
+		CommandValidation.ValidatedCommand validated = CommandValidation.validate("\t/time\tset day ");
+
+		assertTrue(validated.valid());
+		assertEquals("/time\tset day", validated.normalized());
+		assertEquals("time", validated.baseCommand());
+		assertEquals(2, validated.baseStart());
+		assertEquals(6, validated.baseEnd());
+	}
+
+	@Test
+	void validateReportsErrorMessages() {
+		assertEquals("Command not allowed: /notallowed", CommandValidation.validate("notallowed x").errorMessage());
+		assertEquals("Command not allowed: /<empty> (empty command)", CommandValidation.validate(null).errorMessage());
+		assertEquals("Command not allowed: ///", CommandValidation.validate("// set").errorMessage());
+		assertNull(CommandValidation.validate("time set day").errorMessage());
+	}
 }
@@ -0,0 +1,157 @@
+package com.botpress.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobQueueTest {
+
+	@Test
+	void jobsDrainOneAfterAnotherWithoutInterleaving() {
+		JobQueue queue = new JobQueue();
+		submit(queue, "a", CommandJob.Priority.NORMAL, "a1", "a2");
+		submit(queue, "b", CommandJob.Priority.NORMAL, "b1", "b2");
+
+		assertEquals(List.of("a1", "a2", "b1", "b2"), drain(queue));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void higherPriorityJobTakesOverBetweenCommands() {
+		JobQueue queue = new JobQueue();
+		submit(queue, "low", CommandJob.Priority.LOW, "l1", "l2");
+		assertEquals("l1", queue.poll().command());
+
+		submit(queue, "high", CommandJob.Priority.HIGH, "h1");
+
+		assertEquals(List.of("h1", "l2"), drain(queue));
+	}
+
+	@Test
+	void pausedJobsAreSkippedUntilResumed() {
+		JobQueue queue = new JobQueue();
+		CommandJob first = submit(queue, "a", CommandJob.Priority.NORMAL, "a1");
+		submit(queue, "b", CommandJob.Priority.NORMAL, "b1");
+
+		assertTrue(queue.pause(first.id()));
+		assertEquals("b1", queue.poll().command());
+		assertNull(queue.poll());
+
+		assertTrue(queue.resume(first.id()));
+		assertEquals("a1", queue.poll().command());
+	}
+
+	@Test
+	void cancelDropsRemainingCommandsAndNotifiesListener() {
+		JobQueue queue = new JobQueue();
+		List<CommandJob.State> finished = new ArrayList<>();
+		CommandJob job = queue.submit("a", CommandJob.Priority.NORMAL, CommandStream.of(List.of("a1", "a2")),
+				new CommandJob.JobListener() {
+					@Override
+					public void onFinished(CommandJob job) {
+						finished.add(job.state());
+					}
+				});
+
+		queue.poll();
+		assertTrue(queue.cancel(job.id()));
+
+		assertNull(queue.poll());
+		assertEquals(List.of(CommandJob.State.CANCELLED), finished);
+		assertEquals(1, job.sent());
+	}
+
+	@Test
+	void streamingHeadJobHoldsTheQueueUntilItsNextBatch() {
+		JobQueue queue = new JobQueue();
+		CommandStream stream = new CommandStream();
+		stream.append(List.of("s1"));
+		CommandJob job = queue.submit("stream", CommandJob.Priority.NORMAL, stream, CommandJob.JobListener.NONE);
+		submit(queue, "other", CommandJob.Priority.NORMAL, "o1");
+
+		assertEquals("s1", queue.poll().command());
+		assertNull(queue.poll());
+		assertEquals(-1, job.total());
+		assertEquals(1, queue.remaining());
+
+		stream.append(List.of("s2"));
+		stream.close();
+		assertEquals(2, queue.remaining());
+		assertEquals(List.of("s2", "o1"), drain(queue));
+		assertEquals(0, queue.remaining());
+		assertEquals(CommandJob.State.DONE, job.state());
+		assertEquals(2, job.total());
+	}
+
+	@Test
+	void jobHeldBackByUnloadedChunksLetsLaterJobsGo() {
+		JobQueue queue = new JobQueue();
+		boolean[] loaded = {false};
+		ChunkDeferral far = new ChunkDeferral(CommandStream.of(List.of("setblock 1000 64 1000 stone")),
+				(x, z) -> loaded[0], 30000);
+		CommandJob job = queue.submit("far", CommandJob.Priority.NORMAL, far, CommandJob.JobListener.NONE);
+		submit(queue, "near", CommandJob.Priority.NORMAL, "n1", "n2");
+
+		assertEquals(List.of("n1", "n2"), drain(queue));
+		assertEquals(CommandJob.State.QUEUED, job.state());
+
+		loaded[0] = true;
+		far.chunkLoaded(62, 62);
+		assertEquals(List.of("setblock 1000 64 1000 stone"), drain(queue));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void jobHandedToTheServerRunsUntilItSettles() {
+		JobQueue queue = new JobQueue();
+		boolean[] onServer = {true};
+		CommandJob job = submit(queue, "remote", CommandJob.Priority.NORMAL, "r1");
+		queue.setUnsettled(id -> id == job.id() && onServer[0]);
+		submit(queue, "next", CommandJob.Priority.NORMAL, "n1");
+
+		assertEquals(List.of("r1", "n1"), drain(queue));
+		assertEquals(CommandJob.State.RUNNING, job.state());
+		assertEquals(1, queue.jobs().size());
+
+		onServer[0] = false;
+		assertNull(queue.poll());
+		assertEquals(CommandJob.State.DONE, job.state());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void lazySourcesAreNotMaterialized() {
+		JobQueue queue = new JobQueue();
+		int[] produced = {0};
+		CommandSource source = CommandSource.of(IntStream.range(0, 10_000).mapToObj(i -> {
+			produced[0]++;
+			return "setblock " + i + " 64 0 stone";
+		}).iterator(), 10_000);
+		queue.submit("lazy", CommandJob.Priority.NORMAL, source, CommandJob.JobListener.NONE);
+
+		queue.poll();
+		queue.poll();
+
+		assertEquals(2, produced[0]);
+	}
+
+	private static CommandJob submit(JobQueue queue, String description, CommandJob.Priority priority,
+			String... commands) {
+		return queue.submit(description, priority, CommandStream.of(List.of(commands)), CommandJob.JobListener.NONE);
+	}
+
+	private static List<String> drain(JobQueue queue) {
+		List<String> commands = new ArrayList<>();
+		JobQueue.Dispatch dispatch;
+		while ((dispatch = queue.poll()) != null) {
+			commands.add(dispatch.command());
+		}
+		return commands;
+	}
+}
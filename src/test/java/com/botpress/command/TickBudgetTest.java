@@ -0,0 +1,96 @@
+package com.botpress.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickBudgetTest {
+	private static final long MS = 1_000_000;
+
+	private static int drain(TickBudget budget) {
+		int taken = 0;
+		while (budget.canTake()) {
+			budget.take();
+			taken++;
+		}
+		return taken;
+	}
+
+	@Test
+	void commandsAreSpreadEvenlyAtThePacedRate() {
+		AtomicLong now = new AtomicLong();
+		TickBudget budget = new TickBudget(100, 10 * MS, now::get);
+
+		int total = 0;
+		for (int tick = 0; tick < 20; tick++) {
+			budget.beginTick(10, 50);
+			int taken = drain(budget);
+			assertTrue(taken <= 6, "tick " + tick + " sent " + taken);
+			total += taken;
+			now.addAndGet(50 * MS);
+		}
+		// One second at 10 ms per command
+		assertEquals(100, total, 5);
+	}
+
+	@Test
+	void slowRatesSendEveryFewTicks() {
+		AtomicLong now = new AtomicLong();
+		TickBudget budget = new TickBudget(100, 10 * MS, now::get);
+		budget.beginTick(200, 50);
+		assertEquals(1, drain(budget));
+
+		int sent = 0;
+		for (int tick = 0; tick < 8; tick++) {
+			now.addAndGet(50 * MS);
+			budget.beginTick(200, 50);
+			sent += drain(budget);
+		}
+		assertEquals(2, sent);
+	}
+
+	@Test
+	void packetCapLimitsATick() {
+		AtomicLong now = new AtomicLong();
+		TickBudget budget = new TickBudget(3, 10 * MS, now::get);
+		budget.beginTick(1, 50);
+		now.addAndGet(50 * MS);
+		budget.beginTick(1, 50);
+
+		assertEquals(3, drain(budget));
+	}
+
+	@Test
+	void timeBudgetEndsTheTickButTheFirstCommandAlwaysGoes() {
+		AtomicLong now = new AtomicLong();
+		TickBudget budget = new TickBudget(100, 2 * MS, now::get);
+		budget.beginTick(1, 50);
+		now.addAndGet(50 * MS);
+		budget.beginTick(1, 50);
+
+		assertTrue(budget.canTake());
+		budget.take();
+		now.addAndGet(5 * MS);
+		assertFalse(budget.canTake());
+
+		TickBudget strict = new TickBudget(100, 0, now::get);
+		strict.beginTick(1, 50);
+		assertEquals(1, drain(strict));
+	}
+
+	@Test
+	void idleQueuesDoNotBankABurst() {
+		AtomicLong now = new AtomicLong();
+		TickBudget budget = new TickBudget(100, 10 * MS, now::get);
+		budget.beginTick(10, 50);
+		budget.idle();
+		now.addAndGet(10_000 * MS);
+
+		budget.beginTick(10, 50);
+		assertEquals(6, drain(budget));
+	}
+}
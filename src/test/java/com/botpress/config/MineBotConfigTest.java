@@ -0,0 +1,61 @@
+package com.botpress.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MineBotConfigTest {
+
+	@Test
+	void missingFileIsCreatedWithDefaults() throws IOException {
+		Path dir = Files.createTempDirectory("minebot-config");
+		Path file = dir.resolve(MineBotConfig.FILE_NAME);
+		try {
+			MineBotConfig config = MineBotConfig.load(file);
+
+			assertTrue(Files.exists(file));
+			assertTrue(config.cacheEnabled());
+			assertEquals(256, config.cacheMaxEntries());
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	@Test
+	void partialFileKeepsDefaultsForMissingKeys() throws IOException {
+		Path file = Files.createTempFile("minebot", ".json");
+		try {
+			Files.writeString(file, "{\"cacheEnabled\": false, \"cacheTtlMinutes\": 5}");
+
+			MineBotConfig config = MineBotConfig.load(file);
+
+			assertFalse(config.cacheEnabled());
+			assertEquals(5L, config.cacheTtlMinutes());
+			assertEquals(16, config.cacheBucketSize());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void playerWeightsAreReadByName() throws IOException {
+		Path file = Files.createTempFile("minebot", ".json");
+		try {
+			Files.writeString(file, "{\"serverPlayerWeights\": {\"Steve\": 3}}");
+
+			MineBotConfig config = MineBotConfig.load(file);
+
+			assertEquals(3, (int) config.serverPlayerWeights().get("Steve"));
+			assertEquals(40.0, config.serverTargetMspt(), 0.0);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.botpress.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+	@Test
+	void bucketsCoverEveryValueWithinAnEighth() {
+		for (long micros : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123_456, 3_600_000_000L,
+				Long.MAX_VALUE}) {
+			int bucket = LatencyHistogram.bucket(micros);
+			long upper = LatencyHistogram.upperBound(bucket);
+			assertTrue(upper >= micros, micros + " above its bucket");
+			assertTrue(upper - micros <= micros / 8, micros + " reported as " + upper);
+			if (bucket > 0) {
+				assertTrue(LatencyHistogram.upperBound(bucket - 1) < micros, micros + " fits a lower bucket");
+			}
+		}
+	}
+
+	@Test
+	void percentilesFollowTheRecordedDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i, TimeUnit.MILLISECONDS);
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(100, snapshot.count());
+		assertEquals(50.5, snapshot.meanMillis(), 1e-9);
+		assertEquals(50, snapshot.percentileMillis(0.5), 50 / 8.0);
+		assertEquals(99, snapshot.percentileMillis(0.99), 99 / 8.0);
+		assertEquals(100, snapshot.maxMillis(), 100 / 8.0);
+	}
+
+	@Test
+	void sinceKeepsOnlyTheInterval() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1, TimeUnit.SECONDS);
+		LatencyHistogram.Snapshot before = histogram.snapshot();
+		histogram.record(2, TimeUnit.MILLISECONDS);
+		histogram.record(3, TimeUnit.MILLISECONDS);
+
+		LatencyHistogram.Snapshot interval = histogram.snapshot().since(before);
+		assertEquals(2, interval.count());
+		assertEquals(2.5, interval.meanMillis(), 1e-9);
+		assertTrue(interval.maxMillis() < 4);
+	}
+
+	@Test
+	void concurrentRecordingLosesNothing() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					histogram.record(i % 50, TimeUnit.MICROSECONDS);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(80_000, histogram.snapshot().count());
+		assertEquals(8 * 200 * (49 * 50 / 2), histogram.snapshot().sumMicros());
+	}
+}
@@ -0,0 +1,115 @@
+package com.botpress.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsExporterTest {
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Test
+	void rowsDescribeTheIntervalBetweenSnapshots() {
+		Metrics metrics = new Metrics();
+		metrics.setQueueDepth(() -> 42);
+		metrics.add(Metrics.Counter.COMMANDS_SENT, 100);
+		Metrics.Snapshot first = metrics.snapshot(10_000);
+		metrics.add(Metrics.Counter.COMMANDS_SENT, 50);
+		metrics.increment(Metrics.Counter.COMMANDS_REJECTED);
+		metrics.record(Metrics.Stage.BRIDGE, TimeUnit.MILLISECONDS.toNanos(200));
+		Metrics.Snapshot second = metrics.snapshot(15_000);
+
+		List<String> header = MetricsExporter.header();
+		List<String> row = MetricsExporter.row(second, first);
+		assertEquals(header.size(), row.size());
+		assertEquals("5.000", row.get(header.indexOf("seconds")));
+		assertEquals("50", row.get(header.indexOf("commands_sent")));
+		assertEquals("1", row.get(header.indexOf("commands_rejected")));
+		assertEquals("10.000", row.get(header.indexOf("commands_per_second")));
+		assertEquals("42", row.get(header.indexOf("queue_depth")));
+		assertEquals("1", row.get(header.indexOf("bridge_count")));
+		assertEquals(200, Double.parseDouble(row.get(header.indexOf("bridge_p50_ms"))), 200 / 8.0);
+
+		JsonObject json = MetricsExporter.json(second, first);
+		assertEquals(50, json.get("commands_sent").getAsLong());
+		assertEquals(1, json.getAsJsonObject("stages").getAsJsonObject("bridge").get("count").getAsLong());
+	}
+
+	@Test
+	void disabledMetricsRecordNothing() {
+		Metrics metrics = new Metrics();
+		metrics.setEnabled(false);
+		long start = metrics.start();
+		metrics.stop(Metrics.Stage.REPLY, start);
+		metrics.increment(Metrics.Counter.REQUESTS);
+
+		Metrics.Snapshot snapshot = metrics.snapshot(0);
+		assertEquals(0, start);
+		assertEquals(0, snapshot.stage(Metrics.Stage.REPLY).count());
+		assertEquals(0, snapshot.count(Metrics.Counter.REQUESTS));
+	}
+
+	@Test
+	void filesRollOverAndOldOnesAreDropped() throws IOException {
+		Path directory = Files.createTempDirectory("minebot-metrics");
+		try {
+			Metrics metrics = new Metrics();
+			MetricsExporter exporter = new MetricsExporter(directory, MetricsExporter.Format.JSON, 1, 3);
+			Metrics.Snapshot previous = metrics.snapshot(0);
+			for (int i = 1; i <= 5; i++) {
+				metrics.increment(Metrics.Counter.REQUESTS);
+				Metrics.Snapshot current = metrics.snapshot(i * 1000L);
+				exporter.write(current, previous);
+				previous = current;
+			}
+
+			assertTrue(Files.exists(exporter.file(0)));
+			assertTrue(Files.exists(exporter.file(2)));
+			assertFalse(Files.exists(exporter.file(3)));
+			String newest = Files.readString(exporter.file(0)).strip();
+			assertEquals(5000, timeOf(newest));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	void csvFilesStartWithAHeader() throws IOException {
+		Path directory = Files.createTempDirectory("minebot-metrics");
+		try {
+			Metrics metrics = new Metrics();
+			MetricsExporter exporter = new MetricsExporter(directory, MetricsExporter.Format.CSV, 1 << 20, 2);
+			exporter.write(metrics.snapshot(2000), metrics.snapshot(1000));
+			exporter.write(metrics.snapshot(3000), metrics.snapshot(2000));
+
+			List<String> lines = Files.readAllLines(exporter.file(0));
+			assertEquals(3, lines.size());
+			assertEquals(String.join(",", MetricsExporter.header()), lines.get(0));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static long timeOf(String line) {
+		return Instant.parse(JsonParser.parseString(line).getAsJsonObject().get("time").getAsString()).toEpochMilli();
+	}
+}
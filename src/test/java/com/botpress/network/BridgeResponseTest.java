@@ -0,0 +1,52 @@
+package com.botpress.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BridgeResponseTest {
+
+	@Test
+	void readParsesSingleJsonResponse() {
+		String body = "{\"type\":\"worldedit\",\"description\":\"Wall\",\"commands\":[\"//set stone\"],"
+				+ "\"strictMode\":true}";
+
+		BridgeResponse response = BridgeResponse.read(new StringReader(body));
+
+		BridgeResponse.WorldEdit worldEdit = (BridgeResponse.WorldEdit) response;
+		assertEquals("Wall", worldEdit.description());
+		assertEquals(List.of("//set stone"), worldEdit.commands());
+		assertTrue(worldEdit.strictMode());
+	}
+
+	@Test
+	void readStreamHandsOverEachLineInOrder() throws IOException {
+		String body = """
+				{"type":"worldedit","description":"Art","commands":["setblock 0 64 0 stone"],"stream":true}
+
+				{"type":"commands","commands":["setblock 1 64 0 stone","setblock 2 64 0 stone"]}
+				{"type":"end"}
+				""";
+		List<BridgeResponse> responses = new ArrayList<>();
+
+		BridgeResponse.readStream(new StringReader(body), responses::add);
+
+		assertEquals(3, responses.size());
+		assertTrue(((BridgeResponse.WorldEdit) responses.get(0)).stream());
+		assertEquals(2, ((BridgeResponse.Commands) responses.get(1)).commands().size());
+		assertEquals(new BridgeResponse.End(), responses.get(2));
+	}
+
+	@Test
+	void unknownTypeBecomesError() {
+		BridgeResponse response = BridgeResponse.read(new StringReader("{\"type\":\"mystery\"}"));
+
+		assertEquals(new BridgeResponse.Error("Unknown response type: mystery"), response);
+	}
+}
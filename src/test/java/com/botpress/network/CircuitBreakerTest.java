@@ -0,0 +1,95 @@
+package com.botpress.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+	private final AtomicLong now = new AtomicLong(1000);
+
+	// Jitter pinned to its maximum, so delays are the full backoff
+	private CircuitBreaker breaker(int threshold) {
+		return new CircuitBreaker(threshold, 1000, 8000, now::get, () -> 1.0);
+	}
+
+	@Test
+	void opensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = breaker(3);
+		assertFalse(breaker.onFailure());
+		assertFalse(breaker.onFailure());
+		assertTrue(breaker.allowRequest());
+
+		assertTrue(breaker.onFailure());
+		assertFalse(breaker.allowRequest());
+		// Further failures don't reopen it
+		assertFalse(breaker.onFailure());
+	}
+
+	@Test
+	void successResetsTheFailureCount() {
+		CircuitBreaker breaker = breaker(2);
+		breaker.onFailure();
+		breaker.onSuccess();
+		assertFalse(breaker.onFailure());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	void closedCircuitHasNoProbe() {
+		assertEquals(-1, breaker(1).probeDelayMillis());
+	}
+
+	@Test
+	void healthyProbeClosesTheCircuit() {
+		CircuitBreaker breaker = breaker(1);
+		breaker.onFailure();
+		assertEquals(1000, breaker.probeDelayMillis());
+
+		now.addAndGet(1000);
+		assertEquals(0, breaker.probeDelayMillis());
+		assertTrue(breaker.onProbe(true));
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.onProbe(true));
+	}
+
+	@Test
+	void failedProbesBackOffUpToTheMaximum() {
+		CircuitBreaker breaker = breaker(1);
+		breaker.onFailure();
+
+		long[] expected = {2000, 4000, 8000, 8000};
+		for (long delay : expected) {
+			assertFalse(breaker.onProbe(false));
+			assertEquals(delay, breaker.probeDelayMillis());
+		}
+
+		// Reopening after a recovery starts from the shortest delay again
+		breaker.onProbe(true);
+		breaker.onFailure();
+		assertEquals(1000, breaker.probeDelayMillis());
+	}
+
+	@Test
+	void jitterWaitsBetweenHalfAndAllOfTheBackoff() {
+		CircuitBreaker early = new CircuitBreaker(1, 1000, 8000, now::get, () -> 0.0);
+		early.onFailure();
+		assertEquals(500, early.probeDelayMillis());
+
+		CircuitBreaker middle = new CircuitBreaker(1, 1000, 8000, now::get, () -> 0.5);
+		middle.onFailure();
+		assertEquals(750, middle.probeDelayMillis());
+	}
+
+	@Test
+	void successfulRequestClosesAnOpenCircuit() {
+		CircuitBreaker breaker = breaker(1);
+		breaker.onFailure();
+		assertTrue(breaker.onSuccess());
+		assertTrue(breaker.allowRequest());
+		assertEquals(-1, breaker.probeDelayMillis());
+	}
+}
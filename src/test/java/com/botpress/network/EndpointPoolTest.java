@@ -0,0 +1,195 @@
+package com.botpress.network;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointPoolTest {
+	private final HttpClient client = HttpClient.newHttpClient();
+	private final List<Stub> stubs = new ArrayList<>();
+
+	// A bridge stand-in that answers every request with its name after a configurable delay
+	private final class Stub {
+		final String name;
+		final HttpServer server;
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		final AtomicLong delayMillis = new AtomicLong();
+		final AtomicInteger hits = new AtomicInteger();
+
+		Stub(String name) throws IOException {
+			this.name = name;
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.setExecutor(executor);
+			server.createContext("/", exchange -> {
+				hits.incrementAndGet();
+				try {
+					Thread.sleep(delayMillis.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = name.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			server.start();
+			stubs.add(this);
+		}
+
+		URI uri() {
+			return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+		}
+	}
+
+	@AfterEach
+	void stopStubs() {
+		for (Stub stub : stubs) {
+			stub.server.stop(0);
+			stub.executor.shutdownNow();
+		}
+	}
+
+	// Connections are opened up front so the first timed request isn't slowed by the handshake
+	private EndpointPool pool(Stub... stubs) throws IOException, InterruptedException {
+		List<URI> uris = new ArrayList<>();
+		for (Stub stub : stubs) {
+			uris.add(stub.uri());
+			client.send(HttpRequest.newBuilder().uri(stub.uri().resolve("/health")).build(),
+					HttpResponse.BodyHandlers.discarding());
+			stub.hits.set(0);
+		}
+		return new EndpointPool(uris, () -> new CircuitBreaker(1, 60_000, 60_000), 16);
+	}
+
+	private String chat(EndpointPool pool, String key, double hedge) throws IOException, InterruptedException {
+		return pool.send(client, key, base -> HttpRequest.newBuilder().uri(EndpointPool.resolve(base, "chat")).build(),
+				HttpResponse.BodyHandlers.ofString(), hedge).body();
+	}
+
+	@Test
+	void requestsPreferTheFasterEndpoint() throws Exception {
+		Stub fast = new Stub("fast");
+		Stub slow = new Stub("slow");
+		slow.delayMillis.set(200);
+		EndpointPool pool = pool(fast, slow);
+
+		for (int i = 0; i < 20; i++) {
+			chat(pool, null, 0);
+		}
+
+		assertTrue(fast.hits.get() >= 18, "fast " + fast.hits.get() + ", slow " + slow.hits.get());
+	}
+
+	@Test
+	void playersStayWithTheirEndpoint() throws Exception {
+		Stub a = new Stub("a");
+		Stub b = new Stub("b");
+		EndpointPool pool = pool(a, b);
+
+		String first = chat(pool, "alice", 0);
+		for (int i = 0; i < 10; i++) {
+			// Make the other endpoint look better; the conversation still stays put
+			(first.equals("a") ? a : b).delayMillis.set(30);
+			assertEquals(first, chat(pool, "alice", 0));
+		}
+	}
+
+	@Test
+	void unreachableEndpointIsSkipped() throws Exception {
+		Stub a = new Stub("a");
+		Stub b = new Stub("b");
+		EndpointPool pool = pool(a, b);
+		String first = chat(pool, "alice", 0);
+		Stub bound = first.equals("a") ? a : b;
+		Stub other = bound == a ? b : a;
+
+		bound.server.stop(0);
+		assertThrows(IOException.class, () -> chat(pool, "alice", 0));
+
+		// The circuit opened, so the conversation moves instead of failing again
+		assertEquals(other.name, chat(pool, "alice", 0));
+		assertTrue(pool.available());
+	}
+
+	@Test
+	void noReachableEndpointFailsAtOnce() throws Exception {
+		Stub a = new Stub("a");
+		EndpointPool pool = pool(a);
+		a.server.stop(0);
+
+		assertThrows(IOException.class, () -> chat(pool, null, 0));
+		assertFalse(pool.available());
+		assertTrue(pool.probeDelayMillis() > 0);
+
+		long start = System.nanoTime();
+		assertThrows(ConnectException.class, () -> chat(pool, null, 0));
+		assertTrue(System.nanoTime() - start < 50_000_000L);
+	}
+
+	@Test
+	void slowRequestIsHedgedToAnotherEndpoint() throws Exception {
+		Stub a = new Stub("a");
+		Stub b = new Stub("b");
+		// Build a's latency history while b looks worse, so a gets the conversation
+		b.delayMillis.set(20);
+		EndpointPool pool = pool(a, b);
+		for (int i = 0; i < 25; i++) {
+			assertEquals("a", chat(pool, "alice", 0.9));
+		}
+
+		b.delayMillis.set(0);
+		a.delayMillis.set(2000);
+		long start = System.nanoTime();
+		assertEquals("b", chat(pool, "alice", 0.9));
+		assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+		// The conversation follows the endpoint that answered
+		a.delayMillis.set(0);
+		assertEquals("b", chat(pool, "alice", 0.9));
+	}
+
+	@Test
+	void hedgingWaitsForEnoughSamples() throws Exception {
+		Stub a = new Stub("a");
+		Stub b = new Stub("b");
+		b.delayMillis.set(20);
+		EndpointPool pool = pool(a, b);
+		chat(pool, "alice", 0.9);
+
+		assertEquals(-1, pool.hedgeDelayNanos(pool.route("alice"), 0.9));
+		a.delayMillis.set(200);
+		assertEquals("a", chat(pool, "alice", 0.9));
+		assertEquals(0, b.hits.get());
+	}
+
+	@Test
+	void routesKeepTheBasePath() {
+		assertEquals(URI.create("http://host:3000/chat"), EndpointPool.resolve(URI.create("http://host:3000"), "chat"));
+		assertEquals(URI.create("http://host/bridge/chat"),
+				EndpointPool.resolve(URI.create("http://host/bridge"), "chat"));
+		assertEquals(URI.create("http://host/bridge/reset/alice"),
+				EndpointPool.resolve(URI.create("http://host/bridge/"), "reset/alice"));
+	}
+}
@@ -0,0 +1,32 @@
+package com.botpress.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JobStatusPayloadTest {
+	private static JobStatusPayload roundTrip(JobStatusPayload payload) {
+		RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), DynamicRegistryManager.EMPTY);
+		JobStatusPayload.CODEC.encode(buf, payload);
+		JobStatusPayload decoded = JobStatusPayload.CODEC.decode(buf);
+		assertEquals(0, buf.readableBytes());
+		return decoded;
+	}
+
+	@Test
+	void jobsWithQueuedCommandsReachTheClient() {
+		JobStatusPayload payload = new JobStatusPayload(1200, 3, 40, 57, List.of(4, 9, 300));
+		assertEquals(payload, roundTrip(payload));
+	}
+
+	@Test
+	void emptyJobListRoundTrips() {
+		JobStatusPayload payload = new JobStatusPayload(0, 0, 0, 0, List.of());
+		assertEquals(payload, roundTrip(payload));
+	}
+}
@@ -0,0 +1,106 @@
+package com.botpress.network;
+
+import com.botpress.command.CommandSequence;
+import com.botpress.command.CommandSource;
+import com.botpress.command.CommandStream;
+import com.botpress.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplyReaderTest {
+
+	@Test
+	void streamedSequenceIsFedBatchByBatchAndCompletedAtItsEnd() throws IOException {
+		String body = """
+				{"type":"worldedit","description":"Art","commands":["setblock 0 64 0 stone"],"stream":true}
+				{"type":"commands","commands":["setblock 1 64 0 stone"]}
+				{"type":"end"}
+				{"type":"chat","text":"Done"}
+				""";
+		Recorder recorder = new Recorder();
+
+		new ReplyReader(recorder, new Metrics(), 100).read(ReplyReader.NDJSON, input(body));
+
+		assertEquals(List.of("fill 0 64 0 1 64 0 minecraft:stone"), drain(recorder.streams.get(0)));
+		assertEquals(List.of(new BridgeResponse.WorldEdit("Art",
+				List.of("setblock 0 64 0 stone", "setblock 1 64 0 stone"), false, false),
+				new BridgeResponse.Chat("Done")), recorder.completed);
+		assertEquals(List.of(new BridgeResponse.Chat("Done")), recorder.handled);
+	}
+
+	@Test
+	void longStreamsAreNotCollected() throws IOException {
+		String body = """
+				{"type":"worldedit","description":"Art","commands":["setblock 0 64 0 stone"],"stream":true}
+				{"type":"commands","commands":["setblock 1 64 0 stone","setblock 2 64 0 stone"]}
+				{"type":"end"}
+				""";
+		Recorder recorder = new Recorder();
+
+		new ReplyReader(recorder, new Metrics(), 2).read(ReplyReader.NDJSON + "; charset=utf-8", input(body));
+
+		assertTrue(recorder.completed.isEmpty());
+		assertEquals(1, recorder.streams.size());
+	}
+
+	@Test
+	void singleJsonRepliesAreHandledWhole() throws IOException {
+		Recorder recorder = new Recorder();
+
+		new ReplyReader(recorder, new Metrics(), 100).read("application/json",
+				input("{\"type\":\"command\",\"command\":\"time set day\"}"));
+
+		assertEquals(List.of(new BridgeResponse.Command("time set day")), recorder.handled);
+		assertEquals(recorder.handled, recorder.completed);
+		assertTrue(recorder.streams.isEmpty());
+	}
+
+	@Test
+	void acceptListsVoxelsOnlyWhenAsked() {
+		assertEquals(VoxelPayload.CONTENT_TYPE + ", application/x-ndjson, application/json", ReplyReader.accept(true));
+		assertEquals("application/x-ndjson, application/json", ReplyReader.accept(false));
+	}
+
+	private static ByteArrayInputStream input(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<String> drain(CommandSource source) {
+		List<String> commands = new ArrayList<>();
+		for (String command = source.poll(); command != null; command = source.poll()) {
+			commands.add(command);
+		}
+		return commands;
+	}
+
+	private static final class Recorder implements ReplyReader.Handler {
+		final List<BridgeResponse> handled = new ArrayList<>();
+		final List<BridgeResponse> completed = new ArrayList<>();
+		final List<CommandStream> streams = new ArrayList<>();
+
+		@Override
+		public void handle(BridgeResponse reply) {
+			handled.add(reply);
+		}
+
+		@Override
+		public CommandSequence begin(String description, boolean strictMode) {
+			return new CommandSequence(strictMode, null, UnaryOperator.identity(), new Metrics(),
+					(stream, firstBatchSize) -> streams.add(stream));
+		}
+
+		@Override
+		public void completed(BridgeResponse reply) {
+			completed.add(reply);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.botpress.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestPipelineTest {
+
+	@Test
+	void sameKeyRunsInSubmissionOrder() throws InterruptedException {
+		RequestPipeline pipeline = new RequestPipeline(Executors.newCachedThreadPool());
+		List<Integer> order = new CopyOnWriteArrayList<>();
+		CountDownLatch done = new CountDownLatch(20);
+
+		for (int i = 0; i < 20; i++) {
+			int index = i;
+			pipeline.submitOrdered("player", () -> {
+				order.add(index);
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i, order.get(i));
+		}
+	}
+
+	@Test
+	void slowConversationDoesNotBlockOtherRequests() throws InterruptedException {
+		RequestPipeline pipeline = new RequestPipeline(Executors.newCachedThreadPool());
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch otherRan = new CountDownLatch(2);
+
+		pipeline.submitOrdered("slow", () -> awaitQuietly(release));
+		pipeline.submitOrdered("other", otherRan::countDown);
+		pipeline.submit(otherRan::countDown);
+
+		assertTrue(otherRan.await(5, TimeUnit.SECONDS));
+		release.countDown();
+	}
+
+	@Test
+	void cancelInterruptsRunningRequestAndDropsQueuedOnes() throws InterruptedException {
+		RequestPipeline pipeline = new RequestPipeline(Executors.newCachedThreadPool());
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		AtomicBoolean queuedRan = new AtomicBoolean();
+
+		pipeline.submitOrdered("player", () -> {
+			started.countDown();
+			try {
+				Thread.sleep(10_000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		});
+		pipeline.submitOrdered("player", () -> queuedRan.set(true));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertEquals(2, pipeline.cancel("player"));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(0, pipeline.cancel("player"));
+
+		CountDownLatch next = new CountDownLatch(1);
+		pipeline.submitOrdered("player", next::countDown);
+		assertTrue(next.await(5, TimeUnit.SECONDS));
+		assertFalse(queuedRan.get());
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.botpress.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+	private static final String PLAYER = "0b6e5c5e-player";
+	private static final ResponseCache.Context HOME = at("minecraft:overworld", 100, 64, 200);
+	private long now;
+
+	private static ResponseCache.Context at(String dimension, int x, int y, int z) {
+		return new ResponseCache.Context(PLAYER, dimension, x, y, z);
+	}
+
+	private ResponseCache cache(int maxEntries) {
+		return new ResponseCache(maxEntries, 60_000, 16, () -> now);
+	}
+
+	@Test
+	void matchesNormalizedPromptAnywhereWhenReplyHasNoCoordinates() {
+		ResponseCache cache = cache(8);
+		cache.put("Make it daytime!", HOME, new BridgeResponse.Command("time set day"));
+
+		ResponseCache.Context elsewhere = at("minecraft:overworld", -5000, 70, 9000);
+
+		assertEquals(new BridgeResponse.Command("time set day"), cache.get("  make   it DAYTIME ", elsewhere));
+		assertNull(cache.get("make it daytime", at("minecraft:the_nether", 100, 64, 200)));
+	}
+
+	@Test
+	void nearbyCoordinatesAreReanchoredAtThePlayer() {
+		ResponseCache cache = cache(8);
+		cache.put("build a wall", HOME, new BridgeResponse.WorldEdit("Wall",
+				List.of("fill 102 64 200 110 68 200 minecraft:stone", "give @p torch 16"), false, false));
+
+		BridgeResponse hit = cache.get("build a wall", at("minecraft:overworld", -10, 70, 5));
+
+		assertEquals(new BridgeResponse.WorldEdit("Wall",
+				List.of("fill -8 70 5 0 74 5 minecraft:stone", "give @p torch 16"), false, false), hit);
+	}
+
+	@Test
+	void distantCoordinatesOnlyMatchInTheSameBucket() {
+		ResponseCache cache = cache(8);
+		cache.put("take me to spawn", HOME, new BridgeResponse.Command("tp @p 0 80 5000"));
+
+		assertEquals(new BridgeResponse.Command("tp @p 0 80 5000"),
+				cache.get("take me to spawn", at("minecraft:overworld", 110, 66, 207)));
+		assertNull(cache.get("take me to spawn", at("minecraft:overworld", 130, 64, 200)));
+	}
+
+	@Test
+	void expiresAfterTtlAndEvictsLeastRecentlyUsed() {
+		ResponseCache cache = cache(2);
+		cache.put("a", HOME, new BridgeResponse.Command("time set day"));
+		cache.put("b", HOME, new BridgeResponse.Command("weather clear"));
+		cache.get("a", HOME);
+		cache.put("c", HOME, new BridgeResponse.Command("time set night"));
+
+		assertNull(cache.get("b", HOME));
+		assertEquals(new BridgeResponse.Command("time set day"), cache.get("a", HOME));
+
+		now += 60_000;
+		assertNull(cache.get("a", HOME));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void repliesStayWithTheConversationThatProducedThem() {
+		ResponseCache cache = cache(8);
+		cache.put("make it bigger", HOME, new BridgeResponse.Build("house", 9, 6, 9, "oak_planks"));
+		cache.put("make it daytime", new ResponseCache.Context("other-player", "minecraft:overworld", 100, 64, 200),
+				new BridgeResponse.Command("time set day"));
+
+		assertNull(cache.get("make it bigger",
+				new ResponseCache.Context("other-player", "minecraft:overworld", 100, 64, 200)));
+		assertEquals(new BridgeResponse.Build("house", 9, 6, 9, "oak_planks"), cache.get("make it bigger", HOME));
+
+		assertEquals(1, cache.clearSession(PLAYER));
+		assertNull(cache.get("make it bigger", HOME));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void chatAndStreamedRepliesAreNotCached() {
+		ResponseCache cache = cache(8);
+		cache.put("hello", HOME, new BridgeResponse.Chat("Hi!"));
+		cache.put("art", HOME, new BridgeResponse.WorldEdit("Art", List.of(), false, true));
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void persistsUnexpiredEntries() throws IOException {
+		Path file = Files.createTempFile("minebot-cache", ".json");
+		try {
+			ResponseCache cache = cache(8);
+			cache.put("build a house", HOME, new BridgeResponse.Build("house", 5, 4, 5, "oak_planks"));
+			cache.put("build a wall", HOME,
+					new BridgeResponse.WorldEdit("Wall", List.of("setblock 100 64 201 stone"), true, false));
+			cache.save(file);
+
+			ResponseCache restored = cache(8);
+			restored.load(file);
+
+			assertEquals(new BridgeResponse.Build("house", 5, 4, 5, "oak_planks"), restored.get("build a house", HOME));
+			assertEquals(new BridgeResponse.WorldEdit("Wall", List.of("setblock 100 64 201 stone"), true, false),
+					restored.get("build a wall", HOME));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.botpress.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+	@Test
+	void attemptsAreBounded() {
+		RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+		assertTrue(policy.shouldRetry(1));
+		assertTrue(policy.shouldRetry(2));
+		assertFalse(policy.shouldRetry(3));
+	}
+
+	@Test
+	void atLeastOneAttempt() {
+		RetryPolicy policy = new RetryPolicy(0, 100, 1000);
+		assertEquals(1, policy.maxAttempts());
+		assertFalse(policy.shouldRetry(1));
+	}
+
+	@Test
+	void backoffDoublesUpToTheCap() {
+		RetryPolicy policy = new RetryPolicy(10, 100, 1000, () -> 1.0);
+		assertEquals(100, policy.delayMillis(1));
+		assertEquals(200, policy.delayMillis(2));
+		assertEquals(400, policy.delayMillis(3));
+		assertEquals(800, policy.delayMillis(4));
+		assertEquals(1000, policy.delayMillis(5));
+		assertEquals(1000, policy.delayMillis(60));
+	}
+
+	@Test
+	void delaysAreJitteredBelowTheBackoff() {
+		Random random = new Random(7);
+		RetryPolicy policy = new RetryPolicy(10, 100, 1000, random::nextDouble);
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (int i = 0; i < 1000; i++) {
+			long delay = policy.delayMillis(3);
+			min = Math.min(min, delay);
+			max = Math.max(max, delay);
+		}
+		assertTrue(min < 40, "min " + min);
+		assertTrue(max > 360 && max < 400, "max " + max);
+	}
+}
@@ -0,0 +1,119 @@
+package com.botpress.network;
+
+import com.botpress.build.VoxelModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VoxelPayloadTest {
+
+	// Header for a grid at (10, 64, 5) with the given palette; runs are appended by the caller
+	private static DataOutputStream header(ByteArrayOutputStream bytes, int sizeX, int sizeY, int sizeZ,
+			String... palette) throws IOException {
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x4D425631);
+		writeString(out, "Pixel art");
+		out.writeInt(10);
+		out.writeInt(64);
+		out.writeInt(5);
+		out.writeShort(sizeX);
+		out.writeShort(sizeY);
+		out.writeShort(sizeZ);
+		out.writeShort(palette.length);
+		for (String block : palette) {
+			writeString(out, block);
+		}
+		return out;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void run(DataOutputStream out, int length, int index) throws IOException {
+		while ((length & ~0x7F) != 0) {
+			out.writeByte(length & 0x7F | 0x80);
+			length >>>= 7;
+		}
+		out.writeByte(length);
+		out.writeByte(index);
+	}
+
+	private static List<VoxelModel> read(byte[] payload) throws IOException {
+		List<VoxelModel> slabs = new ArrayList<>();
+		VoxelPayload.read(new ByteArrayInputStream(payload), new VoxelPayload.Listener() {
+			@Override
+			public void begin(String description, int sizeX, int sizeY, int sizeZ) {
+				assertEquals("Pixel art", description);
+			}
+
+			@Override
+			public void slab(VoxelModel slab) {
+				slabs.add(slab);
+			}
+		});
+		return slabs;
+	}
+
+	@Test
+	void runsWrapAcrossRowsAndSkipUntouchedCells() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = header(bytes, 3, 2, 1, "minecraft:stone", "minecraft:dirt");
+		run(out, 2, 1);
+		run(out, 1, 0);
+		run(out, 3, 2);
+
+		List<VoxelModel> slabs = read(bytes.toByteArray());
+
+		assertEquals(1, slabs.size());
+		VoxelModel blocks = slabs.get(0);
+		assertEquals(5, blocks.size());
+		assertEquals("minecraft:stone", blocks.get(11, 64, 5));
+		assertNull(blocks.get(12, 64, 5));
+		assertEquals("minecraft:dirt", blocks.get(12, 65, 5));
+	}
+
+	@Test
+	void tallGridsArriveInSlabs() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = header(bytes, 128, 40, 1, "minecraft:white_concrete");
+		run(out, 128 * 40, 1);
+
+		List<VoxelModel> slabs = read(bytes.toByteArray());
+
+		assertEquals(3, slabs.size());
+		assertEquals(128 * VoxelPayload.SLAB_LAYERS, slabs.get(0).size());
+		assertEquals(128 * 8, slabs.get(2).size());
+		assertEquals("minecraft:white_concrete", slabs.get(2).get(137, 103, 5));
+	}
+
+	@Test
+	void rejectsBlockIdsThatCouldSmuggleCommandText() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = header(bytes, 1, 1, 1, "minecraft:stone destroy");
+		run(out, 1, 1);
+
+		assertThrows(IOException.class, () -> read(bytes.toByteArray()));
+	}
+
+	@Test
+	void rejectsRunsPastTheEndOfTheGrid() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = header(bytes, 2, 2, 1, "minecraft:stone");
+		run(out, 5, 1);
+
+		assertThrows(IOException.class, () -> read(bytes.toByteArray()));
+	}
+}
@@ -0,0 +1,71 @@
+package com.botpress.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MsptBudgetTest {
+	private static final long MS = 1_000_000;
+
+	@Test
+	void blocksGrowWhileTicksAreFastAndTheBudgetIsUsed() {
+		MsptBudget budget = new MsptBudget(40, 10 * MS, 1000, 100_000);
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(20 * MS, 5 * MS, true);
+		}
+		assertEquals(100_000, budget.blocks());
+	}
+
+	@Test
+	void blocksHoldWhenJobsRunOutOfWork() {
+		MsptBudget budget = new MsptBudget(40, 10 * MS, 1000, 100_000);
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(20 * MS, 1 * MS, false);
+		}
+		assertEquals(1000, budget.blocks());
+	}
+
+	@Test
+	void blocksBackOffOnceTicksRunSlow() {
+		MsptBudget budget = new MsptBudget(40, 10 * MS, 1000, 100_000);
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(20 * MS, 5 * MS, true);
+		}
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(60 * MS, 10 * MS, true);
+		}
+		assertEquals(1000, budget.blocks());
+		assertTrue(budget.mspt() > 55);
+	}
+
+	@Test
+	void oneSlowTickIsSmoothedOver() {
+		MsptBudget budget = new MsptBudget(40, 10 * MS, 1000, 100_000);
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(20 * MS, 5 * MS, true);
+		}
+		budget.record(80 * MS, 5 * MS, true);
+		assertEquals(100_000, budget.blocks());
+	}
+
+	@Test
+	void timeIsWhatTheRestOfTheTickLeaves() {
+		MsptBudget budget = new MsptBudget(40, 10 * MS, 1000, 100_000);
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(36 * MS, 2 * MS, true);
+		}
+		// 34 ms of other work leaves 6 ms below the target
+		assertEquals(6 * MS, budget.nanos(), MS / 10);
+
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(10 * MS, 2 * MS, true);
+		}
+		assertEquals(10 * MS, budget.nanos());
+
+		for (int tick = 0; tick < 100; tick++) {
+			budget.record(70 * MS, 2 * MS, true);
+		}
+		assertEquals(0, budget.nanos());
+	}
+}
@@ -0,0 +1,117 @@
+package com.botpress.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SectionBatchTest {
+	private record Visit(int sx, int sy, int sz, List<SectionBatch.Box<String>> boxes) {
+	}
+
+	private static List<Visit> drain(SectionBatch<String> batch) {
+		List<Visit> visits = new ArrayList<>();
+		batch.drain((sx, sy, sz, boxes) -> visits.add(new Visit(sx, sy, sz, List.copyOf(boxes))));
+		return visits;
+	}
+
+	@Test
+	void boxesAreClippedToSections() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(10, 0, 0, 20, 3, 3, "stone");
+
+		List<Visit> visits = drain(batch);
+		assertEquals(2, visits.size());
+		assertEquals(new SectionBatch.Box<>(10, 0, 0, 15, 3, 3, "stone"), visits.get(0).boxes().get(0));
+		assertEquals(new SectionBatch.Box<>(16, 0, 0, 20, 3, 3, "stone"), visits.get(1).boxes().get(0));
+	}
+
+	@Test
+	void volumeCoversEveryBlockOnce() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(-40, -70, 5, 33, 100, 60, "stone");
+
+		assertEquals(74L * 171 * 56, batch.volume());
+		long clipped = 0;
+		for (Visit visit : drain(batch)) {
+			for (SectionBatch.Box<String> box : visit.boxes()) {
+				assertEquals(visit.sx(), box.minX() >> 4);
+				assertEquals(visit.sx(), box.maxX() >> 4);
+				assertEquals(visit.sy(), box.minY() >> 4);
+				assertEquals(visit.sy(), box.maxY() >> 4);
+				assertEquals(visit.sz(), box.minZ() >> 4);
+				assertEquals(visit.sz(), box.maxZ() >> 4);
+				clipped += box.volume();
+			}
+		}
+		assertEquals(74L * 171 * 56, clipped);
+	}
+
+	@Test
+	void cornersMayComeInAnyOrder() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(5, 5, 5, 2, 2, 2, "stone");
+
+		assertEquals(64, batch.volume());
+		assertEquals(new SectionBatch.Box<>(2, 2, 2, 5, 5, 5, "stone"), drain(batch).get(0).boxes().get(0));
+	}
+
+	@Test
+	void boxesKeepTheirOrderWithinASection() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(0, 0, 0, 15, 15, 15, "stone");
+		batch.add(4, 4, 4, 4, 4, 4, "air");
+		batch.add(0, 0, 0, 3, 3, 3, "glass");
+
+		List<Visit> visits = drain(batch);
+		assertEquals(1, visits.size());
+		assertEquals(List.of("stone", "air", "glass"),
+				visits.get(0).boxes().stream().map(SectionBatch.Box::value).toList());
+	}
+
+	@Test
+	void sectionsComeChunkByChunkFromTheBottomUp() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(20, 40, -20, 20, 40, -20, "a");
+		batch.add(-20, 40, 20, -20, 40, 20, "b");
+		batch.add(20, -40, -20, 20, -40, -20, "c");
+		batch.add(-20, -40, -20, -20, -40, -20, "d");
+
+		List<Visit> visits = drain(batch);
+		List<String> order = visits.stream().map(v -> v.boxes().get(0).value()).toList();
+		assertEquals(List.of("d", "b", "c", "a"), order);
+		assertEquals(-2, visits.get(0).sx());
+		assertEquals(-3, visits.get(0).sy());
+		assertEquals(-2, visits.get(0).sz());
+	}
+
+	@Test
+	void keysRoundTripAtTheWorldBorder() {
+		int[] coordinates = {-1_875_000, -1, 0, 1, 1_875_000};
+		for (int sx : coordinates) {
+			for (int sz : coordinates) {
+				for (int sy : new int[] {-4, 0, 19, 255}) {
+					long key = SectionBatch.key(sx, sy, sz);
+					assertEquals(sx, SectionBatch.sectionX(key));
+					assertEquals(sy, SectionBatch.sectionY(key));
+					assertEquals(sz, SectionBatch.sectionZ(key));
+				}
+			}
+		}
+	}
+
+	@Test
+	void drainEmptiesTheBatch() {
+		SectionBatch<String> batch = new SectionBatch<>();
+		batch.add(0, 0, 0, 40, 40, 40, "stone");
+		assertEquals(27, batch.sectionCount());
+
+		drain(batch);
+		assertTrue(batch.isEmpty());
+		assertEquals(0, batch.volume());
+		assertTrue(drain(batch).isEmpty());
+	}
+}
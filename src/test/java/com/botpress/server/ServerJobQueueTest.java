@@ -0,0 +1,277 @@
+package com.botpress.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerJobQueueTest {
+	private static final UUID ALICE = new UUID(0, 1);
+	private static final UUID BOB = new UUID(0, 2);
+	private static final UUID CAROL = new UUID(0, 3);
+	private static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static List<String> commands(String prefix, int count) {
+		List<String> commands = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			commands.add(prefix + i);
+		}
+		return commands;
+	}
+
+	private static ServerJobQueue.Budget blocks(long blocks) {
+		return new ServerJobQueue.Budget(Integer.MAX_VALUE, blocks, UNLIMITED);
+	}
+
+	@Test
+	void playersTakeTurns() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 100));
+		queue.submit(BOB, 2, commands("b", 3));
+
+		List<UUID> order = new ArrayList<>();
+		queue.runTick(blocks(6), (player, command) -> {
+			order.add(player);
+			return 1;
+		});
+
+		assertEquals(List.of(ALICE, BOB, ALICE, BOB, ALICE, BOB), order);
+		assertEquals(97, queue.progress(ALICE).pending());
+		assertEquals(0, queue.progress(BOB).pending());
+	}
+
+	@Test
+	void commandsRunInOrderWithinAPlayer() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 2));
+		queue.submit(ALICE, 2, commands("b", 2));
+
+		List<String> ran = new ArrayList<>();
+		queue.runTick(blocks(UNLIMITED), (player, command) -> {
+			ran.add(command);
+			return 1;
+		});
+
+		assertEquals(List.of("a0", "a1", "b0", "b1"), ran);
+	}
+
+	@Test
+	void playersShareBlocksNotCommands() {
+		ServerJobQueue queue = new ServerJobQueue(100_000);
+		// Alice fills 1000 blocks per command, Bob and Carol place single blocks
+		queue.submit(ALICE, 1, commands("fill", 10_000));
+		queue.submit(BOB, 2, commands("set", 100_000));
+		queue.submit(CAROL, 3, commands("set", 100_000));
+
+		Map<UUID, Long> placed = new HashMap<>();
+		for (int tick = 0; tick < 5; tick++) {
+			queue.runTick(blocks(30_000), (player, command) -> {
+				long cost = command.startsWith("fill") ? 1000 : 1;
+				placed.merge(player, cost, Long::sum);
+				return cost;
+			});
+		}
+
+		long total = placed.values().stream().mapToLong(Long::longValue).sum();
+		for (UUID player : List.of(ALICE, BOB, CAROL)) {
+			double share = placed.get(player) / (double) total;
+			assertEquals(1.0 / 3, share, 0.05, "share of " + player);
+		}
+	}
+
+	@Test
+	void weightsScaleTheShare() {
+		ServerJobQueue queue = new ServerJobQueue(100_000);
+		queue.submit(ALICE, 1, commands("a", 100_000));
+		queue.submit(BOB, 2, commands("b", 100_000));
+		queue.setWeight(ALICE, 3);
+
+		Map<UUID, Long> placed = new HashMap<>();
+		for (int tick = 0; tick < 20; tick++) {
+			queue.runTick(blocks(1000), (player, command) -> {
+				placed.merge(player, 1L, Long::sum);
+				return 1;
+			});
+		}
+
+		assertEquals(3.0, placed.get(ALICE) / (double) placed.get(BOB), 0.1);
+	}
+
+	@Test
+	void tickStopsAtBlockBudget() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 50));
+
+		ServerJobQueue.TickResult result = queue.runTick(blocks(1000), (player, command) -> 100);
+
+		assertEquals(10, result.commands());
+		assertEquals(1000, result.blocks());
+		assertTrue(result.saturated());
+		assertEquals(40, result.progress().get(ALICE).pending());
+	}
+
+	@Test
+	void tickStopsAtCommandLimit() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 50));
+
+		ServerJobQueue.TickResult result = queue.runTick(new ServerJobQueue.Budget(20, UNLIMITED, UNLIMITED),
+				(player, command) -> 1);
+
+		assertEquals(20, result.progress().get(ALICE).executed());
+		assertEquals(30, queue.pending());
+	}
+
+	@Test
+	void tickStopsAtTimeBudget() {
+		AtomicLong now = new AtomicLong();
+		ServerJobQueue queue = new ServerJobQueue(1000, now::get);
+		queue.submit(ALICE, 1, commands("a", 50));
+
+		// Each command takes 1 ms against a 5 ms budget
+		queue.runTick(new ServerJobQueue.Budget(100, UNLIMITED, 5_000_000), (player, command) -> {
+			now.addAndGet(1_000_000);
+			return 1;
+		});
+
+		assertEquals(5, queue.progress(ALICE).executed());
+	}
+
+	@Test
+	void firstCommandAlwaysRuns() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 5));
+
+		ServerJobQueue.TickResult result = queue.runTick(new ServerJobQueue.Budget(1, 1, 0), (player, command) -> 5000);
+
+		assertEquals(1, result.commands());
+		assertTrue(result.saturated());
+	}
+
+	@Test
+	void emptyQueueIsNotSaturated() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 5));
+
+		ServerJobQueue.TickResult result = queue.runTick(blocks(UNLIMITED), (player, command) -> 1);
+
+		assertEquals(5, result.commands());
+		assertFalse(result.saturated());
+	}
+
+	@Test
+	void turnOrderCarriesOverBetweenTicks() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 10));
+		queue.submit(BOB, 2, commands("b", 10));
+
+		List<UUID> first = new ArrayList<>();
+		queue.runTick(new ServerJobQueue.Budget(1, UNLIMITED, UNLIMITED), (player, command) -> {
+			first.add(player);
+			return 1;
+		});
+		queue.runTick(new ServerJobQueue.Budget(1, UNLIMITED, UNLIMITED), (player, command) -> {
+			first.add(player);
+			return 1;
+		});
+
+		assertEquals(List.of(ALICE, BOB), first);
+	}
+
+	@Test
+	void failuresAreCounted() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, List.of("ok", "bad", "ok"));
+
+		queue.runTick(blocks(UNLIMITED), (player, command) -> command.equals("ok") ? 1 : -1);
+
+		ServerJobQueue.Progress progress = queue.progress(ALICE);
+		assertEquals(2, progress.executed());
+		assertEquals(1, progress.failed());
+	}
+
+	@Test
+	void batchesOverTheLimitAreRefusedAndCountedAsFailed() {
+		ServerJobQueue queue = new ServerJobQueue(10);
+		assertTrue(queue.submit(ALICE, 1, commands("a", 8)));
+		assertFalse(queue.submit(ALICE, 2, commands("b", 5)));
+
+		ServerJobQueue.Progress progress = queue.progress(ALICE);
+		assertEquals(8, progress.pending());
+		assertEquals(5, progress.failed());
+		// Other players have their own limit
+		assertTrue(queue.submit(BOB, 3, commands("c", 10)));
+	}
+
+	@Test
+	void cancelDropsOneJobOrAll() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 4));
+		queue.submit(ALICE, 2, commands("b", 3));
+		queue.submit(ALICE, 3, commands("c", 2));
+
+		assertEquals(3, queue.cancel(ALICE, 2));
+		List<String> ran = new ArrayList<>();
+		queue.runTick(new ServerJobQueue.Budget(2, UNLIMITED, UNLIMITED), (player, command) -> {
+			ran.add(command);
+			return 1;
+		});
+		assertEquals(List.of("a0", "a1"), ran);
+
+		assertEquals(4, queue.cancel(ALICE, -1));
+		assertEquals(0, queue.cancel(BOB, -1));
+		ServerJobQueue.Progress progress = queue.progress(ALICE);
+		assertEquals(7, progress.cancelled());
+		assertEquals(0, progress.pending());
+		assertEquals(0, queue.runTick(blocks(UNLIMITED), (player, command) -> 1).commands());
+	}
+
+	@Test
+	void everySentCommandIsAccountedFor() {
+		ServerJobQueue queue = new ServerJobQueue(20);
+		queue.submit(ALICE, 1, commands("a", 15));
+		queue.submit(ALICE, 2, commands("b", 10));
+		queue.reject(ALICE, 2);
+		queue.runTick(blocks(5), (player, command) -> 1);
+		queue.cancel(ALICE, 1);
+
+		ServerJobQueue.Progress progress = queue.progress(ALICE);
+		assertEquals(15 + 10 + 2,
+				progress.executed() + progress.failed() + progress.cancelled() + progress.pending());
+	}
+
+	@Test
+	void progressListsJobsWithCommandsStillQueued() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 2));
+		queue.submit(ALICE, 2, commands("b", 2));
+		queue.submit(ALICE, 3, commands("c", 2));
+		assertEquals(List.of(1, 2, 3), queue.progress(ALICE).jobs());
+
+		queue.runTick(new ServerJobQueue.Budget(3, UNLIMITED, UNLIMITED), (player, command) -> 1);
+		assertEquals(List.of(2, 3), queue.progress(ALICE).jobs());
+
+		queue.cancel(ALICE, 3);
+		assertEquals(List.of(2), queue.progress(ALICE).jobs());
+		queue.runTick(blocks(UNLIMITED), (player, command) -> 1);
+		assertEquals(List.of(), queue.progress(ALICE).jobs());
+	}
+
+	@Test
+	void removedPlayersAreForgotten() {
+		ServerJobQueue queue = new ServerJobQueue(1000);
+		queue.submit(ALICE, 1, commands("a", 5));
+		queue.remove(ALICE);
+
+		assertEquals(0, queue.pending());
+		assertTrue(queue.runTick(blocks(UNLIMITED), (player, command) -> 1).progress().isEmpty());
+	}
+}